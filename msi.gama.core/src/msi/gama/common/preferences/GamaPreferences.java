@@ -229,6 +229,25 @@ public class GamaPreferences {
 		public static final Pref<Boolean> CORE_SYNC = create("pref_display_synchronized",
 				"Synchronize outputs with the simulations steps (slows down experiments)", false, IType.BOOL).in(NAME,
 						EXECUTION);
+		/**
+		 * History of the experiments memorizing their steps
+		 */
+		public static final String HISTORY = "History of memorize experiments";
+		public static final Pref<Integer> HISTORY_KEYFRAME = create("pref_history_keyframe",
+				"Number of steps between two complete states (other steps only keep the agents that changed)", 50,
+				IType.INT).in(NAME, HISTORY).between(1, null);
+		public static final Pref<Boolean> HISTORY_COMPRESS =
+				create("pref_history_compress", "Compress the states kept in the history", true, IType.BOOL).in(NAME,
+						HISTORY);
+		public static final Pref<Integer> HISTORY_MEMORY = create("pref_history_memory",
+				"Memory used by the history before the oldest states are written to disk (in MB)", 256, IType.INT)
+						.in(NAME, HISTORY).between(0, null);
+		/**
+		 * Files saved by the models
+		 */
+		public static final String SAVE = "Saving of text and CSV files";
+		public static final Pref<Boolean> SAVE_ASYNCHRONOUS = create("pref_save_asynchronous",
+				"Write the files in a background thread at the end of each cycle", false, IType.BOOL).in(NAME, SAVE);
 		/**
 		 * Concurrency
 		 */
@@ -259,6 +278,9 @@ public class GamaPreferences {
 		public static final Pref<Boolean> CONSTANT_OPTIMIZATION = create("pref_optimize_constant_expressions",
 				"Automatically optimize constant expressions (still experimental)", false, IType.BOOL).in(NAME,
 						OPTIMIZATIONS);
+		public static final Pref<Boolean> SUBEXPRESSION_OPTIMIZATION = create("pref_optimize_common_subexpressions",
+				"Evaluate only once the sub-expressions repeated in an expression (still experimental)", false,
+				IType.BOOL).in(NAME, OPTIMIZATIONS);
 		public static final Pref<Boolean> AGENT_OPTIMIZATION = create("pref_optimize_agent_memory",
 				"Automatically optimize the memory used by agents", true, IType.BOOL).in(NAME, OPTIMIZATIONS);
 		public static final Pref<Boolean> MATH_OPTIMIZATION = create("pref_optimize_math_functions",
@@ -9,6 +9,11 @@
  **********************************************************************************************/
 package msi.gama.common.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.security.SecureRandom;
 import java.util.Collection;
@@ -17,6 +22,7 @@ import java.util.Random;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.random.CellularAutomatonRNG;
 import msi.gama.util.random.GamaRNG;
 import msi.gama.util.random.JavaRNG;
@@ -77,6 +83,28 @@ public class RandomUtils {
 		generator.setUsage(state.usage);
 	}
 
+	/**
+	 * Returns the exact internal state of the generator (including, for instance, the pending gaussian value), which,
+	 * unlike {@link #getState()}, can be restored without drawing again all the numbers already drawn
+	 */
+	public byte[] getGeneratorState() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(generator);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, null);
+		}
+		return bytes.toByteArray();
+	}
+
+	public void setGeneratorState(final byte[] state) {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(state))) {
+			generator = (GamaRNG) in.readObject();
+		} catch (final IOException | ClassNotFoundException e) {
+			throw GamaRuntimeException.create(e, null);
+		}
+	}
+
 	/**
 	 * Inits the generator.
 	 */
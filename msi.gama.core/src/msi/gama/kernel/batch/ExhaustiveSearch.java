@@ -9,6 +9,7 @@
  **********************************************************************************************/
 package msi.gama.kernel.batch;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import msi.gama.common.interfaces.IKeyword;
@@ -80,16 +81,19 @@ public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 	@Override
 	public ParametersSet findBestSolution(final IScope scope) throws GamaRuntimeException {
 		setBestFitness(null);
-		testSolutions(scope, new ParametersSet(), 0);
+		// The solutions are evaluated together, so that they share the simulations that can run concurrently
+		final List<ParametersSet> solutions = new ArrayList<>();
+		collectSolutions(scope, new ParametersSet(), 0, solutions);
+		currentExperiment.launchSimulationsWithSolutions(solutions);
 		return getBestSolution();
 	}
 
-	private void testSolutions(final IScope scope, final ParametersSet sol, final int index)
-			throws GamaRuntimeException {
+	private void collectSolutions(final IScope scope, final ParametersSet sol, final int index,
+			final List<ParametersSet> solutions) throws GamaRuntimeException {
 		final List<IParameter.Batch> variables = currentExperiment.getParametersToExplore();
 		final ParametersSet solution = new ParametersSet(sol);
 		if (variables.isEmpty()) {
-			currentExperiment.launchSimulationsWithSolution(solution);
+			solutions.add(solution);
 			return;
 		}
 		final IParameter.Batch var = variables.get(index);
@@ -97,9 +101,9 @@ public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 			for (final Object val : var.getAmongValue(scope)) {
 				solution.put(var.getName(), val);
 				if (solution.size() == variables.size()) {
-					currentExperiment.launchSimulationsWithSolution(solution);
+					solutions.add(new ParametersSet(solution));
 				} else {
-					testSolutions(scope, solution, index + 1);
+					collectSolutions(scope, solution, index + 1, solutions);
 				}
 			}
 		} else {
@@ -113,9 +117,9 @@ public class ExhaustiveSearch extends ParamSpaceExploAlgorithm {
 					continue;
 				}
 				if (solution.size() == variables.size()) {
-					currentExperiment.launchSimulationsWithSolution(solution);
+					solutions.add(new ParametersSet(solution));
 				} else {
-					testSolutions(scope, solution, index + 1);
+					collectSolutions(scope, solution, index + 1, solutions);
 				}
 				varValue = varValue + var.getStepValue(scope).doubleValue();
 			}
@@ -9,6 +9,8 @@
  **********************************************************************************************/
 package msi.gama.kernel.batch;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -229,9 +231,7 @@ public class GeneticAlgorithm extends ParamSpaceExploAlgorithm {
 	}
 
 	private void computePopFitness(final IScope scope, final List<Chromosome> population) throws GamaRuntimeException {
-		for (final Chromosome chromosome : population) {
-			computeChroFitness(scope, chromosome);
-		}
+		computeChrosFitness(scope, population);
 		if (this.improveSolution != null && improveSolution) {
 			for (final Chromosome chromosome : population) {
 				ParametersSet sol = chromosome.convertToSolution(scope, currentExperiment.getParametersToExplore());
@@ -243,6 +243,21 @@ public class GeneticAlgorithm extends ParamSpaceExploAlgorithm {
 		}
 	}
 
+	/**
+	 * Computes the fitness of the chromosomes, the solutions that have not been tested yet being evaluated together
+	 */
+	public void computeChrosFitness(final IScope scope, final Collection<Chromosome> chromosomes) {
+		final List<ParametersSet> solutions = new ArrayList<>();
+		for (final Chromosome chromosome : chromosomes) {
+			solutions.add(chromosome.convertToSolution(scope, currentExperiment.getParametersToExplore()));
+		}
+		testSolutions(solutions);
+		int i = 0;
+		for (final Chromosome chromosome : chromosomes) {
+			chromosome.setFitness(testedSolutions.get(solutions.get(i++)));
+		}
+	}
+
 	public void computeChroFitness(final IScope scope, final Chromosome chromosome) {
 		final ParametersSet sol = chromosome.convertToSolution(scope, currentExperiment.getParametersToExplore());
 		Double fitness = testedSolutions.get(sol);
@@ -309,16 +324,13 @@ public class GeneticAlgorithm extends ParamSpaceExploAlgorithm {
 				break;
 			}
 			ParametersSet bestNeighbor = null;
+			testSolutions(neighbors);
 
 			for (final ParametersSet neighborSol : neighbors) {
 				if (neighborSol == null) {
 					continue;
 				}
-				Double neighborFitness = testedSolutions.get(neighborSol);
-				if (neighborFitness == null) {
-					neighborFitness = Double.valueOf(currentExperiment.launchSimulationsWithSolution(neighborSol));
-				}
-				testedSolutions.put(neighborSol, neighborFitness);
+				final Double neighborFitness = testedSolutions.get(neighborSol);
 
 				if (isMaximize() && neighborFitness.doubleValue() > bestFitness
 						|| !isMaximize() && neighborFitness.doubleValue() < bestFitness) {
@@ -111,16 +111,13 @@ public class HillClimbing extends LocalSearchAlgorithm {
 			}
 			setBestFitness(currentFitness);
 			ParametersSet bestNeighbor = null;
+			testSolutions(neighbors);
 
 			for (final ParametersSet neighborSol : neighbors) {
 				if (neighborSol == null) {
 					continue;
 				}
-				Double neighborFitness = testedSolutions.get(neighborSol);
-				if (neighborFitness == null) {
-					neighborFitness = Double.valueOf(currentExperiment.launchSimulationsWithSolution(neighborSol));
-				}
-				testedSolutions.put(neighborSol, neighborFitness);
+				final Double neighborFitness = testedSolutions.get(neighborSol);
 
 				if (isMaximize() && neighborFitness.doubleValue() > getBestFitness()
 						|| !isMaximize() && neighborFitness.doubleValue() < getBestFitness()) {
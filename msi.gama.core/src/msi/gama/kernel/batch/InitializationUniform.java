@@ -37,9 +37,7 @@ public class InitializationUniform implements Initialization {
 				populationInit.add(new Chromosome(scope, variables, true));
 			}
 		}
-		for (final Chromosome chromosome : populationInit) {
-			algo.computeChroFitness(scope, chromosome);
-		}
+		algo.computeChrosFitness(scope, populationInit);
 		final List<Chromosome> populationInitOrd = new ArrayList<Chromosome>(populationInit);
 		Collections.sort(populationInitOrd);
 		final List<Chromosome> populationInitFinal = new ArrayList<Chromosome>();
@@ -10,8 +10,11 @@
 package msi.gama.kernel.batch;
 
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.experiment.BatchAgent;
@@ -77,6 +80,25 @@ public abstract class ParamSpaceExploAlgorithm extends Symbol implements IExplor
 		testedSolutions = new HashMap<ParametersSet, Double>();
 	}
 
+	/**
+	 * Evaluates the solutions that have not been tested yet (see testedSolutions) together, so that they share the
+	 * simulations that can run concurrently, and records their fitness
+	 */
+	protected void testSolutions(final List<ParametersSet> solutions) throws GamaRuntimeException {
+		final Set<ParametersSet> untested = new LinkedHashSet<>();
+		for (final ParametersSet solution : solutions) {
+			if (solution != null && !testedSolutions.containsKey(solution)) {
+				untested.add(solution);
+			}
+		}
+		if (untested.isEmpty()) { return; }
+		final List<ParametersSet> evaluated = new ArrayList<>(untested);
+		final List<Double> fitness = currentExperiment.launchSimulationsWithSolutions(evaluated);
+		for (int i = 0; i < evaluated.size(); i++) {
+			testedSolutions.put(evaluated.get(i), fitness.get(i));
+		}
+	}
+
 	void initParams() {
 		GAMA.run(new InScope.Void() {
 
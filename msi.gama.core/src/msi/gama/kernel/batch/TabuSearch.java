@@ -135,19 +135,28 @@ public class TabuSearch extends LocalSearchAlgorithm {
 			}
 			ParametersSet bestNeighbor = null;
 
+			// The neighbors that have not been tested yet, within the number of iterations left, are evaluated together
+			final List<ParametersSet> evaluated = new ArrayList<ParametersSet>();
 			for (final ParametersSet neighborSol : neighbors) {
 				// scope.getGui().debug("TabuSearch.findBestSolution for parametersSet " + neighborSol);
-				if (neighborSol == null) {
+				if (neighborSol == null || evaluated.contains(neighborSol)) {
 					continue;
 				}
-				Double neighborFitness = testedSolutions.get(neighborSol);
-				if (neighborFitness == null || neighborFitness == Double.MAX_VALUE) {
-					neighborFitness = Double.valueOf(currentExperiment.launchSimulationsWithSolution(neighborSol));
-					nbIt++;
-				} else {
+				final Double neighborFitness = testedSolutions.get(neighborSol);
+				if (neighborFitness != null && neighborFitness != Double.MAX_VALUE) {
 					continue;
 				}
-				testedSolutions.put(neighborSol, neighborFitness);
+				testedSolutions.remove(neighborSol);
+				evaluated.add(neighborSol);
+				nbIt++;
+				if (nbIt > iterMax) {
+					break;
+				}
+			}
+			testSolutions(evaluated);
+
+			for (final ParametersSet neighborSol : evaluated) {
+				final Double neighborFitness = testedSolutions.get(neighborSol);
 
 				// scope.getGui().debug("TabuSearch.findBestSolution neighborFitness = " + neighborFitness +
 				// " bestFitnessAlgo = " + bestFitnessAlgo + " bestFitness = " + getBestFitness() +
@@ -157,10 +166,6 @@ public class TabuSearch extends LocalSearchAlgorithm {
 					bestNeighbor = neighborSol;
 					bestFitnessAlgo = neighborFitness;
 				}
-
-				if (nbIt > iterMax) {
-					break;
-				}
 			}
 			if (bestNeighbor != null) {
 				bestSolutionAlgo = bestNeighbor;
@@ -11,6 +11,7 @@ package msi.gama.kernel.experiment;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +54,8 @@ public class BatchAgent extends ExperimentAgent {
 	private Double lastFitness;
 	private Double[] seeds;
 	final List<Double> fitnessValues = new ArrayList<>();
+	/** The solution evaluated by each simulation (see launchSimulationsWithSolutions()) */
+	private final Map<IAgent, Run> runs = new IdentityHashMap<>();
 
 	public BatchAgent(final IPopulation p) throws GamaRuntimeException {
 		super(p);
@@ -116,6 +119,7 @@ public class BatchAgent extends ExperimentAgent {
 					memorizeFitnessAndCloseSimulation(sim);
 				}
 				pop.clear();
+				runs.clear();
 			}
 
 		} catch (final GamaRuntimeException e) {
@@ -136,13 +140,15 @@ public class BatchAgent extends ExperimentAgent {
 	public void memorizeFitnessAndCloseSimulation(final IAgent sim) {
 		final IExpression fitness = getSpecies().getExplorationAlgorithm().getFitnessExpression();
 		final FileOutput output = getSpecies().getLog();
+		final Run run = runs.remove(sim);
 		double lastFitnessValue = 0;
 		if (fitness != null) {
 			lastFitnessValue = Cast.asFloat(sim.getScope(), fitness.value(sim.getScope()));
-			fitnessValues.add(lastFitnessValue);
+			(run == null ? fitnessValues : run.fitnessValues).add(lastFitnessValue);
 		}
 		if (output != null) {
-			getSpecies().getLog().doRefreshWriteAndClose(currentSolution, lastFitnessValue);
+			getSpecies().getLog().doRefreshWriteAndClose(run == null ? currentSolution : run.solution,
+					lastFitnessValue);
 		}
 		sim.dispose();
 	}
@@ -176,102 +182,148 @@ public class BatchAgent extends ExperimentAgent {
 	}
 
 	public Double launchSimulationsWithSolution(final ParametersSet sol) throws GamaRuntimeException {
-		// We first reset the currentSolution and the fitness values
+		return launchSimulationsWithSolutions(Collections.singletonList(sol)).get(0);
+	}
+
+	/**
+	 * Evaluates several solutions at once. The simulations of all the solutions share the simulations that can run
+	 * concurrently: as soon as one is over, the next one (of the same solution or of the next ones) is created. Each
+	 * repetition of a solution uses the same seed as when the solutions are evaluated one by one. Returns the fitness
+	 * of each solution (the combination of the fitness of its simulations), in the same order, or 0 for the solutions
+	 * that have not been evaluated because the batch has been interrupted
+	 */
+	public List<Double> launchSimulationsWithSolutions(final List<ParametersSet> solutions)
+			throws GamaRuntimeException {
+		final List<Double> result = new ArrayList<>(Collections.nCopies(solutions.size(), 0d));
 		final SimulationPopulation pop = getSimulationPopulation();
 		if (pop == null) // interrupted
-			return 0d;
-		currentSolution = new ParametersSet(sol);
-		fitnessValues.clear();
-		runNumber = runNumber + 1;
-		// The values present in the solution are passed to the parameters of
-		// the experiment
-		for (final Map.Entry<String, Object> entry : sol.entrySet()) {
-			final IParameter p = getSpecies().getExplorableParameters().get(entry.getKey());
-			if (p != null) {
-				p.setValue(getScope(), entry.getValue());
-			}
-		}
-
-		// We update the parameters (parameter to explore)
-		getScope().getGui().showParameterView(getScope(), getSpecies());
-
-		// We then create a number of simulations with the same solution
-
+			return result;
 		int numberOfCores = pop.getMaxNumberOfConcurrentSimulations();
 		if (numberOfCores == 0)
 			numberOfCores = 1;
+		final Run[] started = new Run[solutions.size()];
+		// The next solution and the next repetition of this solution to create a simulation for
+		int next = 0;
 		int repeatIndex = 0;
-		while (repeatIndex < getSeeds().length) {
-			for (int coreIndex = 0; coreIndex < numberOfCores; coreIndex++) {
+		int running = 0;
+		int finished = 0;
+		int i = 0;
+		while (finished < solutions.size()) {
+			// We create simulations as long as some cores are free
+			while (running < numberOfCores && next < solutions.size()) {
+				if (repeatIndex == 0) {
+					started[next] = startRun(solutions.get(next), next);
+				}
 				setSeed(getSeeds()[repeatIndex]);
-				createSimulation(currentSolution, true);
-				repeatIndex++;
-				if (repeatIndex == getSeeds().length)
-					break;
+				createSimulation(started[next].solution, true);
+				runs.put(pop.lastSimulationCreated(), started[next]);
+				started[next].running++;
+				running++;
+				if (++repeatIndex == getSeeds().length) {
+					started[next].complete = true;
+					repeatIndex = 0;
+					next++;
+				}
 			}
-			int i = 0;
-			while (pop.hasScheduledSimulations()) {
-				// We step all the simulations
-				pop.step(getScope());
-				// String cycles = "";
-				// We evaluate their stopCondition and unschedule the ones who
-				// return true
-				for (final IAgent sim : pop.toArray()) {
-					final SimulationAgent agent = (SimulationAgent) sim;
-					// cycles += " " + simulation.getClock().getCycle();
-					// test the condition first in case it is paused
-					final boolean stopConditionMet =
-							Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue());
-					final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
-					if (mustStop) {
-						pop.unscheduleSimulation(agent);
-						if (!getSpecies().keepsSimulations())
-							memorizeFitnessAndCloseSimulation(agent);
-					}
+			// We step all the simulations
+			pop.step(getScope());
+			// We evaluate their stopCondition and unschedule the ones who return true
+			for (final IAgent sim : pop.toArray()) {
+				final SimulationAgent agent = (SimulationAgent) sim;
+				final Run run = runs.get(agent);
+				if (run == null || run.stopped.contains(agent))
+					continue;
+				// test the condition first in case it is paused
+				final boolean stopConditionMet =
+						Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue());
+				final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
+				if (mustStop) {
+					pop.unscheduleSimulation(agent);
+					run.running--;
+					running--;
+					if (!getSpecies().keepsSimulations())
+						memorizeFitnessAndCloseSimulation(agent);
+					else
+						run.stopped.add(agent);
 				}
-				// We inform the status line
-
-				getScope().getGui().getStatus(getScope())
-						.setStatus("Run " + runNumber + " | " + repeatIndex + "/" + seeds.length
-								+ " simulations (using " + pop.getNumberOfActiveThreads() + " threads)",
-								"small.batch" + i / 5);
-				if (++i == 20) {
-					i = 0;
+			}
+			// The solutions whose simulations are all over are given their fitness
+			for (int j = finished; j < next; j++) {
+				final Run run = started[j];
+				if (run.complete && run.running == 0 && !run.over) {
+					result.set(run.index, endRun(run));
+					// If the agent is dead, we return immediately
+					if (dead) { return result; }
 				}
-				// We then verify that the front scheduler has not been paused
-				while (getSpecies().getController().getScheduler().paused && !dead) {
-					try {
-						Thread.sleep(100);
-					} catch (final InterruptedException e) {
-						e.printStackTrace();
-					}
+			}
+			while (finished < next && started[finished].over) {
+				finished++;
+			}
+			// We inform the status line
+			getScope().getGui().getStatus(getScope())
+					.setStatus("Run " + runNumber + " | " + running + " simulations of " + (next - finished)
+							+ " solutions (using " + pop.getNumberOfActiveThreads() + " threads)", "small.batch" + i / 5);
+			if (++i == 20) {
+				i = 0;
+			}
+			// We then verify that the front scheduler has not been paused
+			while (getSpecies().getController().getScheduler().paused && !dead) {
+				try {
+					Thread.sleep(100);
+				} catch (final InterruptedException e) {
+					e.printStackTrace();
 				}
 			}
+			if (dead) { return result; }
+		}
+
+		// We reset the experiment agent to erase traces of the simulations if any
+		this.reset();
+		return result;
+	}
 
+	/**
+	 * Starts the evaluation of a solution: its values are passed to the parameters of the experiment
+	 */
+	private Run startRun(final ParametersSet sol, final int index) {
+		currentSolution = new ParametersSet(sol);
+		runNumber = runNumber + 1;
+		for (final Map.Entry<String, Object> entry : sol.entrySet()) {
+			final IParameter p = getSpecies().getExplorableParameters().get(entry.getKey());
+			if (p != null) {
+				p.setValue(getScope(), entry.getValue());
+			}
 		}
+		// We update the parameters (parameter to explore)
+		getScope().getGui().showParameterView(getScope(), getSpecies());
+		return new Run(currentSolution, index);
+	}
 
-		// When the simulations are finished, we give a chance to the outputs of
-		// the experiment and the experiment
-		// agent itself to "step" once, effectively emulating what the front
-		// scheduler should do. The simulations are
-		// still "alive" at this stage (even if they are not scheduled anymore),
-		// which allows to retrieve information from them
+	/**
+	 * Ends the evaluation of a solution whose simulations are all over, and returns its fitness
+	 */
+	private Double endRun(final Run run) {
+		run.over = true;
+		// We give a chance to the outputs of the experiment and the experiment agent itself to "step" once,
+		// effectively emulating what the front scheduler should do. The simulations kept are still "alive" at this
+		// stage (even if they are not scheduled anymore), which allows to retrieve information from them. The
+		// simulations of the other solutions are not stepped (see stepSubPopulations())
+		currentSolution = run.solution;
 		super.step(getScope());
-
-		// If the agent is dead, we return immediately
 		if (dead) { return 0.0; }
-		// We reset the experiment agent to erase traces of the current
-		// simulations if any
-		this.reset();
+		for (final IAgent sim : run.stopped) {
+			memorizeFitnessAndCloseSimulation(sim);
+		}
+		run.stopped.clear();
 
 		// We then return the combination (average, min or max) of the different
 		// fitness values computed by the
 		// different simulation.
 		final short fitnessCombination = getSpecies().getExplorationAlgorithm().getCombination();
-		lastSolution = currentSolution;
-		lastFitness = fitnessCombination == IExploration.C_MAX ? Collections.max(fitnessValues)
-				: fitnessCombination == IExploration.C_MIN ? Collections.min(fitnessValues)
-						: Statistics.calculateMean(fitnessValues);
+		lastSolution = run.solution;
+		lastFitness = fitnessCombination == IExploration.C_MAX ? Collections.max(run.fitnessValues)
+				: fitnessCombination == IExploration.C_MIN ? Collections.min(run.fitnessValues)
+						: Statistics.calculateMean(run.fitnessValues);
 
 		// we update the best solution found so far
 		getSpecies().getExplorationAlgorithm().updateBestFitness(lastSolution, lastFitness);
@@ -280,7 +332,46 @@ public class BatchAgent extends ExperimentAgent {
 		getScope().getGui().showParameterView(getScope(), getSpecies());
 
 		return lastFitness;
+	}
+
+	/**
+	 * The simulations are only stepped by launchSimulationsWithSolutions(), which checks their stop condition after
+	 * each step. So stepping the experiment (in endRun()) does not step the simulations of the solutions still being
+	 * evaluated
+	 */
+	@Override
+	protected boolean stepSubPopulations(final IScope scope) {
+		final SimulationPopulation simulations = getSimulationPopulation();
+		for (final IPopulation<? extends IAgent> pop : getMicroPopulations()) {
+			if (pop == simulations) {
+				continue;
+			}
+			if (!scope.step(pop).passed())
+				return false;
+		}
+		return true;
+	}
 
+	/**
+	 * Class Run. A solution being evaluated, and the fitness of its simulations
+	 */
+	static class Run {
+		final ParametersSet solution;
+		/** The index of the solution in the ones evaluated together */
+		final int index;
+		final List<Double> fitnessValues = new ArrayList<>();
+		/** The simulations that are over, but kept until the outputs have been stepped */
+		final List<IAgent> stopped = new ArrayList<>();
+		int running;
+		/** Whether all its simulations have been created */
+		boolean complete;
+		/** Whether its fitness has been computed */
+		boolean over;
+
+		Run(final ParametersSet solution, final int index) {
+			this.solution = solution;
+			this.index = index;
+		}
 	}
 
 	public List<IParameter.Batch> getParametersToExplore() {
@@ -53,6 +53,8 @@ import msi.gama.util.GamaColor;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
 import msi.gama.util.TOrderedHashMap;
+import msi.gama.util.file.ParquetWriter;
+import msi.gama.util.file.TextWriterPool;
 import msi.gaml.species.GamlSpecies;
 import msi.gaml.species.ISpecies;
 import msi.gaml.statements.IExecutable;
@@ -225,6 +227,8 @@ public class ExperimentAgent extends GamlAgent implements IExperimentAgent {
 	public void dispose() {
 		if (dead) { return; }
 		closeSimulations();
+		TextWriterPool.closeAll(scope, this);
+		ParquetWriter.closeAll(scope, this);
 		GAMA.releaseScope(scope);
 		super.dispose();
 	}
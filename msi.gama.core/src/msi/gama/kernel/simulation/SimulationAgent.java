@@ -53,6 +53,8 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaColor;
 import msi.gama.util.GamaDate;
 import msi.gama.util.TOrderedHashMap;
+import msi.gama.util.file.ParquetWriter;
+import msi.gama.util.file.TextWriterPool;
 import msi.gaml.compilation.ISymbol;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
@@ -285,6 +287,7 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 		if (outputs != null) {
 			outputs.step(this.getScope());
 		}
+		TextWriterPool.flushAll(this.getScope());
 		clock.step(this.getScope());
 	}
 
@@ -325,6 +328,8 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 
 		if (externMicroPopulations != null)
 			externMicroPopulations.clear();
+		// The Parquet files saved by this simulation are completed
+		ParquetWriter.closeAll(getScope(), this);
 
 		if (outputs != null) {
 			outputs.dispose();
@@ -19,6 +19,7 @@ import com.vividsolutions.jts.geom.Geometry;
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.model.IModel;
+import msi.gama.metamodel.population.AttributeColumns;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
@@ -70,6 +71,8 @@ public abstract class AbstractAgent implements IAgent {
 	private volatile int index;
 	protected volatile boolean dead = false;
 	protected volatile boolean dying = false;
+	/** The columns of the population, looked up the first time an attribute is accessed (see getColumns()) */
+	private AttributeColumns columns;
 
 	@Override
 	public abstract IPopulation<? extends IAgent> getPopulation();
@@ -214,19 +217,49 @@ public abstract class AbstractAgent implements IAgent {
 
 	@Override
 	public boolean hasAttribute(final String key) {
+		final AttributeColumns columns = getColumns();
+		if (columns != null && columns.positionOf(key) != -1) { return true; }
 		return getGeometry().hasAttribute(key);
 	}
 
 	@Override
 	public Object getAttribute(final String key) {
+		final AttributeColumns columns = getColumns();
+		if (columns != null) {
+			final int column = columns.positionOf(key);
+			if (column != -1) { return columns.get(column, this); }
+		}
 		return getGeometry().getAttribute(key);
 	}
 
 	@Override
 	public void setAttribute(final String name, final Object val) {
+		final AttributeColumns columns = getColumns();
+		if (columns != null) {
+			final int column = columns.positionOf(name);
+			if (column != -1) {
+				columns.set(column, this, val);
+				return;
+			}
+		}
 		getOrCreateAttributes().put(name, val);
 	}
 
+	/**
+	 * The columns of the population of this agent, if it stores the attributes of its agents in columns rather than
+	 * in their geometries
+	 */
+	private AttributeColumns getColumns() {
+		AttributeColumns result = columns;
+		if (result == null) {
+			final IPopulation<? extends IAgent> p = getPopulation();
+			if (p == null) { return null; }
+			result = p.getColumns();
+			columns = result == null ? AttributeColumns.NONE : result;
+		}
+		return result == AttributeColumns.NONE ? null : result;
+	}
+
 	@Override
 	public int compareTo(final IAgent o) {
 		return Ints.compare(getIndex(), o.getIndex());
@@ -0,0 +1,292 @@
+/*********************************************************************************************
+ *
+ * 'AttributeColumns.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.metamodel.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gaml.species.ISpecies;
+import msi.gaml.types.IType;
+import msi.gaml.variables.IVariable;
+import msi.gaml.variables.Variable;
+
+/**
+ * Class AttributeColumns. A "struct-of-arrays" storage for the attributes of the agents of a population. Each eligible
+ * variable of the species (i.e. declared in GAML, without getter, setter or function) is backed by a column of
+ * primitive values (or objects) indexed by the index of the agents. The columns are used in place of the attributes
+ * map of the geometries of the agents when the species declares 'use_columnar_attributes: true'.
+ *
+ * The variables of a species are shared by all its populations, so the position of a variable in the columns is
+ * computed once and stored in the variable itself (see {@link Variable#getColumn()}). As this layout only depends on
+ * the species, it is identical for all the populations of the species.
+ *
+ * Growing the columns is synchronized, but reading and writing values is not: like the attributes maps, the columns
+ * rely on the fact that a given agent is only modified by one thread. A value written while the columns grow (because
+ * agents are created by another thread) is written again in the new columns, so that it is not lost.
+ *
+ */
+public class AttributeColumns {
+
+	static final int INITIAL_CAPACITY = 16;
+	/** Stands for the absence of columns in the agents that keep the columns of their population */
+	public static final AttributeColumns NONE = new AttributeColumns(new IVariable[0]);
+
+	private final IVariable[] variables;
+	private final TObjectIntHashMap<String> positions = new TObjectIntHashMap<>(10, 0.5f, -1);
+	private final Column[] columns;
+	private volatile int capacity = INITIAL_CAPACITY;
+	/** Incremented before and after the columns grow: odd while they are growing */
+	private final AtomicInteger growths = new AtomicInteger();
+
+	/**
+	 * Builds the columns of a population, or returns null if no variable of the species can be stored in a column
+	 */
+	public static AttributeColumns createFor(final ISpecies species) {
+		final List<IVariable> eligible = new ArrayList<>();
+		for (final IVariable v : species.getVars()) {
+			if (v instanceof Variable && ((Variable) v).canBeStoredInColumn()) {
+				eligible.add(v);
+			}
+		}
+		if (eligible.isEmpty()) { return null; }
+		return new AttributeColumns(eligible.toArray(new IVariable[eligible.size()]));
+	}
+
+	private AttributeColumns(final IVariable[] vars) {
+		variables = vars;
+		columns = new Column[vars.length];
+		for (int i = 0; i < vars.length; i++) {
+			final IVariable v = vars[i];
+			positions.put(v.getName(), i);
+			((Variable) v).setColumn(i);
+			switch (v.getType().id()) {
+				case IType.FLOAT:
+					columns[i] = new DoubleColumn(capacity);
+					break;
+				case IType.INT:
+					columns[i] = new IntColumn(capacity);
+					break;
+				case IType.BOOL:
+					columns[i] = new BoolColumn(capacity);
+					break;
+				default:
+					columns[i] = new ObjectColumn(capacity);
+			}
+		}
+	}
+
+	/**
+	 * Whether the variable is stored in one of these columns
+	 */
+	public boolean stores(final IVariable var, final int column) {
+		return column >= 0 && column < variables.length && variables[column] == var;
+	}
+
+	/**
+	 * Returns the position of the column storing the variable named 'name', or -1 if none
+	 */
+	public int positionOf(final String name) {
+		return positions.get(name);
+	}
+
+	public Object get(final int column, final IAgent agent) {
+		final int index = agent.getIndex();
+		if (index >= capacity) { return null; }
+		return columns[column].get(index);
+	}
+
+	public void set(final int column, final IAgent agent, final Object value) {
+		final int index = agent.getIndex();
+		if (index >= capacity) {
+			ensureCapacity(index + 1);
+		}
+		final int growth = growths.get();
+		if ((growth & 1) == 0) {
+			columns[column].set(index, value);
+			// Succeeds only if the columns have not started to grow since: the copy will then see the value
+			if (growths.compareAndSet(growth, growth)) { return; }
+		}
+		// The value may have been written in the columns being copied
+		synchronized (this) {
+			columns[column].set(index, value);
+		}
+	}
+
+	/**
+	 * Direct access to the values of a float variable, indexed by the index of agents. Can be used by operators that
+	 * scan the attributes of a whole population. Returns null if the variable is not stored in a float column
+	 */
+	public double[] getDoubleValues(final String name) {
+		final int column = positionOf(name);
+		if (column == -1 || !(columns[column] instanceof DoubleColumn)) { return null; }
+		return ((DoubleColumn) columns[column]).values;
+	}
+
+	/**
+	 * Direct access to the values of an int variable, indexed by the index of agents. Returns null if the variable is
+	 * not stored in an int column
+	 */
+	public int[] getIntValues(final String name) {
+		final int column = positionOf(name);
+		if (column == -1 || !(columns[column] instanceof IntColumn)) { return null; }
+		return ((IntColumn) columns[column]).values;
+	}
+
+	/**
+	 * Frees the values held for the agent (only relevant for object columns, as primitive values do not retain
+	 * anything)
+	 */
+	public void clear(final IAgent agent) {
+		final int index = agent.getIndex();
+		if (index >= capacity) { return; }
+		for (final Column c : columns) {
+			c.clear(index);
+		}
+	}
+
+	/**
+	 * Grows all the columns so that they can hold at least 'size' agents. The growth is synchronized as agents may be
+	 * created or modified concurrently, but the regular accesses are not (see set()).
+	 */
+	public synchronized void ensureCapacity(final int size) {
+		if (size <= capacity) { return; }
+		grow(Math.max(size, capacity + (capacity >> 1)));
+	}
+
+	public synchronized void dispose() {
+		grow(0);
+	}
+
+	private void grow(final int newCapacity) {
+		growths.incrementAndGet();
+		for (final Column c : columns) {
+			c.grow(newCapacity);
+		}
+		capacity = newCapacity;
+		growths.incrementAndGet();
+	}
+
+	static abstract class Column {
+
+		abstract Object get(int index);
+
+		abstract void set(int index, Object value);
+
+		abstract void grow(int newCapacity);
+
+		void clear(final int index) {}
+	}
+
+	static class DoubleColumn extends Column {
+
+		double[] values;
+
+		DoubleColumn(final int capacity) {
+			values = new double[capacity];
+		}
+
+		@Override
+		Object get(final int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			values[index] = value == null ? 0d : ((Number) value).doubleValue();
+		}
+
+		@Override
+		void grow(final int newCapacity) {
+			values = Arrays.copyOf(values, newCapacity);
+		}
+	}
+
+	static class IntColumn extends Column {
+
+		int[] values;
+
+		IntColumn(final int capacity) {
+			values = new int[capacity];
+		}
+
+		@Override
+		Object get(final int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			values[index] = value == null ? 0 : ((Number) value).intValue();
+		}
+
+		@Override
+		void grow(final int newCapacity) {
+			values = Arrays.copyOf(values, newCapacity);
+		}
+	}
+
+	static class BoolColumn extends Column {
+
+		boolean[] values;
+
+		BoolColumn(final int capacity) {
+			values = new boolean[capacity];
+		}
+
+		@Override
+		Object get(final int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			values[index] = value != null && (Boolean) value;
+		}
+
+		@Override
+		void grow(final int newCapacity) {
+			values = Arrays.copyOf(values, newCapacity);
+		}
+	}
+
+	static class ObjectColumn extends Column {
+
+		Object[] values;
+
+		ObjectColumn(final int capacity) {
+			values = new Object[capacity];
+		}
+
+		@Override
+		Object get(final int index) {
+			return values[index];
+		}
+
+		@Override
+		void set(final int index, final Object value) {
+			values[index] = value;
+		}
+
+		@Override
+		void grow(final int newCapacity) {
+			values = Arrays.copyOf(values, newCapacity);
+		}
+
+		@Override
+		void clear(final int index) {
+			values[index] = null;
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.GamaShape;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.ISpatialIndex;
 import msi.gama.metamodel.topology.ITopology;
 import msi.gama.metamodel.topology.continuous.ContinuousTopology;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
@@ -94,6 +95,15 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	protected final IVariable[] updatableVars;
 	protected int currentAgentIndex;
 	protected final IArchitecture architecture;
+	/**
+	 * The columns storing the attributes of agents when the species uses columnar attributes (null otherwise)
+	 */
+	protected AttributeColumns columns;
+	/**
+	 * Whether the updates of the spatial index caused by the agents during a step are applied in one batch at the end
+	 * of the step
+	 */
+	protected boolean deferIndexUpdates;
 
 	/**
 	 * Listeners, created in a lazy way
@@ -152,6 +162,18 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 			final String s = updatableVarNames.get(i);
 			updatableVars[i] = species.getVar(s);
 		}
+		final IExpression columnar = species.getFacet(IKeyword.USE_COLUMNAR_ATTRIBUTES);
+		if (columnar != null) {
+			final IScope scope = host == null ? GAMA.getRuntimeScope() : host.getScope();
+			if (Cast.asBool(scope, columnar.value(scope))) {
+				columns = AttributeColumns.createFor(species);
+			}
+		}
+		final IExpression deferred = species.getFacet(IKeyword.USE_DEFERRED_INDEX);
+		if (deferred != null) {
+			final IScope scope = host == null ? GAMA.getRuntimeScope() : host.getScope();
+			deferIndexUpdates = Cast.asBool(scope, deferred.value(scope));
+		}
 		if (species.isMirror() && host != null) {
 			host.getScope().getSimulation()
 					.postEndAction(new MirrorPopulationManagement(species.getFacet(IKeyword.MIRRORS)));
@@ -168,8 +190,25 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 			if (frequency == 0 || step % frequency != 0) { return true; }
 		}
 		getSpecies().getArchitecture().preStep(scope, this);
-		return stepAgents(scope);
+		final ISpatialIndex.Compound index = deferIndexUpdates ? getCompoundIndex() : null;
+		final boolean deferring = index != null && index.startDeferring(this);
+		try {
+			return stepAgents(scope);
+		} finally {
+			if (deferring)
+				index.stopDeferring(this);
+		}
+
+	}
 
+	/**
+	 * Returns the spatial index in which the agents of this population are inserted, if it supports deferred (and
+	 * bulk) updates. Grids, which are indexed by their own matrix, are excluded
+	 */
+	protected ISpatialIndex.Compound getCompoundIndex() {
+		if (topology == null || isGrid()) { return null; }
+		final ISpatialIndex index = topology.getSpatialIndex();
+		return index instanceof ISpatialIndex.Compound ? (ISpatialIndex.Compound) index : null;
 	}
 
 	protected boolean stepAgents(final IScope scope) {
@@ -208,6 +247,11 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		}
 	}
 
+	@Override
+	public AttributeColumns getColumns() {
+		return columns;
+	}
+
 	@Override
 	public boolean init(final IScope scope) {
 		return true;
@@ -252,6 +296,21 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		return species;
 	}
 
+	/**
+	 * Returns the index that will be given to the next agent created in this population
+	 */
+	public int getCurrentAgentIndex() {
+		return currentAgentIndex;
+	}
+
+	/**
+	 * Sets the index that will be given to the next agent created in this population. Only used to put a population
+	 * back in a saved state, as the indices (and therefore the names) of its agents have to remain unique
+	 */
+	public void setCurrentAgentIndex(final int index) {
+		currentAgentIndex = index;
+	}
+
 	@SuppressWarnings ("unchecked")
 	@Override
 	public Iterable<T> iterable(final IScope scope) {
@@ -268,6 +327,9 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 			topology.dispose();
 			topology = null;
 		}
+		if (columns != null) {
+			columns.dispose();
+		}
 	}
 
 	@SuppressWarnings ("unchecked")
@@ -291,13 +353,24 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		if (number == 0) { return GamaListFactory.create(); }
 		final IList<T> list = GamaListFactory.create(getType().getContentType(), number);
 		final IAgentConstructor<T> constr = species.getDescription().getAgentConstructor();
-		for (final IShape geom : geometries.iterable(scope)) {
-			// WARNING Should be redefined somehow
-			final T a = constr.createOneAgent(this);
-			final int ind = currentAgentIndex++;
-			a.setIndex(ind);
-			a.setGeometry(geom);
-			list.add(a);
+		// The agents are inserted in the spatial index in one batch once their geometries have been set
+		final ISpatialIndex.Compound index = getCompoundIndex();
+		final boolean bulk = index != null && index.startDeferring(this);
+		try {
+			for (final IShape geom : geometries.iterable(scope)) {
+				// WARNING Should be redefined somehow
+				final T a = constr.createOneAgent(this);
+				final int ind = currentAgentIndex++;
+				a.setIndex(ind);
+				a.setGeometry(geom);
+				list.add(a);
+			}
+		} finally {
+			if (bulk)
+				index.stopDeferring(this);
+		}
+		if (columns != null) {
+			columns.ensureCapacity(currentAgentIndex);
 		}
 		/* agents. */addAll(list);
 
@@ -335,27 +408,38 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		if (number == 0) { return GamaListFactory.create(); }
 		final IList<T> list = GamaListFactory.create(getType().getContentType(), number);
 		final IAgentConstructor<T> constr = species.getDescription().getAgentConstructor();
-		for (int i = 0; i < number; i++) {
-			@SuppressWarnings ("unchecked") final T a = constr.createOneAgent(this);
-			final int ind = currentAgentIndex++;
-			a.setIndex(ind);
-			// Try to grab the location earlier
-			if (initialValues != null && !initialValues.isEmpty()) {
-				final Map<String, Object> init = initialValues.get(i);
-				if (init.containsKey(IKeyword.SHAPE)) {
-					final Object val = init.get(IKeyword.SHAPE);
-					if (val instanceof GamaPoint) {
-						a.setGeometry(new GamaShape((IShape) val));
-					} else {
-						a.setGeometry((IShape) val);
+		// The agents are inserted in the spatial index in one batch once their geometries have been set
+		final ISpatialIndex.Compound index = getCompoundIndex();
+		final boolean bulk = index != null && index.startDeferring(this);
+		try {
+			for (int i = 0; i < number; i++) {
+				@SuppressWarnings ("unchecked") final T a = constr.createOneAgent(this);
+				final int ind = currentAgentIndex++;
+				a.setIndex(ind);
+				// Try to grab the location earlier
+				if (initialValues != null && !initialValues.isEmpty()) {
+					final Map<String, Object> init = initialValues.get(i);
+					if (init.containsKey(IKeyword.SHAPE)) {
+						final Object val = init.get(IKeyword.SHAPE);
+						if (val instanceof GamaPoint) {
+							a.setGeometry(new GamaShape((IShape) val));
+						} else {
+							a.setGeometry((IShape) val);
+						}
+						init.remove(IKeyword.SHAPE);
+					} else if (init.containsKey(IKeyword.LOCATION)) {
+						a.setLocation((GamaPoint) init.get(IKeyword.LOCATION));
+						init.remove(IKeyword.LOCATION);
 					}
-					init.remove(IKeyword.SHAPE);
-				} else if (init.containsKey(IKeyword.LOCATION)) {
-					a.setLocation((GamaPoint) init.get(IKeyword.LOCATION));
-					init.remove(IKeyword.LOCATION);
 				}
+				list.add(a);
 			}
-			list.add(a);
+		} finally {
+			if (bulk)
+				index.stopDeferring(this);
+		}
+		if (columns != null) {
+			columns.ensureCapacity(currentAgentIndex);
 		}
 		addAll(list);
 		createVariablesFor(scope, list, initialValues);
@@ -612,6 +696,8 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		if (value instanceof IAgent && super.remove(value)) {
 			if (topology != null)
 				topology.removeAgent((IAgent) value);
+			if (columns != null)
+				columns.clear((IAgent) value);
 			fireAgentRemoved(scope, (IAgent) value);
 		}
 	}
@@ -78,6 +78,16 @@ public interface IPopulation<T extends IAgent>
 
 	public abstract boolean hasVar(final String n);
 
+	/**
+	 * Returns the columns in which the attributes of the agents are stored, or null if the population stores them in
+	 * the attributes of the agents' geometries (the default)
+	 *
+	 * @see AttributeColumns
+	 */
+	public default AttributeColumns getColumns() {
+		return null;
+	}
+
 	@Override
 	public default IPopulation<? extends IAgent> getPopulation(final IScope scope) {
 		return this;
@@ -365,6 +365,23 @@ public abstract class AbstractTopology implements ITopology {
 		return result;
 	}
 
+	@Override
+	public Collection<IAgent> getAgentsClosestTo(final IScope scope, final IShape source, final IAgentFilter filter,
+			final int number) {
+		if (!isTorus()) { return getSpatialIndex().kNearest(scope, source, number, filter); }
+		final NearestAgents result = new NearestAgents(number);
+		final Geometry g0 = returnToroidalGeom(source.getGeometry());
+		final Map<Geometry, IAgent> agents = getTororoidalAgents(scope, filter);
+		for (final Geometry g1 : agents.keySet()) {
+			final IAgent ag = agents.get(g1);
+			if (source.getAgent() != null && ag == source.getAgent()) {
+				continue;
+			}
+			result.offer(ag, g0.distance(g1));
+		}
+		return result.toList();
+	}
+
 	@Override
 	public IAgent getAgentFarthestTo(final IScope scope, final IShape source, final IAgentFilter filter) {
 		if (!isTorus()) {
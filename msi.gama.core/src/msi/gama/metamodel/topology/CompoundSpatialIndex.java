@@ -10,12 +10,15 @@
 package msi.gama.metamodel.topology;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.collect.Sets;
 import com.vividsolutions.jts.geom.Envelope;
@@ -32,8 +35,18 @@ import msi.gaml.operators.fastmaths.FastMath;
 
 public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compound {
 
+	/**
+	 * Marks the agents that were not yet indexed when their first update was deferred
+	 */
+	private static final Envelope NOT_INDEXED = new Envelope();
+
 	boolean disposed = false;
 	private final Map<IPopulation<? extends IAgent>, ISpatialIndex> spatialIndexes;
+	/**
+	 * For each population whose updates are deferred, the agents updated and the envelope under which they are
+	 * currently indexed
+	 */
+	private final Map<IPopulation<? extends IAgent>, Map<IAgent, Envelope>> deferred = new ConcurrentHashMap<>();
 	private final Set<ISpatialIndex> uniqueIndexes;
 	private ISpatialIndex rootIndex;
 	final protected double[] steps;
@@ -55,22 +68,86 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	@Override
 	public void insert(final IAgent a) {
 		if (a == null) { return; }
+		final Map<IAgent, Envelope> pending = deferred.get(a.getPopulation());
+		if (pending != null) {
+			pending.putIfAbsent(a, NOT_INDEXED);
+			return;
+		}
 		final ISpatialIndex si = findSpatialIndex(a.getPopulation());
 		if (si != null) {
 			si.insert(a);
 		}
 	}
 
+	@Override
+	public void insertAll(final Collection<? extends IAgent> agents) {
+		final Map<ISpatialIndex, List<IAgent>> byIndex = new LinkedHashMap<>();
+		for (final IAgent a : agents) {
+			if (a == null) {
+				continue;
+			}
+			final Map<IAgent, Envelope> pending = deferred.get(a.getPopulation());
+			if (pending != null) {
+				pending.putIfAbsent(a, NOT_INDEXED);
+				continue;
+			}
+			final ISpatialIndex si = findSpatialIndex(a.getPopulation());
+			if (si != null) {
+				byIndex.computeIfAbsent(si, each -> new ArrayList<>()).add(a);
+			}
+		}
+		byIndex.forEach((si, list) -> si.insertAll(list));
+	}
+
 	@Override
 	public void remove(final Envelope previous, final IAgent o) {
 		final IAgent a = o.getAgent();
 		if (a == null) { return; }
+		final Map<IAgent, Envelope> pending = deferred.get(a.getPopulation());
+		if (pending != null) {
+			// Only the first envelope is kept, as it is the one under which the agent is indexed
+			final Envelope current = previous == null ? a.getEnvelope() : previous;
+			pending.putIfAbsent(a, current == null ? NOT_INDEXED : current);
+			return;
+		}
 		final ISpatialIndex si = findSpatialIndex(a.getPopulation());
 		if (si != null) {
 			si.remove(previous, o);
 		}
 	}
 
+	@Override
+	public boolean startDeferring(final IPopulation<? extends IAgent> pop) {
+		if (disposed || pop == null) { return false; }
+		return deferred.putIfAbsent(pop, new ConcurrentHashMap<>()) == null;
+	}
+
+	@Override
+	public void stopDeferring(final IPopulation<? extends IAgent> pop) {
+		final Map<IAgent, Envelope> pending = deferred.remove(pop);
+		if (pending == null || pending.isEmpty()) { return; }
+		apply(pop, pending);
+	}
+
+	private void apply(final IPopulation<? extends IAgent> pop, final Map<IAgent, Envelope> pending) {
+		final ISpatialIndex si = findSpatialIndex(pop);
+		if (si == null) { return; }
+		final List<IAgent> toInsert = new ArrayList<>(pending.size());
+		// Iterates on a copy (sorted by index, for the sake of reproducibility), as the updates may continue
+		final IAgent[] agents = pending.keySet().toArray(new IAgent[0]);
+		Arrays.sort(agents);
+		for (final IAgent a : agents) {
+			final Envelope previous = pending.remove(a);
+			if (previous != NOT_INDEXED) {
+				si.remove(previous, a);
+			}
+			if (!a.dead()) {
+				toInsert.add(a);
+			}
+		}
+		si.insertAll(toInsert);
+	}
+
 	private IAgent firstAtDistance(final IScope scope, final IShape source, final IAgentFilter filter,
 			final ISpatialIndex index) {
 		for (int i = 0; i < steps.length; i++) {
@@ -134,6 +211,24 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 		return id.allAtDistance(scope, source, dist, f);
 	}
 
+	@Override
+	public Collection<IAgent> kNearest(final IScope scope, final IShape source, final int k, final IAgentFilter f) {
+		if (disposed) { return Collections.EMPTY_LIST; }
+		final ISpatialIndex id = findSpatialIndex(f.getPopulation(scope));
+		if (id != rootIndex) { return id.kNearest(scope, source, k, f); }
+		// Each index returns its own k nearest agents, which are then merged
+		final NearestAgents result = new NearestAgents(k);
+		final Set<IAgent> agents = new THashSet<>();
+		for (final ISpatialIndex si : getAllSpatialIndexes()) {
+			for (final IAgent a : si.kNearest(scope, source, k, f)) {
+				if (agents.add(a)) {
+					result.offer(a, source.euclidianDistanceTo(a));
+				}
+			}
+		}
+		return result.toList();
+	}
+
 	@Override
 	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
 			final IAgentFilter f, final boolean contained) {
@@ -167,6 +262,7 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 
 	@Override
 	public void dispose() {
+		deferred.clear();
 		spatialIndexes.clear();
 		uniqueIndexes.clear();
 		rootIndex = null;
@@ -178,10 +274,18 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 		ISpatialIndex tree = rootIndex;
 		final Collection<IAgent> agents = tree.allAgents();
 		tree.dispose();
+		uniqueIndexes.remove(tree);
 		tree = GamaQuadTree.create(envelope);
 		rootIndex = tree;
+		uniqueIndexes.add(tree);
 		for (final IAgent a : agents)
 			tree.insert(a);
+		// The concurrent indexes of species also need to cover the new envelope
+		for (final ISpatialIndex si : uniqueIndexes) {
+			if (si instanceof GamaConcurrentGridIndex) {
+				((GamaConcurrentGridIndex) si).updateBounds(envelope);
+			}
+		}
 
 	}
 
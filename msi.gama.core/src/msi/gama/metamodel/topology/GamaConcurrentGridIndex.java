@@ -0,0 +1,282 @@
+/*********************************************************************************************
+ *
+ * 'GamaConcurrentGridIndex.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and
+ * simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+
+package msi.gama.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+import gnu.trove.set.hash.THashSet;
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+import msi.gaml.operators.Maths;
+
+/**
+ * A spatial index that can be safely updated and queried by several threads at the same time (for instance when the
+ * agents of a species are scheduled in parallel). The space is divided in a uniform grid of buckets, each of them
+ * being a concurrent map: insertions and removals only contend when they concern the same bucket, and queries never
+ * block.
+ *
+ * As the order in which the agents are inserted depends on the scheduling of the threads, the results of the queries
+ * are sorted by index before being shuffled with the random generator of the scope (see Issue 722). They are thus
+ * identical, for a given seed, to the ones of a sequential execution.
+ *
+ * Agents lying outside the bounds of the index are kept in the buckets of the border, so that they can still be
+ * found.
+ */
+@SuppressWarnings ({ "unchecked" })
+public class GamaConcurrentGridIndex implements ISpatialIndex {
+
+	final static int DETAIL = 100;
+
+	private volatile Buckets buckets;
+	/**
+	 * The envelopes used when the agents were inserted, so that they can be removed even if the previous envelope
+	 * passed is not accurate
+	 */
+	private final Map<IAgent, Envelope> envelopes = new ConcurrentHashMap<>();
+
+	public static ISpatialIndex create(final Envelope envelope) {
+		return new GamaConcurrentGridIndex(envelope);
+	}
+
+	private GamaConcurrentGridIndex(final Envelope bounds) {
+		buckets = new Buckets(new Envelope(bounds));
+	}
+
+	/**
+	 * Redistributes the agents in buckets covering the new bounds. Should not be called while agents are updated
+	 */
+	public void updateBounds(final Envelope bounds) {
+		final Buckets newBuckets = new Buckets(new Envelope(bounds));
+		envelopes.forEach((agent, env) -> newBuckets.add(env, agent));
+		buckets = newBuckets;
+	}
+
+	@Override
+	public void dispose() {
+		envelopes.clear();
+		buckets.clear();
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) { return; }
+		final Envelope env =
+				agent.isPoint() ? Envelope3D.of((Coordinate) agent.getLocation()) : agent.getEnvelope();
+		if (env == null || env.isNull()) { return; }
+		final Envelope previous = envelopes.put(agent, env);
+		final Buckets b = buckets;
+		if (previous != null) {
+			b.remove(previous, agent);
+		}
+		b.add(env, agent);
+	}
+
+	@Override
+	public void remove(final Envelope previous, final IAgent agent) {
+		if (agent == null) { return; }
+		final Envelope recorded = envelopes.remove(agent);
+		final Envelope current = recorded != null ? recorded : previous == null ? agent.getEnvelope() : previous;
+		if (current == null || current.isNull()) { return; }
+		buckets.remove(current, agent);
+	}
+
+	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
+			final IAgentFilter filter) {
+		final Collection<IAgent> set = new THashSet<>();
+		buckets.findIntersects(r, set);
+		if (set.isEmpty()) { return Collections.EMPTY_LIST; }
+		final List<IAgent> list = new ArrayList<>(set);
+		Collections.sort(list);
+		filter.filter(scope, source, list);
+		scope.getRandom().shuffle2(list);
+		return list;
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		final double exp = dist * Maths.SQRT2;
+		final Envelope3D env = new Envelope3D(source.getEnvelope());
+		env.expandBy(exp);
+		final Collection<IAgent> result = findIntersects(scope, source, env, f);
+		if (result.isEmpty()) { return Collections.EMPTY_LIST; }
+		result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
+		return result;
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		final double exp = dist * Maths.SQRT2;
+		final Envelope3D env = new Envelope3D(source.getEnvelope());
+		env.expandBy(exp);
+		final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
+		if (in_square.isEmpty()) { return null; }
+		double min_distance = dist;
+		IAgent min_agent = null;
+		for (final IAgent a : in_square) {
+			final double dd = source.euclidianDistanceTo(a);
+			if (dd < min_distance) {
+				min_distance = dd;
+				min_agent = a;
+			}
+		}
+		return min_agent;
+	}
+
+	/**
+	 * Explores the buckets ring by ring around the source, and stops as soon as the next ring cannot contain agents
+	 * closer than the k-th agent found so far
+	 */
+	@Override
+	public Collection<IAgent> kNearest(final IScope scope, final IShape source, final int k, final IAgentFilter f) {
+		final NearestAgents result = new NearestAgents(k);
+		if (k <= 0) { return result.toList(); }
+		final Buckets b = buckets;
+		final Envelope env = new Envelope(source.getEnvelope());
+		final int minC = b.column(env.getMinX()), maxC = b.column(env.getMaxX());
+		final int minR = b.row(env.getMinY()), maxR = b.row(env.getMaxY());
+		final double side = Math.min(b.cellWidth, b.cellHeight);
+		final Set<IAgent> visited = new THashSet<>();
+		for (int ring = 0; ring < DETAIL; ring++) {
+			final int top = minR - ring, bottom = maxR + ring, left = minC - ring, right = maxC + ring;
+			for (int r = top; r <= bottom; r++) {
+				if (ring == 0 || r == top || r == bottom) {
+					for (int c = left; c <= right; c++) {
+						visitBucket(scope, source, f, b, r, c, visited, result);
+					}
+				} else {
+					visitBucket(scope, source, f, b, r, left, visited, result);
+					visitBucket(scope, source, f, b, r, right, visited, result);
+				}
+			}
+			if (result.isFull() && result.maxDistance() <= ring * side) {
+				break;
+			}
+		}
+		return result.toList();
+	}
+
+	private void visitBucket(final IScope scope, final IShape source, final IAgentFilter f, final Buckets b,
+			final int r, final int c, final Set<IAgent> visited, final NearestAgents result) {
+		if (r < 0 || r >= DETAIL || c < 0 || c >= DETAIL) { return; }
+		final Map<IAgent, Envelope> cell = b.cells.get(r * DETAIL + c);
+		if (cell == null) { return; }
+		cell.forEach((a, e) -> {
+			if (visited.add(a) && f.accept(scope, source, a)) {
+				result.offer(a, source.euclidianDistanceTo(a));
+			}
+		});
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		return findIntersects(scope, source, envelope, f);
+	}
+
+	@Override
+	public Collection<IAgent> allAgents() {
+		final List<IAgent> result = new ArrayList<>(envelopes.keySet());
+		Collections.sort(result);
+		return result;
+	}
+
+	private static class Buckets {
+
+		final Envelope bounds;
+		final double cellWidth, cellHeight;
+		final AtomicReferenceArray<Map<IAgent, Envelope>> cells = new AtomicReferenceArray<>(DETAIL * DETAIL);
+
+		Buckets(final Envelope bounds) {
+			this.bounds = bounds;
+			cellWidth = bounds.getWidth() / DETAIL;
+			cellHeight = bounds.getHeight() / DETAIL;
+		}
+
+		int column(final double x) {
+			if (cellWidth <= 0) { return 0; }
+			final int c = (int) ((x - bounds.getMinX()) / cellWidth);
+			return c < 0 ? 0 : c >= DETAIL ? DETAIL - 1 : c;
+		}
+
+		int row(final double y) {
+			if (cellHeight <= 0) { return 0; }
+			final int r = (int) ((y - bounds.getMinY()) / cellHeight);
+			return r < 0 ? 0 : r >= DETAIL ? DETAIL - 1 : r;
+		}
+
+		Map<IAgent, Envelope> getOrCreate(final int i) {
+			Map<IAgent, Envelope> cell = cells.get(i);
+			if (cell == null) {
+				cells.compareAndSet(i, null, new ConcurrentHashMap<>());
+				cell = cells.get(i);
+			}
+			return cell;
+		}
+
+		void add(final Envelope env, final IAgent agent) {
+			final int maxC = column(env.getMaxX()), maxR = row(env.getMaxY());
+			for (int r = row(env.getMinY()); r <= maxR; r++) {
+				for (int c = column(env.getMinX()); c <= maxC; c++) {
+					getOrCreate(r * DETAIL + c).put(agent, env);
+				}
+			}
+		}
+
+		void remove(final Envelope env, final IAgent agent) {
+			final int maxC = column(env.getMaxX()), maxR = row(env.getMaxY());
+			for (int r = row(env.getMinY()); r <= maxR; r++) {
+				for (int c = column(env.getMinX()); c <= maxC; c++) {
+					final Map<IAgent, Envelope> cell = cells.get(r * DETAIL + c);
+					if (cell != null) {
+						cell.remove(agent);
+					}
+				}
+			}
+		}
+
+		void findIntersects(final Envelope r, final Collection<IAgent> result) {
+			final int maxC = column(r.getMaxX()), maxR = row(r.getMaxY());
+			for (int y = row(r.getMinY()); y <= maxR; y++) {
+				for (int x = column(r.getMinX()); x <= maxC; x++) {
+					final Map<IAgent, Envelope> cell = cells.get(y * DETAIL + x);
+					if (cell != null) {
+						cell.forEach((a, env) -> {
+							if (env.intersects(r)) {
+								result.add(a);
+							}
+						});
+					}
+				}
+			}
+		}
+
+		void clear() {
+			for (int i = 0; i < cells.length(); i++) {
+				cells.set(i, null);
+			}
+		}
+	}
+
+}
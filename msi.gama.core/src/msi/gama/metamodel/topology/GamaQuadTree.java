@@ -10,12 +10,17 @@
 
 package msi.gama.metamodel.topology;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
 
+import gnu.trove.set.hash.THashSet;
 import gnu.trove.set.hash.TLinkedHashSet;
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.metamodel.agent.IAgent;
@@ -79,6 +84,25 @@ public class GamaQuadTree implements ISpatialIndex {
 		}
 	}
 
+	/**
+	 * Bulk-loads the agents: instead of inserting them one by one (which causes the nodes to be split and their
+	 * contents to be redistributed several times), the agents are partitioned recursively among the quadrants, and
+	 * each node is split at most once.
+	 *
+	 * @see msi.gama.metamodel.topology.ISpatialIndex#insertAll(java.util.Collection)
+	 */
+	@Override
+	public void insertAll(final Collection<? extends IAgent> agents) {
+		final List<IAgent> list = new ArrayList<>(agents.size());
+		for (final IAgent a : agents) {
+			if (a != null) {
+				list.add(a);
+			}
+		}
+		if (!list.isEmpty())
+			root.addAll(list);
+	}
+
 	private boolean isPoint(final Envelope env) {
 		return env.getArea() == 0.0;
 	}
@@ -141,6 +165,43 @@ public class GamaQuadTree implements ISpatialIndex {
 		return min_agent;
 	}
 
+	/**
+	 * Best-first search of the k nearest agents: the nodes are explored in the order of their distance to the source,
+	 * and the exploration stops as soon as the closest unexplored node is farther than the k-th agent found so far.
+	 *
+	 * @see msi.gama.metamodel.topology.ISpatialIndex#kNearest(msi.gama.runtime.IScope,
+	 *      msi.gama.metamodel.shape.IShape, int, msi.gama.metamodel.topology.filter.IAgentFilter)
+	 */
+	@Override
+	public Collection<IAgent> kNearest(final IScope scope, final IShape source, final int k, final IAgentFilter f) {
+		final NearestAgents result = new NearestAgents(k);
+		if (k <= 0) { return result.toList(); }
+		final Envelope env = new Envelope(source.getEnvelope());
+		final Set<IAgent> visited = new THashSet<>();
+		final PriorityQueue<QuadNode> queue =
+				new PriorityQueue<>((n1, n2) -> Double.compare(n1.bounds.distance(env), n2.bounds.distance(env)));
+		queue.add(root);
+		while (!queue.isEmpty()) {
+			final QuadNode node = queue.poll();
+			if (node.bounds.distance(env) > result.maxDistance()) {
+				break;
+			}
+			node.objects.forEachEntry((a, e) -> {
+				if (e.distance(env) <= result.maxDistance() && visited.add(a) && f.accept(scope, source, a)) {
+					result.offer(a, source.euclidianDistanceTo(a));
+				}
+				return true;
+			});
+			final QuadNode[] children = node.nodes;
+			if (children != null) {
+				for (final QuadNode child : children) {
+					queue.add(child);
+				}
+			}
+		}
+		return result.toList();
+	}
+
 	@Override
 	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
 			final IAgentFilter f, final boolean contained) {
@@ -227,6 +288,41 @@ public class GamaQuadTree implements ISpatialIndex {
 					}
 		}
 
+		public void addAll(final List<IAgent> agents) {
+			if (nodes == null) {
+				if (!canSplit || objects.size() + agents.size() < maxCapacity) {
+					for (final IAgent a : agents) {
+						if (a.isPoint()) {
+							objects.put(a, Envelope3D.of((Coordinate) a.getLocation()));
+						} else {
+							objects.put(a, a.getEnvelope());
+						}
+					}
+					return;
+				}
+				split();
+			}
+			final List<IAgent>[] parts = new List[4];
+			for (int i = 0; i < 4; i++) {
+				parts[i] = new ArrayList<>();
+			}
+			for (final IAgent a : agents) {
+				if (a.isPoint()) {
+					parts[quadrant((Coordinate) a.getLocation())].add(a);
+				} else {
+					final Envelope env = a.getEnvelope();
+					for (int i = 0; i < 4; i++)
+						if (nodes[i].bounds.intersects(env)) {
+							parts[i].add(a);
+						}
+				}
+			}
+			for (int i = 0; i < 4; i++)
+				if (!parts[i].isEmpty()) {
+					nodes[i].addAll(parts[i]);
+				}
+		}
+
 		int quadrant(final Coordinate p) {
 			final boolean north = p.y >= bounds.getMinY() && p.y < halfy;
 			final boolean west = p.x >= bounds.getMinX() && p.x < halfx;
@@ -29,6 +29,18 @@ public interface ISpatialIndex {
 
 	public abstract void insert(IAgent agent);
 
+	/**
+	 * Inserts several agents at once. Indexes can redefine this method to bulk-load the agents more efficiently than
+	 * by inserting them one by one
+	 *
+	 * @param agents
+	 */
+	public default void insertAll(final Collection<? extends IAgent> agents) {
+		for (final IAgent a : agents) {
+			insert(a);
+		}
+	}
+
 	public abstract void remove(final Envelope previous, final IAgent agent);
 
 	public abstract IAgent firstAtDistance(IScope scope, final IShape source, final double dist, final IAgentFilter f);
@@ -38,6 +50,23 @@ public interface ISpatialIndex {
 
 	Collection<IAgent> allAtDistance(IScope scope, IShape source, double dist, IAgentFilter f);
 
+	/**
+	 * Returns the k agents accepted by the filter that are the closest to the source, ordered from the closest to the
+	 * farthest. The default implementation tests all the agents of the index; indexes are expected to redefine it
+	 * with a bounded search.
+	 *
+	 * @param scope
+	 * @param source
+	 * @param k
+	 *            the maximum number of agents to return
+	 * @param f
+	 * @return
+	 */
+	public default Collection<IAgent> kNearest(final IScope scope, final IShape source, final int k,
+			final IAgentFilter f) {
+		return NearestAgents.among(scope, source, k, allAgents(), f);
+	}
+
 	public abstract void dispose();
 
 	public interface Compound extends ISpatialIndex {
@@ -50,6 +79,19 @@ public interface ISpatialIndex {
 
 		public abstract void mergeWith(Compound spatialIndex);
 
+		/**
+		 * Starts buffering the insertions and removals of the agents of the population, instead of applying them
+		 * immediately. Queries will not see the changes until they are applied by {@link #stopDeferring(IPopulation)}.
+		 *
+		 * @return true if the updates of the population were not already deferred
+		 */
+		public abstract boolean startDeferring(final IPopulation<? extends IAgent> pop);
+
+		/**
+		 * Applies the updates buffered for the population and stops deferring them
+		 */
+		public abstract void stopDeferring(final IPopulation<? extends IAgent> pop);
+
 	}
 
 	public abstract Collection<IAgent> allAgents();
@@ -69,6 +69,13 @@ public interface ITopology extends IValue {
 
 	public abstract IAgent getAgentClosestTo(IScope scope, final IShape source, IAgentFilter filter);
 
+	/**
+	 * Returns the 'number' agents accepted by the filter that are the closest to the source, sorted from the nearest
+	 * to the farthest
+	 */
+	public abstract Collection<IAgent> getAgentsClosestTo(IScope scope, final IShape source, IAgentFilter filter,
+			int number);
+
 	public abstract IAgent getAgentFarthestTo(IScope scope, final IShape source, IAgentFilter filter);
 
 	public abstract Collection<IAgent> getNeighborsOf(IScope scope, final IShape source, final Double distance,
@@ -0,0 +1,107 @@
+/*********************************************************************************************
+ *
+ * 'NearestAgents.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+
+/**
+ * Class NearestAgents. A bounded collector of the k agents nearest to a source, used by the implementations of
+ * {@link ISpatialIndex#kNearest(IScope, IShape, int, IAgentFilter)}. It keeps the candidates in a max-heap, so that
+ * offering a candidate costs O(log k) and the current k-th distance (which bounds the search) is available in O(1).
+ * Ties are broken by the index of the agents, so that the results do not depend on the order of exploration.
+ *
+ */
+public class NearestAgents {
+
+	private static class Candidate {
+		final IAgent agent;
+		final double distance;
+
+		Candidate(final IAgent agent, final double distance) {
+			this.agent = agent;
+			this.distance = distance;
+		}
+
+		int compareTo(final Candidate o) {
+			final int c = Double.compare(distance, o.distance);
+			return c != 0 ? c : agent.compareTo(o.agent);
+		}
+	}
+
+	private final int k;
+	private final PriorityQueue<Candidate> heap;
+
+	public NearestAgents(final int k) {
+		this.k = k;
+		heap = new PriorityQueue<>(Math.max(1, k), (c1, c2) -> c2.compareTo(c1));
+	}
+
+	/**
+	 * Offers a candidate, which is kept only if it is among the k nearest ones so far. Candidates must not be offered
+	 * twice.
+	 */
+	public void offer(final IAgent agent, final double distance) {
+		if (k <= 0) { return; }
+		final Candidate c = new Candidate(agent, distance);
+		if (heap.size() < k) {
+			heap.add(c);
+		} else if (c.compareTo(heap.peek()) < 0) {
+			heap.poll();
+			heap.add(c);
+		}
+	}
+
+	public boolean isFull() {
+		return heap.size() >= k;
+	}
+
+	/**
+	 * The distance beyond which no candidate can be accepted anymore (infinite until k candidates have been found)
+	 */
+	public double maxDistance() {
+		return isFull() ? heap.peek().distance : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the agents, from the nearest to the farthest
+	 */
+	public List<IAgent> toList() {
+		final List<Candidate> candidates = new ArrayList<>(heap);
+		candidates.sort((c1, c2) -> c1.compareTo(c2));
+		final List<IAgent> result = new ArrayList<>(candidates.size());
+		for (final Candidate c : candidates) {
+			result.add(c.agent);
+		}
+		return result;
+	}
+
+	/**
+	 * Brute-force version, used when no spatial structure is available: all the agents are tested
+	 */
+	public static List<IAgent> among(final IScope scope, final IShape source, final int k,
+			final Collection<? extends IAgent> agents, final IAgentFilter f) {
+		final NearestAgents result = new NearestAgents(k);
+		for (final IAgent a : agents) {
+			if (a != null && (f == null || f.accept(scope, source, a))) {
+				result.offer(a, source.euclidianDistanceTo(a));
+			}
+		}
+		return result.toList();
+	}
+
+}
@@ -9,6 +9,7 @@
  **********************************************************************************************/
 package msi.gama.metamodel.topology.continuous;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -131,6 +132,12 @@ public class AmorphousTopology implements ITopology {
 		return null;
 	}
 
+	@Override
+	public Collection<IAgent> getAgentsClosestTo(final IScope scope, final IShape source, final IAgentFilter filter,
+			final int number) {
+		return Collections.EMPTY_LIST;
+	}
+
 	@Override
 	public IAgent getAgentFarthestTo(final IScope scope, final IShape source, final IAgentFilter filter) {
 		return null;
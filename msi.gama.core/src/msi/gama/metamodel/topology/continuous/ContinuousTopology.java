@@ -11,13 +11,19 @@
 package msi.gama.metamodel.topology.continuous;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.AbstractTopology;
+import msi.gama.metamodel.topology.GamaConcurrentGridIndex;
+import msi.gama.metamodel.topology.ISpatialIndex;
 import msi.gama.metamodel.topology.ITopology;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.operators.Cast;
 import msi.gaml.operators.Maths;
 import msi.gaml.operators.fastmaths.FastMath;
 import msi.gaml.types.Types;
@@ -41,6 +47,26 @@ public class ContinuousTopology extends AbstractTopology {
 		places = GamaListFactory.createWithoutCasting(Types.GEOMETRY, environment);
 	}
 
+	/**
+	 * If the species of the population requires it, provides the population with its own concurrent spatial index,
+	 * which allows its agents to move (and be queried) in parallel
+	 *
+	 * @see msi.gama.metamodel.topology.AbstractTopology#initialize(msi.gama.runtime.IScope,
+	 *      msi.gama.metamodel.population.IPopulation)
+	 */
+	@Override
+	public void initialize(final IScope scope, final IPopulation<? extends IAgent> pop) throws GamaRuntimeException {
+		final IExpression exp = pop.getSpecies().getFacet(IKeyword.USE_CONCURRENT_INDEX);
+		if (exp != null && Cast.asBool(scope, exp.value(scope))) {
+			final ISpatialIndex index = getSpatialIndex();
+			if (index instanceof ISpatialIndex.Compound) {
+				((ISpatialIndex.Compound) index).add(
+						GamaConcurrentGridIndex.create(root.getEnvironment().getEnvelope()), pop);
+			}
+		}
+		super.initialize(scope, pop);
+	}
+
 	/**
 	 * @see msi.gama.interfaces.IValue#stringValue()
 	 */
@@ -0,0 +1,516 @@
+/*********************************************************************************************
+ *
+ * 'ContractionHierarchy.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.metamodel.topology.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntDoubleHashMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+import msi.gama.util.graph.DistanceHeap;
+import msi.gama.util.graph.GamaGraph;
+
+/**
+ * Class ContractionHierarchy. A shortest path optimizer for large (road) networks, based on contraction hierarchies
+ * (Geisberger et al., 2008). In a preprocessing step, the vertices are ordered by "importance" and contracted one
+ * after the other: when a vertex is removed, shortcuts are added between its neighbours whenever it lies on their only
+ * shortest path. A query is then a bidirectional Dijkstra search that only goes "upwards" in the hierarchy, and
+ * settles a few hundred vertices instead of a large part of the graph. The shortcuts found are finally unpacked into
+ * the original edges.
+ *
+ * The hierarchy is a snapshot of the graph (including the weights of its edges) and must be recomputed when the graph
+ * is modified. As the preprocessing can be long on large networks, it can be saved to a file and loaded again with a
+ * graph built from the same data. Queries do not modify the hierarchy and can be run concurrently.
+ *
+ */
+public class ContractionHierarchy<V, E> {
+
+	private static final int MAGIC = 0x47434831;
+	/**
+	 * The maximum number of vertices settled by a witness search: beyond, the shortcut is added even if it may not be
+	 * necessary (which only costs memory, not correctness)
+	 */
+	private static final int WITNESS_LIMIT = 500;
+
+	private final Object[] edges;
+	private final TObjectIntHashMap<Object> vertexIndex;
+	private final int nbVertices;
+	private int[] rank;
+
+	/**
+	 * The arcs of the hierarchy: the original edges (arcEdge >= 0) and the shortcuts, which replace two other arcs
+	 * (arcFirst and arcSecond)
+	 */
+	private int nbArcs;
+	private int[] arcFrom, arcTo, arcEdge, arcFirst, arcSecond;
+	private double[] arcWeight;
+
+	/** The arcs going up from each vertex (used by the forward search) and coming down to it (backward search) */
+	private int[] upStart, upArcs, downStart, downArcs;
+
+	private ContractionHierarchy(final GamaGraph<V, E> graph) {
+		final Object[] vertices = graph.getVertexMap().keySet().toArray();
+		edges = graph.edgeSet().toArray();
+		nbVertices = vertices.length;
+		vertexIndex = new TObjectIntHashMap<>(Math.max(10, nbVertices * 2), 0.5f, -1);
+		for (int i = 0; i < nbVertices; i++) {
+			vertexIndex.put(vertices[i], i);
+		}
+		final int capacity = Math.max(16, edges.length * 2);
+		arcFrom = new int[capacity];
+		arcTo = new int[capacity];
+		arcEdge = new int[capacity];
+		arcFirst = new int[capacity];
+		arcSecond = new int[capacity];
+		arcWeight = new double[capacity];
+	}
+
+	/**
+	 * Preprocesses the graph. The duration is roughly linear in the number of vertices for road networks
+	 */
+	public static <V, E> ContractionHierarchy<V, E> build(final GamaGraph<V, E> graph) {
+		final ContractionHierarchy<V, E> ch = new ContractionHierarchy<>(graph);
+		ch.addOriginalArcs(graph);
+		ch.new Contractor().run();
+		ch.buildSearchGraph();
+		return ch;
+	}
+
+	/**
+	 * Loads a hierarchy previously saved for this graph. An IOException is raised if the file does not correspond to
+	 * the graph (number of vertices and edges, weights of the edges)
+	 */
+	public static <V, E> ContractionHierarchy<V, E> load(final GamaGraph<V, E> graph, final File file)
+			throws IOException {
+		final ContractionHierarchy<V, E> ch = new ContractionHierarchy<>(graph);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC) { throw new IOException(file + " does not contain a contraction hierarchy"); }
+			if (in.readInt() != ch.nbVertices || in.readInt() != ch.edges.length) { throw new IOException(
+					"The contraction hierarchy stored in " + file + " has not been computed for this graph"); }
+			final int n = in.readInt();
+			ch.rank = new int[ch.nbVertices];
+			for (int v = 0; v < ch.nbVertices; v++) {
+				ch.rank[v] = in.readInt();
+			}
+			for (int a = 0; a < n; a++) {
+				final int from = in.readInt(), to = in.readInt(), edge = in.readInt(), first = in.readInt(),
+						second = in.readInt();
+				final double weight = in.readDouble();
+				if (edge >= 0 && graph.getEdgeWeight(ch.edges[edge]) != weight) { throw new IOException(
+						"The weights of the graph have changed since the contraction hierarchy stored in " + file
+								+ " has been computed"); }
+				ch.addArc(from, to, weight, edge, first, second);
+			}
+		}
+		ch.buildSearchGraph();
+		return ch;
+	}
+
+	public void save(final File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(nbVertices);
+			out.writeInt(edges.length);
+			out.writeInt(nbArcs);
+			for (int v = 0; v < nbVertices; v++) {
+				out.writeInt(rank[v]);
+			}
+			for (int a = 0; a < nbArcs; a++) {
+				out.writeInt(arcFrom[a]);
+				out.writeInt(arcTo[a]);
+				out.writeInt(arcEdge[a]);
+				out.writeInt(arcFirst[a]);
+				out.writeInt(arcSecond[a]);
+				out.writeDouble(arcWeight[a]);
+			}
+		}
+	}
+
+	public int getNumberOfShortcuts() {
+		int result = 0;
+		for (int a = 0; a < nbArcs; a++) {
+			if (arcEdge[a] < 0) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the edges of the shortest path between the source and the target, or null if there is none
+	 */
+	@SuppressWarnings ("unchecked")
+	public List<E> getShortestPath(final V source, final V target) {
+		final int s = vertexIndex.get(source), t = vertexIndex.get(target);
+		if (s == -1 || t == -1) { return null; }
+		if (s == t) { return new ArrayList<>(); }
+		final Search forward = new Search(s, true);
+		final Search backward = new Search(t, false);
+		double best = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+		while (Math.min(forward.heap.peekKey(), backward.heap.peekKey()) < best) {
+			final boolean isForward = forward.heap.peekKey() <= backward.heap.peekKey();
+			final Search current = isForward ? forward : backward;
+			final Search other = isForward ? backward : forward;
+			final double d = current.heap.peekKey();
+			final int v = current.heap.pop();
+			if (d > current.distance(v)) {
+				continue;
+			}
+			if (d + other.distance(v) < best) {
+				best = d + other.distance(v);
+				meeting = v;
+			}
+			current.relax(v, d);
+		}
+		if (meeting == -1) { return null; }
+		final TIntArrayList path = new TIntArrayList();
+		for (int v = meeting; v != s;) {
+			final int a = forward.predecessors.get(v);
+			path.add(a);
+			v = arcFrom[a];
+		}
+		path.reverse();
+		for (int v = meeting; v != t;) {
+			final int a = backward.predecessors.get(v);
+			path.add(a);
+			v = arcTo[a];
+		}
+		final List<E> result = new ArrayList<>();
+		final TIntArrayList stack = new TIntArrayList();
+		for (int i = 0; i < path.size(); i++) {
+			stack.add(path.get(i));
+			while (!stack.isEmpty()) {
+				final int a = stack.removeAt(stack.size() - 1);
+				if (arcEdge[a] >= 0) {
+					result.add((E) edges[arcEdge[a]]);
+				} else {
+					stack.add(arcSecond[a]);
+					stack.add(arcFirst[a]);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void addOriginalArcs(final GamaGraph<V, E> graph) {
+		final boolean directed = graph.isDirected();
+		// Only the lightest of parallel edges is kept
+		final TLongIntHashMap existing = new TLongIntHashMap(Math.max(10, edges.length * 2), 0.5f, -1, -1);
+		for (int e = 0; e < edges.length; e++) {
+			final int s = vertexIndex.get(graph.getEdgeSource(edges[e]));
+			final int t = vertexIndex.get(graph.getEdgeTarget(edges[e]));
+			if (s == -1 || t == -1 || s == t) {
+				continue;
+			}
+			final double w = graph.getEdgeWeight(edges[e]);
+			addOriginalArc(existing, s, t, e, w);
+			if (!directed) {
+				addOriginalArc(existing, t, s, e, w);
+			}
+		}
+	}
+
+	private void addOriginalArc(final TLongIntHashMap existing, final int s, final int t, final int e,
+			final double w) {
+		final long key = (long) s * nbVertices + t;
+		final int arc = existing.get(key);
+		if (arc == -1) {
+			existing.put(key, addArc(s, t, w, e, -1, -1));
+		} else if (w < arcWeight[arc]) {
+			arcWeight[arc] = w;
+			arcEdge[arc] = e;
+		}
+	}
+
+	private int addArc(final int from, final int to, final double weight, final int edge, final int first,
+			final int second) {
+		if (nbArcs == arcFrom.length) {
+			final int capacity = nbArcs + (nbArcs >> 1) + 1;
+			arcFrom = Arrays.copyOf(arcFrom, capacity);
+			arcTo = Arrays.copyOf(arcTo, capacity);
+			arcEdge = Arrays.copyOf(arcEdge, capacity);
+			arcFirst = Arrays.copyOf(arcFirst, capacity);
+			arcSecond = Arrays.copyOf(arcSecond, capacity);
+			arcWeight = Arrays.copyOf(arcWeight, capacity);
+		}
+		arcFrom[nbArcs] = from;
+		arcTo[nbArcs] = to;
+		arcEdge[nbArcs] = edge;
+		arcFirst[nbArcs] = first;
+		arcSecond[nbArcs] = second;
+		arcWeight[nbArcs] = weight;
+		return nbArcs++;
+	}
+
+	/**
+	 * Sorts the arcs by vertex: the ones going to a higher rank are used by the forward search from their origin, the
+	 * others by the backward search from their destination
+	 */
+	private void buildSearchGraph() {
+		upStart = new int[nbVertices + 1];
+		downStart = new int[nbVertices + 1];
+		for (int a = 0; a < nbArcs; a++) {
+			if (rank[arcTo[a]] > rank[arcFrom[a]]) {
+				upStart[arcFrom[a] + 1]++;
+			} else {
+				downStart[arcTo[a] + 1]++;
+			}
+		}
+		for (int v = 0; v < nbVertices; v++) {
+			upStart[v + 1] += upStart[v];
+			downStart[v + 1] += downStart[v];
+		}
+		upArcs = new int[upStart[nbVertices]];
+		downArcs = new int[downStart[nbVertices]];
+		final int[] up = Arrays.copyOf(upStart, nbVertices);
+		final int[] down = Arrays.copyOf(downStart, nbVertices);
+		for (int a = 0; a < nbArcs; a++) {
+			if (rank[arcTo[a]] > rank[arcFrom[a]]) {
+				upArcs[up[arcFrom[a]]++] = a;
+			} else {
+				downArcs[down[arcTo[a]]++] = a;
+			}
+		}
+	}
+
+	/**
+	 * One side of the bidirectional query. Distances are kept in hash maps as only a small part of the vertices is
+	 * reached
+	 */
+	private class Search {
+
+		final boolean forward;
+		final TIntDoubleHashMap distances = new TIntDoubleHashMap(64, 0.5f, -1, Double.POSITIVE_INFINITY);
+		final TIntIntHashMap predecessors = new TIntIntHashMap(64, 0.5f, -1, -1);
+		final DistanceHeap heap = new DistanceHeap(64);
+
+		Search(final int origin, final boolean forward) {
+			this.forward = forward;
+			distances.put(origin, 0d);
+			heap.push(0d, origin);
+		}
+
+		double distance(final int v) {
+			return distances.get(v);
+		}
+
+		void relax(final int v, final double d) {
+			final int[] start = forward ? upStart : downStart;
+			final int[] arcs = forward ? upArcs : downArcs;
+			for (int i = start[v]; i < start[v + 1]; i++) {
+				final int a = arcs[i];
+				final int next = forward ? arcTo[a] : arcFrom[a];
+				final double nd = d + arcWeight[a];
+				if (nd < distances.get(next)) {
+					distances.put(next, nd);
+					predecessors.put(next, a);
+					heap.push(nd, next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The preprocessing: vertices are contracted in the order of their priority (the number of shortcuts their
+	 * contraction requires minus the number of arcs it removes, plus the number of their neighbours already
+	 * contracted, so that the contraction is spread uniformly). Priorities are updated lazily.
+	 */
+	private class Contractor {
+
+		final TIntArrayList[] out = new TIntArrayList[nbVertices];
+		final TIntArrayList[] in = new TIntArrayList[nbVertices];
+		final boolean[] contracted = new boolean[nbVertices];
+		final int[] contractedNeighbours = new int[nbVertices];
+		final double[] witnessDistance = new double[nbVertices];
+		final TIntArrayList witnessTouched = new TIntArrayList();
+		final DistanceHeap witnessHeap = new DistanceHeap(64);
+
+		Contractor() {
+			for (int v = 0; v < nbVertices; v++) {
+				out[v] = new TIntArrayList(4);
+				in[v] = new TIntArrayList(4);
+			}
+			for (int a = 0; a < nbArcs; a++) {
+				out[arcFrom[a]].add(a);
+				in[arcTo[a]].add(a);
+			}
+			Arrays.fill(witnessDistance, Double.POSITIVE_INFINITY);
+		}
+
+		void run() {
+			rank = new int[nbVertices];
+			final double[] priorities = new double[nbVertices];
+			final DistanceHeap queue = new DistanceHeap(nbVertices);
+			for (int v = 0; v < nbVertices; v++) {
+				priorities[v] = priority(v);
+				queue.push(priorities[v], v);
+			}
+			int order = 0;
+			final TIntHashSet neighbours = new TIntHashSet();
+			while (!queue.isEmpty()) {
+				final double key = queue.peekKey();
+				final int v = queue.pop();
+				// Obsolete entry (the priority of v has changed since it was pushed)
+				if (contracted[v] || key != priorities[v]) {
+					continue;
+				}
+				final double p = priority(v);
+				if (p > key && p > queue.peekKey()) {
+					priorities[v] = p;
+					queue.push(p, v);
+					continue;
+				}
+				shortcuts(v, true);
+				contracted[v] = true;
+				rank[v] = order++;
+				neighbours.clear();
+				for (int i = 0; i < in[v].size(); i++) {
+					neighbours.add(arcFrom[in[v].get(i)]);
+				}
+				for (int i = 0; i < out[v].size(); i++) {
+					neighbours.add(arcTo[out[v].get(i)]);
+				}
+				neighbours.forEach(u -> {
+					if (!contracted[u]) {
+						contractedNeighbours[u]++;
+						priorities[u] = priority(u);
+						queue.push(priorities[u], u);
+					}
+					return true;
+				});
+			}
+		}
+
+		double priority(final int v) {
+			int removed = 0;
+			for (int i = 0; i < in[v].size(); i++) {
+				if (!contracted[arcFrom[in[v].get(i)]]) {
+					removed++;
+				}
+			}
+			for (int i = 0; i < out[v].size(); i++) {
+				if (!contracted[arcTo[out[v].get(i)]]) {
+					removed++;
+				}
+			}
+			return shortcuts(v, false) - removed + contractedNeighbours[v];
+		}
+
+		/**
+		 * Counts (and adds if 'add' is true) the shortcuts required by the contraction of v: for each pair of
+		 * remaining neighbours u -> v -> w, a shortcut u -> w is needed if no path avoiding v is as short
+		 */
+		int shortcuts(final int v, final boolean add) {
+			int count = 0;
+			double maxOut = 0;
+			for (int j = 0; j < out[v].size(); j++) {
+				final int a2 = out[v].get(j);
+				if (!contracted[arcTo[a2]]) {
+					maxOut = Math.max(maxOut, arcWeight[a2]);
+				}
+			}
+			for (int i = 0; i < in[v].size(); i++) {
+				final int a1 = in[v].get(i);
+				final int u = arcFrom[a1];
+				if (contracted[u]) {
+					continue;
+				}
+				witnessSearch(u, v, arcWeight[a1] + maxOut);
+				for (int j = 0; j < out[v].size(); j++) {
+					final int a2 = out[v].get(j);
+					final int w = arcTo[a2];
+					if (contracted[w] || w == u) {
+						continue;
+					}
+					final double via = arcWeight[a1] + arcWeight[a2];
+					if (witnessDistance[w] > via) {
+						count++;
+						if (add) {
+							addShortcut(u, w, via, a1, a2);
+						}
+					}
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Adds a shortcut, or replaces a longer one between the same vertices
+		 */
+		void addShortcut(final int u, final int w, final double weight, final int first, final int second) {
+			for (int i = 0; i < out[u].size(); i++) {
+				final int a = out[u].get(i);
+				if (arcTo[a] == w && arcEdge[a] < 0) {
+					arcWeight[a] = weight;
+					arcFirst[a] = first;
+					arcSecond[a] = second;
+					return;
+				}
+			}
+			final int shortcut = addArc(u, w, weight, -1, first, second);
+			out[u].add(shortcut);
+			in[w].add(shortcut);
+		}
+
+		/**
+		 * A Dijkstra search from 'source' among the remaining vertices except 'excluded', limited in distance and in
+		 * number of settled vertices
+		 */
+		void witnessSearch(final int source, final int excluded, final double limit) {
+			for (int i = 0; i < witnessTouched.size(); i++) {
+				witnessDistance[witnessTouched.get(i)] = Double.POSITIVE_INFINITY;
+			}
+			witnessTouched.resetQuick();
+			witnessHeap.clear();
+			witnessDistance[source] = 0d;
+			witnessTouched.add(source);
+			witnessHeap.push(0d, source);
+			int settled = 0;
+			while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= limit && settled < WITNESS_LIMIT) {
+				final double d = witnessHeap.peekKey();
+				final int v = witnessHeap.pop();
+				if (d > witnessDistance[v]) {
+					continue;
+				}
+				settled++;
+				for (int i = 0; i < out[v].size(); i++) {
+					final int a = out[v].get(i);
+					final int t = arcTo[a];
+					if (t == excluded || contracted[t]) {
+						continue;
+					}
+					final double nd = d + arcWeight[a];
+					if (nd < witnessDistance[t]) {
+						if (witnessDistance[t] == Double.POSITIVE_INFINITY) {
+							witnessTouched.add(t);
+						}
+						witnessDistance[t] = nd;
+						witnessHeap.push(nd, t);
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -107,9 +107,16 @@ public class GamaSpatialGraph extends GamaGraph<IShape, IShape> implements ISpat
 
 	@Override
 	public GamaSpatialGraph copy(final IScope scope) {
+		final GamaSpatialGraph g = emptyCopy(scope);
+		Graphs.addAllEdges(g, this, this.edgeSet());
+		return g;
+	}
+
+	@Override
+	protected GamaSpatialGraph emptyCopy(final IScope scope) {
 		final GamaSpatialGraph g = new GamaSpatialGraph(GamaListFactory.create(), true, directed, vertexRelation,
 				edgeSpecies, scope, type.getKeyType(), type.getContentType());
-		Graphs.addAllEdges(g, this, this.edgeSet());
+		g.tolerance = tolerance;
 		return g;
 	}
 
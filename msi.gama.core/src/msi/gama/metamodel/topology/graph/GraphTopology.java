@@ -23,6 +23,7 @@ import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.AbstractTopology;
 import msi.gama.metamodel.topology.ITopology;
+import msi.gama.metamodel.topology.NearestAgents;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
 import msi.gama.metamodel.topology.filter.In;
 import msi.gama.runtime.IScope;
@@ -962,7 +963,43 @@ public class GraphTopology extends AbstractTopology {
 	public IAgent getAgentClosestTo(final IScope scope, final IShape source, final IAgentFilter filter) {
 		// A better solution is required !!! this solution is just here to
 		// ensure the consistency of the closest operator on graph !
+		final List<IAgent> listAgents = getCandidates(scope, source, filter);
+		IAgent closest = null;
+		double minDist = Double.POSITIVE_INFINITY;
+		for (final IAgent ag : listAgents) {
+			final Double dist = this.distanceBetween(scope, source, ag);
+			if (dist != null && dist < minDist) {
+				if (dist == 0)
+					return ag;
+				closest = ag;
+				minDist = dist;
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * The distances are computed along the graph, like in getAgentClosestTo() (and not through the spatial index), so
+	 * that asking for the closest agent returns the same one in both cases
+	 */
+	@Override
+	public Collection<IAgent> getAgentsClosestTo(final IScope scope, final IShape source, final IAgentFilter filter,
+			final int number) {
+		if (number == 1) {
+			final IAgent closest = getAgentClosestTo(scope, source, filter);
+			return closest == null ? Collections.<IAgent> emptyList() : Collections.singletonList(closest);
+		}
+		final NearestAgents result = new NearestAgents(number);
+		for (final IAgent ag : getCandidates(scope, source, filter)) {
+			final Double dist = this.distanceBetween(scope, source, ag);
+			if (dist != null) {
+				result.offer(ag, dist);
+			}
+		}
+		return result.toList();
+	}
 
+	private List<IAgent> getCandidates(final IScope scope, final IShape source, final IAgentFilter filter) {
 		List<IAgent> listAgents = null;
 		if (filter instanceof GamaSpatialGraph) {
 			listAgents = new ArrayList<IAgent>(filter.getAgents(scope).listValue(scope, Types.AGENT, false));
@@ -976,17 +1013,6 @@ public class GraphTopology extends AbstractTopology {
 					new ArrayList<IAgent>(scope.getSimulation().getAgents(scope).listValue(scope, Types.AGENT, false));
 		}
 		listAgents.remove(source);
-		IAgent closest = null;
-		double minDist = Double.POSITIVE_INFINITY;
-		for (final IAgent ag : listAgents) {
-			final Double dist = this.distanceBetween(scope, source, ag);
-			if (dist != null && dist < minDist) {
-				if (dist == 0)
-					return ag;
-				closest = ag;
-				minDist = dist;
-			}
-		}
-		return closest;
+		return listAgents;
 	}
 }
@@ -49,6 +49,7 @@ import msi.gama.metamodel.shape.GamaShape;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.ITopology;
+import msi.gama.metamodel.topology.NearestAgents;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.concurrent.GamaExecutorService;
@@ -495,8 +496,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 	final int getPlaceIndexAt(final int xx, final int yy) {
 		if (isHexagon) { return yy * numCols + xx; }
-		if (isTorus) { return (yy < 0 ? yy + numCols : yy) % numRows * numCols
-				+ (xx < 0 ? xx + numCols : xx) % numCols; }
+		if (isTorus) { return Math.floorMod(yy, numRows) * numCols + Math.floorMod(xx, numCols); }
 		if (xx < 0 || xx >= numCols || yy < 0 || yy >= numRows) {
 			;
 			return -1;
@@ -769,9 +769,12 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		// We now compute all the cells that are at "distance" away from these
 		// covered cells
 		final Set<IAgent> allPlaces = new LinkedHashSet();
+		final INeighborhood neighbors = getNeighborhood();
 		for (final IAgent ag : coveredPlaces) {
-			allPlaces.addAll(
-					getNeighborhood().getNeighborsIn(scope, getPlaceIndexAt(ag.getLocation()), distance.intValue()));
+			neighbors.visitNeighbors(getPlaceIndexAt(ag.getLocation()), 1, distance.intValue(), i -> {
+				allPlaces.add(matrix[i].getAgent());
+				return true;
+			});
 		}
 
 		// And we filter these cells by removing those that are in the "interior
@@ -783,6 +786,8 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		// we return it;
 
 		allPlaces.removeAll(coveredPlaces);
+		// Addresses Issue 1071 by explicitly shuffling the result
+		scope.getRandom().shuffle2(allPlaces);
 		if (filter != null) {
 			if (filter.getSpecies() != cellSpecies) {
 				filter.filter(scope, shape, allPlaces);
@@ -802,6 +807,24 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		return allPlaces;
 	}
 
+	/**
+	 * Returns the cells at distance 1 of a cell, in a random order. The list is filled directly while visiting the
+	 * neighborhood, without any intermediate set, as it is usually asked by every cell at every step
+	 */
+	IList<IAgent> getNeighborsOfCell(final IScope scope, final int placeIndex) {
+		final IList<IAgent> result = GamaListFactory.create(Types.AGENT, 8);
+		getNeighborhood().visitNeighbors(placeIndex, 1, 1, i -> {
+			final IAgent a = matrix[i].getAgent();
+			// In very small torus grids, a cell can be reached twice
+			if (!result.contains(a)) {
+				result.add(a);
+			}
+			return true;
+		});
+		scope.getRandom().shuffle(result);
+		return result;
+	}
+
 	static IAgent testPlace(final IScope scope, final IShape source, final IAgentFilter filter, final IShape toTest) {
 		if (filter.accept(scope, source, toTest))
 			return toTest.getAgent();
@@ -1354,6 +1377,58 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		return ordering.min(shapes);
 	}
 
+	/**
+	 * Explores the cells ring by ring around the source, and stops as soon as the next ring cannot contain cells
+	 * closer than the k-th cell found so far. Hexagonal grids, whose cells are not aligned, rely on the exhaustive
+	 * default search
+	 *
+	 * @see msi.gama.metamodel.topology.ISpatialIndex#kNearest(msi.gama.runtime.IScope,
+	 *      msi.gama.metamodel.shape.IShape, int, msi.gama.metamodel.topology.filter.IAgentFilter)
+	 */
+	@Override
+	public Collection<IAgent> kNearest(final IScope scope, final IShape source, final int k, final IAgentFilter f) {
+		if (isHexagon != null && isHexagon) { return IGrid.super.kNearest(scope, source, k, f); }
+		final NearestAgents result = new NearestAgents(k);
+		if (k <= 0) { return result.toList(); }
+		final Envelope env = source.getEnvelope();
+		// The cells are laid out from the corner of the environment
+		final double x0 = bounds.getMinX(), y0 = bounds.getMinY();
+		final int minX = Math.max(0, Math.min(numCols - 1, (int) ((env.getMinX() - x0) / cellWidth)));
+		final int maxX = Math.max(0, Math.min(numCols - 1, (int) ((env.getMaxX() - x0) / cellWidth)));
+		final int minY = Math.max(0, Math.min(numRows - 1, (int) ((env.getMinY() - y0) / cellHeight)));
+		final int maxY = Math.max(0, Math.min(numRows - 1, (int) ((env.getMaxY() - y0) / cellHeight)));
+		final double side = Math.min(cellWidth, cellHeight);
+		final int maxRing = Math.max(numCols, numRows);
+		for (int ring = 0; ring <= maxRing; ring++) {
+			final int top = minY - ring, bottom = maxY + ring, left = minX - ring, right = maxX + ring;
+			for (int j = top; j <= bottom; j++) {
+				if (ring == 0 || j == top || j == bottom) {
+					for (int i = left; i <= right; i++) {
+						visitCell(scope, source, f, i, j, result);
+					}
+				} else {
+					visitCell(scope, source, f, left, j, result);
+					visitCell(scope, source, f, right, j, result);
+				}
+			}
+			if (result.isFull() && result.maxDistance() <= ring * side) {
+				break;
+			}
+		}
+		return result.toList();
+	}
+
+	private void visitCell(final IScope scope, final IShape source, final IAgentFilter f, final int i, final int j,
+			final NearestAgents result) {
+		if (i < 0 || i >= numCols || j < 0 || j >= numRows) { return; }
+		final IShape cell = matrix[j * numCols + i];
+		if (cell == null) { return; }
+		final IAgent ag = cell.getAgent();
+		if (ag != null && ag != source.getAgent() && (f == null || f.accept(scope, source, ag))) {
+			result.offer(ag, source.euclidianDistanceTo(ag));
+		}
+	}
+
 	private Set<IAgent> inEnvelope(final Envelope env) {
 		// TODO Is it really efficient?
 		final Set<IAgent> shapes = new LinkedHashSet();
@@ -1790,7 +1865,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 			@Override
 			public IList<IAgent> getNeighbors(final IScope scope) {
-				return Cast.asList(scope, getNeighborhood().getNeighborsIn(scope, getIndex(), 1));
+				return getNeighborsOfCell(scope, getIndex());
 			}
 
 		}
@@ -1858,7 +1933,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 			@Override
 			public IList<IAgent> getNeighbors(final IScope scope) {
-				return Cast.asList(scope, getNeighborhood().getNeighborsIn(scope, getIndex(), 1));
+				return getNeighborsOfCell(scope, getIndex());
 			}
 
 			/**
@@ -17,17 +17,35 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.AttributeColumns;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.operators.Cast;
 import msi.gaml.variables.IVariable;
+import msi.gaml.variables.Variable;
 
+/**
+ * Class GridDiffuser. Applies the diffusions requested during a step on the variables of grids. The values of each
+ * diffused variable are gathered in a contiguous array (read directly from the columns of the population when it uses
+ * columnar attributes, in which case the results are also written back directly), then convolved with the diffusion
+ * matrix.
+ *
+ * Unless "avoid_mask" is used (which redistributes values between cells), each output cell only depends on the input:
+ * the rows are then computed in parallel on large grids, and separable matrices (i.e. products of a column and a row
+ * vector, like the ones of a uniform diffusion) are applied as two one-dimensional passes.
+ */
 public class GridDiffuser {
 
+	/** Number of cells under which the diffusion is computed sequentially */
+	static final int PARALLEL_THRESHOLD = 10000;
+
 	// Structure of the Key for our map.
 	private class PairVarGrid {
 		String Var_name;
@@ -206,6 +224,8 @@ public class GridDiffuser {
 	IScope scope;
 
 	double[] input, output;
+	// The values of the diffused variable, when stored in a column of the population
+	double[] columnValues;
 	int nbRows, nbCols;
 	double min_value;
 	IPopulation<? extends IAgent> pop;
@@ -244,8 +264,10 @@ public class GridDiffuser {
 			}
 		}
 
+		columnValues = getColumnValues();
 		for (int i = 0; i < input.length; i++) {
-			input[i] = Cast.asFloat(scope, pop.get(scope, i).getDirectVarValue(scope, var_diffu));
+			input[i] = columnValues != null ? columnValues[i]
+					: Cast.asFloat(scope, pop.get(scope, i).getDirectVarValue(scope, var_diffu));
 			if (input[i] < min_value) {
 				input[i] = 0;
 			}
@@ -254,6 +276,169 @@ public class GridDiffuser {
 
 	}
 
+	/**
+	 * Returns the values of the diffused variable if the population stores them in a float column that can be read and
+	 * written directly (see {@link AttributeColumns}), null otherwise
+	 */
+	private double[] getColumnValues() {
+		final AttributeColumns columns = pop.getColumns();
+		if (columns == null) { return null; }
+		final IVariable v = pop.getVar(var_diffu);
+		if (!(v instanceof Variable)) { return null; }
+		final Variable var = (Variable) v;
+		if (!var.canBeWrittenInColumn() || !columns.stores(var, var.getColumn())) { return null; }
+		final double[] values = columns.getDoubleValues(var_diffu);
+		return values == null || values.length < input.length ? null : values;
+	}
+
+	/**
+	 * Computes the diffusion (by convolution or dot product) as a gather: the value of each output cell is computed
+	 * from the input cells it receives values from. Only used when no value has to be redistributed because of
+	 * "avoid_mask".
+	 */
+	public void doDiffusion_gathered() {
+		final int kRows = mat_diffu.length;
+		final int kCols = mat_diffu[0].length;
+		// Offsets, relative to an output cell, of the input cells corresponding to the first row and column of the
+		// flipped matrix. They only differ between the two methods for matrices of even size
+		final int offsetX = use_convolution ? -(kCols / 2) : -(kCols - 1 - kCols / 2);
+		final int offsetY = use_convolution ? -(kRows / 2) : -(kRows - 1 - kRows / 2);
+		final double[][] weights = new double[kRows][kCols];
+		for (int m = 0; m < kRows; m++) {
+			for (int n = 0; n < kCols; n++) {
+				weights[m][n] = mat_diffu[kRows - m - 1][kCols - n - 1];
+			}
+		}
+		final double[][] separated = is_gradient || mask != null ? null : separate(weights);
+		if (separated != null) {
+			final double[] rowPass = new double[output.length];
+			forEachRow(j -> {
+				for (int i = 0; i < nbCols; i++) {
+					double sum = 0;
+					for (int n = 0; n < kCols; n++) {
+						final int ii = wrap(i + n + offsetX, nbCols);
+						if (ii >= 0 && ii < nbCols) {
+							sum += input[j * nbCols + ii] * separated[1][n];
+						}
+					}
+					rowPass[j * nbCols + i] = sum;
+				}
+			});
+			forEachRow(j -> {
+				for (int i = 0; i < nbCols; i++) {
+					double sum = 0;
+					for (int m = 0; m < kRows; m++) {
+						final int jj = wrap(j + m + offsetY, nbRows);
+						if (jj >= 0 && jj < nbRows) {
+							sum += rowPass[jj * nbCols + i] * separated[0][m];
+						}
+					}
+					accumulate(j * nbCols + i, sum);
+				}
+			});
+			return;
+		}
+		forEachRow(j -> {
+			for (int i = 0; i < nbCols; i++) {
+				boolean received = false;
+				double value = 0;
+				for (int m = 0; m < kRows; m++) {
+					final int jj = wrap(j + m + offsetY, nbRows);
+					if (jj < 0 || jj >= nbRows) {
+						continue;
+					}
+					for (int n = 0; n < kCols; n++) {
+						final int ii = wrap(i + n + offsetX, nbCols);
+						if (ii < 0 || ii >= nbCols || mask != null && mask[ii][jj] != 1) {
+							continue;
+						}
+						final double v = input[jj * nbCols + ii] * weights[m][n];
+						if (!received) {
+							value = v;
+							received = true;
+						} else if (is_gradient) {
+							if (value < v) {
+								value = v;
+							}
+						} else {
+							value += v;
+						}
+					}
+				}
+				if (received) {
+					accumulate(j * nbCols + i, value);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Adds the value computed for an output cell to the ones of the previous diffusions of the same variable
+	 */
+	private void accumulate(final int index, final double value) {
+		if (output[index] == -Double.MAX_VALUE) {
+			output[index] = value;
+		} else if (is_gradient) {
+			if (output[index] < value) {
+				output[index] = value;
+			}
+		} else {
+			output[index] += value;
+		}
+	}
+
+	private int wrap(final int index, final int size) {
+		if (!is_torus) { return index; }
+		if (index < 0) { return index + size; }
+		if (index >= size) { return index - size; }
+		return index;
+	}
+
+	private void forEachRow(final IntConsumer row) {
+		if (nbRows * nbCols < PARALLEL_THRESHOLD || GamaExecutorService.AGENT_PARALLEL_EXECUTOR == null) {
+			for (int j = 0; j < nbRows; j++) {
+				row.accept(j);
+			}
+		} else {
+			GamaExecutorService.executeThreaded(() -> IntStream.range(0, nbRows).parallel().forEach(row));
+		}
+	}
+
+	/**
+	 * Returns the column and row vectors whose product is the matrix, or null if the matrix is not separable
+	 */
+	static double[][] separate(final double[][] matrix) {
+		final int rows = matrix.length;
+		final int cols = matrix[0].length;
+		int pivotRow = -1, pivotCol = -1;
+		double max = 0;
+		for (int m = 0; m < rows; m++) {
+			for (int n = 0; n < cols; n++) {
+				if (Math.abs(matrix[m][n]) > max) {
+					max = Math.abs(matrix[m][n]);
+					pivotRow = m;
+					pivotCol = n;
+				}
+			}
+		}
+		if (pivotRow == -1) { return null; }
+		final double[] column = new double[rows];
+		final double[] row = new double[cols];
+		for (int m = 0; m < rows; m++) {
+			column[m] = matrix[m][pivotCol];
+		}
+		for (int n = 0; n < cols; n++) {
+			row[n] = matrix[pivotRow][n] / matrix[pivotRow][pivotCol];
+		}
+		final double tolerance = max * 1e-12;
+		for (int m = 0; m < rows; m++) {
+			for (int n = 0; n < cols; n++) {
+				if (Math.abs(matrix[m][n] - column[m] * row[n]) > tolerance) { return null; }
+			}
+		}
+		return new double[][] { column, row };
+	}
+
 	public void doDiffusion_with_convolution() {
 		// default method : convolution
 
@@ -277,19 +462,8 @@ public class GridDiffuser {
 						int ii = i + n - kCenterX;
 						int jj = j + m - kCenterY;
 						// ignore input samples which are out of bound
-						if (is_torus) {
-							if (ii < 0) {
-								ii = nbRows + ii;
-							} else if (ii >= nbRows) {
-								ii = ii - nbRows;
-							}
-
-							if (jj < 0) {
-								jj = nbCols + jj;
-							} else if (jj >= nbCols) {
-								jj = jj - nbCols;
-							}
-						}
+						ii = wrap(ii, nbCols);
+						jj = wrap(jj, nbRows);
 						// diffuse if the input value is in the grid, and if the
 						// cell is not masked
 						if (ii >= 0 && ii < nbCols && jj >= 0 && jj < nbRows && (mask == null || mask[ii][jj] == 1)) {
@@ -348,9 +522,9 @@ public class GridDiffuser {
 		final int kCenterX = kCols / 2;
 		final int kCenterY = kRows / 2;
 
-		for (int ii = 0; ii < nbRows; ++ii) // input rows
+		for (int ii = 0; ii < nbCols; ++ii) // input columns
 		{
-			for (int jj = 0; jj < nbCols; ++jj) // input columns
+			for (int jj = 0; jj < nbRows; ++jj) // input rows
 			{
 				if (mask == null || mask[ii][jj] == 1) {
 					// diffuse only if the input is not masked
@@ -365,19 +539,8 @@ public class GridDiffuser {
 							int i = ii + n - kCenterX;
 							int j = jj + m - kCenterY;
 							// ignore output samples which are out of bound
-							if (is_torus) {
-								if (i < 0) {
-									i = nbRows + i;
-								} else if (i >= nbRows) {
-									i = i - nbRows;
-								}
-
-								if (j < 0) {
-									j = nbCols + j;
-								} else if (j >= nbCols) {
-									j = j - nbCols;
-								}
-							}
+							i = wrap(i, nbCols);
+							j = wrap(j, nbRows);
 							// diffuse if the output value is in the grid
 							if (i >= 0 && i < nbCols && j >= 0 && j < nbRows) {
 								final double value_before_change = output[j * nbCols + i];
@@ -444,7 +607,11 @@ public class GridDiffuser {
 			} else {
 				valToPut = Math.max(valToPut, min_value);
 			}
-			v.setVal(scope, pop.get(scope, i), valToPut);
+			if (columnValues != null) {
+				columnValues[i] = valToPut;
+			} else {
+				v.setVal(scope, pop.get(scope, i), valToPut);
+			}
 		}
 	}
 
@@ -481,7 +648,9 @@ public class GridDiffuser {
 				final GridDiffusion gridDiffusion = gridDiffIterator.next();
 				final boolean success = loadDiffProperties(gridDiffusion);
 				if (success) {
-					if (!use_convolution) {
+					if (!avoid_mask || mask == null) {
+						doDiffusion_gathered();
+					} else if (!use_convolution) {
 						doDiffusion_with_dotProduct();
 					} else {
 						doDiffusion_with_convolution();
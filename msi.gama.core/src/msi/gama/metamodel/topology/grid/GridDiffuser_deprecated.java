@@ -18,7 +18,6 @@ import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
-import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.IContainer;
@@ -129,7 +128,6 @@ class GridDiffuser_deprecated {
 
 	private void spreadDiffusion(final IScope scope, final String v, final GridDiffusion_deprecated gridDiffusion)
 			throws GamaRuntimeException {
-		int[] neighbors;
 		IAgent p;
 		final double proportion = gridDiffusion.proportion;
 		final double variation = gridDiffusion.variation;
@@ -169,22 +167,13 @@ class GridDiffuser_deprecated {
 				max_range++;
 			}
 			range = CmnFastMath.min(range, max_range);
-			try {
-				neighbors = matrix.neighborhood.getRawNeighborsIncluding(scope, placeIndex, range);
-			} catch (final GamaRuntimeException e) {
-				// We change the neighborhood to a cached version dynamically
-				GAMA.reportError(scope, e, false);
-				matrix.useNeighborsCache = true;
-				matrix.neighborhood = null;
-				neighbors = matrix.getNeighborhood().getRawNeighborsIncluding(scope, placeIndex, range);
-			}
+			final INeighborhood neighborhood = matrix.getNeighborhood();
 			for (n = 1; n <= range; n++) {
-				final int begin = matrix.neighborhood.neighborsIndexOf(scope, placeIndex, n);
-				final int end = matrix.neighborhood.neighborsIndexOf(scope, placeIndex, n + 1);
-				for (int k = begin; k < end; k++) {
-					final IAgent z = matrix.matrix[neighbors[k]].getAgent();
+				final double amount = rn;
+				final boolean alive = neighborhood.visitNeighbors(placeIndex, n, n, k -> {
+					final IAgent z = matrix.matrix[k].getAgent();
 					if (gridDiffusion.candidates != null && !gridDiffusion.candidates.contains(scope, z)) {
-						continue;
+						return true;
 					}
 					// v.addDirectFloat(z, rn);
 					final Double value = (Double) scope.getAgentVarValue(z, v);
@@ -192,9 +181,13 @@ class GridDiffuser_deprecated {
 					// means probably that the agent is dead.
 					// Better to stop spreading !
 					if (value == null) {
-						return;
+						return false;
 					}
-					scope.setAgentVarValue(z, v, value + rn);
+					scope.setAgentVarValue(z, v, value + amount);
+					return true;
+				});
+				if (!alive) {
+					return;
 				}
 				rn = rn * prop - variation;
 			}
@@ -203,7 +196,6 @@ class GridDiffuser_deprecated {
 
 	private void spreadGradient(final IScope scope, final String v, final GridDiffusion_deprecated gridDiffusion)
 			throws GamaRuntimeException {
-		int[] neighbors;
 		IAgent p;
 		final double proportion = gridDiffusion.proportion;
 		final double variation = gridDiffusion.variation;
@@ -237,38 +229,33 @@ class GridDiffuser_deprecated {
 				max_range++;
 			}
 			range = CmnFastMath.min(range, max_range);
-			try {
-				neighbors = matrix.neighborhood.getRawNeighborsIncluding(scope, placeIndex, range);
-			} catch (final GamaRuntimeException e) {
-				// We change the neighborhood to a cached version dynamically
-				GAMA.reportError(scope, e, false);
-				matrix.useNeighborsCache = true;
-				matrix.neighborhood = null;
-				neighbors = matrix.getNeighborhood().getRawNeighborsIncluding(scope, placeIndex, range);
-			}
-			boolean cont = true;
+			final INeighborhood neighborhood = matrix.getNeighborhood();
+			final boolean[] cont = new boolean[1];
 			for (n = 1; n <= range; n++) {
-				final int begin = matrix.neighborhood.neighborsIndexOf(scope, placeIndex, n);
-				final int end = matrix.neighborhood.neighborsIndexOf(scope, placeIndex, n + 1);
-				cont = false;
-				for (int k = begin; k < end; k++) {
-					final IAgent z = matrix.matrix[neighbors[k]].getAgent();
+				final double amount = rn;
+				cont[0] = false;
+				final boolean alive = neighborhood.visitNeighbors(placeIndex, n, n, k -> {
+					final IAgent z = matrix.matrix[k].getAgent();
 					if (gridDiffusion.candidates != null && !gridDiffusion.candidates.contains(scope, z)) {
-						continue;
+						return true;
 					}
 					final Double value = (Double) scope.getAgentVarValue(z, v);
 					// If we cant get access to the value of the variable, it
 					// means probably that the agent is dead.
 					// Better to stop spreading !
 					if (value == null) {
-						return;
+						return false;
 					}
-					if (value < rn) {
-						scope.setAgentVarValue(z, v, rn);
-						cont = true;
+					if (value < amount) {
+						scope.setAgentVarValue(z, v, amount);
+						cont[0] = true;
 					}
+					return true;
+				});
+				if (!alive) {
+					return;
 				}
-				if (!cont) {
+				if (!cont[0]) {
 					break;
 				}
 				rn = rn * proportion - variation;
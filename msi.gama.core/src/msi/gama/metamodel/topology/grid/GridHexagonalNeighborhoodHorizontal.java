@@ -103,10 +103,28 @@ public class GridHexagonalNeighborhoodHorizontal extends GridNeighborhood {
 		return neigh;
 	}
 
+	@Override
+	protected int getStencilKind(final int x, final int y) {
+		return GridNeighborhoodTable.HEXAGONAL_HORIZONTAL + x % 2;
+	}
+
+	/**
+	 * The wrapping of a torus grid changes the parity of the cells if the number of columns is odd: the stencils
+	 * cannot be used in that case
+	 */
+	@Override
+	protected boolean usesStencil(final int radius) {
+		return super.usesStencil(radius) && (!isTorus || numCols % 2 == 0);
+	}
+
 	@Override
 	protected TIntHashSet getNeighborsAtRadius(final int placeIndex, final int radius) {
 		final TIntHashSet neigh2 = new TIntHashSet();
-		final TIntHashSet neigh = getNeighborsAtRadius(placeIndex, radius, matrix.numCols, matrix.numRows, matrix.isTorus);
+		final TIntHashSet neigh = getNeighborsAtRadius(placeIndex, radius, numCols, numRows, isTorus);
+		if ( radius > 1 ) {
+			// Only keeps the ring at this distance
+			neigh.removeAll(getNeighborsAtRadius(placeIndex, radius - 1, numCols, numRows, isTorus));
+		}
 		TIntIterator it = neigh.iterator();
 		while (it.hasNext()) {
 			int id = it.next();
@@ -122,12 +140,4 @@ public class GridHexagonalNeighborhoodHorizontal extends GridNeighborhood {
 		return false;
 	}
 
-	/*
-	 * (non-Javadoc)
-	 *
-	 * @see msi.gama.metamodel.topology.grid.INeighborhood#clear()
-	 */
-	@Override
-	public void clear() {}
-
 }
\ No newline at end of file
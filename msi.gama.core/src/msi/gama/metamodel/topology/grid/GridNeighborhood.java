@@ -11,6 +11,7 @@
 package msi.gama.metamodel.topology.grid;
 
 import java.util.Set;
+import java.util.function.IntPredicate;
 
 import gnu.trove.set.hash.TIntHashSet;
 import gnu.trove.set.hash.TLinkedHashSet;
@@ -20,104 +21,115 @@ import msi.gama.runtime.IScope;
 /**
  * Written by drogoul Modified on 8 mars 2011
  *
- * @todo Description
+ * The neighbors are described by the stencils of {@link GridNeighborhoodTable}, shared by all the cells, and their
+ * indexes are computed on the fly when they are visited. A table holding the neighbors of each cell is only built
+ * when the stencils cannot be used (i.e. in torus grids too small for the radius).
  *
  */
 public abstract class GridNeighborhood implements INeighborhood {
 
 	protected final GamaSpatialMatrix matrix;
-	// i : index of agents; j : index of neighbors
-	protected int[][] neighbors;
-	// i : index of agents; j : index of the neighbors by distance
-	protected int[][] neighborsIndexes;
+	protected final int numCols, numRows;
+	protected final boolean isTorus;
+	private volatile GridNeighborhoodTable cells;
 
 	public GridNeighborhood(final GamaSpatialMatrix matrix) {
 		this.matrix = matrix;
-		neighbors = new int[matrix.matrix.length][0];
-		// neighborsIndexes = new ArrayList[agents.length];
-		neighborsIndexes = new int[matrix.matrix.length][];
+		numCols = matrix.numCols;
+		numRows = matrix.numRows;
+		isTorus = matrix.isTorus != null && matrix.isTorus;
 	}
 
-	@Override
-	public int[] getRawNeighborsIncluding(final IScope scope, final int placeIndex, final int radius) {
-		// List<Integer> n = neighborsIndexes[placeIndex];
-		int[] n = neighborsIndexes[placeIndex];
-		if (n == null) {
-			// n = new ArrayList<Integer>();
-			n = new int[0];
-			neighborsIndexes[placeIndex] = n;
-		}
-		// final int size = n.size();
-		final int size = n.length;
-		if (radius > size) {
-			computeNeighborsFrom(placeIndex, size + 1, radius);
-		}
-		return neighbors[placeIndex];
-	}
+	/**
+	 * Returns the kind of the stencil (see {@link GridNeighborhoodTable}) describing the neighbors of the cell at (x, y)
+	 */
+	protected abstract int getStencilKind(final int x, final int y);
 
-	protected abstract TIntHashSet getNeighborsAtRadius(final int placeIndex, final int radius);
+	/**
+	 * Whether the stencils describe the neighbors up to this radius. In torus grids, the rings must not wrap onto
+	 * themselves
+	 */
+	protected boolean usesStencil(final int radius) {
+		if (!isTorus) { return true; }
+		final int width = 2 * radius + 1;
+		return width <= numCols && width <= numRows;
+	}
 
-	private void computeNeighborsFrom(final int placeIndex, final int begin, final int end) {
-		for (int i = begin; i <= end; i++) {
-			// final int previousIndex = i == 1 ? 0 :
-			// neighborsIndexes[placeIndex].get(i - 2);
-			final int previousIndex = i == 1 ? 0 : neighborsIndexes[placeIndex][i - 2];
-			final TIntHashSet list = getNeighborsAtRadius(placeIndex, i);
-			final int[] listArray = list.toArray();
-			final int size = listArray.length;
-			// final int size = list.size();
-			// final int[] listArray = new int[size];
-			// for ( int j = 0; j < size; j++ ) {
-			// listArray[j] = list.get(j);
-			// }
-			final int[] newArray = new int[neighbors[placeIndex].length + size];
-			if (neighbors[placeIndex].length != 0) {
-				java.lang.System.arraycopy(neighbors[placeIndex], 0, newArray, 0, neighbors[placeIndex].length);
+	/**
+	 * Returns the indexes of the cells at this distance of the cell. Only used when the stencils cannot be used
+	 */
+	protected TIntHashSet getNeighborsAtRadius(final int placeIndex, final int radius) {
+		final int y = placeIndex / numCols;
+		final int x = placeIndex - y * numCols;
+		final GridNeighborhoodTable stencil = GridNeighborhoodTable.getStencil(getStencilKind(x, y), radius);
+		final TIntHashSet result = new TIntHashSet();
+		for (int k = stencil.offsets[radius - 1]; k < stencil.offsets[radius]; k++) {
+			final int p = getPlaceIndexAt(x + stencil.indices[k], y + stencil.dy[k]);
+			if (p != -1) {
+				result.add(p);
 			}
-			java.lang.System.arraycopy(listArray, 0, newArray, neighbors[placeIndex].length, size);
-			neighbors[placeIndex] = newArray;
-			// neighborsIndexes[placeIndex].add(previousIndex + size);
-			addToNeighborsIndex(placeIndex, previousIndex + size);
 		}
+		return result;
 	}
 
-	private final void addToNeighborsIndex(final int placeIndex, final int newIndex) {
-		final int[] previous = neighborsIndexes[placeIndex];
-		final int[] newOne = new int[previous.length + 1];
-		java.lang.System.arraycopy(previous, 0, newOne, 0, previous.length);
-		newOne[previous.length] = newIndex;
-		neighborsIndexes[placeIndex] = newOne;
+	/**
+	 * Returns the index of the cell at (x, y), wrapping the coordinates if the grid is a torus, or -1 if there is no
+	 * cell there
+	 */
+	protected final int getPlaceIndexAt(int x, int y) {
+		if (x < 0 || y < 0 || x >= numCols || y >= numRows) {
+			if (!isTorus) { return -1; }
+			x = Math.floorMod(x, numCols);
+			y = Math.floorMod(y, numRows);
+		}
+		final int p = y * numCols + x;
+		return matrix.matrix[p] == null ? -1 : p;
 	}
 
 	@Override
-	public int neighborsIndexOf(final IScope scope, final int placeIndex, final int n) {
-		if (n == 1) {
-			return 0;
+	public boolean visitNeighbors(final int placeIndex, final int from, final int to, final IntPredicate visitor) {
+		final int first = Math.max(from, 1);
+		if (placeIndex < 0 || to < first) { return true; }
+		if (!usesStencil(to)) {
+			final GridNeighborhoodTable table = getCellsTable(to);
+			final int row = placeIndex * table.radius;
+			for (int k = table.offsets[row + first - 1], end = table.offsets[row + to]; k < end; k++) {
+				if (!visitor.test(table.indices[k])) { return false; }
+			}
+			return true;
 		}
-		final int size = neighborsIndexes[placeIndex].length;
-		if (n > size) {
-			return neighbors[placeIndex].length - 1;
+		final int y = placeIndex / numCols;
+		final int x = placeIndex - y * numCols;
+		final GridNeighborhoodTable stencil = GridNeighborhoodTable.getStencil(getStencilKind(x, y), to);
+		for (int k = stencil.offsets[first - 1], end = stencil.offsets[to]; k < end; k++) {
+			final int p = getPlaceIndexAt(x + stencil.indices[k], y + stencil.dy[k]);
+			if (p != -1 && !visitor.test(p)) { return false; }
 		}
-		return neighborsIndexes[placeIndex][n - 2];
+		return true;
+	}
+
+	private GridNeighborhoodTable getCellsTable(final int radius) {
+		GridNeighborhoodTable result = cells;
+		if (result == null || result.radius < radius) {
+			synchronized (this) {
+				result = cells;
+				if (result == null || result.radius < radius) {
+					result = GridNeighborhoodTable.buildForCells(this, matrix.matrix.length, radius);
+					cells = result;
+				}
+			}
+		}
+		return result;
 	}
 
 	@Override
 	public Set<IAgent> getNeighborsIn(final IScope scope, final int placeIndex, final int radius) {
-		int[] n = neighborsIndexes[placeIndex];
-		if (n == null) {
-			n = new int[0];
-			neighborsIndexes[placeIndex] = n;
-		}
-		final int size = n.length;
-		if (radius > size) {
-			computeNeighborsFrom(placeIndex, size + 1, radius);
-		}
-		final int[] nn = neighbors[placeIndex];
-		final int nnSize = neighborsIndexes[placeIndex][radius - 1];
 		final Set<IAgent> result = new TLinkedHashSet<>();
-		for (int i = 0; i < nnSize; i++) {
-			result.add(matrix.matrix[nn[i]].getAgent());
-		}
+		visitNeighbors(placeIndex, 1, radius, i -> {
+			result.add(matrix.matrix[i].getAgent());
+			return true;
+		});
+		// Addresses Issue 1071 by explicitly shuffling the result
 		scope.getRandom().shuffle2(result);
 		return result;
 	}
@@ -127,8 +139,7 @@ public abstract class GridNeighborhood implements INeighborhood {
 
 	@Override
 	public void clear() {
-		neighbors = null;
-		neighborsIndexes = null;
+		cells = null;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+/*********************************************************************************************
+ *
+ * 'GridNeighborhoodTable.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.metamodel.topology.grid;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Class GridNeighborhoodTable. The neighbors of the cells of a grid, up to a given radius, stored in a compressed sparse
+ * row form: an array of offsets and an array of indices, the row r being made of the elements between offsets[r]
+ * (inclusive) and offsets[r + 1] (exclusive). Each row holds the neighbors found at a given distance (ring) of a cell,
+ * so that the neighbors up to any radius below the one of the table form a contiguous range.
+ *
+ * Most of the time, the neighborhood of all the cells is the same up to a translation. The table is then a stencil,
+ * whose rows are the rings and whose elements are the displacements (dx, dy) of the neighbors: it is shared by all the
+ * cells of all the grids (torus or not) using the same kind of neighborhood. Hexagonal grids use two stencils, depending
+ * on the parity of the column (or row) of the cell. Otherwise, for instance in torus grids too small for the rings not
+ * to overlap, the table holds one row per cell and per ring, with the indexes of the neighbors.
+ *
+ */
+public final class GridNeighborhoodTable {
+
+	public static final int MOORE = 0;
+	public static final int VON_NEUMANN = 1;
+	/** Hexagonal grids with an horizontal orientation: the stencils depend on the parity of the column */
+	public static final int HEXAGONAL_HORIZONTAL = 2;
+	/** Hexagonal grids with a vertical orientation: the stencils depend on the parity of the row */
+	public static final int HEXAGONAL_VERTICAL = 4;
+
+	/** The stencils, indexed by kind (+ parity for hexagonal grids). Only the largest radius requested is kept */
+	private static final AtomicReferenceArray<GridNeighborhoodTable> STENCILS = new AtomicReferenceArray<>(6);
+
+	final int radius;
+	final int[] offsets;
+	/** The indexes of the neighbors or, if the table is a stencil, their displacements along the x axis */
+	final int[] indices;
+	/** The displacements of the neighbors along the y axis if the table is a stencil, null otherwise */
+	final int[] dy;
+
+	GridNeighborhoodTable(final int radius, final int[] offsets, final int[] indices, final int[] dy) {
+		this.radius = radius;
+		this.offsets = offsets;
+		this.indices = indices;
+		this.dy = dy;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	public boolean isStencil() {
+		return dy != null;
+	}
+
+	/**
+	 * Returns the stencil of this kind (+ parity, for hexagonal grids) covering at least the radius
+	 */
+	public static GridNeighborhoodTable getStencil(final int kind, final int radius) {
+		GridNeighborhoodTable result = STENCILS.get(kind);
+		if (result == null || result.radius < radius) {
+			synchronized (STENCILS) {
+				result = STENCILS.get(kind);
+				if (result == null || result.radius < radius) {
+					result = buildStencil(kind, radius);
+					STENCILS.set(kind, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static GridNeighborhoodTable buildStencil(final int kind, final int radius) {
+		final int[] offsets = new int[radius + 1];
+		final int size = kind == VON_NEUMANN ? 2 * radius * (radius + 1) : (2 * radius + 1) * (2 * radius + 1) - 1;
+		final int[] dx = new int[size];
+		final int[] dy = new int[size];
+		int n = 0;
+		if (kind == MOORE || kind == VON_NEUMANN) {
+			for (int r = 1; r <= radius; r++) {
+				for (int j = -r; j <= r; j++) {
+					for (int i = -r; i <= r; i++) {
+						final int d = kind == MOORE ? Math.max(Math.abs(i), Math.abs(j)) : Math.abs(i) + Math.abs(j);
+						if (d == r) {
+							dx[n] = i;
+							dy[n++] = j;
+						}
+					}
+				}
+				offsets[r] = n;
+			}
+		} else {
+			// The rings are computed by a breadth-first exploration of an unbounded grid, starting from a cell of the
+			// right parity, located far enough from the origin for all the coordinates to remain positive
+			final boolean horizontal = kind < HEXAGONAL_VERTICAL;
+			final int side = 4 * radius + 4;
+			final int origin = 2 * radius + 2 + (kind & 1);
+			final boolean[] visited = new boolean[side * side];
+			visited[origin * side + origin] = true;
+			int begin = 0;
+			for (int r = 1; r <= radius; r++) {
+				final int end = n;
+				for (int k = r == 1 ? -1 : begin; k < end; k++) {
+					final int x = origin + (k == -1 ? 0 : dx[k]);
+					final int y = origin + (k == -1 ? 0 : dy[k]);
+					for (final int p : hexagonalNeighbors(x, y, horizontal)) {
+						final int px = p >> 16, py = p & 0xFFFF;
+						if (!visited[py * side + px]) {
+							visited[py * side + px] = true;
+							dx[n] = px - origin;
+							dy[n++] = py - origin;
+						}
+					}
+				}
+				begin = end;
+				offsets[r] = n;
+			}
+		}
+		return new GridNeighborhoodTable(radius, offsets, Arrays.copyOf(dx, n), Arrays.copyOf(dy, n));
+	}
+
+	/**
+	 * The 6 neighbors of a cell of an hexagonal grid (see
+	 * {@link GridHexagonalNeighborhoodHorizontal#getNeighborsAtRadius1(int, int, int, boolean)}), packed as (x << 16 |
+	 * y)
+	 */
+	static int[] hexagonalNeighbors(final int x, final int y, final boolean horizontal) {
+		final int[] result = new int[6];
+		result[0] = x << 16 | y - 1;
+		result[1] = x << 16 | y + 1;
+		result[2] = x - 1 << 16 | y;
+		result[3] = x + 1 << 16 | y;
+		if (horizontal) {
+			final int ny = x % 2 == 0 ? y - 1 : y + 1;
+			result[4] = x + 1 << 16 | ny;
+			result[5] = x - 1 << 16 | ny;
+		} else {
+			final int nx = y % 2 == 1 ? x + 1 : x - 1;
+			result[4] = nx << 16 | y - 1;
+			result[5] = nx << 16 | y + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a table holding one row per cell and per ring, from the rings computed by the neighborhood
+	 */
+	static GridNeighborhoodTable buildForCells(final GridNeighborhood neighborhood, final int nbCells,
+			final int radius) {
+		final int[] offsets = new int[nbCells * radius + 1];
+		int[] indices = new int[nbCells * radius * 4];
+		int n = 0;
+		for (int i = 0; i < nbCells; i++) {
+			for (int r = 1; r <= radius; r++) {
+				final TIntHashSet ring = neighborhood.getNeighborsAtRadius(i, r);
+				if (n + ring.size() > indices.length) {
+					indices = Arrays.copyOf(indices, Math.max(indices.length * 2, n + ring.size()));
+				}
+				final int[] values = ring.toArray();
+				Arrays.sort(values);
+				System.arraycopy(values, 0, indices, n, values.length);
+				n += values.length;
+				offsets[i * radius + r] = n;
+			}
+		}
+		return new GridNeighborhoodTable(radius, offsets, Arrays.copyOf(indices, n), null);
+	}
+
+}
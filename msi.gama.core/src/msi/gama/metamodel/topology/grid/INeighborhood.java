@@ -11,6 +11,8 @@
 package msi.gama.metamodel.topology.grid;
 
 import java.util.Set;
+import java.util.function.IntPredicate;
+
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.runtime.IScope;
 
@@ -28,18 +30,16 @@ public interface INeighborhood {
 	public abstract boolean isVN();
 
 	/**
+	 * Visits the indexes of the neighbors of a cell whose distance is between 'from' and 'to' (inclusive), ring by
+	 * ring, without building any collection. The visit stops as soon as the visitor returns false
+	 *
 	 * @param placeIndex
-	 * @param range
-	 * @return
-	 */
-	public abstract int[] getRawNeighborsIncluding(IScope scope, int placeIndex, int range);
-
-	/**
-	 * @param placeIndex
-	 * @param n
-	 * @return
+	 * @param from
+	 * @param to
+	 * @param visitor
+	 * @return false if the visit has been stopped by the visitor, true otherwise
 	 */
-	public abstract int neighborsIndexOf(IScope scope, int placeIndex, int n);
+	public abstract boolean visitNeighbors(int placeIndex, int from, int to, IntPredicate visitor);
 
 	/**
 	 *
@@ -10,100 +10,70 @@
  **********************************************************************************************/
 package msi.gama.metamodel.topology.grid;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
 
-import gnu.trove.set.hash.TLinkedHashSet;
-import msi.gama.metamodel.agent.IAgent;
-import msi.gama.runtime.IScope;
-import msi.gama.runtime.exceptions.GamaRuntimeException;
-import msi.gaml.operators.fastmaths.CmnFastMath;
+/**
+ * Class NoCacheNeighborhood. A neighborhood that never stores the neighbors of the cells: they are computed from the
+ * stencils of {@link GridNeighborhoodTable}, even in small torus grids (where a cell can then be visited several
+ * times, or be its own neighbor). In hexagonal torus grids whose wrapping changes the parity of the cells (odd number
+ * of columns or rows), the stencils cannot be used: the neighbors are computed ring by ring, like in the cached
+ * hexagonal neighborhoods, each time they are visited.
+ */
+public class NoCacheNeighborhood extends GridNeighborhood {
 
-public class NoCacheNeighborhood implements INeighborhood {
-
-	/**
-	 * 
-	 */
-	private final GamaSpatialMatrix matrix;
+	private final int kind;
+	/** Computes the rings of neighbors when the stencils cannot be used, null otherwise */
+	private final GridNeighborhood rings;
 
 	public NoCacheNeighborhood(final GamaSpatialMatrix gamaSpatialMatrix) {
-		matrix = gamaSpatialMatrix;
+		super(gamaSpatialMatrix);
+		if (matrix.isHexagon != null && matrix.isHexagon) {
+			kind = matrix.isHorizontalOrientation != null && !matrix.isHorizontalOrientation
+					? GridNeighborhoodTable.HEXAGONAL_VERTICAL : GridNeighborhoodTable.HEXAGONAL_HORIZONTAL;
+		} else {
+			kind = matrix.usesVN != null && matrix.usesVN ? GridNeighborhoodTable.VON_NEUMANN
+					: GridNeighborhoodTable.MOORE;
+		}
+		if (isTorus && kind == GridNeighborhoodTable.HEXAGONAL_HORIZONTAL && numCols % 2 != 0) {
+			rings = new GridHexagonalNeighborhoodHorizontal(matrix);
+		} else if (isTorus && kind == GridNeighborhoodTable.HEXAGONAL_VERTICAL && numRows % 2 != 0) {
+			rings = new GridHexagonalNeighborhoodVertical(matrix);
+		} else {
+			rings = null;
+		}
 	}
 
 	@Override
-	public void clear() {
-	}
-
-	/**
-	 * Method getNeighborsIn()
-	 * 
-	 * @see msi.gama.metamodel.topology.grid.INeighborhood#getNeighborsIn(int,
-	 *      int)
-	 */
-	@Override
-	public Set<IAgent> getNeighborsIn(final IScope scope, final int placeIndex, final int radius) {
-		return computeNeighborsFrom(scope, placeIndex, 1, radius);
-	}
-
-	private Set<IAgent> computeNeighborsFrom(final IScope scope, final int placeIndex, final int begin, final int end) {
-		final Set<IAgent> result = new TLinkedHashSet<>();
-		for (int i = begin; i <= end; i++) {
-			for (final Integer index : matrix.usesVN ? get4NeighborsAtRadius(placeIndex, i)
-					: get8NeighborsAtRadius(placeIndex, i)) {
-				result.add(matrix.matrix[index].getAgent());
-			}
+	protected int getStencilKind(final int x, final int y) {
+		switch (kind) {
+			case GridNeighborhoodTable.HEXAGONAL_HORIZONTAL:
+				return kind + x % 2;
+			case GridNeighborhoodTable.HEXAGONAL_VERTICAL:
+				return kind + y % 2;
+			default:
+				return kind;
 		}
-		// Addresses Issue 1071 by explicitly shuffling the result
-		scope.getRandom().shuffle2(result);
-		return result;
 	}
 
-	protected List<Integer> get8NeighborsAtRadius(final int placeIndex, final int radius) {
-		final int y = placeIndex / matrix.numCols;
-		final int x = placeIndex - y * matrix.numCols;
-		final List<Integer> v = new ArrayList<Integer>(radius + 1 * radius + 1);
-		int p;
-		for (int i = 1 - radius; i < radius; i++) {
-			p = matrix.getPlaceIndexAt(x + i, y - radius);
-			if (p != -1) {
-				v.add(p);
-			}
-			p = matrix.getPlaceIndexAt(x - i, y + radius);
-			if (p != -1) {
-				v.add(p);
-			}
-		}
-		for (int i = -radius; i < radius + 1; i++) {
-			p = matrix.getPlaceIndexAt(x - radius, y - i);
-			if (p != -1) {
-				v.add(p);
-			}
-			p = matrix.getPlaceIndexAt(x + radius, y + i);
-			if (p != -1) {
-				v.add(p);
-			}
-		}
-		return v;
+	@Override
+	protected boolean usesStencil(final int radius) {
+		return rings == null;
 	}
 
-	protected List<Integer> get4NeighborsAtRadius(final int placeIndex, final int radius) {
-		final int y = placeIndex / matrix.numCols;
-		final int x = placeIndex - y * matrix.numCols;
-
-		final List<Integer> v = new ArrayList<Integer>(radius << 2);
-		int p;
-		for (int i = -radius; i < radius; i++) {
-			p = matrix.getPlaceIndexAt(x - i, y - CmnFastMath.abs(i) + radius);
-			if (p != -1) {
-				v.add(p);
-			}
-			p = matrix.getPlaceIndexAt(x + i, y + CmnFastMath.abs(i) - radius);
-			if (p != -1) {
-				v.add(p);
+	@Override
+	public boolean visitNeighbors(final int placeIndex, final int from, final int to, final IntPredicate visitor) {
+		if (rings == null) { return super.visitNeighbors(placeIndex, from, to, visitor); }
+		if (placeIndex < 0) { return true; }
+		// In the order of the tables of the cached neighborhoods
+		for (int r = Math.max(from, 1); r <= to; r++) {
+			final int[] ring = rings.getNeighborsAtRadius(placeIndex, r).toArray();
+			Arrays.sort(ring);
+			for (final int p : ring) {
+				if (!visitor.test(p)) { return false; }
 			}
 		}
-		return v;
+		return true;
 	}
 
 	/**
@@ -113,31 +83,7 @@ public class NoCacheNeighborhood implements INeighborhood {
 	 */
 	@Override
 	public boolean isVN() {
-		return false;
-	}
-
-	/**
-	 * Method getRawNeighborsIncluding()
-	 * 
-	 * @see msi.gama.metamodel.topology.grid.INeighborhood#getRawNeighborsIncluding(int,
-	 *      int)
-	 */
-	@Override
-	public int[] getRawNeighborsIncluding(final IScope scope, final int placeIndex, final int range) {
-		throw GamaRuntimeException.warning("The diffusion of signals must rely on a neighbors cache in the grid",
-				scope);
-	}
-
-	/**
-	 * Method neighborsIndexOf()
-	 * 
-	 * @see msi.gama.metamodel.topology.grid.INeighborhood#neighborsIndexOf(int,
-	 *      int)
-	 */
-	@Override
-	public int neighborsIndexOf(final IScope scope, final int placeIndex, final int n) {
-		throw GamaRuntimeException.warning("The diffusion of signals must rely on a neighbors cache in the grid",
-				scope);
+		return kind == GridNeighborhoodTable.VON_NEUMANN;
 	}
 
-}
\ No newline at end of file
+}
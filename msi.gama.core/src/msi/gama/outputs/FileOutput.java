@@ -32,11 +32,13 @@ import msi.gama.precompiler.ISymbolKind;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GAML;
+import msi.gama.util.file.ParquetWriter;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.factories.DescriptionFactory;
 import msi.gaml.operators.Cast;
 import msi.gaml.types.IType;
+import msi.gaml.types.Types;
 
 /**
  * The Class AbstractFileOutput.
@@ -97,7 +99,7 @@ import msi.gaml.types.IType;
 				@facet (
 						name = IKeyword.TYPE,
 						type = IType.ID,
-						values = { IKeyword.CSV, IKeyword.TEXT, IKeyword.XML },
+						values = { IKeyword.CSV, IKeyword.TEXT, IKeyword.XML, IKeyword.PARQUET },
 						optional = true,
 						doc = @doc (
 								value = "The type of your output data")) },
@@ -132,12 +134,16 @@ public class FileOutput extends AbstractOutput {
 	private static final int XML = 1;
 	private static final int CSV = 2;
 	private static final int TEXT = 0;
-	private static final List<String> extensions = Arrays.asList("txt", "xml", "csv");
+	private static final int PARQUET = 3;
+	private static final List<String> extensions = Arrays.asList("txt", "xml", "csv", "parquet");
+	// The values of the data and the cycles are written in two typed columns
+	private ParquetWriter parquet;
 	private int type;
 
 	private void createType() {
 		final String t = getLiteral(IKeyword.TYPE, IKeyword.TEXT);
-		type = t.equals(IKeyword.CSV) ? CSV : t.equals(IKeyword.XML) ? XML : TEXT;
+		type = t.equals(IKeyword.CSV) ? CSV
+				: t.equals(IKeyword.XML) ? XML : t.equals(IKeyword.PARQUET) ? PARQUET : TEXT;
 	}
 
 	private void createExpression() {
@@ -201,6 +207,14 @@ public class FileOutput extends AbstractOutput {
 				getWriter().println("<" + getName() + ">");
 				getWriter().flush();
 				break;
+			case PARQUET:
+				try {
+					parquet = new ParquetWriter(file, this, new String[] { "cycle", getName() },
+							new IType[] { Types.INT, data.getType() });
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+				break;
 			default:
 		}
 
@@ -223,6 +237,16 @@ public class FileOutput extends AbstractOutput {
 				getWriter().println("</" + getName() + ">");
 				getWriter().flush();
 				break;
+			case PARQUET:
+				if (parquet != null) {
+					try {
+						parquet.close();
+					} catch (final IOException e) {
+						e.printStackTrace();
+					}
+					parquet = null;
+				}
+				break;
 			default:
 		}
 		writer.flush();
@@ -384,6 +408,11 @@ public class FileOutput extends AbstractOutput {
 				getWriter().println("<data step=\"" + cycle + "\" value=\"" + getLastValue() + "\" />");
 				getWriter().flush();
 				break;
+			case PARQUET:
+				if (parquet != null) {
+					parquet.addRow(getScope(), new Object[] { cycle, getLastValue() });
+				}
+				break;
 			default:
 		}
 	}
@@ -9,14 +9,27 @@
  **********************************************************************************************/
 package msi.gama.runtime;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 
 import gnu.trove.map.hash.THashMap;
 
+/**
+ * Class ExecutionContext. The frame holding the temporary variables (arguments, let...) of a block. As a block rarely
+ * declares more than a few variables, they are stored in two small arrays (names and values) and looked up linearly,
+ * which avoids allocating (and copying) a hash map for each block executed. The names used by the compiled
+ * expressions, statements and arguments are interned, so that they are most of the time found by comparing
+ * references.
+ */
 public class ExecutionContext implements IExecutionContext {
 
-	Map<String, Object> local;
+	private static final String[] NO_NAMES = new String[0];
+	private static final Object[] NO_VALUES = new Object[0];
+
+	String[] names = NO_NAMES;
+	Object[] values = NO_VALUES;
+	int size;
 	final IExecutionContext outer;
 	IScope scope;
 
@@ -40,7 +53,15 @@ public class ExecutionContext implements IExecutionContext {
 
 	public ExecutionContext(final IScope scope, final Map<String, Object> vars) {
 		this(scope);
-		local = vars;
+		vars.forEach(this::putLocalVar);
+	}
+
+	private int indexOf(final String name) {
+		for (int i = 0; i < size; i++) {
+			final String n = names[i];
+			if (n == name || n.equals(name)) { return i; }
+		}
+		return -1;
 	}
 
 	@Override
@@ -50,29 +71,32 @@ public class ExecutionContext implements IExecutionContext {
 
 	@Override
 	public void setTempVar(final String name, final Object value) {
-		if (local == null || !local.containsKey(name)) {
+		final int i = indexOf(name);
+		if (i == -1) {
 			if (outer != null)
 				outer.setTempVar(name, value);
 		} else {
-			local.put(name, value);
+			values[i] = value;
 		}
 
 	}
 
 	@Override
 	public Object getTempVar(final String name) {
-		if (local == null || !local.containsKey(name))
+		final int i = indexOf(name);
+		if (i == -1)
 			return outer == null ? null : outer.getTempVar(name);
-		// if (name == ExecutionScope.EACH)
-		// System.out.println("EACH value found in context " + this);
-		return local.get(name);
+		return values[i];
 	}
 
 	@Override
 	public ExecutionContext createCopyContext() {
 		final ExecutionContext r = new ExecutionContext(scope, outer);
-		if (local != null)
-			r.local = new THashMap<String, Object>(local);
+		if (size > 0) {
+			r.names = Arrays.copyOf(names, size);
+			r.values = Arrays.copyOf(values, size);
+			r.size = size;
+		}
 		return r;
 	}
 
@@ -83,45 +107,64 @@ public class ExecutionContext implements IExecutionContext {
 
 	@Override
 	public Map<? extends String, ? extends Object> getLocalVars() {
-		return local == null ? Collections.EMPTY_MAP : local;
+		if (size == 0)
+			return Collections.EMPTY_MAP;
+		final Map<String, Object> result = new THashMap<>(size);
+		for (int i = 0; i < size; i++) {
+			result.put(names[i], values[i]);
+		}
+		return result;
 	}
 
 	@Override
 	public void clearLocalVars() {
-		local = null;
+		names = NO_NAMES;
+		values = NO_VALUES;
+		size = 0;
 	}
 
 	@Override
 	public void putLocalVar(final String varName, final Object val) {
-		if (local == null)
-			local = new THashMap<>();
-		local.put(varName, val);
+		final int i = indexOf(varName);
+		if (i != -1) {
+			values[i] = val;
+			return;
+		}
+		if (size == names.length) {
+			final int capacity = Math.max(4, size * 2);
+			names = Arrays.copyOf(names, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		names[size] = varName;
+		values[size++] = val;
 	}
 
 	@Override
 	public Object getLocalVar(final String string) {
-		if (local == null)
-			return null;
-		return local.get(string);
+		final int i = indexOf(string);
+		return i == -1 ? null : values[i];
 	}
 
 	@Override
 	public boolean hasLocalVar(final String name) {
-		if (local == null)
-			return false;
-		return local.containsKey(name);
+		return indexOf(name) != -1;
 	}
 
 	@Override
 	public void removeLocalVar(final String name) {
-		if (local == null)
+		final int i = indexOf(name);
+		if (i == -1)
 			return;
-		local.remove(name);
+		size--;
+		System.arraycopy(names, i + 1, names, i, size - i);
+		System.arraycopy(values, i + 1, values, i, size - i);
+		names[size] = null;
+		values[size] = null;
 	}
 
 	@Override
 	public String toString() {
-		return "execution context " + local;
+		return "execution context " + getLocalVars();
 	}
 
 }
\ No newline at end of file
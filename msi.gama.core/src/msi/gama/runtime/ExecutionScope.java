@@ -12,6 +12,7 @@ package msi.gama.runtime;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import gnu.trove.set.hash.TLinkedHashSet;
@@ -43,6 +44,11 @@ import msi.gaml.types.Types;
 /**
  * Class AbstractScope.
  *
+ * A scope is confined to the thread that uses it: nothing on the push/pop path is synchronized. Threads that need to
+ * execute agents in parallel each work on their own fork of the scope, obtained with {@link #copy(String)}, which
+ * shares the (immutable) stack of agents of the original, copies its special context (each, graphics, topology...)
+ * and starts from a copy of its execution context.
+ *
  * @author drogoul
  * @since 23 mai 2013
  *
@@ -51,9 +57,12 @@ import msi.gaml.types.Types;
 public class ExecutionScope implements IScope {
 
 	private static final String ATTRIBUTES = "%_attributes_%";
-	private static int SCOPE_NUMBER = 0;
+	private static final AtomicInteger SCOPE_NUMBER = new AtomicInteger();
 
-	private final String name;
+	private final int number;
+	private final String otherName;
+	/** Built the first time it is asked for, as scopes are copied for each parallel task */
+	private String name;
 
 	protected IExecutionContext executionContext;
 	protected AgentExecutionContext agentContext;
@@ -134,18 +143,27 @@ public class ExecutionScope implements IScope {
 
 	public ExecutionScope(final ITopLevelAgent root, final String otherName, final IExecutionContext context,
 			final AgentExecutionContext agentContext, final SpecialContext specialContext) {
-		String name = "Scope #" + ++SCOPE_NUMBER;
+		number = SCOPE_NUMBER.incrementAndGet();
+		this.otherName = otherName;
 		setRoot(root);
-		if (root != null) {
-			name += " of " + root;
-		}
-		name += otherName == null || otherName.isEmpty() ? "" : "(" + otherName + ")";
-		this.name = name;
 		this.executionContext = context == null ? new ExecutionContext(this) : context.createCopyContext();
 		this.agentContext = agentContext == null ? new AgentExecutionContext(root, null) : agentContext;
 		this.additionalContext.copyFrom(specialContext);
 	}
 
+	/**
+	 * Forks the scope: the copy shares the agents stack and the special context of the original at the time of the
+	 * copy, and starts with a copy of its current execution context
+	 */
+	private ExecutionScope(final ExecutionScope original, final String otherName) {
+		number = SCOPE_NUMBER.incrementAndGet();
+		this.otherName = otherName;
+		executionContext = original.executionContext == null ? new ExecutionContext(this)
+				: original.executionContext.createCopyContext();
+		agentContext = original.agentContext;
+		additionalContext.copyFrom(original.additionalContext);
+	}
+
 	public AgentExecutionContext createChildContext(final IAgent agent) {
 		return new AgentExecutionContext(agent, agentContext);
 	};
@@ -263,7 +281,7 @@ public class ExecutionScope implements IScope {
 	 */
 	// @Override
 	@Override
-	public synchronized boolean push(final IAgent agent) {
+	public boolean push(final IAgent agent) {
 		final IAgent a = agentContext == null ? null : agentContext.getAgent();
 		if (a == null) {
 			if (agent instanceof ITopLevelAgent) {
@@ -687,6 +705,11 @@ public class ExecutionScope implements IScope {
 
 	@Override
 	public String getName() {
+		if (name == null) {
+			final ITopLevelAgent root = getRoot();
+			name = "Scope #" + number + (root == null ? "" : " of " + root)
+					+ (otherName == null || otherName.isEmpty() ? "" : "(" + otherName + ")");
+		}
 		return name;
 	}
 
@@ -890,11 +913,7 @@ public class ExecutionScope implements IScope {
 
 	@Override
 	public IScope copy(final String additionalName) {
-		final ExecutionScope scope = new ExecutionScope(getRoot(), additionalName);
-		scope.executionContext = executionContext.createCopyContext();
-		scope.agentContext = agentContext;
-		scope.additionalContext.copyFrom(additionalContext);
-		return scope;
+		return new ExecutionScope(this, additionalName);
 	}
 
 	@Override
@@ -21,6 +21,11 @@ import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.statements.IExecutable;
 
+/**
+ * Class ParallelAgentRunner. Splits the agents in subtasks executed by the threads of the agent executor. A scope is
+ * only ever used by one thread: the scope given to the runner is shared, untouched, by all the subtasks, and each of
+ * the subtasks that actually executes agents does so in its own fork of it (see {@link IScope#copy(String)}).
+ */
 public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements IExecutable {
 
 	final Spliterator<IAgent> agents;
@@ -80,7 +85,7 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 
 	protected <A extends IShape> ParallelAgentRunner(final IScope scope, final Spliterator<IAgent> agents) {
 		this.agents = agents;
-		this.originalScope = scope.copy(" - forked - ");
+		this.originalScope = scope;
 	}
 
 	abstract ParallelAgentRunner<T> subTask(Spliterator<IAgent> sub);
@@ -90,7 +95,7 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		final Spliterator<IAgent> sub = agents.trySplit();
 		T result;
 		if (sub == null) {
-			result = executeOn(originalScope);
+			result = executeOn(originalScope.copy(" - forked - "));
 		} else {
 			final ParallelAgentRunner<T> left = subTask(sub);
 			left.fork();
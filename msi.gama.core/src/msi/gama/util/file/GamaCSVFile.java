@@ -252,6 +252,7 @@ public class GamaCSVFile extends GamaFile<IMatrix<Object>, Object> {
 	@Override
 	public void fillBuffer(final IScope scope) {
 		if (getBuffer() != null) { return; }
+		TextWriterPool.flush(scope, getFile(scope));
 		if (csvSeparator == null || contentsType == null || userSize == null) {
 			scope.getGui().getStatus(scope).beginSubStatus("Opening file " + getName(scope));
 			final CSVInfo stats = getInfo(scope, csvSeparator);
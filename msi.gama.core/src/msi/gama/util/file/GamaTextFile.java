@@ -71,6 +71,7 @@ public class GamaTextFile extends GamaFile<IList<String>, String> {
 	@Override
 	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
 		if (getBuffer() != null) { return; }
+		TextWriterPool.flush(scope, getFile(scope));
 		try (BufferedReader in = new BufferedReader(new FileReader(getFile(scope)))) {
 			final IList<String> allLines = GamaListFactory.create(Types.STRING);
 			String str = in.readLine();
@@ -0,0 +1,495 @@
+/*********************************************************************************************
+ *
+ * 'ParquetWriter.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.operators.Cast;
+import msi.gaml.types.IType;
+
+/**
+ * Class ParquetWriter. Writes rows of values in a file in the Apache Parquet format, column by column: the int, float
+ * and bool values are written as typed columns (INT32, DOUBLE, BOOLEAN), all the others as UTF-8 strings (their GAML
+ * representation). All the columns accept nil. The rows are kept in memory until {@link #ROW_GROUP_SIZE} of them have
+ * been added, then written as a row group whose columns are compressed with gzip. The metadata of the file (its schema
+ * and the position of its row groups) is written when the writer is closed: the file cannot be read before.
+ *
+ * The writers used by the save statement are kept open, for each file and each simulation, until the simulation that
+ * opened them is disposed, so that the rows saved at each cycle end up in the same file.
+ */
+public class ParquetWriter {
+
+	/** The number of rows kept in memory before being written */
+	public static final int ROW_GROUP_SIZE = 65536;
+
+	private static final byte[] MAGIC = { 'P', 'A', 'R', '1' };
+	// Constants of the Parquet format
+	private static final int BOOLEAN = 0, INT32 = 1, DOUBLE = 5, BYTE_ARRAY = 6;
+	private static final int PLAIN = 0, RLE = 3, GZIP = 2, UTF8 = 0, OPTIONAL = 1, DATA_PAGE = 0;
+
+	private static final Map<Key, ParquetWriter> WRITERS = new ConcurrentHashMap<>();
+
+	final File file;
+	final Object owner;
+	final String[] names;
+	final Column[] columns;
+	private final OutputStream out;
+	private long position;
+	private int rows;
+	private long totalRows;
+	private final List<Chunk[]> rowGroups = new ArrayList<>();
+	private final List<Integer> rowGroupSizes = new ArrayList<>();
+	private boolean closed;
+
+	/**
+	 * Returns the writer used by the save statement for the file, opening it (and replacing the existing file) if it is
+	 * the first time it is saved in the simulation of the scope. Its columns must be the ones passed
+	 */
+	public static ParquetWriter get(final IScope scope, final File file, final String[] names, final IType<?>[] types)
+			throws GamaRuntimeException {
+		final Object owner = scope.getSimulation() != null ? scope.getSimulation() : scope.getExperiment();
+		final ParquetWriter writer = WRITERS.computeIfAbsent(new Key(owner, file.getAbsolutePath()), key -> {
+			try {
+				return new ParquetWriter(file, owner, names, types);
+			} catch (final IOException e) {
+				throw GamaRuntimeException.create(e, scope);
+			}
+		});
+		if (!Arrays.equals(writer.names, names)) {
+			throw GamaRuntimeException.error("The columns saved in " + file.getName() + " (" + Arrays.toString(names)
+					+ ") are not the ones of its first save (" + Arrays.toString(writer.names) + ")", scope);
+		}
+		return writer;
+	}
+
+	/**
+	 * Closes the writers opened by the save statement in the owner (a simulation, or an experiment, in which case the
+	 * writers of its simulations are closed too). The writers of the other experiments running in the same platform are
+	 * left open
+	 */
+	public static void closeAll(final IScope scope, final Object owner) throws GamaRuntimeException {
+		IOException error = null;
+		for (final ParquetWriter writer : WRITERS.values()) {
+			if (writer.owner != owner && !(writer.owner instanceof SimulationAgent
+					&& ((SimulationAgent) writer.owner).getExperiment() == owner)) {
+				continue;
+			}
+			try {
+				writer.close();
+			} catch (final IOException e) {
+				error = e;
+			}
+		}
+		if (error != null) { throw GamaRuntimeException.create(error, scope); }
+	}
+
+	public ParquetWriter(final File file, final Object owner, final String[] names, final IType<?>[] types)
+			throws IOException {
+		this.file = file;
+		this.owner = owner;
+		this.names = names;
+		columns = new Column[names.length];
+		for (int i = 0; i < names.length; i++) {
+			columns[i] = new Column(physicalType(types[i]));
+		}
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		out = new BufferedOutputStream(new FileOutputStream(file, false));
+		write(MAGIC);
+	}
+
+	private static int physicalType(final IType<?> type) {
+		switch (type.id()) {
+			case IType.INT:
+				return INT32;
+			case IType.FLOAT:
+				return DOUBLE;
+			case IType.BOOL:
+				return BOOLEAN;
+			default:
+				return BYTE_ARRAY;
+		}
+	}
+
+	/**
+	 * Adds a row, whose values are in the order of the columns
+	 */
+	public synchronized void addRow(final IScope scope, final Object[] values) throws GamaRuntimeException {
+		if (closed) { return; }
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].add(scope, values[i]);
+		}
+		if (++rows >= ROW_GROUP_SIZE) {
+			try {
+				writeRowGroup();
+			} catch (final IOException e) {
+				throw GamaRuntimeException.create(e, scope);
+			}
+		}
+	}
+
+	/**
+	 * Writes the remaining rows and the metadata of the file
+	 */
+	public synchronized void close() throws IOException {
+		if (closed) { return; }
+		closed = true;
+		WRITERS.remove(new Key(owner, file.getAbsolutePath()), this);
+		try {
+			if (rows > 0) {
+				writeRowGroup();
+			}
+			final byte[] footer = footer();
+			write(footer);
+			write(new byte[] { (byte) footer.length, (byte) (footer.length >>> 8), (byte) (footer.length >>> 16),
+					(byte) (footer.length >>> 24) });
+			write(MAGIC);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void write(final byte[] bytes) throws IOException {
+		out.write(bytes);
+		position += bytes.length;
+	}
+
+	/**
+	 * Writes each column as a chunk made of a single data page
+	 */
+	private void writeRowGroup() throws IOException {
+		final Chunk[] chunks = new Chunk[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			final Column column = columns[i];
+			final byte[] page = column.page();
+			final ByteArrayOutputStream compressed = new ByteArrayOutputStream(page.length / 4 + 16);
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write(page);
+			}
+			final Thrift header = new Thrift();
+			header.i32(1, DATA_PAGE);
+			header.i32(2, page.length);
+			header.i32(3, compressed.size());
+			header.beginStruct(5);
+			header.i32(1, column.count);
+			header.i32(2, PLAIN);
+			header.i32(3, RLE);
+			header.i32(4, RLE);
+			header.endStruct();
+			final byte[] h = header.end();
+			final Chunk chunk = new Chunk();
+			chunk.offset = position;
+			chunk.values = column.count;
+			chunk.uncompressed = h.length + page.length;
+			chunk.compressed = h.length + compressed.size();
+			write(h);
+			write(compressed.toByteArray());
+			chunks[i] = chunk;
+			column.clear();
+		}
+		rowGroups.add(chunks);
+		rowGroupSizes.add(rows);
+		totalRows += rows;
+		rows = 0;
+	}
+
+	private byte[] footer() {
+		final Thrift t = new Thrift();
+		t.i32(1, 1);
+		t.beginList(2, Thrift.STRUCT, columns.length + 1);
+		t.beginElement();
+		t.string(4, "schema");
+		t.i32(5, columns.length);
+		t.endStruct();
+		for (int i = 0; i < columns.length; i++) {
+			t.beginElement();
+			t.i32(1, columns[i].type);
+			t.i32(3, OPTIONAL);
+			t.string(4, names[i]);
+			if (columns[i].type == BYTE_ARRAY) {
+				t.i32(6, UTF8);
+			}
+			t.endStruct();
+		}
+		t.i64(3, totalRows);
+		t.beginList(4, Thrift.STRUCT, rowGroups.size());
+		for (int g = 0; g < rowGroups.size(); g++) {
+			final Chunk[] chunks = rowGroups.get(g);
+			long size = 0;
+			t.beginElement();
+			t.beginList(1, Thrift.STRUCT, chunks.length);
+			for (int i = 0; i < chunks.length; i++) {
+				final Chunk c = chunks[i];
+				size += c.uncompressed;
+				t.beginElement();
+				t.i64(2, c.offset);
+				t.beginStruct(3);
+				t.i32(1, columns[i].type);
+				t.beginList(2, Thrift.I32, 2);
+				t.element(PLAIN);
+				t.element(RLE);
+				t.beginList(3, Thrift.BINARY, 1);
+				t.element(names[i]);
+				t.i32(4, GZIP);
+				t.i64(5, c.values);
+				t.i64(6, c.uncompressed);
+				t.i64(7, c.compressed);
+				t.i64(9, c.offset);
+				t.endStruct();
+				t.endStruct();
+			}
+			t.i64(2, size);
+			t.i64(3, rowGroupSizes.get(g));
+			t.endStruct();
+		}
+		t.string(6, "GAMA");
+		return t.end();
+	}
+
+	/**
+	 * Class Key. The simulation (or experiment) that has opened a writer and the path of its file
+	 */
+	private static class Key {
+		final Object owner;
+		final String path;
+
+		Key(final Object owner, final String path) {
+			this.owner = owner;
+			this.path = path;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Key)) { return false; }
+			final Key other = (Key) o;
+			return other.owner == owner && other.path.equals(path);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(owner) * 31 + path.hashCode();
+		}
+	}
+
+	private static class Chunk {
+		long offset, uncompressed, compressed;
+		int values;
+	}
+
+	/**
+	 * Class Column. The values of a column not written yet, already encoded (PLAIN encoding)
+	 */
+	private static class Column {
+
+		final int type;
+		final ByteArrayOutputStream values = new ByteArrayOutputStream();
+		/** The rows that are not nil */
+		final BitSet defined = new BitSet();
+		/** The bool values, indexed by their rank among the values that are not nil */
+		final BitSet booleans = new BitSet();
+		int count, nonNull;
+
+		Column(final int type) {
+			this.type = type;
+		}
+
+		void add(final IScope scope, final Object value) {
+			if (value != null) {
+				defined.set(count);
+				switch (type) {
+					case INT32:
+						writeInt(values, Cast.asInt(scope, value));
+						break;
+					case DOUBLE:
+						writeLong(values, Double.doubleToLongBits(Cast.asFloat(scope, value)));
+						break;
+					case BOOLEAN:
+						booleans.set(nonNull, Cast.asBool(scope, value));
+						break;
+					default:
+						final String s = value instanceof String ? (String) value : Cast.toGaml(value);
+						final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+						writeInt(values, bytes.length);
+						values.write(bytes, 0, bytes.length);
+				}
+				nonNull++;
+			}
+			count++;
+		}
+
+		/**
+		 * The content of the data page: the definition levels (RLE / bit-packed hybrid, with their length) followed
+		 * by the values
+		 */
+		byte[] page() {
+			final ByteArrayOutputStream levels = new ByteArrayOutputStream();
+			if (nonNull == count) {
+				// A single run of 1s
+				writeVarInt(levels, (long) count << 1);
+				levels.write(1);
+			} else {
+				// Groups of 8 levels packed on one bit each
+				final int groups = (count + 7) / 8;
+				writeVarInt(levels, (long) groups << 1 | 1);
+				final byte[] bits = Arrays.copyOf(defined.toByteArray(), groups);
+				levels.write(bits, 0, bits.length);
+			}
+			final ByteArrayOutputStream page = new ByteArrayOutputStream(4 + levels.size() + values.size());
+			writeInt(page, levels.size());
+			page.write(levels.toByteArray(), 0, levels.size());
+			if (type == BOOLEAN) {
+				final byte[] bits = Arrays.copyOf(booleans.toByteArray(), (nonNull + 7) / 8);
+				page.write(bits, 0, bits.length);
+			} else {
+				page.write(values.toByteArray(), 0, values.size());
+			}
+			return page.toByteArray();
+		}
+
+		void clear() {
+			values.reset();
+			defined.clear();
+			booleans.clear();
+			count = 0;
+			nonNull = 0;
+		}
+
+	}
+
+	static void writeInt(final ByteArrayOutputStream out, final int v) {
+		out.write(v);
+		out.write(v >>> 8);
+		out.write(v >>> 16);
+		out.write(v >>> 24);
+	}
+
+	static void writeLong(final ByteArrayOutputStream out, final long v) {
+		writeInt(out, (int) v);
+		writeInt(out, (int) (v >>> 32));
+	}
+
+	static void writeVarInt(final ByteArrayOutputStream out, final long value) {
+		long v = value;
+		while ((v & ~0x7FL) != 0) {
+			out.write((int) (v & 0x7F | 0x80));
+			v >>>= 7;
+		}
+		out.write((int) v);
+	}
+
+	/**
+	 * Class Thrift. The compact protocol of Apache Thrift, in which the metadata of Parquet files are written. Only
+	 * what is needed here is supported
+	 */
+	private static class Thrift {
+
+		static final int I32 = 5, I64 = 6, BINARY = 8, LIST = 9, STRUCT = 12;
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		/** The id of the last field written in the current struct, and the ones of the enclosing structs */
+		int last;
+		int[] stack = new int[8];
+		int depth;
+
+		private void field(final int id, final int type) {
+			final int delta = id - last;
+			if (delta > 0 && delta <= 15) {
+				bytes.write(delta << 4 | type);
+			} else {
+				bytes.write(type);
+				writeVarInt(bytes, zigzag(id));
+			}
+			last = id;
+		}
+
+		private static long zigzag(final long n) {
+			return n << 1 ^ n >> 63;
+		}
+
+		void i32(final int id, final int v) {
+			field(id, I32);
+			writeVarInt(bytes, zigzag(v) & 0xFFFFFFFFL);
+		}
+
+		void i64(final int id, final long v) {
+			field(id, I64);
+			writeVarInt(bytes, zigzag(v));
+		}
+
+		void string(final int id, final String s) {
+			field(id, BINARY);
+			element(s);
+		}
+
+		void beginStruct(final int id) {
+			field(id, STRUCT);
+			beginElement();
+		}
+
+		/**
+		 * Begins a struct inside a list
+		 */
+		void beginElement() {
+			if (depth == stack.length) {
+				stack = Arrays.copyOf(stack, depth * 2);
+			}
+			stack[depth++] = last;
+			last = 0;
+		}
+
+		void endStruct() {
+			bytes.write(0);
+			last = stack[--depth];
+		}
+
+		void beginList(final int id, final int elementType, final int size) {
+			field(id, LIST);
+			if (size < 15) {
+				bytes.write(size << 4 | elementType);
+			} else {
+				bytes.write(0xF0 | elementType);
+				writeVarInt(bytes, size);
+			}
+		}
+
+		void element(final int v) {
+			writeVarInt(bytes, zigzag(v) & 0xFFFFFFFFL);
+		}
+
+		void element(final String s) {
+			final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes, b.length);
+			bytes.write(b, 0, b.length);
+		}
+
+		byte[] end() {
+			bytes.write(0);
+			return bytes.toByteArray();
+		}
+	}
+
+}
@@ -0,0 +1,265 @@
+/*********************************************************************************************
+ *
+ * 'TextWriterPool.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+
+/**
+ * Class TextWriterPool. The writers of the text and CSV files saved by the models (see the save statement), kept open
+ * between two saves in the same file instead of being opened and closed each time. They are buffered and flushed at the
+ * end of each cycle of the simulations, and closed when the experiment that opened them is closed or when a file is
+ * overwritten. The files whose name ends with .gz are compressed.
+ *
+ * If the preference is set, the text saved during a cycle is kept in memory and written to the files by a background
+ * thread at the end of the cycle, so that the simulations do not wait for the disk. The text saved in one call is always
+ * written at once, so that the lines saved by agents running in parallel are not mixed.
+ */
+public class TextWriterPool {
+
+	private static final Map<String, PooledWriter> WRITERS = new ConcurrentHashMap<>();
+	private static volatile ExecutorService BACKGROUND;
+
+	/**
+	 * Appends the text to the file, opening its writer if needed
+	 */
+	public static void write(final IScope scope, final File file, final String text) throws GamaRuntimeException {
+		final String path = file.getAbsolutePath();
+		try {
+			final Object owner = scope.getExperiment();
+			while (!WRITERS.computeIfAbsent(path, p -> new PooledWriter(file, owner)).append(text)) {
+				// The writer has been closed in the meantime by another thread
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Writes to the file the text saved in it so far and waits for it to be written, before the file is read
+	 */
+	public static void flush(final IScope scope, final File file) throws GamaRuntimeException {
+		final PooledWriter writer = WRITERS.get(file.getAbsolutePath());
+		if (writer == null) { return; }
+		try {
+			writer.flush(true);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Writes to the files the text saved in them during the cycle, without waiting for the background thread
+	 */
+	public static void flushAll(final IScope scope) throws GamaRuntimeException {
+		try {
+			for (final PooledWriter writer : WRITERS.values()) {
+				writer.flush(false);
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Closes the writer of the file (before it is deleted, for instance)
+	 */
+	public static void close(final IScope scope, final File file) throws GamaRuntimeException {
+		final PooledWriter writer = WRITERS.get(file.getAbsolutePath());
+		if (writer == null) { return; }
+		try {
+			writer.close();
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Closes the writers opened by the experiment and its simulations. The writers of the other experiments running in
+	 * the same platform are left open. The files are reopened if they are saved again
+	 */
+	public static void closeAll(final IScope scope, final Object experiment) throws GamaRuntimeException {
+		IOException error = null;
+		for (final PooledWriter writer : WRITERS.values()) {
+			if (writer.owner != experiment) {
+				continue;
+			}
+			try {
+				writer.close();
+			} catch (final IOException e) {
+				error = e;
+			}
+		}
+		if (error != null) { throw GamaRuntimeException.create(error, scope); }
+	}
+
+	private static ExecutorService background() {
+		if (BACKGROUND == null) {
+			synchronized (WRITERS) {
+				if (BACKGROUND == null) {
+					BACKGROUND = Executors.newSingleThreadExecutor(r -> {
+						final Thread t = new Thread(r, "GAMA file writer");
+						t.setDaemon(true);
+						return t;
+					});
+				}
+			}
+		}
+		return BACKGROUND;
+	}
+
+	private static class PooledWriter {
+
+		final File file;
+		/** The experiment in which it has been opened */
+		final Object owner;
+		/** Whether the text is written by the background thread */
+		final boolean asynchronous;
+		/** The text saved since the last flush, when asynchronous */
+		final StringBuilder pending = new StringBuilder();
+		/** Only accessed by the background thread when asynchronous */
+		Writer out;
+		volatile IOException error;
+		boolean closed;
+
+		PooledWriter(final File file, final Object owner) {
+			this.file = file;
+			this.owner = owner;
+			asynchronous = GamaPreferences.Runtime.SAVE_ASYNCHRONOUS.getValue();
+		}
+
+		/**
+		 * Returns false if the writer is closed
+		 */
+		synchronized boolean append(final String text) throws IOException {
+			if (closed) { return false; }
+			check();
+			if (asynchronous) {
+				pending.append(text);
+			} else {
+				open().write(text);
+			}
+			return true;
+		}
+
+		synchronized void flush(final boolean wait) throws IOException {
+			if (closed) { return; }
+			check();
+			if (!asynchronous) {
+				if (out != null) {
+					out.flush();
+				}
+				return;
+			}
+			if (pending.length() > 0 || wait) {
+				final String text = pending.toString();
+				pending.setLength(0);
+				run(() -> {
+					if (!text.isEmpty()) {
+						open().write(text);
+					}
+					if (out != null) {
+						out.flush();
+					}
+				}, wait);
+			}
+		}
+
+		synchronized void close() throws IOException {
+			if (closed) { return; }
+			try {
+				flush(false);
+				if (asynchronous) {
+					run(this::closeOut, true);
+				} else {
+					closeOut();
+				}
+			} finally {
+				closed = true;
+				WRITERS.remove(file.getAbsolutePath(), this);
+			}
+		}
+
+		private Writer open() throws IOException {
+			if (out == null) {
+				OutputStream stream = new FileOutputStream(file, true);
+				// Appending to a compressed file adds a new member to it, which the readers of gzip concatenate
+				if (file.getName().endsWith(".gz")) {
+					stream = new GZIPOutputStream(stream);
+				}
+				out = new BufferedWriter(new OutputStreamWriter(stream));
+			}
+			return out;
+		}
+
+		private void closeOut() throws IOException {
+			if (out != null) {
+				final Writer w = out;
+				out = null;
+				w.close();
+			}
+		}
+
+		/**
+		 * Throws the error that happened in the background thread, if any
+		 */
+		private void check() throws IOException {
+			final IOException e = error;
+			if (e != null) {
+				error = null;
+				throw e;
+			}
+		}
+
+		private void run(final IORunnable task, final boolean wait) throws IOException {
+			final Runnable r = () -> {
+				try {
+					task.run();
+				} catch (final IOException e) {
+					error = e;
+				}
+			};
+			if (!wait) {
+				background().execute(r);
+				return;
+			}
+			try {
+				background().submit(r).get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (final ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			check();
+		}
+
+	}
+
+	@FunctionalInterface
+	private interface IORunnable {
+		void run() throws IOException;
+	}
+
+}
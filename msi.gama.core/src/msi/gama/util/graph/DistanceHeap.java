@@ -0,0 +1,94 @@
+/*********************************************************************************************
+ *
+ * 'DistanceHeap.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.Arrays;
+
+/**
+ * Class DistanceHeap. A binary min-heap of (distance, vertex index) pairs used by the shortest path algorithms working on
+ * indexed vertices. There is no decrease-key operation: a vertex can be pushed several times, and the obsolete entries
+ * have to be ignored by the caller when they are popped. Ties are broken by the index of the vertices.
+ *
+ */
+public class DistanceHeap {
+
+	private double[] keys;
+	private int[] values;
+	private int size;
+
+	public DistanceHeap(final int capacity) {
+		keys = new double[Math.max(4, capacity)];
+		values = new int[keys.length];
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The smallest distance in the heap (infinite if the heap is empty)
+	 */
+	public double peekKey() {
+		return size == 0 ? Double.POSITIVE_INFINITY : keys[0];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void push(final double key, final int value) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		int i = size++;
+		while (i > 0) {
+			final int parent = (i - 1) >> 1;
+			if (!lower(key, value, keys[parent], values[parent])) {
+				break;
+			}
+			keys[i] = keys[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	public int pop() {
+		final int result = values[0];
+		final double key = keys[--size];
+		final int value = values[size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && lower(keys[child + 1], values[child + 1], keys[child], values[child])) {
+				child++;
+			}
+			if (!lower(keys[child], values[child], key, value)) {
+				break;
+			}
+			keys[i] = keys[child];
+			values[i] = values[child];
+			i = child;
+		}
+		keys[i] = key;
+		values[i] = value;
+		return result;
+	}
+
+	private static boolean lower(final double k1, final int v1, final double k2, final int v2) {
+		return k1 < k2 || k1 == k2 && v1 < v2;
+	}
+
+}
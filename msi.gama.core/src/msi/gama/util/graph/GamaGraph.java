@@ -18,7 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.EdgeFactory;
@@ -43,9 +43,11 @@ import msi.gama.common.util.StringUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.graph.ContractionHierarchy;
 import msi.gama.metamodel.topology.graph.FloydWarshallShortestPathsGAMA;
 import msi.gama.metamodel.topology.graph.GamaSpatialGraph.VertexRelationship;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaList;
 import msi.gama.util.GamaListFactory;
@@ -87,19 +89,21 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	protected boolean agentEdge;
 	protected final IScope scope;
 	protected final IContainerType type;
-	protected Map<Pair<V, V>, IList<IList<E>>> shortestPathComputed = null;
+	protected ShortestPathCache<V, E> shortestPathComputed = null;
 	protected VertexRelationship vertexRelation;
 
 	public static int FloydWarshall = 1;
 	public static int BellmannFord = 2;
 	public static int Djikstra = 3;
 	public static int AStar = 4;
+	public static int ContractionHierarchies = 5;
 
 	protected boolean saveComputedShortestPaths = true;
 
 	protected ISpecies edgeSpecies;
 	protected int optimizerType = Djikstra;
 	private FloydWarshallShortestPathsGAMA<V, E> optimizer;
+	private volatile ContractionHierarchy<V, E> contractionHierarchy;
 
 	private Object linkedGraph = null;
 
@@ -119,7 +123,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		version = 1;
 		agentEdge = false;
 		this.scope = scope;
-		shortestPathComputed = new ConcurrentHashMap<Pair<V, V>, IList<IList<E>>>();
+		shortestPathComputed = new ShortestPathCache<V, E>();
 		type = Types.GRAPH.of(nodeType, vertexType);
 	}
 
@@ -127,7 +131,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			final VertexRelationship rel, final ISpecies edgesSpecies, final IType nodeType, final IType edgeType) {
 		vertexMap = new TOrderedHashMap();
 		edgeMap = new TOrderedHashMap();
-		shortestPathComputed = new ConcurrentHashMap<Pair<V, V>, IList<IList<E>>>();
+		shortestPathComputed = new ShortestPathCache<V, E>();
 		this.scope = scope;
 		// WARNING TODO Verify this
 		// IType nodeType = byEdge ? Types.NO_TYPE :
@@ -142,7 +146,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public GamaGraph(final IScope scope, final IType nodeType, final IType vertexType) {
 		vertexMap = new TOrderedHashMap();
 		edgeMap = new TOrderedHashMap();
-		shortestPathComputed = new ConcurrentHashMap<Pair<V, V>, IList<IList<E>>>();
+		shortestPathComputed = new ShortestPathCache<V, E>();
 		this.scope = scope;
 		type = Types.GRAPH.of(nodeType, vertexType);
 	}
@@ -719,6 +723,8 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			optimizerType = 3;
 		} else if ("Bellmann".equals(s)) {
 			optimizerType = 2;
+		} else if ("CH".equals(s) || "ContractionHierarchies".equals(s)) {
+			optimizerType = 5;
 		} else {
 			optimizerType = 1;
 		}
@@ -841,6 +847,11 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 				// java.lang.System.out.println("ASTAR : " +
 				// (java.lang.System.currentTimeMillis() - t1 ));
 				return spl3;
+			case 5:
+				// The queries are fast enough not to use the cache of shortest paths
+				final List<E> edges = getContractionHierarchy().getShortestPath(source, target);
+				if (edges == null) { return GamaListFactory.create(getType().getContentType()); }
+				return GamaListFactory.create(scope, getType().getContentType(), edges);
 
 		}
 		return GamaListFactory.create(getType().getContentType());
@@ -1093,12 +1104,50 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 
 	@Override
 	public IGraph copy(final IScope scope) {
-		final GamaGraph g = new GamaGraph(scope, GamaListFactory.create(), true, directed, vertexRelation, edgeSpecies,
-				type.getKeyType(), type.getContentType());
+		final GamaGraph g = emptyCopy(scope);
 		Graphs.addAllEdges(g, this, this.edgeSet());
 		return g;
 	}
 
+	/**
+	 * Returns a copy of this graph that keeps, contrary to {@link #copy(IScope)}, its isolated vertices, its weights and
+	 * the settings of its shortest paths computation. Each vertex and edge of the copy is the image of the original one
+	 * through the mapping passed (which is expected to preserve their equality, e.g. by copying geometries or replacing
+	 * agents)
+	 */
+	public GamaGraph<V, E> copy(final IScope scope, final Function<Object, Object> mapping) {
+		final GamaGraph<V, E> g = emptyCopy(scope);
+		for (final Map.Entry<V, _Vertex<V, E>> entry : vertexMap.entrySet()) {
+			final Object v = mapping.apply(entry.getKey());
+			g.addVertex(v);
+			g.setVertexWeight(v, entry.getValue().getWeight());
+		}
+		for (final Map.Entry<E, _Edge<V, E>> entry : edgeMap.entrySet()) {
+			final _Edge<V, E> edge = entry.getValue();
+			final Object e = mapping.apply(entry.getKey());
+			g.addEdge(mapping.apply(edge.getSource()), mapping.apply(edge.getTarget()), e);
+			g.setEdgeWeight(e, edge.getWeight());
+		}
+		for (final IAgent agent : generatedEdges) {
+			g.generatedEdges.add((IAgent) mapping.apply(agent));
+		}
+		g.edgeBased = edgeBased;
+		g.agentEdge = agentEdge;
+		g.vertexSpecies = vertexSpecies;
+		g.optimizerType = optimizerType;
+		g.saveComputedShortestPaths = saveComputedShortestPaths;
+		g.shortestPathComputed.setCapacity(shortestPathComputed.getCapacity());
+		return g;
+	}
+
+	/**
+	 * Returns a graph without vertices nor edges, but with the same characteristics as this one
+	 */
+	protected GamaGraph<V, E> emptyCopy(final IScope scope) {
+		return new GamaGraph(scope, GamaListFactory.create(), true, directed, vertexRelation, edgeSpecies,
+				type.getKeyType(), type.getContentType());
+	}
+
 	@Override
 	public boolean checkBounds(final IScope scope, final Object index, final boolean forAdding) {
 		return true;
@@ -1176,6 +1225,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public void incVersion() {
 		version++;
 		shortestPathComputed.clear();
+		contractionHierarchy = null;
 		linkedGraph = null;
 	}
 
@@ -1206,8 +1256,42 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		return result;
 	}
 
+	/**
+	 * Computes, in parallel, the trees of the shortest paths starting from each of the sources, and stores them in
+	 * the cache. Any later query from one of these sources is then answered without running the optimizer again (until
+	 * the graph is modified).
+	 */
+	public void precomputeShortestPaths(final IScope scope, final Collection<V> sources) {
+		final ShortestPathTrees<V, E> trees = shortestPathComputed.getTrees(this);
+		final List<V> list = new ArrayList<V>(sources);
+		GamaExecutorService.executeThreaded(() -> list.parallelStream().forEach(trees::compute));
+	}
+
 	public void reInitPathFinder() {
 		optimizer = null;
+		contractionHierarchy = null;
+	}
+
+	/**
+	 * Returns the contraction hierarchy of the graph, preprocessing it if it has not been built or loaded yet (see
+	 * {@link #setContractionHierarchy(ContractionHierarchy)})
+	 */
+	public ContractionHierarchy<V, E> getContractionHierarchy() {
+		ContractionHierarchy<V, E> ch = contractionHierarchy;
+		if (ch == null) {
+			synchronized (this) {
+				ch = contractionHierarchy;
+				if (ch == null) {
+					ch = ContractionHierarchy.build(this);
+					contractionHierarchy = ch;
+				}
+			}
+		}
+		return ch;
+	}
+
+	public void setContractionHierarchy(final ContractionHierarchy<V, E> ch) {
+		contractionHierarchy = ch;
 	}
 
 	public boolean isAgentEdge() {
@@ -1237,7 +1321,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public void loadShortestPaths(final IScope scope, final GamaMatrix matrix) {
 		final GamaList<V> vertices = (GamaList<V>) getVertices();
 		final int nbvertices = matrix.numCols;
-		shortestPathComputed = new ConcurrentHashMap<Pair<V, V>, IList<IList<E>>>();
+		shortestPathComputed.clear();
 		final GamaIntMatrix mat = GamaIntMatrix.from(scope, matrix);
 		if (optimizerType == 1) {
 			optimizer = new FloydWarshallShortestPathsGAMA(this, mat);
@@ -1472,7 +1556,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		return indexVertices.get(scope, source);
 	}
 
-	public Map<Pair<V, V>, IList<IList<E>>> getShortestPathComputed() {
+	public ShortestPathCache<V, E> getShortestPathComputed() {
 		return shortestPathComputed;
 	}
 
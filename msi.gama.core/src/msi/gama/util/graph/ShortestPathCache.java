@@ -0,0 +1,149 @@
+/*********************************************************************************************
+ *
+ * 'ShortestPathCache.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jgrapht.alg.util.Pair;
+
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gaml.types.Types;
+
+/**
+ * Class ShortestPathCache. The cache of the shortest paths computed in a graph. The paths are kept in a LRU order and
+ * the cache is bounded by the total number of edges it references (its weight): when it is exceeded, the least
+ * recently used paths are evicted, so that the cache cannot grow until the memory is exhausted on large networks.
+ *
+ * Besides the paths themselves, the cache can hold one-to-all shortest path trees (see {@link ShortestPathTrees}),
+ * which are consulted when a pair is not found, and are not subject to eviction. The number of hits and misses is
+ * recorded so that the modelers can tune the capacity.
+ *
+ */
+public class ShortestPathCache<V, E> {
+
+	public static final int DEFAULT_CAPACITY = 1000000;
+
+	private final LinkedHashMap<Pair<V, V>, IList<IList<E>>> paths = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Pair<V, V>, Integer> weights = new LinkedHashMap<>();
+	private volatile ShortestPathTrees<V, E> trees;
+	private int capacity = DEFAULT_CAPACITY;
+	private long weight, hits, misses;
+
+	/**
+	 * Returns the paths stored for this pair of vertices (or rebuilt from the tree of the source), or null if none
+	 */
+	public IList<IList<E>> get(final Pair<V, V> key) {
+		synchronized (this) {
+			final IList<IList<E>> result = paths.get(key);
+			if (result != null) {
+				hits++;
+				return result;
+			}
+		}
+		final ShortestPathTrees<V, E> t = trees;
+		final List<E> edges = t == null ? null : t.edgesBetween(key.getFirst(), key.getSecond());
+		synchronized (this) {
+			if (edges == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		final IList<IList<E>> result = GamaListFactory.create(Types.LIST);
+		result.add(GamaListFactory.createWithoutCasting(Types.NO_TYPE, edges));
+		return result;
+	}
+
+	public synchronized boolean containsKey(final Pair<V, V> key) {
+		return paths.containsKey(key);
+	}
+
+	public synchronized void put(final Pair<V, V> key, final IList<IList<E>> value) {
+		int w = 1;
+		for (final IList<E> path : value) {
+			w += path.size();
+		}
+		paths.put(key, value);
+		final Integer previous = weights.put(key, w);
+		weight += w - (previous == null ? 0 : previous);
+		evict();
+	}
+
+	private void evict() {
+		final Iterator<Pair<V, V>> it = paths.keySet().iterator();
+		while (weight > capacity && it.hasNext()) {
+			final Pair<V, V> eldest = it.next();
+			it.remove();
+			weight -= weights.remove(eldest);
+		}
+	}
+
+	/**
+	 * Empties the cache (including the trees), for instance when the graph has changed. The statistics are kept.
+	 */
+	public synchronized void clear() {
+		paths.clear();
+		weights.clear();
+		weight = 0;
+		trees = null;
+	}
+
+	public synchronized void setCapacity(final int capacity) {
+		this.capacity = Math.max(0, capacity);
+		evict();
+	}
+
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the trees of the cache, creating a snapshot of the graph if they do not exist yet
+	 */
+	ShortestPathTrees<V, E> getTrees(final GamaGraph<V, E> graph) {
+		ShortestPathTrees<V, E> t = trees;
+		if (t == null) {
+			synchronized (this) {
+				t = trees;
+				if (t == null) {
+					t = new ShortestPathTrees<>(graph);
+					trees = t;
+				}
+			}
+		}
+		return t;
+	}
+
+	public synchronized int size() {
+		return paths.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public int getNumberOfTrees() {
+		final ShortestPathTrees<V, E> t = trees;
+		return t == null ? 0 : t.size();
+	}
+
+}
@@ -0,0 +1,165 @@
+/*********************************************************************************************
+ *
+ * 'ShortestPathTrees.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+/**
+ * Class ShortestPathTrees. Stores the one-to-all shortest path trees computed from some sources of a graph. The graph
+ * is copied once into a compact adjacency structure (arrays of arcs indexed by vertex), and each tree is a single array
+ * giving, for every vertex, the arc by which it is reached from the source. A path is then rebuilt by walking back from
+ * the target, instead of keeping one list of edges per pair of vertices.
+ *
+ * The structure is a snapshot of the graph: it must be discarded when the graph is modified. Trees can be computed
+ * concurrently, as the snapshot is immutable and each computation only uses its own arrays.
+ *
+ */
+class ShortestPathTrees<V, E> {
+
+	private final Object[] edges;
+	private final TObjectIntHashMap<Object> vertexIndex;
+	/** For each vertex i, its arcs are the ones between firstArc[i] (inclusive) and firstArc[i + 1] (exclusive) */
+	private final int[] firstArc;
+	private final int[] arcSource, arcTarget, arcEdge;
+	private final double[] arcWeight;
+	private final Map<Object, int[]> predecessors = new ConcurrentHashMap<>();
+
+	ShortestPathTrees(final GamaGraph<V, E> graph) {
+		// vertexSet() is not used as it increments the version of the graph (and would clear its cache)
+		final Object[] vertices = graph.getVertexMap().keySet().toArray();
+		edges = graph.edgeSet().toArray();
+		final int n = vertices.length;
+		vertexIndex = new TObjectIntHashMap<>(Math.max(10, n * 2), 0.5f, -1);
+		for (int i = 0; i < n; i++) {
+			vertexIndex.put(vertices[i], i);
+		}
+		final boolean directed = graph.isDirected();
+		final int[] sources = new int[edges.length];
+		final int[] targets = new int[edges.length];
+		firstArc = new int[n + 1];
+		int nbArcs = 0;
+		for (int e = 0; e < edges.length; e++) {
+			sources[e] = vertexIndex.get(graph.getEdgeSource(edges[e]));
+			targets[e] = vertexIndex.get(graph.getEdgeTarget(edges[e]));
+			if (sources[e] == -1 || targets[e] == -1) {
+				continue;
+			}
+			firstArc[sources[e] + 1]++;
+			nbArcs++;
+			if (!directed && sources[e] != targets[e]) {
+				firstArc[targets[e] + 1]++;
+				nbArcs++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			firstArc[i + 1] += firstArc[i];
+		}
+		arcSource = new int[nbArcs];
+		arcTarget = new int[nbArcs];
+		arcEdge = new int[nbArcs];
+		arcWeight = new double[nbArcs];
+		final int[] cursor = Arrays.copyOf(firstArc, n);
+		for (int e = 0; e < edges.length; e++) {
+			final int s = sources[e], t = targets[e];
+			if (s == -1 || t == -1) {
+				continue;
+			}
+			final double w = graph.getEdgeWeight(edges[e]);
+			addArc(cursor[s]++, s, t, e, w);
+			if (!directed && s != t) {
+				addArc(cursor[t]++, t, s, e, w);
+			}
+		}
+	}
+
+	private void addArc(final int arc, final int source, final int target, final int edge, final double weight) {
+		arcSource[arc] = source;
+		arcTarget[arc] = target;
+		arcEdge[arc] = edge;
+		arcWeight[arc] = weight;
+	}
+
+	boolean contains(final Object source) {
+		return predecessors.containsKey(source);
+	}
+
+	int size() {
+		return predecessors.size();
+	}
+
+	/**
+	 * Computes (Dijkstra) and stores the tree of the shortest paths starting from the source. Ties are broken by the
+	 * order of the vertices, so that the trees do not depend on the threads used to compute them.
+	 */
+	void compute(final V source) {
+		final int s = vertexIndex.get(source);
+		if (s == -1 || predecessors.containsKey(source)) { return; }
+		final int n = firstArc.length - 1;
+		final double[] distance = new double[n];
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		final int[] pred = new int[n];
+		Arrays.fill(pred, -1);
+		final boolean[] settled = new boolean[n];
+		final DistanceHeap heap = new DistanceHeap(n);
+		distance[s] = 0d;
+		heap.push(0d, s);
+		while (!heap.isEmpty()) {
+			final int v = heap.pop();
+			if (settled[v]) {
+				continue;
+			}
+			settled[v] = true;
+			for (int arc = firstArc[v]; arc < firstArc[v + 1]; arc++) {
+				final int t = arcTarget[arc];
+				if (settled[t]) {
+					continue;
+				}
+				final double d = distance[v] + arcWeight[arc];
+				if (d < distance[t]) {
+					distance[t] = d;
+					pred[t] = arc;
+					heap.push(d, t);
+				}
+			}
+		}
+		predecessors.put(source, pred);
+	}
+
+	/**
+	 * Returns the edges of the shortest path between the source and the target, or null if the tree of the source has
+	 * not been computed or if the target cannot be reached from it
+	 */
+	@SuppressWarnings ("unchecked")
+	List<E> edgesBetween(final V source, final V target) {
+		final int[] pred = predecessors.get(source);
+		if (pred == null) { return null; }
+		final int s = vertexIndex.get(source);
+		int t = vertexIndex.get(target);
+		if (t == -1) { return null; }
+		if (t == s) { return Collections.EMPTY_LIST; }
+		if (pred[t] == -1) { return null; }
+		final List<E> result = new ArrayList<>();
+		while (t != s) {
+			final int arc = pred[t];
+			result.add((E) edges[arcEdge[arc]]);
+			t = arcSource[arc];
+		}
+		Collections.reverse(result);
+		return result;
+	}
+
+}
@@ -44,6 +44,7 @@ public class GamaSpatialPath extends GamaPath<IShape, IShape, IGraph<IShape, ISh
 	IList<IShape> segments;
 	IShape shape = null;
 	THashMap<IShape, IShape> realObjects; // key = part of the geometry
+	private volatile PathSegments segmentIndex;
 
 	public GamaSpatialPath(final GamaSpatialGraph g, final IShape start, final IShape target,
 			final IList<IShape> _edges) {
@@ -87,6 +88,7 @@ public class GamaSpatialPath extends GamaPath<IShape, IShape, IGraph<IShape, ISh
 		this.target = target;
 		this.graph = g;
 		this.segments = GamaListFactory.create(Types.GEOMETRY);
+		segmentIndex = null;
 		realObjects = new THashMap<IShape, IShape>();
 		graphVersion = 0;
 
@@ -236,6 +238,18 @@ public class GamaSpatialPath extends GamaPath<IShape, IShape, IGraph<IShape, ISh
 	// return ags;
 	// }
 
+	/**
+	 * The points and the lengths of the segments of the path, computed the first time an agent moves along it
+	 */
+	public PathSegments getSegments() {
+		PathSegments result = segmentIndex;
+		if (result == null) {
+			result = new PathSegments(segments);
+			segmentIndex = result;
+		}
+		return result;
+	}
+
 	@Override
 	public IList getEdgeGeometry() {
 		// GamaList<IShape> ags = GamaListFactory.create(Types.GEOMETRY);
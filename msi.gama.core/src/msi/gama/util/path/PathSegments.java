@@ -0,0 +1,180 @@
+/*********************************************************************************************
+ *
+ * 'PathSegments.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.util.path;
+
+import com.vividsolutions.jts.algorithm.CGAlgorithms;
+import com.vividsolutions.jts.geom.Coordinate;
+
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.ILocation;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.util.IList;
+import msi.gaml.operators.Spatial.Punctal;
+
+/**
+ * Class PathSegments. The points of the edges of a spatial path and the lengths of their segments, computed once for
+ * the path, so that the agents moving along it (see MovingSkill) can go from one segment to the next without building
+ * geometries or looking for their position on the edges. The segment j of an edge goes from its point j - 1 to its
+ * point j. The position of each agent on the path is kept by the agent itself (the index of its edge and of its
+ * segment, see {@link IPath#indexOf(msi.gama.metamodel.agent.IAgent)}) and its location.
+ *
+ * The point where the path ends on its last edge (the closest point of the edge to the target of the path) is also
+ * computed only once, as long as the location of the target of the path does not change (the target can be an agent
+ * that moves while the path is followed).
+ */
+public class PathSegments {
+
+	final IShape[] edges;
+	/** The points of each edge */
+	final GamaPoint[][] points;
+	/** lengths[i][j] is the length of the segment j of the edge i (lengths[i][0] is 0) */
+	final double[][] lengths;
+	/** cumulative[i][j] is the length of the edge i from its first point to its point j */
+	final double[][] cumulative;
+
+	/** Where the path ends, for the current location of its target */
+	private volatile End end;
+
+	private static class End {
+		/** A copy of the location of the target */
+		final GamaPoint target;
+		final GamaPoint point;
+		final int segment;
+
+		End(final GamaPoint target, final GamaPoint point, final int segment) {
+			this.target = target;
+			this.point = point;
+			this.segment = segment;
+		}
+	}
+
+	/**
+	 * Returns the segments of the path, which are kept by the spatial paths
+	 */
+	public static PathSegments of(final IPath path) {
+		if (path instanceof GamaSpatialPath) { return ((GamaSpatialPath) path).getSegments(); }
+		return new PathSegments(path.getEdgeGeometry());
+	}
+
+	PathSegments(final IList<IShape> edgeGeometries) {
+		final int nb = edgeGeometries.size();
+		edges = new IShape[nb];
+		points = new GamaPoint[nb][];
+		lengths = new double[nb][];
+		cumulative = new double[nb][];
+		for (int i = 0; i < nb; i++) {
+			edges[i] = edgeGeometries.get(i);
+			final Coordinate[] coords = edges[i].getInnerGeometry().getCoordinates();
+			final int n = coords.length;
+			points[i] = new GamaPoint[n];
+			lengths[i] = new double[n];
+			cumulative[i] = new double[n];
+			for (int j = 0; j < n; j++) {
+				points[i][j] = new GamaPoint(coords[j]);
+				if (j > 0) {
+					lengths[i][j] = points[i][j].distance(points[i][j - 1]);
+					cumulative[i][j] = cumulative[i][j - 1] + lengths[i][j];
+				}
+			}
+		}
+	}
+
+	public int size() {
+		return edges.length;
+	}
+
+	/**
+	 * The points of the edge. They must not be modified
+	 */
+	public GamaPoint[] getPoints(final int edge) {
+		return points[edge];
+	}
+
+	public double getSegmentLength(final int edge, final int segment) {
+		return lengths[edge][segment];
+	}
+
+	/**
+	 * The length of the edge from its first point to the given one
+	 */
+	public double getLengthTo(final int edge, final int point) {
+		return cumulative[edge][point];
+	}
+
+	/**
+	 * The index of the point of the edge equal to the location, or -1
+	 */
+	public int indexOfPoint(final int edge, final GamaPoint location) {
+		final GamaPoint[] pts = points[edge];
+		for (int j = 0; j < pts.length; j++) {
+			if (location.equals(pts[j])) { return j; }
+		}
+		return -1;
+	}
+
+	/**
+	 * The index of the segment of the edge closest to the location (which is supposed to be on the edge), whose z is
+	 * set to the one of the segment at this location
+	 */
+	public int locate(final int edge, final GamaPoint location) {
+		final GamaPoint[] pts = points[edge];
+		if (pts.length >= 3) {
+			int result = 1;
+			double min = Double.MAX_VALUE;
+			for (int j = 1; j < pts.length; j++) {
+				final double d = CGAlgorithms.distancePointLine(location, pts[j - 1], pts[j]);
+				if (d < min) {
+					min = d;
+					result = j;
+				}
+			}
+			final GamaPoint pt0 = pts[result - 1];
+			location.z = pt0.z + (pts[result].z - pt0.z) * location.distance(pt0) / lengths[edge][result];
+			return result;
+		} else if (pts.length == 2) {
+			location.z = pts[0].z + (pts[1].z - pts[0].z) * location.distance(pts[0]) / edges[edge].getPerimeter();
+		} else if (pts.length == 1) {
+			location.z = pts[0].z;
+		}
+		return 1;
+	}
+
+	/**
+	 * The point where the path ends on its last edge. It must not be modified
+	 */
+	public GamaPoint getEndPoint(final IPath path) {
+		return end(path).point;
+	}
+
+	/**
+	 * The index of the segment of the last edge that contains the end point
+	 */
+	public int getEndSegment(final IPath path) {
+		return end(path).segment;
+	}
+
+	private End end(final IPath path) {
+		final ILocation location = ((IShape) path.getEndVertex()).getLocation();
+		End result = end;
+		if (result != null && result.target.equals(location)) { return result; }
+		final GamaPoint target = new GamaPoint(location);
+		final int last = edges.length - 1;
+		final int index = indexOfPoint(last, target);
+		if (index >= 0) {
+			result = new End(target, new GamaPoint(location), index + 1);
+		} else {
+			final GamaPoint point = (GamaPoint) Punctal._closest_point_to(location, edges[last]);
+			result = new End(target, point, locate(last, point));
+		}
+		end = result;
+		return result;
+	}
+
+}
@@ -24,6 +24,7 @@ import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.compilation.IDescriptionValidator.ValidNameValidator;
 import msi.gaml.descriptions.IDescription;
+import msi.gaml.expressions.CompiledExpression;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Cast;
 import msi.gaml.statements.AbstractStatementSequence;
@@ -69,7 +70,7 @@ public class ReflexStatement extends AbstractStatementSequence {
 
 	public ReflexStatement(final IDescription desc) {
 		super(desc);
-		when = getFacet(IKeyword.WHEN);
+		when = CompiledExpression.compile(desc, getFacet(IKeyword.WHEN));
 		if (hasFacet(IKeyword.NAME)) {
 			setName(getLiteral(IKeyword.NAME));
 		}
@@ -0,0 +1,72 @@
+/*********************************************************************************************
+ *
+ * 'ExpressionOptimizer.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gaml.compilation;
+
+import java.util.List;
+
+import msi.gama.common.interfaces.IGamlIssue;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.IDescription.DescriptionVisitor;
+import msi.gaml.descriptions.IDescription.FacetVisitor;
+import msi.gaml.descriptions.IExpressionDescription;
+import msi.gaml.descriptions.ModelDescription;
+import msi.gaml.expressions.CommonSubExpressions;
+import msi.gaml.expressions.IExpression;
+
+/**
+ * Class ExpressionOptimizer. A pass over the facets of a validated model, which rewrites their expressions when this
+ * makes their evaluation cheaper, and reports (as infos on the facets) what it rewrote. It currently eliminates the
+ * common sub-expressions (see {@link CommonSubExpressions}) when the corresponding preference is enabled or when the
+ * model declares the "optimize" pragma. Constant expressions, including the constant global variables, are already
+ * folded when the expressions are created.
+ */
+public class ExpressionOptimizer {
+
+	public static void optimize(final ModelDescription model) {
+		if (!GamaPreferences.Runtime.SUBEXPRESSION_OPTIMIZATION.getValue() && !model.isOptimizingExpressions()) {
+			return;
+		}
+		optimize((IDescription) model);
+	}
+
+	private static void optimize(final IDescription desc) {
+		desc.visitFacets(new FacetVisitor() {
+
+			@Override
+			public boolean visit(final String name, final IExpressionDescription exp) {
+				final IExpression e = exp == null ? null : exp.getExpression();
+				final IExpression optimized = CommonSubExpressions.eliminate(e);
+				if (optimized != e) {
+					exp.setExpression(optimized);
+					final List<IExpression> shared = ((CommonSubExpressions) optimized).getSharedExpressions();
+					final StringBuilder sb = new StringBuilder("Evaluated only once in this expression: ");
+					for (int i = 0; i < shared.size(); i++) {
+						if (i > 0) {
+							sb.append(", ");
+						}
+						sb.append(shared.get(i).serialize(false));
+					}
+					desc.info(sb.toString(), IGamlIssue.GENERAL, name);
+				}
+				return true;
+			}
+		});
+		desc.visitOwnChildren(new DescriptionVisitor<IDescription>() {
+
+			@Override
+			public boolean visit(final IDescription child) {
+				optimize(child);
+				return true;
+			}
+		});
+	}
+
+}
@@ -25,6 +25,7 @@ import gnu.trove.set.hash.TLinkedHashSet;
 import msi.gama.common.interfaces.IGamlIssue;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gaml.compilation.ExpressionOptimizer;
 import msi.gaml.statements.Facets;
 import msi.gaml.types.IType;
 import msi.gaml.types.ITypesManager;
@@ -50,6 +51,8 @@ public class ModelDescription extends SpeciesDescription {
 	private final Set<String> alternatePaths;
 	private final ValidationContext validationContext;
 	protected volatile boolean document;
+	private boolean compileExpressions;
+	private boolean optimizeExpressions;
 	// hqnghi new attribute manipulate micro-models
 	private THashMap<String, ModelDescription> microModels;
 	private String alias = "";
@@ -118,6 +121,30 @@ public class ModelDescription extends SpeciesDescription {
 		document = b;
 	}
 
+	/**
+	 * Whether the expressions of the statements of the model are compiled (see CompiledExpression), which is enabled
+	 * when the model declares the "compile" pragma
+	 */
+	public boolean isCompilingExpressions() {
+		return compileExpressions;
+	}
+
+	public void setCompilingExpressions(final boolean b) {
+		compileExpressions = b;
+	}
+
+	/**
+	 * Whether the common sub-expressions of the model are shared (see ExpressionOptimizer) even if the preference is
+	 * disabled, which is the case when the model declares the "optimize" pragma
+	 */
+	public boolean isOptimizingExpressions() {
+		return optimizeExpressions;
+	}
+
+	public void setOptimizingExpressions(final boolean b) {
+		optimizeExpressions = b;
+	}
+
 	@Override
 	protected boolean canBeDefinedIn(final IDescription sd) {
 		// By convention, a model can be defined everywhere
@@ -418,6 +445,9 @@ public class ModelDescription extends SpeciesDescription {
 	public IDescription validate(final boolean document) {
 		isDocumenting(document);
 		super.validate();
+		if (!getValidationContext().hasErrors()) {
+			ExpressionOptimizer.optimize(this);
+		}
 		// System.out.println(this.serialize(true));
 		return this;
 	}
@@ -36,6 +36,10 @@ import msi.gaml.expressions.IVarExpression;
 import msi.gaml.expressions.NAryOperator;
 import msi.gaml.expressions.TypeFieldExpression;
 import msi.gaml.expressions.UnaryOperator;
+import msi.gaml.operators.Files;
+import msi.gaml.operators.Graphs;
+import msi.gaml.operators.GraphsGraphstream;
+import msi.gaml.operators.Spatial;
 import msi.gaml.types.IType;
 import msi.gaml.types.Signature;
 import msi.gaml.types.Types;
@@ -66,6 +70,37 @@ public class OperatorProto extends AbstractProto {
 	public final int[] expectedContentType;
 	public final int contentTypeContentTypeProvider;
 
+	/**
+	 * Whether the operator always returns the same value when applied to the same operands in the same state of the
+	 * simulation: the operators that can be constant, the fields, and the spatial relations, properties and queries
+	 * (which depend on the topology). Random operators are not deterministic
+	 */
+	public boolean isDeterministic() {
+		if (canBeConst || isVarOrField) { return true; }
+		final Class<?> c = getDeclaringClass();
+		return c == Spatial.Relations.class || c == Spatial.Properties.class || c == Spatial.Queries.class;
+	}
+
+	/**
+	 * Whether applying the operator can change the state of the simulation or of the platform. Nothing is assumed on
+	 * the operators defined outside of msi.gaml.operators
+	 */
+	public boolean mayHaveSideEffects() {
+		if (isVarOrField) { return false; }
+		Class<?> c = getDeclaringClass();
+		if (c == null) { return true; }
+		while (c.getEnclosingClass() != null) {
+			c = c.getEnclosingClass();
+		}
+		if (!c.getName().startsWith("msi.gaml.operators.")) { return true; }
+		return c == msi.gaml.operators.System.class || c == Files.class || c == Graphs.class
+				|| c == GraphsGraphstream.class;
+	}
+
+	private Class<?> getDeclaringClass() {
+		return support instanceof Method ? ((Method) support).getDeclaringClass() : null;
+	}
+
 	public IExpression create(final IDescription context, final EObject currentEObject, final IExpression... exprs) {
 		try {
 
@@ -0,0 +1,312 @@
+/*********************************************************************************************
+ *
+ * 'CommonSubExpressions.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gaml.expressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import msi.gama.precompiler.GamlProperties;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.ICollector;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.OperatorProto;
+import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.types.IType;
+
+/**
+ * Class CommonSubExpressions. Elimination of the common sub-expressions of an expression: the deterministic
+ * sub-expressions (see {@link OperatorProto#isDeterministic()}) that appear several times in an expression, like
+ * distance_to(self, target) used three times in a condition, are evaluated only once each time the expression is
+ * evaluated.
+ *
+ * The occurrences of such a sub-expression are replaced by the same {@link Shared} expression, which keeps its value
+ * in the frame opened by the root of the expression for each of its evaluations. The value is computed the first time
+ * it is needed, so the sub-expressions that were not evaluated before (because of a short-circuit, for instance) are
+ * still not evaluated. The expressions that contain actions or operators that may have side effects are left as they
+ * are, as well as the operands of the lazy operators (which can be evaluated several times, for instance once for each
+ * element of a container).
+ */
+public class CommonSubExpressions extends DelegatingOperator {
+
+	/** The frame of the expression being evaluated by the current thread */
+	private static final ThreadLocal<Object[]> FRAMES = new ThreadLocal<>();
+	private static final Object UNSET = new Object();
+
+	final IExpression rewritten;
+	final List<Shared> shared;
+
+	/**
+	 * Returns the expression in which the common sub-expressions are shared, or the expression itself if it has none
+	 */
+	public static IExpression eliminate(final IExpression e) {
+		if (e == null || e.isConst() || !isOperator(e) || mayHaveSideEffects(e)) { return e; }
+		final TObjectIntHashMap<String> occurrences = new TObjectIntHashMap<>();
+		count(e, occurrences);
+		final List<Shared> shared = new ArrayList<>();
+		final IExpression rewritten = rewrite(e, occurrences, shared);
+		if (shared.isEmpty()) { return e; }
+		return new CommonSubExpressions((IOperator) e, rewritten, shared);
+	}
+
+	/**
+	 * Whether the operands of the expression can be replaced
+	 */
+	private static boolean isOperator(final IExpression e) {
+		final Class<?> c = e.getClass();
+		return c == UnaryOperator.class || c == BinaryOperator.class || c == NAryOperator.class
+				|| c == NumericOperator.class;
+	}
+
+	private static OperatorProto prototype(final IExpression e) {
+		if (e instanceof UnaryOperator) { return ((UnaryOperator) e).prototype; }
+		if (e instanceof AbstractNAryOperator) { return ((AbstractNAryOperator) e).prototype; }
+		return null;
+	}
+
+	private static IExpression[] operands(final IExpression e) {
+		if (e instanceof UnaryOperator) { return new IExpression[] { ((UnaryOperator) e).child }; }
+		if (e instanceof AbstractNAryOperator) {
+			final IExpression[] exprs = ((AbstractNAryOperator) e).exprs;
+			return exprs == null ? new IExpression[0] : exprs;
+		}
+		if (e instanceof ListExpression) { return ((ListExpression) e).getElements(); }
+		if (e instanceof MapExpression) {
+			final IExpression[] keys = ((MapExpression) e).keysArray();
+			final IExpression[] values = ((MapExpression) e).valuesArray();
+			final IExpression[] result = Arrays.copyOf(keys, keys.length + values.length);
+			System.arraycopy(values, 0, result, keys.length, values.length);
+			return result;
+		}
+		return new IExpression[0];
+	}
+
+	/**
+	 * Whether the evaluation of the expression could change the state of the simulation. The expressions unknown here
+	 * are considered as possibly having side effects
+	 */
+	private static boolean mayHaveSideEffects(final IExpression e) {
+		if (e instanceof ConstantExpression || e instanceof VariableExpression || e instanceof TypeExpression) {
+			return false;
+		}
+		final OperatorProto proto = prototype(e);
+		if (proto == null && !(e instanceof ListExpression) && !(e instanceof MapExpression)) { return true; }
+		if (proto != null && proto.mayHaveSideEffects()) { return true; }
+		for (final IExpression operand : operands(e)) {
+			if (operand != null && mayHaveSideEffects(operand)) { return true; }
+		}
+		return false;
+	}
+
+	/**
+	 * Whether the expression is worth sharing and always has the same value during one evaluation of its root
+	 */
+	private static boolean isShareable(final IExpression e) {
+		final OperatorProto proto = prototype(e);
+		return proto != null && !proto.isVarOrField && isDeterministic(e);
+	}
+
+	private static boolean isDeterministic(final IExpression e) {
+		if (e instanceof ConstantExpression || e instanceof VariableExpression || e instanceof TypeExpression) {
+			return true;
+		}
+		final OperatorProto proto = prototype(e);
+		if (proto == null && !(e instanceof ListExpression) && !(e instanceof MapExpression)) { return false; }
+		if (proto != null && !proto.isDeterministic()) { return false; }
+		for (final IExpression operand : operands(e)) {
+			if (operand != null && !isDeterministic(operand)) { return false; }
+		}
+		return true;
+	}
+
+	private static String key(final IExpression e) {
+		return e.getClass().getName() + ':' + e.serialize(true);
+	}
+
+	/**
+	 * Counts the occurrences of the shareable sub-expressions, outside of the operands of lazy operators
+	 */
+	private static void count(final IExpression e, final TObjectIntHashMap<String> occurrences) {
+		if (isShareable(e)) {
+			occurrences.adjustOrPutValue(key(e), 1, 1);
+		}
+		if (!isOperator(e)) { return; }
+		final boolean[] lazy = prototype(e).lazy;
+		final IExpression[] operands = operands(e);
+		for (int i = 0; i < operands.length; i++) {
+			if (operands[i] != null && !lazy[i]) {
+				count(operands[i], occurrences);
+			}
+		}
+	}
+
+	private static IExpression rewrite(final IExpression e, final TObjectIntHashMap<String> occurrences,
+			final List<Shared> shared) {
+		if (isShareable(e)) {
+			final String key = key(e);
+			if (occurrences.get(key) > 1) {
+				for (final Shared s : shared) {
+					if (s.key.equals(key)) { return s; }
+				}
+				final Shared s = new Shared(key, e, shared.size());
+				shared.add(s);
+				return s;
+			}
+		}
+		if (!isOperator(e)) { return e; }
+		final boolean[] lazy = prototype(e).lazy;
+		final IExpression[] operands = operands(e);
+		final IExpression[] replaced = new IExpression[operands.length];
+		boolean changed = false;
+		for (int i = 0; i < operands.length; i++) {
+			replaced[i] = operands[i] == null || lazy[i] ? operands[i] : rewrite(operands[i], occurrences, shared);
+			changed |= replaced[i] != operands[i];
+		}
+		if (!changed) { return e; }
+		if (e instanceof UnaryOperator) { return new UnaryOperator(((UnaryOperator) e).prototype, null, replaced[0]); }
+		final AbstractNAryOperator copy = ((AbstractNAryOperator) e).copy();
+		System.arraycopy(replaced, 0, copy.exprs, 0, replaced.length);
+		return copy;
+	}
+
+	CommonSubExpressions(final IOperator original, final IExpression rewritten, final List<Shared> shared) {
+		super(original);
+		this.rewritten = rewritten;
+		this.shared = shared;
+	}
+
+	/**
+	 * The sub-expressions evaluated only once
+	 */
+	public List<IExpression> getSharedExpressions() {
+		final List<IExpression> result = new ArrayList<>(shared.size());
+		for (final Shared s : shared) {
+			result.add(s.expression);
+		}
+		return result;
+	}
+
+	@Override
+	public Object value(final IScope scope) throws GamaRuntimeException {
+		final Object[] previous = FRAMES.get();
+		final Object[] frame = new Object[shared.size()];
+		Arrays.fill(frame, UNSET);
+		FRAMES.set(frame);
+		try {
+			return rewritten.value(scope);
+		} finally {
+			FRAMES.set(previous);
+		}
+	}
+
+	/**
+	 * Class Shared. An occurrence of a common sub-expression, whose value is kept in the frame of its root
+	 */
+	static class Shared implements IExpression {
+
+		final String key;
+		final IExpression expression;
+		final int slot;
+
+		Shared(final String key, final IExpression expression, final int slot) {
+			this.key = key;
+			this.expression = expression;
+			this.slot = slot;
+		}
+
+		@Override
+		public Object value(final IScope scope) throws GamaRuntimeException {
+			final Object[] frame = FRAMES.get();
+			// Evaluated outside of its root (in a copy of the expression, for instance)
+			if (frame == null || slot >= frame.length) { return expression.value(scope); }
+			Object result = frame[slot];
+			if (result == UNSET) {
+				result = expression.value(scope);
+				frame[slot] = result;
+			}
+			return result;
+		}
+
+		@Override
+		public boolean isConst() {
+			return false;
+		}
+
+		@Override
+		public String literalValue() {
+			return expression.literalValue();
+		}
+
+		@Override
+		public IExpression resolveAgainst(final IScope scope) {
+			return expression.resolveAgainst(scope);
+		}
+
+		@Override
+		public boolean shouldBeParenthesized() {
+			return expression.shouldBeParenthesized();
+		}
+
+		@Override
+		public void collectUsedVarsOf(final IDescription species, final ICollector<VariableDescription> result) {
+			expression.collectUsedVarsOf(species, result);
+		}
+
+		@Override
+		public IType<?> getType() {
+			return expression.getType();
+		}
+
+		@Override
+		public String getTitle() {
+			return expression.getTitle();
+		}
+
+		@Override
+		public String getDocumentation() {
+			return expression.getDocumentation();
+		}
+
+		@Override
+		public String getDefiningPlugin() {
+			return expression.getDefiningPlugin();
+		}
+
+		@Override
+		public void collectMetaInformation(final GamlProperties meta) {
+			expression.collectMetaInformation(meta);
+		}
+
+		@Override
+		public String getName() {
+			return expression.getName();
+		}
+
+		@Override
+		public void setName(final String newName) {}
+
+		@Override
+		public String serialize(final boolean includingBuiltIn) {
+			return expression.serialize(includingBuiltIn);
+		}
+
+		@Override
+		public String toString() {
+			return expression.toString();
+		}
+
+		@Override
+		public void dispose() {}
+
+	}
+
+}
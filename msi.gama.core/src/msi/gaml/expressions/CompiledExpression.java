@@ -0,0 +1,170 @@
+/*********************************************************************************************
+ *
+ * 'CompiledExpression.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gaml.expressions;
+
+import java.util.Arrays;
+
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.compilation.GamaHelper;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.ModelDescription;
+import msi.gaml.operators.Cast;
+
+/**
+ * Class CompiledExpression. An operator whose tree has been compiled, once and for all, into a tree of closures. Each
+ * closure directly calls the helper of its operator on the values of the closures of its operands: the laziness of the
+ * operands, their kind (constants, temporary variables...) and the number of operands are resolved when the closures
+ * are built, instead of being tested each time the expression is evaluated. The errors raised by an operator are given
+ * the same context as by the original operator ("when applying the ... operator on ...").
+ *
+ * Only the operators are compiled: the other expressions (variables of agents, species, units...) and the numeric
+ * operators, which already compute their value on primitive types, are called as they are from the closures. For
+ * everything else (its type, documentation, serialization...) a compiled expression behaves like the original one.
+ *
+ * The compilation is enabled for a model by the @compile pragma (see {@link ModelDescription#isCompilingExpressions()})
+ */
+@SuppressWarnings ({ "rawtypes", "unchecked" })
+public class CompiledExpression extends DelegatingOperator {
+
+	@FunctionalInterface
+	interface Closure {
+		Object value(IScope scope) throws GamaRuntimeException;
+	}
+
+	final Closure closure;
+
+	/**
+	 * Returns the compiled version of the expression if the model of the description enables it and if the expression
+	 * is an operator that is not constant, or the expression itself otherwise
+	 */
+	public static IExpression compile(final IDescription context, final IExpression e) {
+		if (e == null || e.isConst() || !isCompilable(e)) { return e; }
+		final ModelDescription model = context == null ? null : context.getModelDescription();
+		if (model == null || !model.isCompilingExpressions()) { return e; }
+		return new CompiledExpression((IOperator) e, closure(e));
+	}
+
+	private static boolean isCompilable(final IExpression e) {
+		final Class c = e.getClass();
+		return c == UnaryOperator.class || c == BinaryOperator.class || c == NAryOperator.class;
+	}
+
+	private static Closure closure(final IExpression e) {
+		final Class c = e.getClass();
+		if (c == ConstantExpression.class) {
+			final Object value = e.value(null);
+			return scope -> value;
+		}
+		if (c == TempVariableExpression.class) {
+			final String name = e.getName();
+			return scope -> scope.getVarValue(name);
+		}
+		if (c == UnaryOperator.class) { return unary((UnaryOperator) e); }
+		if (c == BinaryOperator.class) { return binary((BinaryOperator) e); }
+		if (c == NAryOperator.class) { return nary((NAryOperator) e); }
+		return e::value;
+	}
+
+	private static Closure operand(final IExpression e, final boolean lazy) {
+		if (lazy) { return scope -> e; }
+		return closure(e);
+	}
+
+	private static Closure unary(final UnaryOperator e) {
+		final GamaHelper helper = e.prototype.helper;
+		final String name = e.literalValue();
+		final Closure child = operand(e.child, e.prototype.lazy[0]);
+		return scope -> {
+			final Object value = child.value(scope);
+			try {
+				return helper.run(scope, value);
+			} catch (final Throwable ex) {
+				throw failure(scope, ex, "when applying the " + name + " operator on " + value);
+			}
+		};
+	}
+
+	private static Closure binary(final BinaryOperator e) {
+		final GamaHelper helper = e.prototype.helper;
+		final String name = e.literalValue();
+		final Closure left = operand(e.exprs[0], e.prototype.lazy[0]);
+		final Closure right;
+		if (!e.prototype.lazy[1] && e.exprs[1].getClass() == ConstantExpression.class) {
+			final Object value = e.exprs[1].value(null);
+			right = scope -> value;
+		} else {
+			right = operand(e.exprs[1], e.prototype.lazy[1]);
+		}
+		return scope -> {
+			Object leftVal = null, rightVal = null;
+			try {
+				leftVal = left.value(scope);
+				rightVal = right.value(scope);
+				return helper.run(scope, leftVal, rightVal);
+			} catch (final GamaRuntimeException ge) {
+				// Like in BinaryOperator, the errors of the platform are not given any context
+				throw ge;
+			} catch (final Throwable ex) {
+				throw failure(scope, ex, "when applying the " + name + " operator on " + Cast.toGaml(leftVal)
+						+ " and " + Cast.toGaml(rightVal));
+			}
+		};
+	}
+
+	private static Closure nary(final NAryOperator e) {
+		final GamaHelper helper = e.prototype.helper;
+		final String name = e.literalValue();
+		final Closure[] operands = new Closure[e.exprs == null ? 0 : e.exprs.length];
+		for (int i = 0; i < operands.length; i++) {
+			operands[i] = operand(e.exprs[i], e.prototype.lazy[i]);
+		}
+		return scope -> {
+			final Object[] values = new Object[operands.length];
+			try {
+				for (int i = 0; i < values.length; i++) {
+					values[i] = operands[i].value(scope);
+				}
+				return helper.run(scope, values);
+			} catch (final Throwable ex) {
+				throw failure(scope, ex, "when applying the " + name + " operator on " + Arrays.toString(values));
+			}
+		};
+	}
+
+	/**
+	 * The error to throw, with the context added by the original operators
+	 */
+	private static GamaRuntimeException failure(final IScope scope, final Throwable ex, final String context) {
+		final GamaRuntimeException e =
+				ex instanceof GamaRuntimeException ? (GamaRuntimeException) ex : GamaRuntimeException.create(ex, scope);
+		e.addContext(context);
+		return e;
+	}
+
+	CompiledExpression(final IOperator original, final Closure closure) {
+		super(original);
+		this.closure = closure;
+	}
+
+	@Override
+	public Object value(final IScope scope) throws GamaRuntimeException {
+		try {
+			return closure.value(scope);
+		} catch (final GamaRuntimeException e) {
+			throw e;
+		} catch (final Throwable ex) {
+			final GamaRuntimeException e = GamaRuntimeException.create(ex, scope);
+			e.addContext("when evaluating " + original.serialize(false));
+			throw e;
+		}
+	}
+
+}
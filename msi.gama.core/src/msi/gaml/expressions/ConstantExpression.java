@@ -48,6 +48,24 @@ public class ConstantExpression extends AbstractExpression {
 		return value;
 	}
 
+	@Override
+	public double doubleValue(final IScope scope) {
+		if (value instanceof Number) { return ((Number) value).doubleValue(); }
+		return super.doubleValue(scope);
+	}
+
+	@Override
+	public int intValue(final IScope scope) {
+		if (value instanceof Integer) { return (Integer) value; }
+		return super.intValue(scope);
+	}
+
+	@Override
+	public boolean boolValue(final IScope scope) {
+		if (value instanceof Boolean) { return (Boolean) value; }
+		return super.boolValue(scope);
+	}
+
 	@Override
 	public boolean isConst() {
 		return true;
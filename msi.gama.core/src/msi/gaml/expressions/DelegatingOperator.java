@@ -0,0 +1,110 @@
+/*********************************************************************************************
+ *
+ * 'DelegatingOperator.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gaml.expressions;
+
+import msi.gama.precompiler.GamlProperties;
+import msi.gama.runtime.IScope;
+import msi.gama.util.ICollector;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.types.IType;
+
+/**
+ * Class DelegatingOperator. An operator that replaces another one at runtime (see {@link CompiledExpression} and
+ * {@link CommonSubExpressions}), computing its value differently but behaving like the original operator for
+ * everything else (its type, operands, documentation, serialization...)
+ */
+abstract class DelegatingOperator implements IOperator {
+
+	final IOperator original;
+
+	DelegatingOperator(final IOperator original) {
+		this.original = original;
+	}
+
+	@Override
+	public IExpression arg(final int i) {
+		return original.arg(i);
+	}
+
+	@Override
+	public boolean isConst() {
+		return false;
+	}
+
+	@Override
+	public String literalValue() {
+		return original.literalValue();
+	}
+
+	@Override
+	public IExpression resolveAgainst(final IScope scope) {
+		return original.resolveAgainst(scope);
+	}
+
+	@Override
+	public boolean shouldBeParenthesized() {
+		return original.shouldBeParenthesized();
+	}
+
+	@Override
+	public void collectUsedVarsOf(final IDescription species, final ICollector<VariableDescription> result) {
+		original.collectUsedVarsOf(species, result);
+	}
+
+	@Override
+	public IType<?> getType() {
+		return original.getType();
+	}
+
+	@Override
+	public String getTitle() {
+		return original.getTitle();
+	}
+
+	@Override
+	public String getDocumentation() {
+		return original.getDocumentation();
+	}
+
+	@Override
+	public String getDefiningPlugin() {
+		return original.getDefiningPlugin();
+	}
+
+	@Override
+	public void collectMetaInformation(final GamlProperties meta) {
+		original.collectMetaInformation(meta);
+	}
+
+	@Override
+	public String getName() {
+		return original.getName();
+	}
+
+	@Override
+	public void setName(final String newName) {}
+
+	@Override
+	public String serialize(final boolean includingBuiltIn) {
+		return original.serialize(includingBuiltIn);
+	}
+
+	@Override
+	public String toString() {
+		return original.toString();
+	}
+
+	@Override
+	public void dispose() {
+		original.dispose();
+	}
+
+}
@@ -244,7 +244,7 @@ public class GamlExpressionFactory implements IExpressionFactory {
 			final OperatorProto proto = ops.get(userSignature);
 			// We finally make an instance of the operator and init it with the
 			// arguments
-			final IExpression copy = proto.create(context, currentEObject, args);
+			final IExpression copy = NumericOperator.specialize(proto.create(context, currentEObject, args));
 			if (copy != null) {
 				final String ged = proto.getDeprecated();
 				if (ged != null) {
@@ -17,6 +17,7 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.ICollector;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.IType;
 
 /**
@@ -29,6 +30,23 @@ public interface IExpression extends IGamlDescription, ITyped, IDisposable {
 
 	public abstract Object value(final IScope scope) throws GamaRuntimeException;
 
+	/**
+	 * Typed evaluation of the expression, without boxing its result when it is a number or a boolean. By default, the
+	 * value of the expression is simply cast. Redefined by the expressions able to compute a primitive value directly
+	 * (constants, arithmetic and comparison operators on int and float operands, see {@link NumericOperator})
+	 */
+	public default double doubleValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asFloat(scope, value(scope));
+	}
+
+	public default int intValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asInt(scope, value(scope));
+	}
+
+	public default boolean boolValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asBool(scope, value(scope));
+	}
+
 	public abstract boolean isConst();
 
 	public abstract String literalValue();
@@ -0,0 +1,201 @@
+/*********************************************************************************************
+ *
+ * 'NumericOperator.java, in plugin msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gaml.expressions;
+
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.OperatorProto;
+import msi.gaml.types.IType;
+
+/**
+ * Class NumericOperator. A binary operator of Maths, Comparison or Logic (+, -, *, /, >, <, >=, <=, and, or) whose
+ * operands are known, at compile time, to be int or float (resp. bool for the logical operators). Instead of going
+ * through the helper of its prototype, which boxes its operands and its result, it computes its value on primitive
+ * types, asking its operands for their typed value (see {@link IExpression#doubleValue(IScope)}). The intermediate
+ * results of a tree of such operators are therefore never boxed.
+ *
+ * Only the operands that cannot be nil (non-nil constants and other numeric operators) are evaluated this way. The
+ * others, including temporary variables (the arguments of actions are not cast when they are pushed), are evaluated
+ * normally, so that a nil operand keeps the semantics of the original operators: an error in arithmetic, false in
+ * comparisons.
+ */
+public class NumericOperator extends BinaryOperator {
+
+	static final int PLUS = 0, MINUS = 1, TIMES = 2, DIVIDE = 3, GT = 4, LT = 5, GTE = 6, LTE = 7, AND = 8, OR = 9;
+
+	final int op;
+	/** Whether both operands are int */
+	final boolean ints;
+	/** Whether both operands are float (which changes the semantics of >= and <= with NaN) */
+	final boolean floats;
+	/** Whether the operands can be asked directly for their typed value */
+	final boolean safe0, safe1;
+
+	/**
+	 * Returns a numeric operator equivalent to the operator passed, or the operator itself if its operands do not
+	 * allow it
+	 */
+	public static IExpression specialize(final IExpression e) {
+		if (e == null || e.getClass() != BinaryOperator.class) { return e; }
+		final BinaryOperator b = (BinaryOperator) e;
+		final int op = opCode(b.getName());
+		if (op == -1) { return e; }
+		final IType<?> left = b.exprs[0].getType();
+		final IType<?> right = b.exprs[1].getType();
+		if (op >= AND) {
+			if (left.id() != IType.BOOL) { return e; }
+		} else if (!isNumber(left) || !isNumber(right)) { return e; }
+		return new NumericOperator(b.prototype, null, op, b.exprs);
+	}
+
+	private static int opCode(final String name) {
+		switch (name) {
+			case "+":
+				return PLUS;
+			case "-":
+				return MINUS;
+			case "*":
+				return TIMES;
+			case "/":
+				return DIVIDE;
+			case ">":
+				return GT;
+			case "<":
+				return LT;
+			case ">=":
+				return GTE;
+			case "<=":
+				return LTE;
+			case "and":
+				return AND;
+			case "or":
+				return OR;
+			default:
+				return -1;
+		}
+	}
+
+	private static boolean isNumber(final IType<?> type) {
+		return type.id() == IType.INT || type.id() == IType.FLOAT;
+	}
+
+	private static boolean isSafe(final IExpression e) {
+		if (e instanceof NumericOperator) { return true; }
+		return e instanceof ConstantExpression && ((ConstantExpression) e).value != null;
+	}
+
+	NumericOperator(final OperatorProto proto, final IDescription context, final int op, final IExpression... args) {
+		super(proto, context, args);
+		this.op = op;
+		ints = args[0].getType().id() == IType.INT && args[1].getType().id() == IType.INT;
+		floats = args[0].getType().id() == IType.FLOAT && args[1].getType().id() == IType.FLOAT;
+		safe0 = isSafe(args[0]);
+		safe1 = isSafe(args[1]);
+	}
+
+	@Override
+	public Object value(final IScope scope) throws GamaRuntimeException {
+		if (op >= GT) { return boolValue(scope); }
+		if (ints && op != DIVIDE) { return intValue(scope); }
+		return doubleValue(scope);
+	}
+
+	@Override
+	public int intValue(final IScope scope) throws GamaRuntimeException {
+		if (op >= GT) { return super.intValue(scope); }
+		if (!ints || op == DIVIDE) { return (int) doubleValue(scope); }
+		final int left = safe0 ? exprs[0].intValue(scope) : number(scope, 0).intValue();
+		final int right = safe1 ? exprs[1].intValue(scope) : number(scope, 1).intValue();
+		switch (op) {
+			case PLUS:
+				return left + right;
+			case MINUS:
+				return left - right;
+			default:
+				return left * right;
+		}
+	}
+
+	@Override
+	public double doubleValue(final IScope scope) throws GamaRuntimeException {
+		if (op >= GT) { return super.doubleValue(scope); }
+		if (ints && op != DIVIDE) { return intValue(scope); }
+		final double left = safe0 ? exprs[0].doubleValue(scope) : number(scope, 0).doubleValue();
+		final double right = safe1 ? exprs[1].doubleValue(scope) : number(scope, 1).doubleValue();
+		switch (op) {
+			case PLUS:
+				return left + right;
+			case MINUS:
+				return left - right;
+			case TIMES:
+				return left * right;
+			default:
+				// Like in Maths, -0.0 is not considered as a division by zero
+				if (Double.compare(right, 0d) == 0) { throw GamaRuntimeException.error("Division by zero", scope); }
+				return left / right;
+		}
+	}
+
+	@Override
+	public boolean boolValue(final IScope scope) throws GamaRuntimeException {
+		if (op < GT) { return super.boolValue(scope); }
+		if (op >= AND) {
+			final boolean left = safe0 ? exprs[0].boolValue(scope) : Boolean.TRUE.equals(exprs[0].value(scope));
+			// The right operand is only evaluated if needed, like in Logic
+			return op == AND ? left && exprs[1].boolValue(scope) : left || exprs[1].boolValue(scope);
+		}
+		final double left, right;
+		if (safe0) {
+			left = exprs[0].doubleValue(scope);
+		} else {
+			final Object v = exprs[0].value(scope);
+			if (v == null) { return false; }
+			left = ((Number) v).doubleValue();
+		}
+		if (safe1) {
+			right = exprs[1].doubleValue(scope);
+		} else {
+			final Object v = exprs[1].value(scope);
+			if (v == null) { return false; }
+			right = ((Number) v).doubleValue();
+		}
+		switch (op) {
+			case GT:
+				return left > right;
+			case LT:
+				return left < right;
+			case GTE:
+				return floats ? !(left < right) : left >= right;
+			default:
+				return floats ? !(left > right) : left <= right;
+		}
+	}
+
+	/**
+	 * Evaluates an operand that could be nil
+	 */
+	private Number number(final IScope scope, final int i) {
+		final Object v = exprs[i].value(scope);
+		if (v == null) {
+			final GamaRuntimeException e = GamaRuntimeException.error("nil operand", scope);
+			e.addContext("when applying the " + literalValue() + " operator on " + exprs[0].serialize(false) + " and "
+					+ exprs[1].serialize(false));
+			throw e;
+		}
+		return (Number) v;
+	}
+
+	@Override
+	public NumericOperator copy() {
+		return new NumericOperator(prototype, null, op, exprs);
+	}
+
+}
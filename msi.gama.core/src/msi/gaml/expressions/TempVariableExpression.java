@@ -22,7 +22,8 @@ import msi.gaml.types.IType;
 public class TempVariableExpression extends VariableExpression {
 
 	protected TempVariableExpression(final String n, final IType<?> type, final IDescription definitionDescription) {
-		super(n, type, false, definitionDescription);
+		// Interned, as the execution contexts compare the names of the variables by reference first
+		super(n.intern(), type, false, definitionDescription);
 	}
 
 	@Override
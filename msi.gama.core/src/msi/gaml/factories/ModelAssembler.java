@@ -72,6 +72,8 @@ public class ModelAssembler {
 		final ISyntacticElement globalNodes = SyntacticFactory.create(GLOBAL, (EObject) null, true);
 		final ISyntacticElement source = models.get(0);
 		Facets globalFacets = null;
+		boolean compile = false;
+		boolean optimize = false;
 		if (source.hasFacet(IKeyword.PRAGMA)) {
 			final Facets facets = source.copyFacets(null);
 			final List<String> pragmas = (List<String>) facets.get(IKeyword.PRAGMA).getExpression().value(null);
@@ -81,6 +83,8 @@ public class ModelAssembler {
 					collector.setNoInfo();
 				if (pragmas.contains(IKeyword.NO_WARNING))
 					collector.setNoWarning();
+				compile = pragmas.contains(IKeyword.COMPILE);
+				optimize = pragmas.contains(IKeyword.OPTIMIZE);
 			}
 
 		}
@@ -141,6 +145,8 @@ public class ModelAssembler {
 						.copyOf(Iterables.transform(Iterables.skip(models, 1), each -> buildModelName(each.getName())));
 		model.setImportedModelNames(allModelNames);
 		model.isDocumenting(document);
+		model.setCompilingExpressions(compile);
+		model.setOptimizingExpressions(optimize);
 
 		// hqnghi add micro-models
 		if (mm != null) {
@@ -9,6 +9,8 @@
  **********************************************************************************************/
 package msi.gaml.operators;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -24,10 +26,12 @@ import org.jgrapht.alg.BronKerboschCliqueFinder;
 import org.jgrapht.alg.ConnectivityInspector;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.util.FileUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.ILocation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.filter.In;
+import msi.gama.metamodel.topology.graph.ContractionHierarchy;
 import msi.gama.metamodel.topology.graph.GamaSpatialGraph;
 import msi.gama.metamodel.topology.graph.GamaSpatialGraph.VertexRelationship;
 import msi.gama.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation.GamlGridAgent;
@@ -53,6 +57,7 @@ import msi.gama.util.graph.GamaGraph;
 import msi.gama.util.graph.GraphAlgorithmsHandmade;
 import msi.gama.util.graph.GraphFromAgentContainerSynchronizer;
 import msi.gama.util.graph.IGraph;
+import msi.gama.util.graph.ShortestPathCache;
 import msi.gama.util.graph.layout.AvailableGraphLayouts;
 import msi.gama.util.graph.loader.GraphLoader;
 import msi.gama.util.matrix.GamaFloatMatrix;
@@ -1162,6 +1167,75 @@ public class Graphs {
 		return GamaGraphType.useChacheForShortestPath(g, useCache);
 	}
 
+	@operator (
+			value = "with_cache_capacity",
+			content_type = ITypeProvider.FIRST_CONTENT_TYPE,
+			index_type = ITypeProvider.FIRST_KEY_TYPE,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "sets the capacity of the shortest path cache of the graph, expressed as the total number of edges the cached paths can reference (1000000 by default). When it is exceeded, the least recently used paths are removed from the cache.",
+			comment = "the operator alters the operand graph, it does not create a new one.",
+			examples = @example (
+					value = "road_network <- road_network with_cache_capacity 5000000;",
+					isExecutable = false),
+			see = { "use_cache", "precompute_shortest_paths", "cache_statistics" })
+	public static IGraph withCacheCapacity(final IScope scope, final GamaGraph graph, final Integer capacity) {
+		if (graph == null) { throw GamaRuntimeException
+				.error("In the with_cache_capacity operator, the graph should not be null!", scope); }
+		graph.getShortestPathComputed().setCapacity(capacity);
+		return graph;
+	}
+
+	@operator (
+			value = "precompute_shortest_paths",
+			content_type = ITypeProvider.FIRST_CONTENT_TYPE,
+			index_type = ITypeProvider.FIRST_KEY_TYPE,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "computes in parallel the shortest paths from each of the vertices of the right-hand operand to all the other vertices of the graph, and stores them in the cache of the graph. The paths starting from these vertices are then retrieved without any computation, until the graph is modified.",
+			comment = "each source only costs one integer per vertex of the graph, whatever the number of paths. The cache has to be enabled (see use_cache).",
+			examples = @example (
+					value = "road_network <- road_network precompute_shortest_paths (building collect each.entrance);",
+					isExecutable = false),
+			see = { "use_cache", "with_cache_capacity", "cache_statistics" })
+	public static IGraph precomputeShortestPaths(final IScope scope, final GamaGraph graph,
+			final IContainer sources) {
+		if (graph == null) { throw GamaRuntimeException
+				.error("In the precompute_shortest_paths operator, the graph should not be null!", scope); }
+		if (sources != null) {
+			graph.precomputeShortestPaths(scope, sources.listValue(scope, graph.getType().getKeyType(), false));
+		}
+		return graph;
+	}
+
+	@operator (
+			value = "cache_statistics",
+			type = IType.MAP,
+			content_type = IType.INT,
+			index_type = IType.STRING,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "returns the statistics of the shortest path cache of the graph: the number of queries answered by the cache (\"hits\") or not (\"misses\"), the number of paths (\"paths\") and of edges (\"edges\") it contains, and the number of precomputed sources (\"sources\")",
+			examples = @example (
+					value = "cache_statistics(road_network)[\"hits\"]",
+					isExecutable = false),
+			see = { "use_cache", "with_cache_capacity", "precompute_shortest_paths" })
+	public static GamaMap cacheStatistics(final IScope scope, final GamaGraph graph) {
+		if (graph == null) { throw GamaRuntimeException
+				.error("In the cache_statistics operator, the graph should not be null!", scope); }
+		final ShortestPathCache cache = graph.getShortestPathComputed();
+		final GamaMap result = GamaMapFactory.create(Types.STRING, Types.INT);
+		result.put("hits", (int) cache.getHits());
+		result.put("misses", (int) cache.getMisses());
+		result.put("paths", cache.size());
+		result.put("edges", (int) cache.getWeight());
+		result.put("sources", cache.getNumberOfTrees());
+		return result;
+	}
+
 	@operator (
 			value = "directed",
 			content_type = ITypeProvider.FIRST_CONTENT_TYPE,
@@ -1256,7 +1330,9 @@ public class Graphs {
 	@doc (
 			value = "changes the shortest path computation method of the given graph",
 			comment = "the right-hand operand can be \"Djikstra\", \"Bellmann\", \"Astar\" to use the associated algorithm. "
-					+ "Note that these methods are dynamic: the path is computed when needed. In contrarily, if the operand is another string, "
+					+ "Note that these methods are dynamic: the path is computed when needed. \"CH\" uses contraction hierarchies: "
+					+ "the graph is preprocessed once (which can take some time on large networks, see save_contraction_hierarchy), "
+					+ "and the shortest paths are then computed much faster. In contrarily, if the operand is another string, "
 					+ "a static method will be used, i.e. all the shortest are previously computed.",
 			examples = @example (
 					value = "graphEpidemio <- graphEpidemio with_optimizer_type \"static\";",
@@ -1267,6 +1343,57 @@ public class Graphs {
 		return graph;
 	}
 
+	@operator (
+			value = "save_contraction_hierarchy",
+			content_type = ITypeProvider.FIRST_CONTENT_TYPE,
+			index_type = ITypeProvider.FIRST_KEY_TYPE,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "saves in the file whose path is the right-hand operand the contraction hierarchy of the graph (used by the \"CH\" optimizer type), computing it first if needed",
+			comment = "the file can then be loaded with load_contraction_hierarchy by any graph built from the same data (same vertices, edges and weights, in the same order)",
+			examples = @example (
+					value = "road_network <- road_network save_contraction_hierarchy \"../includes/roads.ch\";",
+					isExecutable = false),
+			see = { "with_optimizer_type", "load_contraction_hierarchy" })
+	public static IGraph saveContractionHierarchy(final IScope scope, final GamaGraph graph, final String path) {
+		if (graph == null) { throw GamaRuntimeException
+				.error("In the save_contraction_hierarchy operator, the graph should not be null!", scope); }
+		final File file = new File(FileUtils.constructAbsoluteFilePath(scope, path, false));
+		try {
+			graph.getContractionHierarchy().save(file);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.error(e.getMessage(), scope);
+		}
+		return graph;
+	}
+
+	@operator (
+			value = "load_contraction_hierarchy",
+			content_type = ITypeProvider.FIRST_CONTENT_TYPE,
+			index_type = ITypeProvider.FIRST_KEY_TYPE,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION })
+	@doc (
+			value = "loads the contraction hierarchy saved (with save_contraction_hierarchy) in the file whose path is the right-hand operand, and uses it to compute the shortest paths of the graph",
+			comment = "the optimizer type of the graph is set to \"CH\". An error is raised if the hierarchy has not been computed for a graph with the same vertices, edges and weights",
+			examples = @example (
+					value = "road_network <- road_network load_contraction_hierarchy \"../includes/roads.ch\";",
+					isExecutable = false),
+			see = { "with_optimizer_type", "save_contraction_hierarchy" })
+	public static IGraph loadContractionHierarchy(final IScope scope, final GamaGraph graph, final String path) {
+		if (graph == null) { throw GamaRuntimeException
+				.error("In the load_contraction_hierarchy operator, the graph should not be null!", scope); }
+		final File file = new File(FileUtils.constructAbsoluteFilePath(scope, path, true));
+		try {
+			graph.setContractionHierarchy(ContractionHierarchy.load(graph, file));
+		} catch (final IOException e) {
+			throw GamaRuntimeException.error(e.getMessage(), scope);
+		}
+		graph.setOptimizerType("CH");
+		return graph;
+	}
+
 	@operator (
 			value = "add_node",
 			type = IType.GRAPH,
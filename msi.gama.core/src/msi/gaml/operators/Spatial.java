@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -3549,6 +3550,54 @@ public abstract class Spatial {
 			return null;
 		}
 
+		@operator (
+				value = { "closest_to" },
+				type = IType.LIST,
+				content_type = ITypeProvider.FIRST_CONTENT_TYPE,
+				category = { IOperatorCategory.SPATIAL, IOperatorCategory.SP_QUERIES },
+				concept = { IConcept.GEOMETRY, IConcept.SPATIAL_COMPUTATION, IConcept.SPATIAL_RELATION,
+						IConcept.AGENT_LOCATION })
+		@doc (
+				value = "The list of the n (third operand) agents or geometries among the first operand list of agents, species or meta-population (addition of species), the closest to the second operand (casted as a geometry), sorted from the nearest to the farthest.",
+				comment = "the distance is computed in the topology of the calling agent (the agent in which this operator is used). When the agents are spatially indexed, only the neighbourhood of the source is explored, which is much faster than sorting all the agents by distance.",
+				examples = { @example (
+						value = "closest_to(people, self, 5)",
+						equals = "return the 5 agents of species people that are the closest to the agent applying the operator.",
+						isExecutable = false),
+						@example (
+								value = "closest_to([ag1, ag2, ag3], self, 2)",
+								equals = "return the 2 agents among ag1, ag2 and ag3 that are the closest to the agent applying the operator.",
+								isExecutable = false) },
+				see = { "neighbors_at", "neighbors_of", "inside", "overlapping", "agents_overlapping", "agents_inside",
+						"agent_closest_to", "closest_to" })
+		public static IList<IShape> closest_to(final IScope scope, final IContainer<?, ? extends IShape> list,
+				final IShape source, final Integer number) {
+			if (list == null || source == null || number == null || number <= 0)
+				return GamaListFactory.create();
+			final IType contentType = list.getType().getContentType();
+			if (contentType.isAgentType()) {
+				final IAgentFilter filter = In.list(scope, list);
+				if (filter == null) { return GamaListFactory.create(); }
+				final List<IShape> agents = new ArrayList<>(scope.getTopology().getAgentsClosestTo(scope,
+						Cast.asGeometry(scope, source, false), filter, number));
+				return GamaListFactory.createWithoutCasting(contentType, agents);
+			} else if (contentType.isTranslatableInto(Types.GEOMETRY)) {
+				final ITopology topo = scope.getTopology();
+				final List<IShape> shapes = new ArrayList<>();
+				final Map<IShape, Double> distances = new IdentityHashMap<>();
+				for (final Object shape : list.listValue(scope, Types.GEOMETRY, false)) {
+					if (shape instanceof IShape) {
+						shapes.add((IShape) shape);
+						distances.put((IShape) shape, topo.distanceBetween(scope, source, (IShape) shape));
+					}
+				}
+				shapes.sort((s1, s2) -> Double.compare(distances.get(s1), distances.get(s2)));
+				return GamaListFactory.createWithoutCasting(contentType,
+						shapes.subList(0, Math.min(number, shapes.size())));
+			}
+			return GamaListFactory.create();
+		}
+
 		@operator (
 				value = { "farthest_to" },
 				type = ITypeProvider.FIRST_CONTENT_TYPE,
@@ -54,6 +54,7 @@ import msi.gama.util.path.GamaPath;
 import msi.gama.util.path.GamaSpatialPath;
 import msi.gama.util.path.IPath;
 import msi.gama.util.path.PathFactory;
+import msi.gama.util.path.PathSegments;
 import msi.gaml.operators.Cast;
 import msi.gaml.operators.Maths;
 import msi.gaml.operators.Random;
@@ -662,6 +663,7 @@ public class MovingSkill extends Skill {
 			falseTarget = (GamaPoint) path.getEndVertex();
 
 		} else {
+			final PathSegments segments = PathSegments.of(path);
 			if (path.isVisitor(agent)) {
 				index = path.indexOf(agent);
 				indexSegment = path.indexSegmentOf(agent);
@@ -669,85 +671,25 @@ public class MovingSkill extends Skill {
 			} else {
 				path.acceptVisitor(agent);
 				double distanceS = Double.MAX_VALUE;
-				IShape line = null;
 				for (int i = 0; i < nb; i++) {
-					line = edges.get(i);
-					final double distS = line.euclidianDistanceTo(currentLocation);
+					final double distS = edges.get(i).euclidianDistanceTo(currentLocation);
 					if (distS < distanceS) {
 						distanceS = distS;
 						index = i;
 					}
 				}
-				line = edges.get(index);
-				if (line.getPoints().contains(currentLocation)) {
+				final int point = segments.indexOfPoint(index, currentLocation);
+				if (point >= 0) {
 					currentLocation = new GamaPoint(currentLocation);
-					indexSegment = line.getPoints().indexOf(currentLocation) + 1;
-				} else {
-					currentLocation = (GamaPoint) Punctal._closest_point_to(currentLocation, line);
-					final Point pointGeom = (Point) currentLocation.getInnerGeometry();
-					if (line.getInnerGeometry().getNumPoints() >= 3) {
-						distanceS = Double.MAX_VALUE;
-						final Coordinate coords[] = line.getInnerGeometry().getCoordinates();
-						final int nbSp = coords.length;
-						final Coordinate[] temp = new Coordinate[2];
-						for (int i = 0; i < nbSp - 1; i++) {
-							temp[0] = coords[i];
-							temp[1] = coords[i + 1];
-							final LineString segment = GeometryUtils.GEOMETRY_FACTORY.createLineString(temp);
-							final double distS = segment.distance(pointGeom);
-							if (distS < distanceS) {
-								distanceS = distS;
-								indexSegment = i + 1;
-								final GamaPoint pt0 = new GamaPoint(temp[0]);
-								final GamaPoint pt1 = new GamaPoint(temp[1]);
-								currentLocation.z =
-										pt0.z + (pt1.z - pt0.z) * currentLocation.distance(pt0) / segment.getLength();
-							}
-						}
-					} else if (line.getInnerGeometry().getNumPoints() >= 2) {
-						final ILocation c0 = line.getPoints().get(0);
-						final ILocation c1 = line.getPoints().get(1);
-						currentLocation.z = c0.getZ() + (c1.getZ() - c0.getZ())
-								* currentLocation.distance((Coordinate) c0) / line.getPerimeter();
-					} else {
-						currentLocation.z = line.getPoints().get(0).getZ();
-					}
-				}
-			}
-			final IShape lineEnd = edges.get(nb - 1);
-			final ILocation end = ((IShape) path.getEndVertex()).getLocation();
-			if (lineEnd.getPoints().contains(end)) {
-				falseTarget = new GamaPoint(end);
-				endIndexSegment = lineEnd.getPoints().indexOf(end) + 1;
-			} else {
-				falseTarget = (GamaPoint) Punctal._closest_point_to(end, lineEnd);
-				endIndexSegment = 1;
-				final Point pointGeom = (Point) falseTarget.getInnerGeometry();
-				if (lineEnd.getInnerGeometry().getNumPoints() >= 3) {
-					double distanceT = Double.MAX_VALUE;
-					final Coordinate coords[] = lineEnd.getInnerGeometry().getCoordinates();
-					final int nbSp = coords.length;
-					final Coordinate[] temp = new Coordinate[2];
-					for (int i = 0; i < nbSp - 1; i++) {
-						temp[0] = coords[i];
-						temp[1] = coords[i + 1];
-						final LineString segment = GeometryUtils.GEOMETRY_FACTORY.createLineString(temp);
-						final double distT = segment.distance(pointGeom);
-						if (distT < distanceT) {
-							distanceT = distT;
-							endIndexSegment = i + 1;
-							final GamaPoint pt0 = new GamaPoint(temp[0]);
-							final GamaPoint pt1 = new GamaPoint(temp[1]);
-							falseTarget.z = pt0.z + (pt1.z - pt0.z) * falseTarget.distance(pt0) / segment.getLength();
-						}
-					}
+					indexSegment = point + 1;
 				} else {
-					final ILocation c0 = lineEnd.getPoints().get(0);
-					final ILocation c1 = lineEnd.getPoints().get(1);
-					falseTarget.z = c0.getZ()
-							+ (c1.getZ() - c0.getZ()) * falseTarget.distance((Coordinate) c0) / lineEnd.getPerimeter();
+					currentLocation = (GamaPoint) Punctal._closest_point_to(currentLocation, edges.get(index));
+					indexSegment = segments.locate(index, currentLocation);
 				}
 			}
+			// Computed once for the path
+			falseTarget = new GamaPoint(segments.getEndPoint(path));
+			endIndexSegment = segments.getEndSegment(path);
 		}
 		initVals.add(index);
 		initVals.add(indexSegment);
@@ -971,12 +913,15 @@ public class MovingSkill extends Skill {
 		final GamaPoint falseTarget = (GamaPoint) indexVals.get(4);
 		final IList<IShape> edges = path.getEdgeGeometry();
 		final int nb = edges.size();
+		final PathSegments segments = PathSegments.of(path);
 		double distance = d;
 		final GamaSpatialGraph graph = (GamaSpatialGraph) path.getGraph();
 		double travelledDist = 0.0;
 		for (int i = index; i < nb; i++) {
 			final IShape line = edges.get(i);
-			final Coordinate coords[] = line.getInnerGeometry().getCoordinates();
+			final GamaPoint[] points = segments.getPoints(i);
+			// Whether the agent is on the first point of the segment, whose length is then already known
+			boolean atPoint = false;
 			double weight;
 			if (weigths == null) {
 				weight = computeWeigth(graph, path, line);
@@ -986,14 +931,11 @@ public class MovingSkill extends Skill {
 						: (Double) weigths.get(realShape) / realShape.getGeometry().getPerimeter();
 				weight = w == null ? computeWeigth(graph, path, line) : w;
 			}
-			for (int j = indexSegment; j < coords.length; j++) {
-				GamaPoint pt = null;
-				if (i == nb - 1 && j == endIndexSegment) {
-					pt = falseTarget;
-				} else {
-					pt = new GamaPoint(coords[j]);
-				}
-				final double dis = pt.distance(currentLocation);
+			for (int j = indexSegment; j < points.length; j++) {
+				final boolean end = i == nb - 1 && j == endIndexSegment;
+				// The points of the segments are shared by all the agents and never modified
+				final GamaPoint pt = end ? falseTarget : points[j];
+				final double dis = atPoint && !end ? segments.getSegmentLength(i, j) : pt.distance(currentLocation);
 				final double dist = weight * dis;
 
 				if (distance < dist) {
@@ -1007,18 +949,19 @@ public class MovingSkill extends Skill {
 					distance = 0;
 					break;
 				} else if (distance > dist) {
-					currentLocation = pt;
+					currentLocation.setLocation(pt);
+					atPoint = true;
 					travelledDist += dis;
 					distance = distance - dist;
-					if (i == nb - 1 && j == endIndexSegment) {
+					if (end) {
 						break;
 					}
 					indexSegment++;
 				} else {
-					currentLocation = pt;
+					currentLocation.setLocation(pt);
 					distance = 0;
 					travelledDist += dis;
-					if (indexSegment < coords.length - 1) {
+					if (indexSegment < points.length - 1) {
 						indexSegment++;
 					} else {
 						if (index < nb - 1) {
@@ -1075,12 +1018,14 @@ public class MovingSkill extends Skill {
 		final GamaPoint falseTarget = (GamaPoint) indexVals.get(4);
 		final IList<IShape> edges = path.getEdgeGeometry();
 		final int nb = edges.size();
+		final PathSegments pathSegments = PathSegments.of(path);
 		double distance = d;
 		double travelledDist = 0.0;
 		final GamaSpatialGraph graph = (GamaSpatialGraph) path.getGraph();
 		for (int i = index; i < nb; i++) {
 			final IShape line = edges.get(i);
-			final Coordinate coords[] = line.getInnerGeometry().getCoordinates();
+			final GamaPoint[] points = pathSegments.getPoints(i);
+			boolean atPoint = false;
 			double weight;
 			if (weigths == null) {
 				weight = computeWeigth(graph, path, line);
@@ -1091,14 +1036,11 @@ public class MovingSkill extends Skill {
 				weight = w == null ? computeWeigth(graph, path, line) : w;
 			}
 
-			for (int j = indexSegment; j < coords.length; j++) {
-				GamaPoint pt = null;
-				if (i == nb - 1 && j == endIndexSegment) {
-					pt = falseTarget;
-				} else {
-					pt = new GamaPoint(coords[j]);
-				}
-				final double dis = pt.distance(currentLocation);
+			for (int j = indexSegment; j < points.length; j++) {
+				final boolean end = i == nb - 1 && j == endIndexSegment;
+				// A copy, as the point is used in the geometries of the path followed
+				final GamaPoint pt = end ? falseTarget : new GamaPoint(points[j]);
+				final double dis = atPoint && !end ? pathSegments.getSegmentLength(i, j) : pt.distance(currentLocation);
 				final double dist = weight * dis;
 
 				if (distance < dist) {
@@ -1137,8 +1079,9 @@ public class MovingSkill extends Skill {
 					segments.add(gl);
 
 					currentLocation = pt;
+					atPoint = true;
 					distance = distance - dist;
-					if (i == nb - 1 && j == endIndexSegment) {
+					if (end) {
 						break;
 					}
 					indexSegment++;
@@ -1156,7 +1099,7 @@ public class MovingSkill extends Skill {
 					segments.add(gl);
 					currentLocation = pt;
 					distance = 0;
-					if (indexSegment < coords.length - 1) {
+					if (indexSegment < points.length - 1) {
 						indexSegment++;
 					} else {
 						if (index < nb - 1) {
@@ -119,7 +119,28 @@ import one.util.streamex.StreamEx;
 						type = IType.BOOL,
 						optional = true,
 						doc = { @doc (
-								value = "(grid only),(true by default). Allows to turn on or off the use of the neighbors cache used for grids. Note that if a diffusion of variable occurs, GAMA will emit a warning and automatically switch to a caching version") }),
+								value = "(grid only),(true by default). Allows to turn on or off the use of the neighbors cache used for grids. The neighbors of the cells are described by patterns shared by all of them, so that the cache is only filled for torus grids too small for the distance of the neighborhood") }),
+				@facet (
+						name = IKeyword.USE_COLUMNAR_ATTRIBUTES,
+						type = IType.BOOL,
+						optional = true,
+						doc = { @doc (
+								value = "(experimental),(false by default). Allows to store the attributes declared in this species in columns of values (one per attribute, indexed by the index of agents) rather than in the individual attributes of agents",
+								comment = "This facet, when set to true, allows to save memory and to speed up the access to the attributes of populations containing a large number of agents. Built-in attributes, and attributes defined with a function, are not concerned") }),
+				@facet (
+						name = IKeyword.USE_CONCURRENT_INDEX,
+						type = IType.BOOL,
+						optional = true,
+						doc = { @doc (
+								value = "(experimental),(false by default). Allows to index the agents of this species in their own spatial index, which can be updated and queried concurrently. Useful when the agents of the species are scheduled in parallel (see 'parallel') and move a lot",
+								see = IKeyword.PARALLEL) }),
+				@facet (
+						name = IKeyword.USE_DEFERRED_INDEX,
+						type = IType.BOOL,
+						optional = true,
+						doc = { @doc (
+								value = "(experimental),(false by default). If true, the changes of location or shape of the agents of this species during their step are not applied immediately to the spatial index, but in one batch at the end of the step of the species",
+								comment = "During the step of the species, spatial queries (agents_at_distance, closest_to, etc.) will then return results based on the locations of the agents at the beginning of the step") }),
 				@facet (
 						name = IKeyword.FILE,
 						type = IType.FILE,
@@ -10,6 +10,7 @@
 package msi.gaml.statements;
 
 import msi.gama.metamodel.agent.IAgent;
+import msi.gaml.descriptions.IExpressionDescription;
 
 /**
  * @author drogoul
@@ -41,6 +42,15 @@ public class Arguments extends Facets {
 		return result;
 	}
 
+	/**
+	 * The names of the arguments are interned, as they become the names of temporary variables (see
+	 * {@link msi.gama.runtime.ExecutionContext})
+	 */
+	@Override
+	public IExpressionDescription put(final String key, final IExpressionDescription expr) {
+		return super.put(key == null ? null : key.intern(), expr);
+	}
+
 	public void setCaller(final IAgent caller) {
 		this.caller.set(caller);
 	}
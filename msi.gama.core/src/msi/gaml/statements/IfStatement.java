@@ -30,6 +30,7 @@ import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.IDescription.DescriptionVisitor;
 import msi.gaml.descriptions.SymbolDescription;
 import msi.gaml.descriptions.SymbolSerializer.StatementSerializer;
+import msi.gaml.expressions.CompiledExpression;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Strings;
 import msi.gaml.statements.IfStatement.IfSerializer;
@@ -114,7 +115,7 @@ public class IfStatement extends AbstractStatementSequence {
 	 */
 	public IfStatement(final IDescription desc) {
 		super(desc);
-		cond = getFacet(IKeyword.CONDITION);
+		cond = CompiledExpression.compile(desc, getFacet(IKeyword.CONDITION));
 		if (cond != null) {
 			setName("if " + cond.serialize(false));
 		}
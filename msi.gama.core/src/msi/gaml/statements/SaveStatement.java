@@ -51,6 +51,7 @@ import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.ITyped;
 import msi.gama.common.util.FileUtils;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.kernel.experiment.IExperimentAgent;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.GamaShape;
 import msi.gama.metamodel.shape.IShape;
@@ -73,6 +74,8 @@ import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IModifiableContainer;
 import msi.gama.util.file.IGamaFile;
+import msi.gama.util.file.ParquetWriter;
+import msi.gama.util.file.TextWriterPool;
 import msi.gama.util.graph.IGraph;
 import msi.gama.util.graph.writer.AvailableGraphWriters;
 import msi.gaml.compilation.IDescriptionValidator;
@@ -82,6 +85,7 @@ import msi.gaml.descriptions.IExpressionDescription;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.StatementDescription;
 import msi.gaml.expressions.IExpression;
+import msi.gaml.expressions.ListExpression;
 import msi.gaml.expressions.MapExpression;
 import msi.gaml.operators.Cast;
 import msi.gaml.operators.Comparison;
@@ -106,8 +110,8 @@ import msi.gaml.types.Types;
 				name = IKeyword.TYPE,
 				type = IType.ID,
 				optional = true,
-				values = { "shp", "text", "csv", "asc", "geotiff", "image" },
-				doc = @doc ("an expression that evaluates to an string, the type of the output file (it can be only \"shp\", \"asc\", \"geotiff\", \"image\", \"text\" or \"csv\") ")),
+				values = { "shp", "text", "csv", "parquet", "asc", "geotiff", "image" },
+				doc = @doc ("an expression that evaluates to an string, the type of the output file (it can be only \"shp\", \"asc\", \"geotiff\", \"image\", \"text\", \"csv\" or \"parquet\") ")),
 				@facet (
 						name = IKeyword.DATA,
 						type = IType.NONE,
@@ -148,7 +152,7 @@ import msi.gaml.types.Types;
 								value = "Allows to define the attributes of a shape file. Keys of the map are the attributes of agents to save, values are the names of attributes in the shape file")) },
 		omissible = IKeyword.DATA)
 @doc (
-		value = "Allows to save data in a file. The type of file can be \"shp\", \"asc\", \"geotiff\", \"text\" or \"csv\".",
+		value = "Allows to save data in a file. The type of file can be \"shp\", \"asc\", \"geotiff\", \"text\", \"csv\" or \"parquet\".",
 		usages = { @usage (
 				value = "Its simple syntax is:",
 				examples = { @example (
@@ -166,6 +170,10 @@ import msi.gaml.types.Types;
 						value = "To save the values of all attributes of all the agents of a species into a csv (with optional attributes):",
 						examples = { @example (
 								value = "save species_of(self) to: \"save_csvfile.csv\" type: \"csv\" header: false;") }),
+				@usage (
+						value = "To save the values of all attributes of all the agents of a species into typed columns of a Parquet file. Unlike the other types, the rows saved during a simulation are added to the same file, which is replaced when the simulation saves in it for the first time and completed when the simulation is closed (in batch experiments and in experiments with several simulations, the index of the simulation is added to the name of the file):",
+						examples = { @example (
+								value = "save species_of(self) to: \"save_trajectories.parquet\" type: \"parquet\";") }),
 				@usage (
 						value = "To save the geometries of all the agents of a species into a shapefile (with optional attributes):",
 						examples = { @example (
@@ -317,6 +325,7 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 			boolean exists = fileTxt.exists();
 			final boolean rewrite = shouldOverwrite(scope);
 			if (rewrite) {
+				TextWriterPool.close(scope, fileTxt);
 				if (exists) {
 					fileTxt.delete();
 					exists = false;
@@ -336,6 +345,8 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 
 			saveText(type, fileTxt, addHeader, scope);
 
+		} else if (type.equals(IKeyword.PARQUET)) {
+			saveParquet(path, scope);
 		} else if (type.equals("asc")) {
 			ISpecies species;
 			if (item == null) { return null; }
@@ -545,20 +556,19 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 
 	public void saveText(final String type, final File fileTxt, final boolean header, final IScope scope)
 			throws GamaRuntimeException {
-		try (FileWriter fw = new FileWriter(fileTxt, true)) {
-			if (item == null) { return; }
+		if (item == null) { return; }
+		// The whole text is appended at once, so that the lines of agents saving in parallel are not mixed
+		final StringBuilder sb = new StringBuilder();
+		try {
 			if (type.equals("text")) {
-				fw.write(Cast.asString(scope, item.value(scope)) + Strings.LN);
+				sb.append(Cast.asString(scope, item.value(scope)) + Strings.LN);
 			} else if (type.equals("csv")) {
 				final IType itemType = item.getType();
 				final boolean isAgent = itemType.isAgentType() || itemType.getContentType().isAgentType();
 				final Object value = item.value(scope);
 				final IList values = itemType.isContainer() ? Cast.asList(scope, value)
 						: GamaListFactory.create(scope, itemType, value);
-				if (values.isEmpty()) {
-					fw.close();
-					return;
-				}
+				if (values.isEmpty()) { return; }
 				if (isAgent) {
 					final Collection<String> attributeNames =
 							values instanceof IPopulation ? ((IPopulation) values).getSpecies().getAttributeNames(scope)
@@ -567,16 +577,16 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 					if (header) {
 						// final IAgent ag0 = Cast.asAgent(scope,
 						// values.get(0));
-						fw.write("cycle;name;location.x;location.y;location.z");
+						sb.append("cycle;name;location.x;location.y;location.z");
 						for (final String v : attributeNames) {
-							fw.write(";" + v);
+							sb.append(";" + v);
 						}
-						fw.write(Strings.LN);
+						sb.append(Strings.LN);
 					}
 					for (final Object obj : values) {
 						if (obj instanceof IAgent) {
 							final IAgent ag = Cast.asAgent(scope, obj);
-							fw.write(scope.getClock().getCycle() + ";" + ag.getName().replace(';', ',') + ";"
+							sb.append(scope.getClock().getCycle() + ";" + ag.getName().replace(';', ',') + ";"
 									+ ag.getLocation().getX() + ";" + ag.getLocation().getY() + ";"
 									+ ag.getLocation().getZ());
 							for (final String v : attributeNames) {
@@ -584,16 +594,16 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 								if (val.startsWith("'") && val.endsWith("'")
 										|| val.startsWith("\"") && val.endsWith("\""))
 									val = val.substring(1, val.length() - 1);
-								fw.write(";" + val);
+								sb.append(";" + val);
 							}
-							fw.write(Strings.LN);
+							sb.append(Strings.LN);
 						}
 
 					}
 				} else {
 					if (header) {
-						fw.write(item.serialize(true).replace("]", "").replace("[", ""));
-						fw.write(Strings.LN);
+						sb.append(item.serialize(true).replace("]", "").replace("[", ""));
+						sb.append(Strings.LN);
 					}
 					if(itemType.id()==IType.MATRIX)
 					{
@@ -605,16 +615,16 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 							if(tmpValue[i].contains(";"))
 							{
 								String[] valueSplitted = val.split(";");
-								fw.write(valueSplitted[0]);
+								sb.append(valueSplitted[0]);
 								val = valueSplitted[1];
-								fw.write(Strings.LN);
+								sb.append(Strings.LN);
 							}
-							fw.write(val + ",");
+							sb.append(val + ",");
 						}
 						String val = Cast.toGaml(values.lastValue(scope)).replace(';', ',');
 						if (val.startsWith("'") && val.endsWith("'") || val.startsWith("\"") && val.endsWith("\""))
 							val = val.substring(1, val.length() - 1);
-						fw.write(val + Strings.LN);
+						sb.append(val + Strings.LN);
 					}
 					else
 					{
@@ -622,17 +632,17 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 							String val = Cast.toGaml(values.get(i)).replace(';', ',');
 							if (val.startsWith("'") && val.endsWith("'") || val.startsWith("\"") && val.endsWith("\""))
 								val = val.substring(1, val.length() - 1);
-							fw.write(val + ",");
+							sb.append(val + ",");
 						}
 						String val = Cast.toGaml(values.lastValue(scope)).replace(';', ',');
 						if (val.startsWith("'") && val.endsWith("'") || val.startsWith("\"") && val.endsWith("\""))
 							val = val.substring(1, val.length() - 1);
-						fw.write(val + Strings.LN);
+						sb.append(val + Strings.LN);
 					}
 				}
 
 			}
-
+			TextWriterPool.write(scope, fileTxt, sb.toString());
 		} catch (final GamaRuntimeException e) {
 			throw e;
 		} catch (final Throwable e) {
@@ -641,6 +651,82 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 
 	}
 
+	public void saveParquet(final String path, final IScope scope) throws GamaRuntimeException {
+		if (item == null) { return; }
+		final IType itemType = item.getType();
+		final boolean isAgent = itemType.isAgentType() || itemType.getContentType().isAgentType();
+		final Object value = item.value(scope);
+		final IList values = itemType.isContainer() ? Cast.asList(scope, value)
+				: GamaListFactory.create(scope, itemType, value);
+		if (values.isEmpty()) { return; }
+		String filePath = path;
+		final IExperimentAgent experiment = scope.getExperiment();
+		if (experiment != null && scope.getSimulation() != null
+				&& (experiment.getSpecies().isBatch() || experiment.getSimulationPopulation().size() > 1)) {
+			// One file per simulation
+			final int dot = filePath.lastIndexOf('.');
+			final String suffix = "_" + scope.getSimulation().getIndex();
+			filePath = dot > filePath.lastIndexOf(File.separatorChar) ? filePath.substring(0, dot) + suffix
+					+ filePath.substring(dot) : filePath + suffix;
+		}
+		final File fileParquet = new File(filePath);
+		if (isAgent) {
+			final ISpecies species = values instanceof IPopulation ? ((IPopulation) values).getSpecies()
+					: Cast.asAgent(scope, values.get(0)).getSpecies();
+			final List<String> attributeNames = new ArrayList<>(species.getAttributeNames(scope));
+			attributeNames.removeAll(NON_SAVEABLE_ATTRIBUTE_NAMES);
+			// Already saved in the first columns, whose names must be unique
+			attributeNames.remove(IKeyword.NAME);
+			attributeNames.remove("cycle");
+			final String[] names = new String[attributeNames.size() + 5];
+			final IType[] types = new IType[names.length];
+			names[0] = "cycle";
+			names[1] = "name";
+			names[2] = "location.x";
+			names[3] = "location.y";
+			names[4] = "location.z";
+			types[0] = Types.INT;
+			types[1] = Types.STRING;
+			types[2] = types[3] = types[4] = Types.FLOAT;
+			for (int i = 0; i < attributeNames.size(); i++) {
+				names[i + 5] = attributeNames.get(i);
+				types[i + 5] = species.getVar(names[i + 5]).getType();
+			}
+			final ParquetWriter writer = ParquetWriter.get(scope, fileParquet, names, types);
+			final int cycle = scope.getClock().getCycle();
+			for (final Object obj : values) {
+				if (obj instanceof IAgent) {
+					final IAgent ag = (IAgent) obj;
+					final Object[] row = new Object[names.length];
+					row[0] = cycle;
+					row[1] = ag.getName();
+					row[2] = ag.getLocation().getX();
+					row[3] = ag.getLocation().getY();
+					row[4] = ag.getLocation().getZ();
+					for (int i = 5; i < names.length; i++) {
+						row[i] = ag.getDirectVarValue(scope, names[i]);
+					}
+					writer.addRow(scope, row);
+				}
+			}
+		} else {
+			// One row, whose columns are the elements of the list saved (if it is a literal list) or its values
+			final IExpression[] elements = item instanceof ListExpression ? ((ListExpression) item).getElements() : null;
+			final String[] names = new String[values.size()];
+			final IType[] types = new IType[names.length];
+			for (int i = 0; i < names.length; i++) {
+				if (elements != null && elements.length == names.length) {
+					names[i] = elements[i].serialize(false);
+					types[i] = elements[i].getType();
+				} else {
+					names[i] = names.length == 1 ? item.serialize(false) : item.serialize(false) + "_" + i;
+					types[i] = itemType.isContainer() ? itemType.getContentType() : itemType;
+				}
+			}
+			ParquetWriter.get(scope, fileParquet, names, types).addRow(scope, values.toArray());
+		}
+	}
+
 	public String type(final ITyped var) {
 		switch (var.getType().id()) {
 			case IType.BOOL:
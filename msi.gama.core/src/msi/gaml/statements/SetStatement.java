@@ -28,6 +28,7 @@ import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.IExpressionDescription;
 import msi.gaml.descriptions.SymbolDescription;
 import msi.gaml.descriptions.SymbolSerializer;
+import msi.gaml.expressions.CompiledExpression;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.IVarExpression;
 import msi.gaml.operators.Cast;
@@ -108,7 +109,7 @@ public class SetStatement extends AbstractStatement {
 		if (expr == null) {
 			value = GAML.getExpressionFactory().createConst(varExpr.getType().getDefault(), varExpr.getType());
 		} else {
-			value = expr;
+			value = CompiledExpression.compile(desc, expr);
 		}
 
 	}
@@ -191,6 +191,11 @@ public class NumberVariable extends Variable {
 		return f;
 	}
 
+	@Override
+	public boolean canBeWrittenInColumn() {
+		return super.canBeWrittenInColumn() && min == null && max == null;
+	}
+
 	@Override
 	public Number getMinValue(final IScope scope) {
 		return minVal;
@@ -18,6 +18,7 @@ import msi.gama.common.interfaces.IGamlIssue;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.ISkill;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.AttributeColumns;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.facet;
 import msi.gama.precompiler.GamlAnnotations.facets;
@@ -326,6 +327,8 @@ public class Variable extends Symbol implements IVariable {
 	private IExecutable on_changer;
 	protected String /* gName, sName, iName, */ pName, cName;
 	protected ISkill gSkill/* , iSkill */, sSkill;
+	// The position of this variable in the columns of its populations, if they use columnar attributes (-1 otherwise)
+	private int column = -1;
 
 	public Variable(final IDescription sd) {
 		super(sd);
@@ -505,6 +508,13 @@ public class Variable extends Symbol implements IVariable {
 		val = checkAmong(agent, scope, val);
 		if (setter != null) {
 			setter.run(scope, agent, sSkill == null ? agent : sSkill, val);
+		} else if (column >= 0) {
+			final AttributeColumns columns = agent.getPopulation().getColumns();
+			if (columns != null && columns.stores(this, column)) {
+				columns.set(column, agent, val);
+			} else {
+				agent.setAttribute(name, val);
+			}
 		} else {
 			agent.setAttribute(name, val);
 		}
@@ -529,9 +539,39 @@ public class Variable extends Symbol implements IVariable {
 	public Object value(final IScope scope, final IAgent agent) throws GamaRuntimeException {
 		if (getter != null) { return getter.run(scope, agent, gSkill == null ? agent : gSkill); }
 		if (functionExpression != null) { return scope.evaluate(functionExpression, agent).getValue(); }
+		if (column >= 0) {
+			final AttributeColumns columns = agent.getPopulation().getColumns();
+			if (columns != null && columns.stores(this, column)) { return columns.get(column, agent); }
+		}
 		return agent.getAttribute(name);
 	}
 
+	/**
+	 * Whether the values of this variable can be stored in the columns of a population (see {@link AttributeColumns}).
+	 * Only the variables declared in GAML, which do not rely on a getter, a setter or a function, are eligible.
+	 */
+	public boolean canBeStoredInColumn() {
+		if (getter != null || setter != null || functionExpression != null) { return false; }
+		final VariableDescription desc = getDescription();
+		return desc != null && !desc.isBuiltIn() && !desc.isSyntheticSpeciesContainer();
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Whether the values of this variable, if stored in a column, can be written directly in it without going through
+	 * {@link #setVal(IScope, IAgent, Object)}, i.e. when no check or action is attached to its modifications
+	 */
+	public boolean canBeWrittenInColumn() {
+		return column >= 0 && onChangeExpression == null && amongExpression == null;
+	}
+
+	public void setColumn(final int column) {
+		this.column = column;
+	}
+
 	@Override
 	public Object getUpdatedValue(final IScope scope) {
 		return updateExpression.value(scope);
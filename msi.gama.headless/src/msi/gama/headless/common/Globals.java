@@ -17,4 +17,10 @@ public abstract class Globals {
 	public static String OUTPUT_PATH;
 	public final static String OUTPUT_FILENAME = "simulation-outputs";
 	public static final String CONSOLE_OUTPUT_FILENAME = "console-outputs";
+	/** The directory of the checkpoints of the simulations, null if they are neither written nor resumed */
+	public static String CHECKPOINT_PATH;
+	/** The number of cycles between two checkpoints of a simulation (0 to never write them) */
+	public static int CHECKPOINT_INTERVAL = 0;
+	/** Whether the simulations resume from their checkpoint, when there is one */
+	public static boolean RESUME = false;
 }
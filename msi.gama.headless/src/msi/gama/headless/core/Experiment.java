@@ -98,6 +98,22 @@ public class Experiment implements IExperiment {
 
 	}
 
+	/**
+	 * Restarts the count of the steps, when the simulation has been put back in its initial state
+	 */
+	@Override
+	public void resetStep() {
+		this.currentStep = 0;
+	}
+
+	/**
+	 * Sets the count of the steps, when the simulation has been restored from a checkpoint
+	 */
+	@Override
+	public void setStep(final long step) {
+		this.currentStep = step;
+	}
+
 	@Override
 	public void setParameter(final String parameterName, final Object value) {
 		if (this.params.containsKey(parameterName)) {
@@ -26,6 +26,7 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.HeadlessListener;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.compilation.GamlCompilationError;
+import msi.gaml.descriptions.ModelDescription;
 
 public class HeadlessSimulationLoader {
 
@@ -64,6 +65,14 @@ public class HeadlessSimulationLoader {
 	}
 
 	public static synchronized IModel loadModel(final File myFile) throws IOException {
+		return instantiateModel(loadModelDescription(myFile));
+	}
+
+	/**
+	 * Parses and validates a model once. The description can then be shared by the jobs running this model, each of them
+	 * obtaining its own instance with {@link #instantiateModel(ModelDescription)}
+	 */
+	public static synchronized ModelDescription loadModelDescription(final File myFile) throws IOException {
 		final String fileName = myFile.getAbsolutePath();
 		if (!myFile.exists())
 			throw new IOException("Model file does not exist: " + fileName);
@@ -71,7 +80,7 @@ public class HeadlessSimulationLoader {
 		Logger.getLogger(HeadlessSimulationLoader.class.getName()).finer(fileName + " Model is loading...");
 		try {
 			final List<GamlCompilationError> errors = new ArrayList<>();
-			final IModel model = GamlModelBuilder.compile(URI.createFileURI(fileName), errors);
+			final ModelDescription model = GamlModelBuilder.buildModelDescription(URI.createFileURI(fileName), errors);
 			if (model == null) {
 				{
 					String errorData = "\n";
@@ -81,7 +90,7 @@ public class HeadlessSimulationLoader {
 				}
 
 			}
-			Logger.getLogger(HeadlessSimulationLoader.class.getName()).finer("Experiment created ");
+			Logger.getLogger(HeadlessSimulationLoader.class.getName()).finer("Model validated ");
 			return model;
 
 		} catch (final Exception e1) {
@@ -90,4 +99,14 @@ public class HeadlessSimulationLoader {
 
 	}
 
+	/**
+	 * Compiles an instance of the model. The instances are compiled one at a time, as the compilation reads the shared
+	 * description while the symbols of the instance are built
+	 */
+	public static synchronized IModel instantiateModel(final ModelDescription description) {
+		final IModel model = (IModel) description.compile();
+		Logger.getLogger(HeadlessSimulationLoader.class.getName()).finer("Experiment created ");
+		return model;
+	}
+
 }
@@ -26,6 +26,8 @@ public interface IExperiment {
 	public void setup(final String experimentName, final double seed);
 	
 	public long step();
+	public void resetStep();
+	public void setStep(long step);
 	public boolean isInterrupted();
 	
 	public void setParameter(final String parameterName, final Object value);
@@ -0,0 +1,100 @@
+/*********************************************************************************************
+ *
+ *
+ * 'SimulationCheckpoint.java', in plugin 'msi.gama.headless', is part of the source code of the GAMA modeling and
+ * simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.headless.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.SavedAgent;
+import msi.gama.runtime.IScope;
+import ummisco.gama.serializer.binary.BinaryCodec;
+
+/**
+ * Class SimulationCheckpoint. The file in which the state of a headless simulation is periodically written, so that a
+ * run interrupted (crash, preemption of the node...) can resume from its last checkpoint instead of starting again.
+ *
+ * A checkpoint holds the number of steps done, the exact state of the random number generator and the state of the
+ * simulation (its variables, including the cycle of its clock, and its populations) encoded by a {@link BinaryCodec},
+ * which writes it to the file as it goes. It is first written to a temporary file, which then replaces the previous
+ * checkpoint, so that an interruption while writing cannot leave a corrupted checkpoint behind. The topologies are not
+ * saved, as they are rebuilt from the geometries of the agents when these are restored.
+ */
+public class SimulationCheckpoint {
+
+	private final File file;
+
+	public SimulationCheckpoint(final File file) {
+		this.file = file;
+	}
+
+	public boolean exists() {
+		return file.exists();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Writes the state of the simulation of the experiment, after the given number of steps
+	 */
+	public void save(final IExperiment experiment, final long step) throws IOException {
+		final SimulationAgent sim = experiment.getSimulation();
+		final IScope scope = sim.getScope();
+		final File temp = new File(file.getPath() + ".tmp");
+		file.getParentFile().mkdirs();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeLong(step);
+			final byte[] rng = sim.getRandomGenerator().getGeneratorState();
+			out.writeInt(rng.length);
+			out.write(rng);
+			new BinaryCodec(scope).encode(new SavedAgent(scope, sim), out);
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Puts the simulation of the experiment back in the state of the checkpoint and returns the number of steps done
+	 * when it was written. The checkpoint is read twice: the first time creates the agents that did not exist yet, so
+	 * that the references to them can be resolved the second time.
+	 */
+	public long restore(final IExperiment experiment) throws IOException {
+		final SimulationAgent sim = experiment.getSimulation();
+		final IScope scope = sim.getScope();
+		long step = 0;
+		byte[] rng = null;
+		for (int pass = 0; pass < 2; pass++) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				step = in.readLong();
+				rng = new byte[in.readInt()];
+				in.readFully(rng);
+				final SavedAgent state = (SavedAgent) new BinaryCodec(scope).decode(in);
+				// The generator is restored below, without drawing again the numbers already drawn
+				state.remove(SimulationAgent.USAGE);
+				sim.updateWith(scope, state);
+			}
+		}
+		sim.getRandomGenerator().setGeneratorState(rng);
+		experiment.setStep(step);
+		return step;
+	}
+
+}
@@ -0,0 +1,243 @@
+/*********************************************************************************************
+ *
+ *
+ * 'SimulationTemplate.java', in plugin 'msi.gama.headless', is part of the source code of the GAMA modeling and
+ * simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gama.headless.core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.map.hash.THashMap;
+import msi.gama.common.interfaces.IKeyword;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.agent.SavedAgent;
+import msi.gama.metamodel.population.GamaPopulation;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.runtime.IScope;
+import msi.gama.util.GamaMap;
+import msi.gama.util.GamaPair;
+import msi.gama.util.IList;
+import msi.gama.util.graph.GamaGraph;
+import msi.gama.util.matrix.GamaObjectMatrix;
+import msi.gama.util.matrix.IMatrix;
+
+/**
+ * Class SimulationTemplate. A simulation kept just after its initialization, so that several replicates can be run from
+ * the same initial state without compiling the model and running its init again (which includes the loading of the
+ * shapefiles, grids, etc.). Each replicate restores the state saved (see
+ * {@link SimulationAgent#updateWith(IScope, SavedAgent)}) and reseeds the random number generator.
+ *
+ * The state saved shares the values that are never modified in place (files, numbers, strings...), while the lists,
+ * maps, matrices, graphs and geometries are deeply copied at each restoration, so that a replicate cannot alter the
+ * initial state of the next ones. The agents that died during a replicate are recreated, and the references to them
+ * are replaced in the copies by the new agents. A template is bound to a single simulation, and must therefore be used
+ * by only one thread at a time.
+ */
+public class SimulationTemplate {
+
+	private final String key;
+	private final IRichExperiment experiment;
+	private final SavedAgent initialState;
+	/*
+	 * The agents saved in the initial state, by population and name, and the index of the next agent to create in each
+	 * population
+	 */
+	private final Map<String, Map<String, IAgent>> initialAgents = new THashMap<>();
+	private final Map<String, Integer> initialIndices = new THashMap<>();
+
+	public SimulationTemplate(final String key, final IRichExperiment experiment) {
+		this.key = key;
+		this.experiment = experiment;
+		final SimulationAgent sim = experiment.getSimulation();
+		initialState = new SavedAgent(sim.getScope(), sim);
+		for (final IPopulation<? extends IAgent> pop : sim.getMicroPopulations()) {
+			final String name = pop.getSpecies().getName();
+			final Map<String, IAgent> agents = new THashMap<>();
+			for (final IAgent agent : pop.iterable(sim.getScope())) {
+				agents.put(agent.getName(), agent);
+			}
+			initialAgents.put(name, agents);
+			if (pop instanceof GamaPopulation) {
+				initialIndices.put(name, ((GamaPopulation<? extends IAgent>) pop).getCurrentAgentIndex());
+			}
+		}
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public IRichExperiment getExperiment() {
+		return experiment;
+	}
+
+	/**
+	 * Puts the simulation back in its initial state and reseeds it for a new replicate
+	 */
+	public void restore(final double seed) {
+		final SimulationAgent sim = experiment.getSimulation();
+		final IScope scope = sim.getScope();
+		final Restoration restoration = new Restoration(scope, recreateDeadAgents(scope, sim));
+		sim.updateWith(scope, restoration.copy(initialState));
+		for (final Map.Entry<String, Integer> entry : initialIndices.entrySet()) {
+			final IPopulation<? extends IAgent> pop = sim.getMicroPopulation(entry.getKey());
+			if (pop instanceof GamaPopulation) {
+				((GamaPopulation<? extends IAgent>) pop).setCurrentAgentIndex(entry.getValue());
+			}
+		}
+		sim.setSeed(seed);
+		experiment.resetStep();
+	}
+
+	public void dispose() {
+		experiment.dispose();
+	}
+
+	/**
+	 * Recreates (with their saved index) the agents of the initial state that are no longer in the simulation, before
+	 * its state is restored, so that the references to them can be replaced in the values restored. Returns the agents
+	 * of the initial state that are now represented by other agents.
+	 */
+	private Map<IAgent, IAgent> recreateDeadAgents(final IScope scope, final SimulationAgent sim) {
+		final Map<IAgent, IAgent> replaced = new IdentityHashMap<>();
+		final Map<String, List<SavedAgent>> innerPopulations = initialState.getInnerPopulations();
+		if (innerPopulations == null) { return replaced; }
+		for (final Map.Entry<String, List<SavedAgent>> entry : innerPopulations.entrySet()) {
+			final IPopulation<? extends IAgent> pop = sim.getMicroPopulation(entry.getKey());
+			final Map<String, IAgent> initial = initialAgents.get(entry.getKey());
+			if (pop == null || initial == null) {
+				continue;
+			}
+			final Map<String, IAgent> current = new THashMap<>();
+			for (final IAgent agent : pop.iterable(scope)) {
+				current.put(agent.getName(), agent);
+			}
+			for (final SavedAgent sa : entry.getValue()) {
+				final String name = (String) sa.getAttributeValue(IKeyword.NAME);
+				IAgent agent = current.get(name);
+				if (agent == null) {
+					// Its attributes are restored right after, together with the ones of the other agents
+					final Map<String, Object> values = new THashMap<>(sa.getVariables());
+					final Object shape = values.get(IKeyword.SHAPE);
+					if (shape instanceof IShape) {
+						values.put(IKeyword.SHAPE, ((IShape) shape).copy(scope));
+					}
+					agent = pop.createAgentAt(scope, sa.getIndex(), values, true, true);
+				}
+				final IAgent original = initial.get(name);
+				if (original != null && original != agent) {
+					replaced.put(original, agent);
+				}
+			}
+		}
+		return replaced;
+	}
+
+	/**
+	 * The deep copy of the initial state made for one restoration. Each mutable value is copied only once, so that the
+	 * values shared in the initial state (e.g. a graph referenced by several agents) remain shared in the copy.
+	 */
+	private static class Restoration {
+
+		final IScope scope;
+		final Map<IAgent, IAgent> replaced;
+		final Map<Object, Object> copies = new IdentityHashMap<>();
+
+		Restoration(final IScope scope, final Map<IAgent, IAgent> replaced) {
+			this.scope = scope;
+			this.replaced = replaced;
+		}
+
+		SavedAgent copy(final SavedAgent sa) {
+			final Map<String, Object> values = new THashMap<>();
+			for (final Map.Entry<String, Object> entry : sa.getVariables().entrySet()) {
+				values.put(entry.getKey(), copy(entry.getValue()));
+			}
+			final Map<String, List<SavedAgent>> innerPopulations = sa.getInnerPopulations();
+			if (innerPopulations == null) { return new SavedAgent(sa.getIndex(), values, null); }
+			final Map<String, List<SavedAgent>> copies = new THashMap<>();
+			for (final Map.Entry<String, List<SavedAgent>> entry : innerPopulations.entrySet()) {
+				final List<SavedAgent> agents = new ArrayList<>(entry.getValue().size());
+				for (final SavedAgent agent : entry.getValue()) {
+					agents.add(copy(agent));
+				}
+				copies.put(entry.getKey(), agents);
+			}
+			return new SavedAgent(sa.getIndex(), values, copies);
+		}
+
+		@SuppressWarnings ({ "unchecked", "rawtypes" })
+		Object copy(final Object value) {
+			if (value instanceof IAgent) {
+				final IAgent agent = replaced.get(value);
+				return agent == null ? value : agent;
+			}
+			if (!(value instanceof IShape || value instanceof IList || value instanceof GamaMap
+					|| value instanceof IMatrix || value instanceof GamaGraph || value instanceof GamaPair)) {
+				return value;
+			}
+			Object result = copies.get(value);
+			if (result != null) { return result; }
+			if (value instanceof GamaPair) {
+				final GamaPair pair = (GamaPair) value;
+				final Object k = copy(pair.key);
+				final Object v = copy(pair.value);
+				result = k == pair.key && v == pair.value ? pair
+						: new GamaPair(k, v, pair.getType().getKeyType(), pair.getType().getContentType());
+				copies.put(value, result);
+			} else if (value instanceof GamaGraph) {
+				// Not simply shared, as with_weights, with_optimizer_type, with_cache_capacity... modify it
+				result = ((GamaGraph) value).copy(scope, this::copy);
+				copies.put(value, result);
+			} else if (value instanceof IList) {
+				final IList list = (IList) ((IList) value).copy(scope);
+				copies.put(value, list);
+				for (int i = 0, n = list.size(); i < n; i++) {
+					list.set(i, copy(list.get(i)));
+				}
+				result = list;
+			} else if (value instanceof GamaMap) {
+				final GamaMap<Object, Object> original = (GamaMap) value;
+				final GamaMap<Object, Object> map = original.copy(scope);
+				copies.put(value, map);
+				map.clear();
+				for (final Map.Entry<Object, Object> entry : original.entrySet()) {
+					map.put(copy(entry.getKey()), copy(entry.getValue()));
+				}
+				result = map;
+			} else if (value instanceof IMatrix) {
+				final IMatrix matrix = ((IMatrix) value).copy(scope);
+				copies.put(value, matrix);
+				if (matrix instanceof GamaObjectMatrix) {
+					final Object[] contents = ((GamaObjectMatrix) matrix).getMatrix();
+					for (int i = 0; i < contents.length; i++) {
+						contents[i] = copy(contents[i]);
+					}
+				}
+				result = matrix;
+			} else {
+				final IShape shape = ((IShape) value).copy(scope);
+				copies.put(value, shape);
+				final Map<String, Object> attributes = shape.getAttributes();
+				if (attributes != null) {
+					for (final Map.Entry<String, Object> entry : attributes.entrySet()) {
+						entry.setValue(copy(entry.getValue()));
+					}
+				}
+				result = shape;
+			}
+			return result;
+		}
+	}
+
+}
@@ -31,6 +31,8 @@ import msi.gama.headless.common.Globals;
 import msi.gama.headless.core.IRichExperiment;
 import msi.gama.headless.core.RichExperiment;
 import msi.gama.headless.core.RichOutput;
+import msi.gama.headless.core.SimulationCheckpoint;
+import msi.gama.headless.core.SimulationTemplate;
 import msi.gama.headless.runtime.RuntimeContext;
 import msi.gama.headless.xml.Writer;
 import msi.gama.headless.xml.XmlTAG;
@@ -46,6 +48,7 @@ import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.IExpressionFactory;
 import msi.gaml.operators.Cast;
 import msi.gaml.types.Types;
+import ummisco.gama.serializer.binary.BinaryCodec;
 
 public class ExperimentJob implements IExperimentJob {
 
@@ -112,6 +115,12 @@ public class ExperimentJob implements IExperimentJob {
 	private String experimentName;
 	private String modelName;
 	private long seed;
+	/**
+	 * Replicates with the same key share the initial state of their simulation, built with the seed below
+	 */
+	private String sharedInitKey;
+	private long sharedInitSeed;
+	private boolean ownsSimulator = true;
 
 	/**
 	 * simulator to be loaded
@@ -175,6 +184,9 @@ public class ExperimentJob implements IExperimentJob {
 		this.listenedVariables = clone.listenedVariables;
 		this.step = clone.step;
 		this.seed = clone.seed;
+		this.untilCond = clone.untilCond;
+		this.sharedInitKey = clone.sharedInitKey;
+		this.sharedInitSeed = clone.sharedInitSeed;
 		for (final Parameter p : clone.parameters) {
 			this.addParameter(new Parameter(p));
 		}
@@ -208,7 +220,39 @@ public class ExperimentJob implements IExperimentJob {
 
 		this.load(rtx);
 		this.listenedVariables = new ListenedVariable[outputs.size()];
+		this.setParameters();
+		this.setup();
+		simulator.setup(experimentName, this.seed);
+		this.buildOutputs();
+	}
+
+	/**
+	 * Builds the simulation shared by the replicates of this job (see {@link #setSharedInit(String, long)}): the
+	 * model is loaded and initialized with the seed of the initial state
+	 */
+	public SimulationTemplate buildTemplate(final RuntimeContext rtx)
+			throws InstantiationException, IllegalAccessException, ClassNotFoundException, IOException {
+		this.load(rtx);
+		this.setParameters();
+		simulator.setup(experimentName, this.sharedInitSeed);
+		return new SimulationTemplate(sharedInitKey, simulator);
+	}
+
+	/**
+	 * Prepares this job to run on the simulation of the template, restored to its initial state and reseeded with the
+	 * seed of the job. The simulation is not disposed with the job.
+	 */
+	public void loadFromTemplate(final SimulationTemplate template) {
+		this.simulator = template.getExperiment();
+		this.modelName = simulator.getModel().getName();
+		this.ownsSimulator = false;
+		this.listenedVariables = new ListenedVariable[outputs.size()];
+		template.restore(this.seed);
+		this.setup();
+		this.buildOutputs();
+	}
 
+	private void setParameters() {
 		for (int i = 0; i < parameters.size(); i++) {
 			final Parameter temp = parameters.get(i);
 
@@ -218,8 +262,9 @@ public class ExperimentJob implements IExperimentJob {
 				this.simulator.setParameter(temp.getName(), temp.getValue());
 			}
 		}
-		this.setup();
-		simulator.setup(experimentName, this.seed);
+	}
+
+	private void buildOutputs() {
 		for (int i = 0; i < outputs.size(); i++) {
 			final Output temp = outputs.get(i);
 			this.listenedVariables[i] = new ListenedVariable(temp.getName(), temp.getFrameRate(),
@@ -268,7 +313,13 @@ public class ExperimentJob implements IExperimentJob {
 		final long affDelay = finalStep < 100 ? 1 : finalStep / 100;
 
 		try {
+			final SimulationCheckpoint checkpoint = getCheckpoint();
 			int step = 0;
+			if (checkpoint != null && Globals.RESUME && checkpoint.exists()) {
+				step = (int) checkpoint.restore(simulator);
+				this.step = step;
+				System.out.println("Resumed from the checkpoint written at step " + step);
+			}
 			// Added because the simulation may be null in case we deal with a batch experiment
 			IScope scope = GAMA.getRuntimeScope();
 			while (!Cast.asBool(scope, endCondition.value(scope)) && (finalStep >= 0 ? step < finalStep : true)) {
@@ -280,16 +331,31 @@ public class ExperimentJob implements IExperimentJob {
 				doStep();
 				scope = GAMA.getRuntimeScope();
 				step++;
+				if (checkpoint != null && Globals.CHECKPOINT_INTERVAL > 0 && step % Globals.CHECKPOINT_INTERVAL == 0) {
+					checkpoint.save(simulator, step);
+				}
 			}
+		} catch (final IOException e) {
+			System.out.println("\n The simulation has stopped because its checkpoint could not be read or written: ");
+			e.printStackTrace();
 		} catch (final GamaRuntimeException e) {
 			System.out.println("\n The simulation has stopped before the end due to the following exception: ");
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * The checkpoint of this job, in the directory of the checkpoints, or null if they are not used (the batch
+	 * experiments, which control their own simulations, have none)
+	 */
+	private SimulationCheckpoint getCheckpoint() {
+		if (Globals.CHECKPOINT_PATH == null || simulator.getExperimentPlan().isBatch()) { return null; }
+		return new SimulationCheckpoint(new File(Globals.CHECKPOINT_PATH, experimentID + BinaryCodec.EXTENSION));
+	}
+
 	@Override
 	public void dispose() {
-		if (this.simulator != null)
+		if (this.simulator != null && ownsSimulator)
 			this.simulator.dispose();
 		if (this.outputFile != null) {
 			this.outputFile.close();
@@ -371,6 +437,32 @@ public class ExperimentJob implements IExperimentJob {
 		return new Display2D(name + this.getExperimentID() + "-" + step + ".png");
 	}
 
+	/**
+	 * Returns the seed of a replicate, computed from the seed of the simulation and the index of the replicate only, so
+	 * that a batch gives the same results whatever the number of workers and the order in which the replicates are
+	 * run. The result is never 0 (which stands for a random seed) and is exactly representable as a double.
+	 */
+	public static long replicateSeed(final long seed, final int replicate) {
+		long z = seed + (replicate + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+		z = (z ^ z >>> 31) & (1L << 53) - 1;
+		return z == 0 ? 1 : z;
+	}
+
+	/**
+	 * Makes this job start from the initial state shared by all the jobs with the same key, instead of running the init
+	 * of the model. The initial state is built with the given seed, the job then continuing with its own seed.
+	 */
+	public void setSharedInit(final String key, final long initSeed) {
+		this.sharedInitKey = key;
+		this.sharedInitSeed = initSeed;
+	}
+
+	public String getSharedInitKey() {
+		return sharedInitKey;
+	}
+
 	@Override
 	public void setSeed(final long s) {
 		this.seed = s;
@@ -57,6 +57,8 @@ public class Application implements IApplication {
 	final public static String CHECK_MODEL_PARAMETER = "-check";
 	final public static String VALIDATE_LIBRARY_PARAMETER = "-validate";
 	final public static String TEST_LIBRARY_PARAMETER = "-test";
+	final public static String CHECKPOINT_PARAMETER = "-checkpoint";
+	final public static String RESUME_PARAMETER = "-resume";
 
 	public static boolean headLessSimulation = false;
 	public int numberOfThread = -1;
@@ -75,8 +77,10 @@ public class Application implements IApplication {
 						+ "\n      -m mem    					-- allocate memory (ex 2048m)"
 						+ "\n      -c        					-- start the console to write xml parameter file"
 						+ "\n      -v 							-- verbose mode"
-						+ "\n      -hpc core 					-- set the number of core available for experimentation"
+						+ "\n      -hpc core 					-- set the number of core available for experimentation (simulations run concurrently, one per core)"
 						+ "\n      -p        					-- start pipeline to interact with another framework"
+						+ "\n      -checkpoint cycles			-- write the state of each simulation every 'cycles' cycles in [output directory]/checkpoints"
+						+ "\n      -resume   					-- resume each simulation from its checkpoint, if any, in [output directory]/checkpoints"
 						+ "\n" + "\n" + " sh ./gama-headless.sh -xml experimentName gamlFile xmlOutputFile\n"
 						+ "\n      build an xml parameter file from a model" + "\n" + "\n";
 		return res;
@@ -109,6 +113,12 @@ public class Application implements IApplication {
 		if (args.contains(VERBOSE_PARAMETER)) {
 			size = size - 1;
 		}
+		if (args.contains(CHECKPOINT_PARAMETER)) {
+			size = size - 2;
+		}
+		if (args.contains(RESUME_PARAMETER)) {
+			size = size - 1;
+		}
 		if (mustContainInFile && mustContainOutFile && size < 2) {
 			showError(HeadLessErrors.INPUT_NOT_DEFINED, null);
 			return false;
@@ -128,6 +138,8 @@ public class Application implements IApplication {
 			final File images = new File(Globals.IMAGES_PATH);
 			if (!images.exists())
 				images.mkdir();
+			if (args.contains(CHECKPOINT_PARAMETER) || args.contains(RESUME_PARAMETER))
+				Globals.CHECKPOINT_PATH = Globals.OUTPUT_PATH + "/checkpoints";
 		}
 
 		if (mustContainInFile) {
@@ -253,6 +265,7 @@ public class Application implements IApplication {
 				e.printStackTrace();
 			}
 		}
+		processorQueue.shutdown();
 	}
 
 	public void runSimulation(final List<String> args) throws FileNotFoundException, InterruptedException {
@@ -271,6 +284,9 @@ public class Application implements IApplication {
 			this.numberOfThread = Integer.valueOf(after(args, THREAD_PARAMETER));
 		else
 			numberOfThread = SimulationRuntime.UNDEFINED_QUEUE_SIZE;
+		if (args.contains(CHECKPOINT_PARAMETER))
+			Globals.CHECKPOINT_INTERVAL = Integer.valueOf(after(args, CHECKPOINT_PARAMETER));
+		Globals.RESUME = args.contains(RESUME_PARAMETER);
 		processorQueue = new LocalSimulationRuntime(this.numberOfThread);
 
 		Reader in = null;
@@ -289,6 +305,7 @@ public class Application implements IApplication {
 		while (processorQueue.isPerformingSimulation()) {
 			Thread.sleep(1000);
 		}
+		processorQueue.shutdown();
 
 		System.exit(0);
 	}
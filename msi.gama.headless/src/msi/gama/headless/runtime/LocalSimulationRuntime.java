@@ -4,14 +4,19 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import msi.gama.headless.common.Globals;
 import msi.gama.headless.core.HeadlessSimulationLoader;
+import msi.gama.headless.core.SimulationTemplate;
 import msi.gama.headless.job.ExperimentJob;
 import msi.gama.kernel.experiment.ExperimentPlan;
 import msi.gama.kernel.experiment.IExperimentPlan;
@@ -19,13 +24,27 @@ import msi.gama.kernel.model.IModel;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.HeadlessListener;
 import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.ModelDescription;
 
+/**
+ * Runs the jobs pushed on a fixed pool of workers (as many as the number of cores allocated), the other jobs waiting in
+ * the queue of the pool. Each model is parsed and validated only once, whatever the number of jobs that use it: the
+ * jobs then compile their own instance of the model from this shared description.
+ *
+ * The description, and the expressions it holds, are therefore used by several jobs at the same time. This is safe as
+ * they are only read once validated: the instances are compiled one at a time (see
+ * HeadlessSimulationLoader#instantiateModel), the statements, species and experiments compiled for a job hold the
+ * state of its run, and the expressions keep no state of their own (the values of the common sub-expressions are kept
+ * by each thread, see CommonSubExpressions). The workers are released by {@link #shutdown()}.
+ */
 public class LocalSimulationRuntime extends Observable implements SimulationRuntime, RuntimeContext {
 	private final Map<String, ExperimentJob> simulations;
-	private final ArrayList<FakeApplication> queue;
-	private final ArrayList<FakeApplication> started;
-	private final HashMap<String, ArrayList<IModel>> loadedModels;
-	private final HashMap<String, ArrayList<IModel>> availableLoadedModels;
+	private final Set<String> queue;
+	private final Set<String> started;
+	private final Map<String, ModelDescription> loadedModels;
+	/** The simulations kept by each worker for the replicates sharing their initial state */
+	private final Map<Thread, SimulationTemplate> templates;
+	private final ExecutorService workers;
 	private final int allocatedProcessor;
 	private boolean isTraceKept;
 
@@ -35,11 +54,17 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 
 	public LocalSimulationRuntime(final int numberOfCoresAsked) {
 		simulations = new HashMap<String, ExperimentJob>();
-		queue = new ArrayList<FakeApplication>();
-		started = new ArrayList<FakeApplication>();
-		loadedModels = new HashMap<String, ArrayList<IModel>>();
-		availableLoadedModels = new HashMap<String, ArrayList<IModel>>();
+		queue = new LinkedHashSet<String>();
+		started = new LinkedHashSet<String>();
+		loadedModels = new HashMap<String, ModelDescription>();
+		templates = new HashMap<Thread, SimulationTemplate>();
 		this.allocatedProcessor = getAvailableCores(numberOfCoresAsked);
+		final AtomicInteger workerId = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(allocatedProcessor, r -> {
+			final Thread t = new Thread(r, "GAMA headless worker " + workerId.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
 	}
 
 	private static int getAvailableCores(final int asked) {
@@ -64,100 +89,112 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 	}
 
 	@Override
-	public void pushSimulation(final ExperimentJob s) {
+	public synchronized void pushSimulation(final ExperimentJob s) {
 		simulations.put(s.getExperimentID(), s);
-		final FakeApplication f = new FakeApplication(s, this);
-		if (started.size() < allocatedProcessor)
-			this.startSimulation(f);
-		else
-			queue.add(f);
+		queue.add(s.getExperimentID());
+		workers.execute(new FakeApplication(s, this));
 	}
 
-	private void startSimulation(final FakeApplication s) {
-		started.add(s);
-		s.start();
+	synchronized void startSimulation(final FakeApplication s) {
+		final String id = s.getExperimentJob().getExperimentID();
+		queue.remove(id);
+		started.add(id);
 		this.notifyListener();
 	}
 
-	public void closeSimulation(final FakeApplication s) {
-		started.remove(s);
-		if (queue.size() > 0) {
-			final FakeApplication p = queue.get(0);
-			queue.remove(p);
-			this.startSimulation(p);
-		}
+	public synchronized void closeSimulation(final FakeApplication s) {
+		final String id = s.getExperimentJob().getExperimentID();
+		started.remove(id);
 		if (!this.isTraceKept)
-			simulations.remove(s.getExperimentJob().getExperimentID());
+			simulations.remove(id);
+		if (!isPerformingSimulation()) {
+			// No worker is running: the simulations kept for the replicates can be released
+			for (final SimulationTemplate t : templates.values()) {
+				t.dispose();
+			}
+			templates.clear();
+		}
 		this.notifyListener();
 	}
 
+	/**
+	 * Returns the simulation kept by the current worker for the replicates of this job, building it if the worker
+	 * does not have one yet (or has one for other replicates, in which case it is released)
+	 */
+	SimulationTemplate getTemplate(final ExperimentJob job)
+			throws InstantiationException, IllegalAccessException, ClassNotFoundException, IOException {
+		final Thread worker = Thread.currentThread();
+		SimulationTemplate t;
+		synchronized (this) {
+			t = templates.get(worker);
+		}
+		if (t != null && t.getKey().equals(job.getSharedInitKey())) { return t; }
+		if (t != null) {
+			t.dispose();
+		}
+		t = job.buildTemplate(this);
+		synchronized (this) {
+			templates.put(worker, t);
+		}
+		return t;
+	}
+
+	synchronized void releaseTemplate() {
+		final SimulationTemplate t = templates.remove(Thread.currentThread());
+		if (t != null) {
+			t.dispose();
+		}
+	}
+
+	/**
+	 * Stops the workers once the jobs already pushed are finished
+	 */
+	@Override
+	public void shutdown() {
+		workers.shutdown();
+	}
+
 	private void notifyListener() {
 		this.setChanged();
 		this.notifyObservers();
 	}
 
 	@Override
-	public SimulationState getSimulationState(final String id) {
+	public synchronized SimulationState getSimulationState(final String id) {
 		final ExperimentJob tmp = simulations.get(id);
 		if (tmp == null)
 			return SimulationState.UNDEFINED;
-		if (started.contains(tmp))
+		if (started.contains(id))
 			return SimulationState.STARTED;
-		if (queue.contains(tmp))
+		if (queue.contains(id))
 			return SimulationState.ENQUEUED;
 		return SimulationState.ACHIEVED;
 	}
 
 	@Override
-	public boolean isPerformingSimulation() {
+	public synchronized boolean isPerformingSimulation() {
 		return started.size() > 0 || queue.size() > 0;
 	}
 
-	public synchronized void releaseModel(final String key, final IModel mdl) {
-		// System.out.println("release simulation");
-		// String key = mdl.getFilePath();
-		// availableLoadedModels.get(key).add(mdl);
-		// System.out.println("remove " + mdl.getFilePath());
-		// lockUnLock(null,key, mdl);
-		// System.out.println("model released ") ;
-	}
-
-	private synchronized IModel lockUnLock(final File fl, final String key, final IModel mdl) throws IOException {
-		IModel mm = null;
-		if (mdl != null) {
-			availableLoadedModels.get(key).add(mdl);
-			mm = mdl;
-		}
-		if (fl != null) {
-			mm = lockModel(fl);
-		}
-		return mm;
-	}
-
-	public synchronized IModel lockModel(final File fl) throws IOException {
-		IModel mdl;
+	/**
+	 * Returns the description of the model, parsing and validating it only the first time it is asked for
+	 */
+	public ModelDescription loadModelDescription(final File fl) throws IOException {
 		final String key = fl.getAbsolutePath();
-		ArrayList<IModel> arr = availableLoadedModels.get(fl.getAbsolutePath());
-		System.out.println(fl.getAbsolutePath());
-		if (arr == null) {
-			arr = new ArrayList<IModel>();
-			availableLoadedModels.put(key, arr);
-			loadedModels.put(key, new ArrayList<IModel>());
-		}
-		if (arr.size() == 0) {
-			mdl = HeadlessSimulationLoader.loadModel(fl);
-			loadedModels.get(key).add(mdl);
-		} else {
-			mdl = arr.get(0);
-			arr.remove(0);
+		synchronized (loadedModels) {
+			ModelDescription mdl = loadedModels.get(key);
+			if (mdl == null) {
+				mdl = HeadlessSimulationLoader.loadModelDescription(fl);
+				loadedModels.put(key, mdl);
+			}
+			return mdl;
 		}
-		return mdl;
 	}
 
 	@Override
-	public synchronized IModel loadModel(final File fl) throws IOException {
-		// return lockUnLock( fl,null, null) ; //lockModel(fl); //
-		return HeadlessSimulationLoader.loadModel(fl); // lockModel(fl); //mdl.c;
+	public IModel loadModel(final File fl) throws IOException {
+		// Each job gets its own instance of the model, as the experiments hold the state of the runs
+		return HeadlessSimulationLoader.instantiateModel(loadModelDescription(fl));
 	}
 
 	@Override
@@ -168,7 +205,7 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 		return expp;
 	}
 
-	class FakeApplication extends Thread {// implements Runnable {
+	class FakeApplication implements Runnable {
 
 		private ExperimentJob si = null;
 		private LocalSimulationRuntime runtime = null;
@@ -184,6 +221,15 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 
 		@Override
 		public void run() {
+			runtime.startSimulation(this);
+			try {
+				runJob();
+			} finally {
+				runtime.closeSimulation(this);
+			}
+		}
+
+		private void runJob() {
 			try {
 				final BufferedWriter file = new BufferedWriter(new FileWriter(Globals.OUTPUT_PATH + "/"
 						+ Globals.CONSOLE_OUTPUT_FILENAME + "-" + si.getExperimentID() + ".txt"));
@@ -192,8 +238,17 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 				e1.printStackTrace();
 			}
 			try {
-				si.loadAndBuild(this.runtime);
-
+				if (si.getSharedInitKey() == null) {
+					si.loadAndBuild(this.runtime);
+					si.playAndDispose();
+				} else {
+					si.loadFromTemplate(runtime.getTemplate(si));
+					si.playAndDispose();
+					// A simulation that has died cannot be restored
+					if (si.getSimulation().isInterrupted()) {
+						runtime.releaseTemplate();
+					}
+				}
 			} catch (final InstantiationException e) {
 				e.printStackTrace();
 			} catch (final IllegalAccessException e) {
@@ -202,18 +257,28 @@ public class LocalSimulationRuntime extends Observable implements SimulationRunt
 				e.printStackTrace();
 			} catch (final IOException e) {
 				e.printStackTrace();
+			} catch (final RuntimeException e) {
+				// A failing job should not prevent the worker from running the next ones
+				e.printStackTrace();
+				if (si.getSharedInitKey() != null) {
+					runtime.releaseTemplate();
+				}
+			} finally {
+				final BufferedWriter console = ((HeadlessListener) GAMA.getHeadlessGui()).leaveJob();
+				if (console != null) {
+					try {
+						console.close();
+					} catch (final IOException e) {
+						e.printStackTrace();
+					}
+				}
 			}
-			si.playAndDispose();
-			((HeadlessListener) GAMA.getHeadlessGui()).leaveJob();
-			runtime.closeSimulation(this);
-			runtime.releaseModel(si.getSourcePath(), si.getSimulation().getModel());
-
 		}
 
 	}
 
 	@Override
-	public HashMap<String, Double> getSimulationState() {
+	public synchronized HashMap<String, Double> getSimulationState() {
 
 		final HashMap<String, Double> res = new HashMap<String, Double>();
 		for (final ExperimentJob exp : simulations.values()) {
@@ -20,4 +20,9 @@ public interface SimulationRuntime {
 
 	public boolean isPerformingSimulation();
 
+	/**
+	 * Releases the threads of the runtime once the simulations already pushed are finished
+	 */
+	public void shutdown();
+
 }
@@ -202,7 +202,28 @@ public class Reader {
 					// get the employee element
 					final Node el = nl.get(j);
 					// add it to list
-					res.add(readSimulation(el));
+					final ExperimentJob job = readSimulation(el);
+					final int nb = readReplicates(el, job);
+					if (nb < 0) {
+						continue;
+					}
+					if (nb <= 1) {
+						res.add(job);
+					} else {
+						// Each replicate gets its own identifier and a seed derived from the one of the simulation
+						final boolean sharedInit = Boolean.valueOf(getAttributeWithoutCase(el, XmlTAG.SHARED_INIT_TAG));
+						for (int r = 0; r < nb; r++) {
+							final ExperimentJob replicate = new ExperimentJob(job);
+							replicate.setExperimentID(job.getExperimentID() + "-" + r);
+							replicate.setSeed(ExperimentJob.replicateSeed(job.getSeed(), r));
+							if (sharedInit) {
+								// The initial state is built with the same seed by all the workers
+								replicate.setSharedInit(fileName + "#" + i + "-" + j,
+										ExperimentJob.replicateSeed(job.getSeed(), -1));
+							}
+							res.add(replicate);
+						}
+					}
 				}
 			}
 
@@ -210,6 +231,27 @@ public class Reader {
 		return res;
 	}
 
+	/**
+	 * The number of replicates asked for the simulation, 1 if none is given, or -1 (after having reported it) if the
+	 * value given is not a number or is negative
+	 */
+	private int readReplicates(final Node el, final ExperimentJob job) {
+		final String replicates = getAttributeWithoutCase(el, XmlTAG.REPLICATES_TAG);
+		if (replicates == null || replicates.trim().length() == 0) { return 1; }
+		int result;
+		try {
+			result = Integer.parseInt(replicates.trim());
+		} catch (final NumberFormatException e) {
+			result = -1;
+		}
+		if (result < 0) {
+			System.out.println("ERROR: the simulation " + job.getExperimentID() + " is not run, as its "
+					+ XmlTAG.REPLICATES_TAG + " attribute (\"" + replicates + "\") is not a non-negative integer");
+			return -1;
+		}
+		return result;
+	}
+
 	public void parseXmlFile() {
 		final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
 		try {
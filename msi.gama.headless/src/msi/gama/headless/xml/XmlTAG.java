@@ -9,6 +9,8 @@ public interface XmlTAG {
 	public final static String FINAL_STEP_TAG = "finalStep";
 	public final static String EXPERIMENT_NAME_TAG = "experiment";
 	public final static String SEED_TAG = "seed";
+	public final static String REPLICATES_TAG = "replicates";
+	public final static String SHARED_INIT_TAG = "shared_init";
 	
 	public final static String OUTPUT_TAG = "Output";
 	public final static String PARAMETER_TAG = "Parameter";
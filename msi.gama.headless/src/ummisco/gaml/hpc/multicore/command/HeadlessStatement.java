@@ -91,4 +91,11 @@ public class HeadlessStatement extends AbstractStatement {
 		return null;
 	}
 
+	@Override
+	public void dispose() {
+		// The simulations already launched are run to their end
+		processorQueue.shutdown();
+		super.dispose();
+	}
+
 }
@@ -71,7 +71,11 @@ public class GamlModelBuilder {
 		return compile(URI.createFileURI(path.toString()), errors);
 	}
 
-	private static ModelDescription buildModelDescription(final URI uri, final List<GamlCompilationError> errors) {
+	/**
+	 * Parses and validates the model, without compiling it. The description returned can be compiled several times
+	 * (see {@link ModelDescription#compile()}) to obtain independent instances of the model.
+	 */
+	public static ModelDescription buildModelDescription(final URI uri, final List<GamlCompilationError> errors) {
 		try {
 			final GamlResource r = (GamlResource) buildResourceSet.getResource(uri, true);
 			// Syntactic errors detected, we cannot build the resource
@@ -27,6 +27,8 @@ public class MentalState implements IValue {
 	MentalState mental;
 	Emotion emo;
 	IAgent owner;
+	/** The bases in which it has been indexed (see MentalStateBase) */
+	transient volatile MentalStateBase.Bases bases;
 	
 	@getter("modality")
 	public String getModality(){
@@ -68,15 +70,19 @@ public class MentalState implements IValue {
 	}
 	
 	public void setPredicate(Predicate pred){
+		final Predicate old = this.predicate;
 		this.predicate=pred;
+		MentalStateBase.predicateChanged(this, old);
 	}
 	
 	public void setMentalState(MentalState ment){
 		this.mental=ment;
+		MentalStateBase.mentalStateModified(this);
 	}
 	
 	public void setEmotion(Emotion em){
 		this.emo=em;
+		MentalStateBase.mentalStateModified(this);
 	}
 	
 	public void setStrength(Double stre){
@@ -89,6 +95,7 @@ public class MentalState implements IValue {
 	
 	public void setOwner(IAgent ag){
 		this.owner=ag;
+		MentalStateBase.mentalStateModified(this);
 	}
 	
 	public void updateLifetime(){
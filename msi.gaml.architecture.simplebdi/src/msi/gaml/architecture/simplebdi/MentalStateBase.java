@@ -0,0 +1,508 @@
+/*********************************************************************************************
+ *
+ * 'MentalStateBase.java, in plugin msi.gaml.architecture.simplebdi, is part of the source code of the GAMA modeling
+ * and simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package msi.gaml.architecture.simplebdi;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import msi.gama.runtime.IScope;
+import msi.gama.util.GamaList;
+import msi.gaml.types.IType;
+
+/**
+ * Class MentalStateBase. A base of mental states (belief_base, desire_base...) that remains the list seen by the models,
+ * but also keeps its mental states grouped by the name of their predicate (the mental states about a mental state or
+ * an emotion are grouped together), in the order of the list. As two mental states can only be equal if their
+ * predicates have the same name, testing whether a mental state is in the base, removing it or looking for the ones
+ * with a given name only compares it with the mental states of its group.
+ *
+ * The groups are updated when mental states are added at the end of the list or removed from it, and built again
+ * after any other modification of the list, or if one of its mental states has changed of group (its predicate has
+ * been renamed or replaced by one with another name, see {@link MentalState#setPredicate(Predicate)}). The mental
+ * states and predicates know the bases in which they have been indexed, and tell them when they are modified, so that
+ * each base keeps a version of its content. This version and the number of changes of each group allow the rules to
+ * tell whether the mental states they depend on have changed (see RuleStatement).
+ *
+ * Reading the base (contains, indexOf...) can build the index, which is done once even when several threads read it.
+ */
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public class MentalStateBase extends GamaList<MentalState> {
+
+	/**
+	 * Incremented after a mental state of the base, or its predicate, has been modified, and each time the index is
+	 * built
+	 */
+	private transient AtomicInteger version = new AtomicInteger();
+	/** Incremented after a mental state of the base has changed of group */
+	private transient AtomicInteger regroupings = new AtomicInteger();
+	private transient volatile Index index;
+	/** Whether views of the list have been returned, through which it can be modified without notice */
+	private transient volatile boolean viewed;
+
+	/**
+	 * Returns the base of the agent, replacing the list of the agent by a base if needed
+	 */
+	static GamaList<MentalState> of(final IScope scope, final String basename) {
+		final Object list = scope.getAgent().getAttribute(basename);
+		if (list == null || list instanceof MentalStateBase) { return (GamaList<MentalState>) list; }
+		final GamaList<MentalState> original = (GamaList<MentalState>) list;
+		final MentalStateBase result = new MentalStateBase(original.getType().getContentType(), original);
+		scope.getAgent().setAttribute(basename, result);
+		return result;
+	}
+
+	/**
+	 * The mental states of the base whose predicate has the given name, in the order of the base
+	 */
+	static List<MentalState> withName(final List<MentalState> base, final String name) {
+		if (base instanceof MentalStateBase) { return ((MentalStateBase) base).withName(name); }
+		final List<MentalState> result = new ArrayList<>();
+		for (final MentalState mental : base) {
+			if (mental != null && mental.getPredicate() != null && equal(name, mental.getPredicate().getName())) {
+				result.add(mental);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The mental states of the base whose predicate has the same name as the given one
+	 */
+	static List<MentalState> withNameOf(final List<MentalState> base, final Predicate predicate) {
+		return predicate == null ? Collections.EMPTY_LIST : withName(base, predicate.getName());
+	}
+
+	/**
+	 * Called after a predicate has been modified
+	 */
+	static void predicateModified(final Predicate predicate) {
+		final Bases bases = predicate.bases;
+		if (bases != null) {
+			bases.modified(false);
+		}
+	}
+
+	/**
+	 * Called after a predicate has been renamed
+	 */
+	static void predicateRenamed(final Predicate predicate, final String old) {
+		final Bases bases = predicate.bases;
+		if (bases != null) {
+			bases.modified(!equal(old, predicate.getName()));
+		}
+	}
+
+	/**
+	 * Called after the mental state or emotion of a mental state, or its owner, has been replaced
+	 */
+	static void mentalStateModified(final MentalState mental) {
+		final Bases bases = mental.bases;
+		if (bases != null) {
+			bases.modified(false);
+		}
+	}
+
+	/**
+	 * Called after the predicate of the mental state has been replaced
+	 */
+	static void predicateChanged(final MentalState mental, final Predicate old) {
+		final Bases bases = mental.bases;
+		if (bases == null) { return; }
+		final Predicate predicate = mental.getPredicate();
+		if (predicate != null) {
+			bases.addTo(predicate);
+		}
+		bases.modified(old == null || predicate == null ? old != predicate : !equal(old.getName(), predicate.getName()));
+	}
+
+	/**
+	 * Records that the mental state has been indexed in the base
+	 */
+	static void indexed(final MentalState mental, final MentalStateBase base) {
+		Bases bases = mental.bases;
+		if (bases == null) {
+			synchronized (mental) {
+				if (mental.bases == null) {
+					mental.bases = new Bases();
+				}
+				bases = mental.bases;
+			}
+		}
+		bases.add(base);
+	}
+
+	/**
+	 * Records that the predicate has been indexed in the base
+	 */
+	static void indexed(final Predicate predicate, final MentalStateBase base) {
+		Bases bases = predicate.bases;
+		if (bases == null) {
+			synchronized (predicate) {
+				if (predicate.bases == null) {
+					predicate.bases = new Bases();
+				}
+				bases = predicate.bases;
+			}
+		}
+		bases.add(base);
+	}
+
+	MentalStateBase(final IType contentType, final Collection<MentalState> states) {
+		super(states.size(), contentType);
+		super.addAll(states);
+	}
+
+	List<MentalState> withName(final String name) {
+		final Index idx = index();
+		if (idx == null) { return withName(new ArrayList<>(this), name); }
+		final List<MentalState> group = idx.byName.get(name);
+		return group == null ? Collections.EMPTY_LIST : new ArrayList<>(group);
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		// Only looks in the group: the position of the mental state in the list is not needed
+		final Index idx = o instanceof MentalState ? index() : null;
+		if (idx == null) { return super.contains(o); }
+		return idx.find((MentalState) o) != null;
+	}
+
+	@Override
+	public int indexOf(final Object o) {
+		final Index idx = o instanceof MentalState ? index() : null;
+		if (idx == null) { return super.indexOf(o); }
+		final MentalState found = idx.find((MentalState) o);
+		return found == null ? -1 : indexOfSame(found);
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		final Index idx = o instanceof MentalState ? index() : null;
+		if (idx == null) { return super.remove(o); }
+		final MentalState found = idx.find((MentalState) o);
+		if (found == null) { return false; }
+		remove(indexOfSame(found));
+		return true;
+	}
+
+	@Override
+	public MentalState remove(final int i) {
+		final Index idx = current();
+		final MentalState result = super.remove(i);
+		if (idx != null) {
+			idx.remove(result);
+			idx.modCount = modCount;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean add(final MentalState mental) {
+		final Index idx = current();
+		final boolean result = super.add(mental);
+		if (idx != null) {
+			idx.add(mental);
+			idx.modCount = modCount;
+		}
+		return result;
+	}
+
+	@Override
+	public void addValue(final IScope scope, final MentalState object) {
+		add(buildValue(scope, object));
+	}
+
+	@Override
+	public MentalState set(final int i, final MentalState mental) {
+		index = null;
+		return super.set(i, mental);
+	}
+
+	@Override
+	public void setValueAtIndex(final IScope scope, final Object i, final MentalState value) {
+		index = null;
+		super.setValueAtIndex(scope, i, value);
+	}
+
+	@Override
+	public void setAllValues(final IScope scope, final MentalState value) {
+		index = null;
+		super.setAllValues(scope, value);
+	}
+
+	@Override
+	public List<MentalState> subList(final int from, final int to) {
+		viewed = true;
+		index = null;
+		return super.subList(from, to);
+	}
+
+	@Override
+	public Object clone() {
+		final MentalStateBase result = (MentalStateBase) super.clone();
+		result.unshare();
+		return result;
+	}
+
+	@Override
+	public GamaList cloneWithContentType(final IType contentType) {
+		final MentalStateBase result = (MentalStateBase) super.cloneWithContentType(contentType);
+		result.unshare();
+		return result;
+	}
+
+	/**
+	 * Gives a clone its own index and versions
+	 */
+	private void unshare() {
+		version = new AtomicInteger();
+		regroupings = new AtomicInteger();
+		index = null;
+	}
+
+	/**
+	 * A value that changes each time a mental state whose predicate has the same name as the given one is added to or
+	 * removed from the base, or a mental state of the base is modified (or when the changes of the base cannot be
+	 * followed), or -1 if the base is not indexed
+	 */
+	long getStamp(final Predicate predicate) {
+		final Index idx = index();
+		if (idx == null) { return -1; }
+		return (long) version.get() << 32 | idx.changes(predicate) & 0xffffffffL;
+	}
+
+	/**
+	 * A hash of the values and truth of the predicates of the mental states whose predicate has the same name as the
+	 * given one. It is computed when called, so that it follows the changes made in place to their values, which do
+	 * not change the stamps. Returns 0 if the base is not indexed
+	 */
+	int getContentHash(final Predicate predicate) {
+		final Index idx = index();
+		if (idx == null) { return 0; }
+		final List<MentalState> group = predicate == null ? idx.others : idx.byName.get(predicate.getName());
+		int result = 1;
+		if (group != null) {
+			for (final MentalState mental : group) {
+				result = 31 * result + contentHash(mental);
+			}
+		}
+		return result;
+	}
+
+	private static int contentHash(final MentalState mental) {
+		if (mental.getPredicate() != null) { return mental.getPredicate().contentHash(); }
+		return mental.getMentalState() == null ? 0 : 31 + contentHash(mental.getMentalState());
+	}
+
+	/**
+	 * Called after one of its mental states, or their predicates, has been modified
+	 */
+	void modified(final boolean regrouped) {
+		if (regrouped) {
+			regroupings.incrementAndGet();
+		}
+		version.incrementAndGet();
+	}
+
+	/**
+	 * The index of the mental state itself (not of a mental state equal to it) in the list
+	 */
+	private int indexOfSame(final MentalState mental) {
+		for (int i = 0, n = size(); i < n; i++) {
+			if (get(i) == mental) { return i; }
+		}
+		return -1;
+	}
+
+	/**
+	 * The index, if it is up to date, or null
+	 */
+	private Index current() {
+		final Index idx = index;
+		return idx != null && idx.modCount == modCount && idx.regroupings == regroupings.get() ? idx : null;
+	}
+
+	/**
+	 * The index, built again if needed, or null if the list cannot be indexed
+	 */
+	private Index index() {
+		if (viewed) { return null; }
+		final Index idx = current();
+		return idx == null ? build() : idx;
+	}
+
+	/**
+	 * Builds the index, unless another thread reading the base has just done it
+	 */
+	private synchronized Index build() {
+		Index idx = current();
+		if (idx == null) {
+			idx = new Index(this, regroupings.get(), modCount);
+			for (final MentalState mental : this) {
+				idx.add(mental);
+			}
+			// The changes of the groups are counted from 0 again
+			version.incrementAndGet();
+			index = idx;
+		}
+		return idx;
+	}
+
+	static boolean equal(final String n1, final String n2) {
+		return n1 == null ? n2 == null : n1.equals(n2);
+	}
+
+	/**
+	 * Class Index. The mental states of the base grouped by the name of their predicate
+	 */
+	private static class Index {
+		final MentalStateBase base;
+		final int regroupings;
+		int modCount;
+		final Map<String, List<MentalState>> byName = new HashMap<>();
+		/** The mental states without predicate */
+		final List<MentalState> others = new ArrayList<>();
+		/** The number of mental states added to or removed from each group since the index was built */
+		final Map<String, int[]> changes = new HashMap<>();
+		int othersChanges;
+
+		Index(final MentalStateBase base, final int regroupings, final int modCount) {
+			this.base = base;
+			this.regroupings = regroupings;
+			this.modCount = modCount;
+		}
+
+		List<MentalState> groupOf(final MentalState mental, final boolean create) {
+			final Predicate predicate = mental.getPredicate();
+			if (predicate == null) { return others; }
+			List<MentalState> group = byName.get(predicate.getName());
+			if (group == null && create) {
+				group = new ArrayList<>();
+				byName.put(predicate.getName(), group);
+			}
+			return group;
+		}
+
+		void add(final MentalState mental) {
+			if (mental == null) { return; }
+			indexed(mental, base);
+			if (mental.getPredicate() != null) {
+				indexed(mental.getPredicate(), base);
+			}
+			groupOf(mental, true).add(mental);
+			changed(mental.getPredicate());
+		}
+
+		void changed(final Predicate predicate) {
+			if (predicate == null) {
+				othersChanges++;
+				return;
+			}
+			final int[] count = changes.get(predicate.getName());
+			if (count == null) {
+				changes.put(predicate.getName(), new int[] { 1 });
+			} else {
+				count[0]++;
+			}
+		}
+
+		int changes(final Predicate predicate) {
+			if (predicate == null) { return othersChanges; }
+			final int[] count = changes.get(predicate.getName());
+			return count == null ? 0 : count[0];
+		}
+
+		void remove(final MentalState mental) {
+			if (mental == null) { return; }
+			final List<MentalState> group = groupOf(mental, false);
+			if (group == null) { return; }
+			for (int i = 0; i < group.size(); i++) {
+				if (group.get(i) == mental) {
+					group.remove(i);
+					break;
+				}
+			}
+			if (group.isEmpty() && group != others) {
+				byName.remove(mental.getPredicate().getName());
+			}
+			changed(mental.getPredicate());
+		}
+
+		/**
+		 * The first mental state of the base equal to the given one (in the sense of the list), or null
+		 */
+		MentalState find(final MentalState mental) {
+			final List<MentalState> group = groupOf(mental, false);
+			if (group == null) { return null; }
+			for (final MentalState m : group) {
+				if (mental.equals(m)) { return m; }
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Class Bases. The bases in which a mental state or a predicate has been indexed, which are told when it is
+	 * modified. They are only weakly referenced, and are not forgotten when the mental state is removed from them (they
+	 * are then told for nothing)
+	 */
+	static class Bases {
+		private final List<WeakReference<MentalStateBase>> refs = new ArrayList<>(1);
+		/** The number of references above which the collected and repeated bases are forgotten */
+		private int limit = 8;
+
+		synchronized void add(final MentalStateBase base) {
+			final int n = refs.size();
+			// The same base is usually indexed several times in a row
+			if (n > 0 && refs.get(n - 1).get() == base) { return; }
+			refs.add(new WeakReference<>(base));
+			if (n < limit) { return; }
+			final Set<MentalStateBase> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (final Iterator<WeakReference<MentalStateBase>> it = refs.iterator(); it.hasNext();) {
+				final MentalStateBase b = it.next().get();
+				if (b == null || !kept.add(b)) {
+					it.remove();
+				}
+			}
+			limit = Math.max(8, 2 * refs.size());
+		}
+
+		/**
+		 * Records that the predicate is in the bases as well
+		 */
+		synchronized void addTo(final Predicate predicate) {
+			for (final WeakReference<MentalStateBase> ref : refs) {
+				final MentalStateBase base = ref.get();
+				if (base != null) {
+					indexed(predicate, base);
+				}
+			}
+		}
+
+		synchronized void modified(final boolean regrouped) {
+			for (final WeakReference<MentalStateBase> ref : refs) {
+				final MentalStateBase base = ref.get();
+				if (base != null) {
+					base.modified(regrouped);
+				}
+			}
+		}
+	}
+
+}
@@ -11,6 +11,7 @@
  **********************************************************************************************/
 package msi.gaml.architecture.simplebdi;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,8 @@ public class Predicate implements IValue {
 	int lifetime = -1;
 	boolean isUpdated = false;
 	private boolean noAgentCause = true;
+	/** The bases in which it has been indexed (see MentalStateBase) */
+	transient volatile MentalStateBase.Bases bases;
 
 	@getter("name")
 	public String getName() {
@@ -102,6 +105,7 @@ public class Predicate implements IValue {
 	
 	public void setSuperIntention(final MentalState superPredicate) {
 		this.superIntention = superPredicate;
+		MentalStateBase.predicateModified(this);
 	}
 
 	// public void setOnHoldUntil(final Object onHoldUntil) {
@@ -115,10 +119,12 @@ public class Predicate implements IValue {
 	public void setValues(final Map<String, Object> values) {
 		this.values = values;
 		everyPossibleValues = values == null;
+		MentalStateBase.predicateModified(this);
 	}
 
 	public void setIs_True(final Boolean ist) {
 		this.is_true = ist;
+		MentalStateBase.predicateModified(this);
 	}
 
 //	public void setPriority(final Double priority) {
@@ -131,6 +137,7 @@ public class Predicate implements IValue {
 
 	public void setSubintentions(final List<MentalState> subintentions) {
 		this.subintentions = subintentions;
+		MentalStateBase.predicateModified(this);
 	}
 
 	public void setLifetime(final int lifetime) {
@@ -144,6 +151,7 @@ public class Predicate implements IValue {
 	public void setAgentCause(final IAgent ag) {
 		this.agentCause = ag;
 		this.noAgentCause = false;
+		MentalStateBase.predicateModified(this);
 	}
 
 	public Predicate() {
@@ -357,8 +365,9 @@ public class Predicate implements IValue {
 //	}
 
 	public void setName(final String name) {
+		final String old = this.name;
 		this.name = name;
-
+		MentalStateBase.predicateRenamed(this, old);
 	}
 
 	@Override
@@ -487,6 +496,43 @@ public class Predicate implements IValue {
 		return true;
 	}
 
+	/**
+	 * A copy of the predicate that does not change with it, and can be compared to it with sameAs
+	 */
+	Predicate snapshot() {
+		final Predicate result = new Predicate(name);
+		result.values = values == null ? null : new LinkedHashMap<>(values);
+		result.everyPossibleValues = everyPossibleValues;
+		result.is_true = is_true;
+		result.agentCause = agentCause;
+		result.noAgentCause = noAgentCause;
+		result.superIntention = superIntention;
+		result.subintentions = subintentions == null ? null : new ArrayList<>(subintentions);
+		return result;
+	}
+
+	/**
+	 * A hash of the values and the truth of the predicate, computed when called, so that it follows the changes made in
+	 * place to its values (used by the rules to know whether the mental states of a base have changed)
+	 */
+	int contentHash() {
+		final int result = values == null ? 0 : values.hashCode();
+		return 31 * result + (is_true ? 1 : 0);
+	}
+
+	/**
+	 * Whether the predicate has the same content as the other one, so that they are equal to the same predicates (used
+	 * by the rules to know whether their conditions have changed)
+	 */
+	boolean sameAs(final Predicate other) {
+		if (this == other) { return true; }
+		return other != null && MentalStateBase.equal(name, other.name) && is_true == other.is_true
+				&& everyPossibleValues == other.everyPossibleValues && noAgentCause == other.noAgentCause
+				&& (values == null ? other.values == null : values.equals(other.values))
+				&& agentCause == other.agentCause && superIntention == other.superIntention
+				&& (subintentions == null ? other.subintentions == null : subintentions.equals(other.subintentions));
+	}
+
 	private boolean partialEquality(final Object obj) {
 		// You don't test the sub-intentions. Used when testing the equality of
 		// the super-intention
@@ -11,9 +11,12 @@
 
 package msi.gaml.architecture.simplebdi;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.example;
 import msi.gama.precompiler.GamlAnnotations.facet;
@@ -272,6 +275,12 @@ public class RuleStatement extends AbstractStatement {
 	final IExpression strength;
 	final IExpression threshold;
 	final IExpression lifetime;
+	/** The conditions of the rule on the bases of the agent, in the order in which they are tested */
+	final IExpression[] conditions;
+	/** The base tested by each condition, or null if the changes of the base are not followed (emotions) */
+	static final String[] CONDITION_BASES = { SimpleBdiArchitecture.BELIEF_BASE, SimpleBdiArchitecture.DESIRE_BASE,
+			SimpleBdiArchitecture.UNCERTAINTY_BASE, null, SimpleBdiArchitecture.BELIEF_BASE,
+			SimpleBdiArchitecture.DESIRE_BASE, SimpleBdiArchitecture.UNCERTAINTY_BASE, null };
 
 	public RuleStatement(final IDescription desc) {
 		super(desc);
@@ -305,6 +314,8 @@ public class RuleStatement extends AbstractStatement {
 		threshold = getFacet(RuleStatement.THRESHOLD);
 		lifetime = getFacet("lifetime");
 		parallel = getFacet(IKeyword.PARALLEL);
+		conditions = new IExpression[] { belief, desire, uncertainty, emotion, beliefs, desires, uncertainties,
+				emotions };
 	}
 
 	@SuppressWarnings ("unchecked")
@@ -317,208 +328,172 @@ public class RuleStatement extends AbstractStatement {
 				&& removeUncertainties == null)
 			return null;
 		if (when == null || Cast.asBool(scope, when.value(scope))) {
-			final MentalState tempBelief = new MentalState("Belief");
-			if (belief != null) {
-				tempBelief.setPredicate((Predicate) belief.value(scope));
-			}
-			if (belief == null || SimpleBdiArchitecture.hasBelief(scope, tempBelief)) {
-				final MentalState tempDesire = new MentalState("Desire");
-				if (desire != null) {
-					tempDesire.setPredicate((Predicate) desire.value(scope));
+			if (matches(scope)) {
+				if (newDesire != null) {
+					final Predicate newDes = (Predicate) newDesire.value(scope);
+					final MentalState tempNewDesire = new MentalState("Desire", newDes);
+					if (strength != null) {
+						tempNewDesire.setStrength(
+								Cast.asFloat(scope, strength.value(scope)));
+					}
+					if (lifetime != null) {
+						tempNewDesire
+								.setLifeTime(Cast.asInt(scope, lifetime.value(scope)));
+					}
+					SimpleBdiArchitecture.addDesire(scope, null, tempNewDesire);
 				}
-				if (desire == null || SimpleBdiArchitecture.hasDesire(scope, tempDesire)) {
-					final MentalState tempUncertainty = new MentalState("Uncertainty");
-					if (uncertainty != null) {
-						tempUncertainty.setPredicate((Predicate) uncertainty.value(scope));
+				if (newBelief != null) {
+					final Predicate newBel = (Predicate) newBelief.value(scope);
+					final MentalState tempNewBelief = new MentalState("Belief", newBel);
+					if (strength != null) {
+						tempNewBelief.setStrength(
+								Cast.asFloat(scope, strength.value(scope)));
 					}
-					if (uncertainty == null || SimpleBdiArchitecture.hasUncertainty(scope, tempUncertainty)) {
-						if (emotion == null
-								|| SimpleBdiArchitecture.hasEmotion(scope, (Emotion) emotion.value(scope))) {
-							if (beliefs == null || hasBeliefs(scope, (List<Predicate>) beliefs.value(scope))) {
-								if (desires == null || hasDesires(scope, (List<Predicate>) desires.value(scope))) {
-									if (uncertainties == null
-											|| hasUncertainties(scope, (List<Predicate>) uncertainties.value(scope))) {
-										if (emotions == null
-												|| hasEmotions(scope, (List<Emotion>) emotions.value(scope))) {
-
-											if (threshold == null || emotion != null && threshold != null
-													&& SimpleBdiArchitecture.getEmotion(scope,
-															(Emotion) emotion
-																	.value(scope)).intensity >= (Double) threshold
-																			.value(scope)) {
-												if (newDesire != null) {
-													final Predicate newDes = (Predicate) newDesire.value(scope);
-													final MentalState tempNewDesire = new MentalState("Desire", newDes);
-													if (strength != null) {
-														tempNewDesire.setStrength(
-																Cast.asFloat(scope, strength.value(scope)));
-													}
-													if (lifetime != null) {
-														tempNewDesire
-																.setLifeTime(Cast.asInt(scope, lifetime.value(scope)));
-													}
-													SimpleBdiArchitecture.addDesire(scope, null, tempNewDesire);
-												}
-												if (newBelief != null) {
-													final Predicate newBel = (Predicate) newBelief.value(scope);
-													final MentalState tempNewBelief = new MentalState("Belief", newBel);
-													if (strength != null) {
-														tempNewBelief.setStrength(
-																Cast.asFloat(scope, strength.value(scope)));
-													}
-													if (lifetime != null) {
-														tempNewBelief
-																.setLifeTime(Cast.asInt(scope, lifetime.value(scope)));
-													}
-													SimpleBdiArchitecture.addBelief(scope, tempNewBelief);
-												}
-												if (newEmotion != null) {
-													final Emotion newEmo = (Emotion) newEmotion.value(scope);
-													SimpleBdiArchitecture.addEmotion(scope, newEmo);
-												}
-												if (newUncertainty != null) {
-													final Predicate newUncert = (Predicate) newUncertainty.value(scope);
-													final MentalState tempNewUncertainty =
-															new MentalState("Uncertainty", newUncert);
-													if (strength != null) {
-														tempNewUncertainty.setStrength(
-																Cast.asFloat(scope, strength.value(scope)));
-													}
-													if (lifetime != null) {
-														tempNewUncertainty
-																.setLifeTime(Cast.asInt(scope, lifetime.value(scope)));
-													}
-													SimpleBdiArchitecture.addUncertainty(scope, tempNewUncertainty);
-												}
-												if (removeBelief != null) {
-													final Predicate removBel = (Predicate) removeBelief.value(scope);
-													final MentalState tempRemoveBelief =
-															new MentalState("Belief", removBel);
-													SimpleBdiArchitecture.removeBelief(scope, tempRemoveBelief);
-												}
-												if (removeDesire != null) {
-													final Predicate removeDes = (Predicate) removeDesire.value(scope);
-													final MentalState tempRemoveDesire =
-															new MentalState("Desire", removeDes);
-													SimpleBdiArchitecture.removeDesire(scope, tempRemoveDesire);
-												}
-												if (removeIntention != null) {
-													final Predicate removeInt =
-															(Predicate) removeIntention.value(scope);
-													final MentalState tempRemoveIntention =
-															new MentalState("Intention", removeInt);
-													SimpleBdiArchitecture.removeIntention(scope, tempRemoveIntention);
-												}
-												if (removeEmotion != null) {
-													final Emotion removeEmo = (Emotion) removeEmotion.value(scope);
-													SimpleBdiArchitecture.removeEmotion(scope, removeEmo);
-												}
-												if (removeUncertainty != null) {
-													final Predicate removUncert =
-															(Predicate) removeUncertainty.value(scope);
-													final MentalState tempRemoveUncertainty =
-															new MentalState("Uncertainty", removUncert);
-													SimpleBdiArchitecture.removeUncertainty(scope,
-															tempRemoveUncertainty);
-												}
+					if (lifetime != null) {
+						tempNewBelief
+								.setLifeTime(Cast.asInt(scope, lifetime.value(scope)));
+					}
+					SimpleBdiArchitecture.addBelief(scope, tempNewBelief);
+				}
+				if (newEmotion != null) {
+					final Emotion newEmo = (Emotion) newEmotion.value(scope);
+					SimpleBdiArchitecture.addEmotion(scope, newEmo);
+				}
+				if (newUncertainty != null) {
+					final Predicate newUncert = (Predicate) newUncertainty.value(scope);
+					final MentalState tempNewUncertainty =
+							new MentalState("Uncertainty", newUncert);
+					if (strength != null) {
+						tempNewUncertainty.setStrength(
+								Cast.asFloat(scope, strength.value(scope)));
+					}
+					if (lifetime != null) {
+						tempNewUncertainty
+								.setLifeTime(Cast.asInt(scope, lifetime.value(scope)));
+					}
+					SimpleBdiArchitecture.addUncertainty(scope, tempNewUncertainty);
+				}
+				if (removeBelief != null) {
+					final Predicate removBel = (Predicate) removeBelief.value(scope);
+					final MentalState tempRemoveBelief =
+							new MentalState("Belief", removBel);
+					SimpleBdiArchitecture.removeBelief(scope, tempRemoveBelief);
+				}
+				if (removeDesire != null) {
+					final Predicate removeDes = (Predicate) removeDesire.value(scope);
+					final MentalState tempRemoveDesire =
+							new MentalState("Desire", removeDes);
+					SimpleBdiArchitecture.removeDesire(scope, tempRemoveDesire);
+				}
+				if (removeIntention != null) {
+					final Predicate removeInt =
+							(Predicate) removeIntention.value(scope);
+					final MentalState tempRemoveIntention =
+							new MentalState("Intention", removeInt);
+					SimpleBdiArchitecture.removeIntention(scope, tempRemoveIntention);
+				}
+				if (removeEmotion != null) {
+					final Emotion removeEmo = (Emotion) removeEmotion.value(scope);
+					SimpleBdiArchitecture.removeEmotion(scope, removeEmo);
+				}
+				if (removeUncertainty != null) {
+					final Predicate removUncert =
+							(Predicate) removeUncertainty.value(scope);
+					final MentalState tempRemoveUncertainty =
+							new MentalState("Uncertainty", removUncert);
+					SimpleBdiArchitecture.removeUncertainty(scope,
+							tempRemoveUncertainty);
+				}
 
-												if (newDesires != null) {
-													final List<Predicate> newDess =
-															(List<Predicate>) newDesires.value(scope);
-													for (final Predicate newDes : newDess) {
-														final MentalState tempDesires =
-																new MentalState("Desire", newDes);
-														if (strength != null) {
-															tempDesires.setStrength(
-																	Cast.asFloat(scope, strength.value(scope)));
-														}
-														if (lifetime != null) {
-															tempDesires.setLifeTime(
-																	Cast.asInt(scope, lifetime.value(scope)));
-														}
-														SimpleBdiArchitecture.addDesire(scope, null, tempDesires);
-													}
-												}
-												if (newBeliefs != null) {
-													final List<Predicate> newBels =
-															(List<Predicate>) newBeliefs.value(scope);
-													for (final Predicate newBel : newBels) {
-														final MentalState tempBeliefs =
-																new MentalState("Belief", newBel);
-														if (strength != null) {
-															tempBeliefs.setStrength(
-																	Cast.asFloat(scope, strength.value(scope)));
-														}
-														if (lifetime != null) {
-															tempBeliefs.setLifeTime(
-																	Cast.asInt(scope, lifetime.value(scope)));
-														}
-														SimpleBdiArchitecture.addBelief(scope, tempBeliefs);
-													}
-												}
-												if (newEmotions != null) {
-													final List<Emotion> newEmos =
-															(List<Emotion>) newEmotions.value(scope);
-													for (final Emotion newEmo : newEmos)
-														SimpleBdiArchitecture.addEmotion(scope, newEmo);
-												}
-												if (newUncertainties != null) {
-													final List<Predicate> newUncerts =
-															(List<Predicate>) newUncertainties.value(scope);
-													for (final Predicate newUncert : newUncerts) {
-														final MentalState tempUncertainties =
-																new MentalState("Uncertainty", newUncert);
-														if (strength != null) {
-															tempUncertainties.setStrength(
-																	Cast.asFloat(scope, strength.value(scope)));
-														}
-														if (lifetime != null) {
-															tempUncertainties.setLifeTime(
-																	Cast.asInt(scope, lifetime.value(scope)));
-														}
-														SimpleBdiArchitecture.addUncertainty(scope, tempUncertainties);
-													}
-												}
-												if (removeBeliefs != null) {
-													final List<Predicate> removBels =
-															(List<Predicate>) removeBeliefs.value(scope);
-													for (final Predicate removBel : removBels) {
-														final MentalState tempRemoveBeliefs =
-																new MentalState("Belief", removBel);
-														SimpleBdiArchitecture.removeBelief(scope, tempRemoveBeliefs);
-													}
-												}
-												if (removeDesires != null) {
-													final List<Predicate> removeDess =
-															(List<Predicate>) removeDesires.value(scope);
-													for (final Predicate removeDes : removeDess) {
-														final MentalState tempRemoveDesires =
-																new MentalState("Desire", removeDes);
-														SimpleBdiArchitecture.removeDesire(scope, tempRemoveDesires);
-													}
-												}
-												if (removeEmotions != null) {
-													final List<Emotion> removeEmos =
-															(List<Emotion>) removeEmotions.value(scope);
-													for (final Emotion removeEmo : removeEmos)
-														SimpleBdiArchitecture.removeEmotion(scope, removeEmo);
-												}
-												if (removeUncertainties != null) {
-													final List<Predicate> removUncerts =
-															(List<Predicate>) removeUncertainties.value(scope);
-													for (final Predicate removUncert : removUncerts) {
-														final MentalState tempRemoveUncertainties =
-																new MentalState("Uncertainty", removUncert);
-														SimpleBdiArchitecture.removeUncertainty(scope,
-																tempRemoveUncertainties);
-													}
-												}
-											}
-										}
-									}
-								}
-							}
+				if (newDesires != null) {
+					final List<Predicate> newDess =
+							(List<Predicate>) newDesires.value(scope);
+					for (final Predicate newDes : newDess) {
+						final MentalState tempDesires =
+								new MentalState("Desire", newDes);
+						if (strength != null) {
+							tempDesires.setStrength(
+									Cast.asFloat(scope, strength.value(scope)));
+						}
+						if (lifetime != null) {
+							tempDesires.setLifeTime(
+									Cast.asInt(scope, lifetime.value(scope)));
+						}
+						SimpleBdiArchitecture.addDesire(scope, null, tempDesires);
+					}
+				}
+				if (newBeliefs != null) {
+					final List<Predicate> newBels =
+							(List<Predicate>) newBeliefs.value(scope);
+					for (final Predicate newBel : newBels) {
+						final MentalState tempBeliefs =
+								new MentalState("Belief", newBel);
+						if (strength != null) {
+							tempBeliefs.setStrength(
+									Cast.asFloat(scope, strength.value(scope)));
+						}
+						if (lifetime != null) {
+							tempBeliefs.setLifeTime(
+									Cast.asInt(scope, lifetime.value(scope)));
 						}
+						SimpleBdiArchitecture.addBelief(scope, tempBeliefs);
+					}
+				}
+				if (newEmotions != null) {
+					final List<Emotion> newEmos =
+							(List<Emotion>) newEmotions.value(scope);
+					for (final Emotion newEmo : newEmos)
+						SimpleBdiArchitecture.addEmotion(scope, newEmo);
+				}
+				if (newUncertainties != null) {
+					final List<Predicate> newUncerts =
+							(List<Predicate>) newUncertainties.value(scope);
+					for (final Predicate newUncert : newUncerts) {
+						final MentalState tempUncertainties =
+								new MentalState("Uncertainty", newUncert);
+						if (strength != null) {
+							tempUncertainties.setStrength(
+									Cast.asFloat(scope, strength.value(scope)));
+						}
+						if (lifetime != null) {
+							tempUncertainties.setLifeTime(
+									Cast.asInt(scope, lifetime.value(scope)));
+						}
+						SimpleBdiArchitecture.addUncertainty(scope, tempUncertainties);
+					}
+				}
+				if (removeBeliefs != null) {
+					final List<Predicate> removBels =
+							(List<Predicate>) removeBeliefs.value(scope);
+					for (final Predicate removBel : removBels) {
+						final MentalState tempRemoveBeliefs =
+								new MentalState("Belief", removBel);
+						SimpleBdiArchitecture.removeBelief(scope, tempRemoveBeliefs);
+					}
+				}
+				if (removeDesires != null) {
+					final List<Predicate> removeDess =
+							(List<Predicate>) removeDesires.value(scope);
+					for (final Predicate removeDes : removeDess) {
+						final MentalState tempRemoveDesires =
+								new MentalState("Desire", removeDes);
+						SimpleBdiArchitecture.removeDesire(scope, tempRemoveDesires);
+					}
+				}
+				if (removeEmotions != null) {
+					final List<Emotion> removeEmos =
+							(List<Emotion>) removeEmotions.value(scope);
+					for (final Emotion removeEmo : removeEmos)
+						SimpleBdiArchitecture.removeEmotion(scope, removeEmo);
+				}
+				if (removeUncertainties != null) {
+					final List<Predicate> removUncerts =
+							(List<Predicate>) removeUncertainties.value(scope);
+					for (final Predicate removUncert : removUncerts) {
+						final MentalState tempRemoveUncertainties =
+								new MentalState("Uncertainty", removUncert);
+						SimpleBdiArchitecture.removeUncertainty(scope,
+								tempRemoveUncertainties);
 					}
 				}
 			}
@@ -526,6 +501,82 @@ public class RuleStatement extends AbstractStatement {
 		return null;
 	}
 
+	/**
+	 * Whether the conditions of the rule on the bases of the agent hold, as well as its threshold. When the rule has
+	 * failed because of a belief, desire or uncertainty, the conditions are not tested again as long as their values
+	 * have not changed, no mental state with the same name has been added to or removed from the bases they test and
+	 * no mental state of these bases has been modified (including in place changes to the values of their predicates).
+	 * The failures are kept by the architecture, not by the agent
+	 */
+	private boolean matches(final IScope scope) {
+		final IAgent agent = scope.getAgent();
+		final SimpleBdiArchitecture architecture = agent.getSpecies().getArchitecture() instanceof SimpleBdiArchitecture
+				? (SimpleBdiArchitecture) agent.getSpecies().getArchitecture() : null;
+		Map<RuleStatement, Failure> failures = architecture == null ? null : architecture.getRuleFailures(agent, false);
+		final Failure last = failures == null ? null : failures.get(this);
+		boolean replay = last != null;
+		final Object[] values = new Object[conditions.length];
+		for (int i = 0; i < conditions.length; i++) {
+			if (conditions[i] == null) {
+				continue;
+			}
+			values[i] = conditions[i].value(scope);
+			if (replay && last.unchanged(scope, i, values[i])) {
+				if (i == last.index) { return false; }
+				continue;
+			}
+			replay = false;
+			if (!holds(scope, i, values[i])) {
+				final Failure failure = architecture == null ? null : Failure.create(scope, this, i, values);
+				if (failure != null) {
+					if (failures == null) {
+						failures = architecture.getRuleFailures(agent, true);
+					}
+					failures.put(this, failure);
+				} else if (last != null) {
+					failures.remove(this);
+				}
+				return false;
+			}
+		}
+		if (last != null) {
+			failures.remove(this);
+		}
+		return threshold == null || emotion != null && threshold != null && SimpleBdiArchitecture.getEmotion(scope,
+				(Emotion) values[3]).intensity >= (Double) threshold.value(scope);
+	}
+
+	/**
+	 * Whether the condition of the given index holds for its value
+	 */
+	@SuppressWarnings ("unchecked")
+	private boolean holds(final IScope scope, final int i, final Object value) {
+		switch (i) {
+			case 0:
+				return SimpleBdiArchitecture.hasBelief(scope, mentalState("Belief", value));
+			case 1:
+				return SimpleBdiArchitecture.hasDesire(scope, mentalState("Desire", value));
+			case 2:
+				return SimpleBdiArchitecture.hasUncertainty(scope, mentalState("Uncertainty", value));
+			case 3:
+				return SimpleBdiArchitecture.hasEmotion(scope, (Emotion) value);
+			case 4:
+				return hasBeliefs(scope, (List<Predicate>) value);
+			case 5:
+				return hasDesires(scope, (List<Predicate>) value);
+			case 6:
+				return hasUncertainties(scope, (List<Predicate>) value);
+			default:
+				return hasEmotions(scope, (List<Emotion>) value);
+		}
+	}
+
+	private static MentalState mentalState(final String modality, final Object predicate) {
+		final MentalState result = new MentalState(modality);
+		result.setPredicate((Predicate) predicate);
+		return result;
+	}
+
 	private boolean hasBeliefs(final IScope scope, final List<Predicate> predicates) {
 		for (final Predicate p : predicates) {
 			final MentalState temp = new MentalState("Belief", p);
@@ -565,4 +616,100 @@ public class RuleStatement extends AbstractStatement {
 		return parallel;
 	}
 
+	/**
+	 * Class Failure. The conditions of a rule that held, and the one that failed, the last time the rule was executed by
+	 * an agent: their values (copies of their predicates), the bases they tested and the stamps and content hashes of
+	 * the groups of these bases they depended on (see {@link MentalStateBase#getStamp(Predicate)} and
+	 * {@link MentalStateBase#getContentHash(Predicate)})
+	 */
+	static class Failure {
+		final int index;
+		final Object[] values;
+		final MentalStateBase[] bases;
+		final long[][] stamps;
+		final int[][] contents;
+
+		/**
+		 * Returns the failure of the rule on the condition of the given index, or null if the changes of the bases tested
+		 * by the conditions cannot be followed
+		 */
+		@SuppressWarnings ("unchecked")
+		static Failure create(final IScope scope, final RuleStatement rule, final int index, final Object[] values) {
+			final Failure result = new Failure(index);
+			for (int i = 0; i <= index; i++) {
+				if (rule.conditions[i] == null) {
+					continue;
+				}
+				if (CONDITION_BASES[i] == null) { return null; }
+				final Object base = SimpleBdiArchitecture.getBase(scope, CONDITION_BASES[i]);
+				if (!(base instanceof MentalStateBase)) { return null; }
+				result.bases[i] = (MentalStateBase) base;
+				// The predicates are copied, as they can be modified in place before the rule is executed again
+				final List<Predicate> predicates = new ArrayList<>();
+				if (values[i] instanceof List) {
+					for (final Predicate predicate : (List<Predicate>) values[i]) {
+						predicates.add(predicate == null ? null : predicate.snapshot());
+					}
+					result.values[i] = predicates;
+				} else {
+					final Predicate predicate = (Predicate) values[i];
+					predicates.add(predicate == null ? null : predicate.snapshot());
+					result.values[i] = predicates.get(0);
+				}
+				result.stamps[i] = new long[predicates.size()];
+				result.contents[i] = new int[predicates.size()];
+				for (int j = 0; j < predicates.size(); j++) {
+					final Predicate predicate = predicates.get(j);
+					result.stamps[i][j] = result.bases[i].getStamp(predicate);
+					if (result.stamps[i][j] == -1) { return null; }
+					result.contents[i][j] = result.bases[i].getContentHash(predicate);
+				}
+			}
+			return result;
+		}
+
+		Failure(final int index) {
+			this.index = index;
+			values = new Object[index + 1];
+			bases = new MentalStateBase[index + 1];
+			stamps = new long[index + 1][];
+			contents = new int[index + 1][];
+		}
+
+		/**
+		 * Whether the condition of the given index has the same value and the same result as when the failure was
+		 * recorded
+		 */
+		boolean unchanged(final IScope scope, final int i, final Object value) {
+			if (i > index || bases[i] == null || SimpleBdiArchitecture.getBase(scope, CONDITION_BASES[i]) != bases[i]) {
+				return false;
+			}
+			final List<Predicate> predicates = new ArrayList<>();
+			if (values[i] instanceof List) {
+				final List<?> old = (List<?>) values[i];
+				if (!(value instanceof List) || ((List<?>) value).size() != old.size()) { return false; }
+				for (int j = 0; j < old.size(); j++) {
+					if (!same(old.get(j), ((List<?>) value).get(j))) { return false; }
+					predicates.add((Predicate) old.get(j));
+				}
+			} else {
+				if (!same(values[i], value)) { return false; }
+				predicates.add((Predicate) values[i]);
+			}
+			for (int j = 0; j < predicates.size(); j++) {
+				if (bases[i].getStamp(predicates.get(j)) != stamps[i][j]) { return false; }
+				if (bases[i].getContentHash(predicates.get(j)) != contents[i][j]) { return false; }
+			}
+			return true;
+		}
+
+		/**
+		 * Whether the recorded copy of a predicate has the same content as the current value
+		 */
+		private static boolean same(final Object copy, final Object p) {
+			if (copy == null) { return p == null; }
+			return p instanceof Predicate && ((Predicate) copy).sameAs((Predicate) p);
+		}
+	}
+
 }
@@ -11,7 +11,12 @@
 package msi.gaml.architecture.simplebdi;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlAnnotations.action;
@@ -30,6 +35,7 @@ import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
 import msi.gaml.architecture.reflex.ReflexArchitecture;
 import msi.gaml.compilation.ISymbol;
+import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Maths;
 import msi.gaml.operators.fastmaths.CmnFastMath;
 import msi.gaml.species.ISpecies;
@@ -207,6 +213,16 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 
 	protected int _rulesNumber = 0;
 
+	/**
+	 * The last failure of each rule of each agent (see RuleStatement). They are not part of the state of the agents (and
+	 * are not saved with them), and are forgotten when the agents die, or, for the agents disposed with their
+	 * simulation, once the map has grown enough
+	 */
+	private final Map<IAgent, Map<RuleStatement, RuleStatement.Failure>> ruleFailures =
+			Collections.synchronizedMap(new IdentityHashMap<>());
+	/** The number of agents above which the dead ones are forgotten */
+	private int ruleFailuresLimit = 64;
+
 	@Override
 	protected void clearBehaviors() {
 		super.clearBehaviors();
@@ -406,16 +422,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				? scope.getBoolArg(PROBABILISTIC_CHOICE) : (Boolean) agent.getAttribute(PROBABILISTIC_CHOICE);
 		final List<BDIPlan> listPlans = getPlans(scope);
 		if (is_probabilistic_choice) {
-			final List<MentalState> desireBaseTest = GamaListFactory.create();/*= getBase(scope, DESIRE_BASE)*/;
-			for(MentalState tempDesire : getBase(scope, DESIRE_BASE)){
-				for(BDIPlan tempPlan : listPlans){
-					SimpleBdiPlanStatement tempPlanStatement = tempPlan.getPlanStatement();
-					if(((Predicate) tempPlanStatement.getIntentionExpression().value(scope))
-							.equalsIntentionPlan(tempDesire.getPredicate())){
-						desireBaseTest.add(tempDesire);
-					}
-				}
-			}
+			final List<MentalState> desireBaseTest = listDesiresWithPlan(scope, getBase(scope, DESIRE_BASE), listPlans);
 			final GamaList<MentalState> desireBase = getBase(scope, DESIRE_BASE);
 			final GamaList<MentalState> intentionBase = getBase(scope, INTENTION_BASE);
 			if (desireBase.size() > 0) {
@@ -464,23 +471,9 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				}
 			}
 		} else {
-			final List<MentalState> desireBaseTest = GamaListFactory.create();
-			for(MentalState tempDesire : (GamaList<MentalState>) scope.getSimulation().getRandomGenerator()
-					.shuffle(getBase(scope, DESIRE_BASE))){
-				for(BDIPlan tempPlan : listPlans){
-					if (tempPlan == null) continue;
-					SimpleBdiPlanStatement tempPlanStatement = tempPlan.getPlanStatement();
-					if (tempPlan.getPlanStatement() == null) continue;
-					if ((tempPlan.getPlanStatement().getIntentionExpression() == null) || (tempPlan.getPlanStatement().getIntentionExpression().value(scope) == null)){
-						desireBaseTest.add(tempDesire);
-						continue;
-					}
-					if(((Predicate) tempPlanStatement.getIntentionExpression().value(scope))
-							.equalsIntentionPlan(tempDesire.getPredicate())){
-						desireBaseTest.add(tempDesire);
-					}
-				}
-			}
+			final List<MentalState> desireBaseTest = listDesiresWithPlan(scope,
+					(GamaList<MentalState>) scope.getSimulation().getRandomGenerator().shuffle(getBase(scope, DESIRE_BASE)),
+					listPlans);
 			final GamaList<MentalState> desireBase = getBase(scope, DESIRE_BASE);
 			final GamaList<MentalState> intentionBase = getBase(scope, INTENTION_BASE);
 			double maxpriority = Double.MIN_VALUE;
@@ -528,6 +521,55 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		return false;
 	}
 
+	/**
+	 * The desires that match the intention of a plan (once for each of these plans), in the order of the desires. The
+	 * intention of a plan can only match the desires whose predicate has the same name, so the plans are grouped by the
+	 * name of their intention instead of testing each desire against each plan
+	 */
+	private List<MentalState> listDesiresWithPlan(final IScope scope, final List<MentalState> desires,
+			final List<BDIPlan> plans) {
+		final List<MentalState> result = GamaListFactory.create();
+		if (desires.isEmpty()) { return result; }
+		// The intention of each plan, in the order of the plans (null if the plan applies to any desire)
+		final List<Predicate> intentions = new ArrayList<Predicate>();
+		for (final BDIPlan tempPlan : plans) {
+			if (tempPlan == null || tempPlan.getPlanStatement() == null) {
+				continue;
+			}
+			final IExpression intention = tempPlan.getPlanStatement().getIntentionExpression();
+			intentions.add(intention == null ? null : (Predicate) intention.value(scope));
+		}
+		final Map<String, List<Predicate>> byName = new HashMap<String, List<Predicate>>();
+		final List<Predicate> any = new ArrayList<Predicate>();
+		for (final Predicate intention : intentions) {
+			if (intention == null) {
+				any.add(null);
+			}
+		}
+		for (final MentalState tempDesire : desires) {
+			final Predicate predicate = tempDesire.getPredicate();
+			List<Predicate> matching = any;
+			if (predicate != null) {
+				matching = byName.get(predicate.getName());
+				if (matching == null) {
+					matching = new ArrayList<Predicate>();
+					for (final Predicate intention : intentions) {
+						if (intention == null || MentalStateBase.equal(intention.getName(), predicate.getName())) {
+							matching.add(intention);
+						}
+					}
+					byName.put(predicate.getName(), matching);
+				}
+			}
+			for (final Predicate intention : matching) {
+				if (intention == null || intention.equalsIntentionPlan(predicate)) {
+					result.add(tempDesire);
+				}
+			}
+		}
+		return result;
+	}
+
 	protected final SimpleBdiPlanStatement selectExecutablePlanWithHighestPriority(final IScope scope) {
 		final IAgent agent = getCurrentAgent(scope);
 		final Boolean is_probabilistic_choice = scope.hasArg(PROBABILISTIC_CHOICE)
@@ -874,9 +916,8 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 	}
 
 	public static GamaList<MentalState> getBase(final IScope scope, final String basename) {
-		final IAgent agent = scope.getAgent();
 		return (GamaList<MentalState>) (scope.hasArg(basename) ? scope.getListArg(basename)
-				: (GamaList<MentalState>) agent.getAttribute(basename));
+				: MentalStateBase.of(scope, basename));
 	}
 
 	public static GamaList<Emotion> getEmotionBase(final IScope scope, final String basename) {
@@ -950,7 +991,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				createPrideFromMentalState(scope, predicateDirect);  //pride, shame, admiration, reproach
 				createHappyForFromMentalState(scope, predicateDirect);  //(seulement si le prédicat est sur une émotion).
 			}
-			for (final MentalState predTest : getBase(scope, SimpleBdiArchitecture.BELIEF_BASE)) {
+			for (final MentalState predTest : MentalStateBase.withNameOf(getBase(scope, SimpleBdiArchitecture.BELIEF_BASE), predicateDirect.getPredicate())) {
 				if (predTest.getPredicate()!=null && predicateDirect.getPredicate()!=null && predTest.getPredicate().equalsButNotTruth(predicateDirect.getPredicate())) {
 					predTemp = predTest;
 				}
@@ -965,7 +1006,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 			if (getBase(scope, SimpleBdiArchitecture.UNCERTAINTY_BASE).contains(predicateDirect)) {
 				removeFromBase(scope, predicateDirect, UNCERTAINTY_BASE);
 			}
-			for (final MentalState predTest : getBase(scope, SimpleBdiArchitecture.UNCERTAINTY_BASE)) {
+			for (final MentalState predTest : MentalStateBase.withNameOf(getBase(scope, SimpleBdiArchitecture.UNCERTAINTY_BASE), predicateDirect.getPredicate())) {
 				if (predTest.getPredicate()!=null && predicateDirect.getPredicate()!=null && predTest.getPredicate().equalsButNotTruth(predicateDirect.getPredicate())) {
 					predTemp = predTest;
 				}
@@ -1209,7 +1250,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final Predicate predicateDirect =
 				(Predicate) (scope.hasArg(PREDICATE) ? scope.getArg(PREDICATE, PredicateType.id) : null);
 		if (predicateDirect != null) {
-			for (final MentalState mental : getBase(scope, BELIEF_BASE)) {
+			for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, BELIEF_BASE), predicateDirect)) {
 				if(mental.getPredicate()!=null){
 					if (predicateDirect.equals(mental.getPredicate())) { return mental; }
 					if (predicateDirect.equalsButNotTruth(mental.getPredicate())){return mental;}
@@ -1287,7 +1328,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 	public MentalState getBeliefName(final IScope scope) throws GamaRuntimeException {
 		final String predicateName = (String) (scope.hasArg("name") ? scope.getArg("name", IType.STRING) : null);
 		if (predicateName != null) {
-			for (final MentalState mental : getBase(scope, BELIEF_BASE)) {
+			for (final MentalState mental : MentalStateBase.withName(getBase(scope, BELIEF_BASE), predicateName)) {
 				if (mental.getPredicate()!=null && predicateName.equals(mental.getPredicate().getName())) { return mental; }
 			}
 		}
@@ -1309,7 +1350,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final String predicateName = (String) (scope.hasArg("name") ? scope.getArg("name", IType.STRING) : null);
 		final IList<MentalState> predicates = GamaListFactory.create();
 		if (predicateName != null) {
-			for (final MentalState mental : getBase(scope, BELIEF_BASE)) {
+			for (final MentalState mental : MentalStateBase.withName(getBase(scope, BELIEF_BASE), predicateName)) {
 				if (mental.getPredicate()!=null && predicateName.equals(mental.getPredicate().getName())) {
 					predicates.add(mental);
 				}
@@ -1334,7 +1375,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				(Predicate) (scope.hasArg(PREDICATE) ? scope.getArg(PREDICATE, PredicateType.id) : null);
 		final IList<MentalState> predicates = GamaListFactory.create();
 		if (predicateDirect != null) {
-			for (final MentalState mental : getBase(scope, BELIEF_BASE)) {
+			for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, BELIEF_BASE), predicateDirect)) {
 				if(mental.getPredicate()!=null){
 					if (predicateDirect.equals(mental.getPredicate())) {
 						predicates.add(mental);
@@ -1504,13 +1545,14 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 					predicate.onHoldUntil = GamaListFactory.create(Types.get(PredicateType.id));
 				}
 				if (predicate.getSubintentions() == null) {
-					predicate.subintentions = GamaListFactory.create(Types.get(PredicateType.id));
+					predicate.setSubintentions(GamaListFactory.create(Types.get(PredicateType.id)));
 				}
 				MentalState tempState = new MentalState("Intention",predicate);
 				MentalState tempUntil = new MentalState("Desire",(Predicate)until);
 				((Predicate) until).setSuperIntention(tempState);
 				predicate.onHoldUntil.add(tempUntil);
 				predicate.getSubintentions().add(tempUntil);
+				MentalStateBase.predicateModified(predicate);
 				addToBase(scope, tempUntil, DESIRE_BASE);
 			}
 		}
@@ -1548,17 +1590,18 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final Boolean addAsDesire =
 				(Boolean) (scope.hasArg("add_as_desire") ? scope.getArg("add_as_desire", IType.BOOL) : false);
 		MentalState superState = null;
-		for (final MentalState mental : getBase(scope, INTENTION_BASE)) {
+		for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, INTENTION_BASE), predicate)) {
 			if (mental.getPredicate()!=null && predicate.equals(mental.getPredicate())) { superState =  mental; break; }
 		}
 		if (superState == null) return false;
 
 		if (predicate.getSubintentions() == null) {
-			predicate.subintentions = GamaListFactory.create(Types.get(PredicateType.id));
+			predicate.setSubintentions(GamaListFactory.create(Types.get(PredicateType.id)));
 		}
 		MentalState subState = new MentalState("Desire",subpredicate);
 		subpredicate.setSuperIntention(superState);
 		predicate.getSubintentions().add(subState);
+		MentalStateBase.predicateModified(predicate);
 		subState.strength = superState.strength;
 		if (addAsDesire) {
 			addToBase(scope, subState, DESIRE_BASE);
@@ -1569,12 +1612,13 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 	public static Boolean addDesire(final IScope scope, final MentalState superPredicate, final MentalState predicate) {
 		if (superPredicate!=null && superPredicate.getPredicate() != null) {
 			if (superPredicate.getPredicate().getSubintentions() == null) {
-				superPredicate.getPredicate().subintentions = GamaListFactory.create(Types.get(PredicateType.id));
+				superPredicate.getPredicate().setSubintentions(GamaListFactory.create(Types.get(PredicateType.id)));
 			}
 			if(predicate.getPredicate()!=null){
 				predicate.getPredicate().setSuperIntention(superPredicate);
 			}
 			superPredicate.getPredicate().getSubintentions().add(predicate);
+			MentalStateBase.predicateModified(superPredicate.getPredicate());
 		}
 		predicate.setOwner(scope.getAgent());
 		addToBase(scope, predicate, DESIRE_BASE);
@@ -1746,7 +1790,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final Predicate predicateDirect =
 				(Predicate) (scope.hasArg(PREDICATE) ? scope.getArg(PREDICATE, PredicateType.id) : null);
 		if (predicateDirect != null) {
-			for (final MentalState mental : getBase(scope, DESIRE_BASE)) {				
+			for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, DESIRE_BASE), predicateDirect)) {				
 				if (mental.getPredicate()!= null && predicateDirect.equals(mental.getPredicate())) { return mental; }
 			}
 		}
@@ -1791,7 +1835,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				(Predicate) (scope.hasArg(PREDICATE) ? scope.getArg(PREDICATE, PredicateType.id) : null);
 		final IList<MentalState> predicates = GamaListFactory.create();
 		if (predicateDirect != null) {
-			for (final MentalState mental : getBase(scope, DESIRE_BASE)) {
+			for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, DESIRE_BASE), predicateDirect)) {
 				if (mental.getPredicate()!=null && predicateDirect.equals(mental.getPredicate())) {
 					predicates.add(mental);
 				}
@@ -1839,7 +1883,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 	public MentalState getDesireName(final IScope scope) throws GamaRuntimeException {
 		final String predicateName = (String) (scope.hasArg("name") ? scope.getArg("name", IType.STRING) : null);
 		if (predicateName != null) {
-			for (final MentalState mental : getBase(scope, DESIRE_BASE)) {
+			for (final MentalState mental : MentalStateBase.withName(getBase(scope, DESIRE_BASE), predicateName)) {
 				if (mental.getPredicate()!=null && predicateName.equals(mental.getPredicate().getName())) { return mental; }
 			}
 		}
@@ -1861,7 +1905,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final String predicateName = (String) (scope.hasArg("name") ? scope.getArg("name", IType.STRING) : null);
 		final List<MentalState> predicates = GamaListFactory.create();
 		if (predicateName != null) {
-			for (final MentalState mental : getBase(scope, DESIRE_BASE)) {
+			for (final MentalState mental : MentalStateBase.withName(getBase(scope, DESIRE_BASE), predicateName)) {
 				if (mental.getPredicate()!=null && predicateName.equals(mental.getPredicate().getName())) {
 					predicates.add(mental);
 				}
@@ -2188,7 +2232,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final Predicate predicateDirect =
 				(Predicate) (scope.hasArg(PREDICATE) ? scope.getArg(PREDICATE, PredicateType.id) : null);
 		if (predicateDirect != null) {
-			for (final MentalState mental : getBase(scope, INTENTION_BASE)) {
+			for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, INTENTION_BASE), predicateDirect)) {
 				if (mental.getPredicate()!=null && predicateDirect.equals(mental.getPredicate())) { return mental; }
 			}
 		}
@@ -2233,7 +2277,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				(Predicate) (scope.hasArg(PREDICATE) ? scope.getArg(PREDICATE, PredicateType.id) : null);
 		final IList<MentalState> predicates = GamaListFactory.create();
 		if (predicateDirect != null) {
-			for (final MentalState mental : getBase(scope, INTENTION_BASE)) {
+			for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, INTENTION_BASE), predicateDirect)) {
 				if (mental.getPredicate()!=null && predicateDirect.equals(mental.getPredicate())) {
 					predicates.add(mental);
 				}
@@ -2281,7 +2325,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 	public MentalState getIntentionName(final IScope scope) throws GamaRuntimeException {
 		final String predicateName = (String) (scope.hasArg("name") ? scope.getArg("name", IType.STRING) : null);
 		if (predicateName != null) {
-			for (final MentalState mental : getBase(scope, INTENTION_BASE)) {
+			for (final MentalState mental : MentalStateBase.withName(getBase(scope, INTENTION_BASE), predicateName)) {
 				if (mental.getPredicate()!=null && predicateName.equals(mental.getPredicate().getName())) { return mental; }
 			}
 		}
@@ -2303,7 +2347,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final String predicateName = (String) (scope.hasArg("name") ? scope.getArg("name", IType.STRING) : null);
 		final List<MentalState> predicates = GamaListFactory.create();
 		if (predicateName != null) {
-			for (final MentalState mental : getBase(scope, INTENTION_BASE)) {
+			for (final MentalState mental : MentalStateBase.withName(getBase(scope, INTENTION_BASE), predicateName)) {
 				if (mental.getPredicate()!=null && predicateName.equals(mental.getPredicate().getName())) {
 					predicates.add(mental);
 				}
@@ -2542,7 +2586,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 					if(use_personality){
 						Double neurotisme = (Double) agent.getAttribute(NEUROTISM);
 						MentalState desire=null;
-						for (final MentalState mental : getBase(scope, DESIRE_BASE)) {				
+						for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, DESIRE_BASE), predTest.getPredicate())) {				
 							if (mental.getPredicate()!= null && predTest.getPredicate().equals(mental.getPredicate())) { 
 								desire = mental; 
 								}
@@ -2587,7 +2631,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				if(use_personality){
 					Double neurotisme = (Double) scope.getAgent().getAttribute(NEUROTISM);
 					MentalState desire=null;
-					for (final MentalState mental : getBase(scope, DESIRE_BASE)) {				
+					for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, DESIRE_BASE), predTest.getPredicate())) {				
 						if (mental.getPredicate()!= null && predTest.getPredicate().equals(mental.getPredicate())) { 
 							desire = mental; 
 							}
@@ -2656,7 +2700,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 				? scope.getBoolArg(USE_PERSONALITY) : (Boolean) agent.getAttribute(USE_PERSONALITY);
 		// A améliorer en termes de rapidité de calcul
 		for (final MentalState predTest : getBase(scope, SimpleBdiArchitecture.BELIEF_BASE)) {
-			for (final MentalState desireTest : getBase(scope, SimpleBdiArchitecture.DESIRE_BASE)) {
+			for (final MentalState desireTest : MentalStateBase.withNameOf(getBase(scope, SimpleBdiArchitecture.DESIRE_BASE), predTest.getPredicate())) {
 				if (predTest.getPredicate()!=null && desireTest.getPredicate()!=null && predTest.getPredicate().equalsButNotTruth(desireTest.getPredicate())) {
 					final Emotion sadness = new Emotion("sadness", predTest.getPredicate());
 					final IAgent agentTest = predTest.getPredicate().getAgentCause();
@@ -2707,7 +2751,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 						if(use_personality){
 							Double neurotisme = (Double) scope.getAgent().getAttribute(NEUROTISM);
 							MentalState desire=null;
-							for (final MentalState mental : getBase(scope, DESIRE_BASE)) {				
+							for (final MentalState mental : MentalStateBase.withNameOf(getBase(scope, DESIRE_BASE), predTest.getPredicate())) {				
 								if (mental.getPredicate()!= null && predTest.getPredicate().equals(mental.getPredicate())) { 
 									desire = mental; 
 									}
@@ -2773,7 +2817,7 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		final Boolean use_personality = scope.hasArg(USE_PERSONALITY)
 				? scope.getBoolArg(USE_PERSONALITY) : (Boolean) agent.getAttribute(USE_PERSONALITY);
 		for (final MentalState predTest : getBase(scope, SimpleBdiArchitecture.UNCERTAINTY_BASE)) {
-			for (final MentalState desireTest : getBase(scope, SimpleBdiArchitecture.DESIRE_BASE)) {
+			for (final MentalState desireTest : MentalStateBase.withNameOf(getBase(scope, SimpleBdiArchitecture.DESIRE_BASE), predTest.getPredicate())) {
 				if (predTest.getPredicate()!=null && desireTest.getPredicate()!=null && predTest.getPredicate().equalsButNotTruth(desireTest.getPredicate())) {
 					final Emotion fear = new Emotion("fear", predTest.getPredicate());
 					final IAgent agentTest = predTest.getPredicate().getAgentCause();
@@ -4839,6 +4883,34 @@ public class SimpleBdiArchitecture extends ReflexArchitecture {
 		return true;
 	}
 
+	@Override
+	public boolean abort(final IScope scope) throws GamaRuntimeException {
+		ruleFailures.remove(scope.getAgent());
+		return super.abort(scope);
+	}
+
+	/**
+	 * The last failures of the rules of the agent, created if needed, or null if there are none and create is false
+	 */
+	Map<RuleStatement, RuleStatement.Failure> getRuleFailures(final IAgent agent, final boolean create) {
+		synchronized (ruleFailures) {
+			Map<RuleStatement, RuleStatement.Failure> result = ruleFailures.get(agent);
+			if (result == null && create) {
+				if (ruleFailures.size() >= ruleFailuresLimit) {
+					for (final Iterator<IAgent> it = ruleFailures.keySet().iterator(); it.hasNext();) {
+						if (it.next().dead()) {
+							it.remove();
+						}
+					}
+					ruleFailuresLimit = Math.max(64, 2 * ruleFailures.size());
+				}
+				result = new IdentityHashMap<>();
+				ruleFailures.put(agent, result);
+			}
+			return result;
+		}
+	}
+
 	@Override
 	public void verifyBehaviors(final ISpecies context) {}
 	
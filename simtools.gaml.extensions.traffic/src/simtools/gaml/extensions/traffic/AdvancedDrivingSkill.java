@@ -9,11 +9,11 @@
  **********************************************************************************************/
 package simtools.gaml.extensions.traffic;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.ToDoubleFunction;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.LineString;
@@ -39,7 +39,6 @@ import msi.gama.precompiler.GamlAnnotations.vars;
 import msi.gama.precompiler.IConcept;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
-import msi.gama.util.GamaList;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
 import msi.gama.util.graph.GamaGraph;
@@ -534,15 +533,10 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		final double vL = getVehiculeLength(driver);
 		final double secDistCoeff = getSecurityDistanceCoeff(driver);
 		final double probaBlock = getProbaBlockNode(driver);
-		final boolean testBlockNode = Random.opFlip(scope, probaBlock);
+		final boolean testBlockNode = flip(scope, probaBlock);
 		final IAgent node = (IAgent) road.getAttribute(RoadSkill.SOURCE_NODE);
 		final Map<IAgent, List<IAgent>> block = (Map<IAgent, List<IAgent>>) node.getAttribute(RoadNodeSkill.BLOCK);
-		final List<IAgent> ba = GamaListFactory.create(scope, Types.AGENT, block.keySet());
-		for (final IAgent dr : ba) {
-			if (!dr.getLocation().equals(node.getLocation())) {
-				block.remove(dr);
-			}
-		}
+		removeLeavingDrivers(node, block);
 		return isReadyNextRoad(scope, road, driver, secDistCoeff, vL, block)
 				&& (testBlockNode || nextRoadTestLane(driver, road, lane, secDistCoeff, vL));
 	}
@@ -562,6 +556,50 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		return true;
 	}
 
+	boolean flip(final IScope scope, final double probability) {
+		if (!ParallelDriving.isDeciding()) { return Random.opFlip(scope, probability); }
+		return probability > ParallelDriving.random(scope).between(0., 1.);
+	}
+
+	/**
+	 * Removes from the drivers blocking the node the ones that have left it
+	 */
+	void removeLeavingDrivers(final IAgent node, final Map<IAgent, List<IAgent>> block) {
+		final ILocation location = node.getLocation();
+		for (final IAgent dr : new ArrayList<IAgent>(block.keySet())) {
+			if (!ParallelDriving.observedLocation(dr).equals(location)) {
+				ParallelDriving.defer(() -> {
+					if (!dr.getLocation().equals(location)) {
+						block.remove(dr);
+					}
+				});
+			}
+		}
+	}
+
+	boolean isAtNode(final IAgent driver, final IAgent node) {
+		return ParallelDriving.observedLocation(driver).equals(node.getLocation());
+	}
+
+	double distanceBetween(final IAgent other, final IAgent driver) {
+		if (!ParallelDriving.isDeciding()) { return other.euclidianDistanceTo(driver); }
+		return ParallelDriving.observedLocation(other).euclidianDistanceTo(ParallelDriving.location(driver));
+	}
+
+	double distanceFrom(final ILocation point, final IAgent other) {
+		if (!ParallelDriving.isDeciding()) { return point.euclidianDistanceTo(other); }
+		return point.euclidianDistanceTo(ParallelDriving.observedLocation(other));
+	}
+
+	/**
+	 * The distance of another driver to the target of the segment, as seen by the driver
+	 */
+	double observedPosition(final IAgent other, final GamaPoint targetLoc) {
+		return ParallelDriving.observedOnLinkedRoad(other)
+				? distance2D(ParallelDriving.observedLocation(other), targetLoc)
+				: ParallelDriving.observedDistanceToGoal(other);
+	}
+
 	public Boolean isReadyNextRoad(final IScope scope, final IAgent road, final IAgent driver,
 			final double secDistCoeff, final double vL, final Map<IAgent, List<IAgent>> block)
 			throws GamaRuntimeException {
@@ -580,10 +618,11 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		final IAgent currentRoad = (IAgent) driver.getAttribute(CURRENT_ROAD);
 		for (int i = 0; i < stops.size(); i++) {
 			final Boolean stop = stops.get(i).contains(currentRoad);
-			if (stop && (respectsStops.size() <= i || Random.opFlip(scope, respectsStops.get(i)))) { return false; }
+			if (stop && (respectsStops.size() <= i || flip(scope, respectsStops.get(i)))) { return false; }
 		}
-		for (final List<IAgent> rd : block.values()) {
-			if (rd.contains(currentRoad)) { return false; }
+		for (final Map.Entry<IAgent, List<IAgent>> rd : block.entrySet()) {
+			// The drivers that have left the node are only removed at the end of the cycle in two-phase mode
+			if (isAtNode(rd.getKey(), theNode) && rd.getValue().contains(currentRoad)) { return false; }
 		}
 		final Boolean rightSide = getRightSideDriving(driver);
 		final List<IAgent> priorityRoads = (List<IAgent>) theNode.getAttribute(RoadNodeSkill.PRIORITY_ROADS);
@@ -591,7 +630,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		final double angleRef = Punctal.angleInDegreesBetween(scope, (GamaPoint) theNode.getLocation(),
 				(GamaPoint) currentRoad.getLocation(), (GamaPoint) road.getLocation());
 		final List<IAgent> roadsIn = (List) theNode.getAttribute(RoadNodeSkill.ROADS_IN);
-		if (!Random.opFlip(scope, getRespectPriorities(driver))) { return true; }
+		if (!flip(scope, getRespectPriorities(driver))) { return true; }
 		final double realSpeed = FastMath.max(0.5, getRealSpeed(driver) + getAccelerationMax(driver));
 		for (final IAgent rd : roadsIn) {
 			if (rd != currentRoad) {
@@ -603,17 +642,16 @@ public class AdvancedDrivingSkill extends MovingSkill {
 				if (!hasPriority
 						&& (shouldRespectPriority || rightSide && angle > angleRef || !rightSide && angle < angleRef)) {
 					final int nbL = (Integer) rd.getAttribute(RoadSkill.LANES);
-					final List<List<List<IAgent>>> agentsOn = (List) rd.getAttribute(RoadSkill.AGENTS_ON);
+					final RoadOccupancy occupancy = RoadOccupancy.of(rd);
 					for (int i = 0; i < nbL; i++) {
-						final List<List<IAgent>> ags = agentsOn.get(i);
-						final int nbS = ags.size();
+						final int nbS = occupancy.getNbSegments(i);
 						for (int j = 0; j < nbS; j++) {
-							for (final IAgent pp : ags.get(j)) {
+							for (final IAgent pp : occupancy.getAgents(i, j)) {
 								final double vL2 = getVehiculeLength(pp);
-								final double rp2 = getRealSpeed(pp);
-								final double dist = pp.euclidianDistanceTo(driver);
+								final double rp2 = ParallelDriving.observedRealSpeed(pp);
+								final double dist = distanceBetween(pp, driver);
 
-								if (Maths.round(getRealSpeed(pp), 1) > 0.0 && 0.5
+								if (Maths.round(rp2, 1) > 0.0 && 0.5
 										+ secDistCoeff * FastMath.max(0, realSpeed - rp2) > dist - (vL2 / 2 + vL / 2)) {
 									// rp2 * (7.0 / realSpeed + secDistCoeff) >
 									// dist - vL2 / 2 - vL / 2 ) {
@@ -639,18 +677,18 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			final double vL) {
 		// double realSpeed = getRealSpeed(driver);
 		// double secDist = 1 + realSpeed * secDistCoeff;
-		final List agentsOn = (List) ((List) road.getAttribute(RoadSkill.AGENTS_ON)).get(lane);
-		for (final Object dd : agentsOn) {
-			final List<IAgent> drivers = (List<IAgent>) dd;
-			for (final IAgent dr : drivers) {
+		final RoadOccupancy occupancy = RoadOccupancy.of(road);
+		final ILocation start = road.getPoints().get(0);
+		final int nbS = occupancy.getNbSegments(lane);
+		for (int j = 0; j < nbS; j++) {
+			for (final IAgent dr : occupancy.getAgents(lane, j)) {
 				if (dr == driver) {
 					continue;
 				}
 
 				// if ( dr.euclidianDistanceTo(driver) < vL / 2 + secDist +
 				// getVehiculeLength(dr) / 2 ) { return false; }
-				if (road.getPoints().get(0).euclidianDistanceTo(dr) < vL / 2
-						+ getVehiculeLength(dr) / 2) { return false; }
+				if (distanceFrom(start, dr) < vL / 2 + getVehiculeLength(dr) / 2) { return false; }
 			}
 		}
 		return true;
@@ -888,10 +926,24 @@ public class AdvancedDrivingSkill extends MovingSkill {
 
 	@action (
 			name = "drive",
+			args = { @arg (
+					name = "two_phase",
+					type = IType.BOOL,
+					optional = true,
+					doc = @doc ("if true, the move is decided from the state of the roads at the beginning of the cycle and only applied at its end, so that the drivers can be executed in parallel (parallel: true on their species) with results that only depend on the seed (false by default)")) },
 			doc = @doc (
 					value = "action to drive toward the final target",
-					examples = { @example ("do drive;") }))
+					examples = { @example ("do drive;"), @example ("do drive two_phase: true;") }))
 	public void primDrive(final IScope scope) throws GamaRuntimeException {
+		final IAgent agent = getCurrentAgent(scope);
+		if (scope.hasArg("two_phase") && scope.getBoolArg("two_phase")) {
+			ParallelDriving.of(scope).decide(scope, this, agent, () -> drive(scope, agent));
+		} else {
+			drive(scope, agent);
+		}
+	}
+
+	private void drive(final IScope scope, final IAgent agent) throws GamaRuntimeException {
 
 		/*
 		 * nbIt++; if (nbIt % 10000 == 0) { java.lang.System.out.println("tot: " + tot + " t1: " + t1 + " t2: " + t2 +
@@ -905,7 +957,6 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		 * long t = java.lang.System.currentTimeMillis();
 		 */
 
-		final IAgent agent = getCurrentAgent(scope);
 		final GamaPoint finalTarget = getFinalTarget(agent);
 		final IPath path = getCurrentPath(agent);
 		final double fx = finalTarget.getX();
@@ -918,7 +969,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		final Arguments argsLC = new Arguments();
 		final IStatement.WithArgs actionSC = context.getAction("speed_choice");
 		final Arguments argsSC = new Arguments();
-		ILocation loc = agent.getLocation();
+		ILocation loc = ParallelDriving.location(agent);
 		double x = loc.getX();
 		double y = loc.getY();
 
@@ -938,7 +989,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			// t2 += java.lang.System.currentTimeMillis() - t;
 			// t = java.lang.System.currentTimeMillis();
 			remainingTime = primAdvancedFollow(scope, agent, speed, remainingTime, path, target);
-			loc = agent.getLocation();
+			loc = ParallelDriving.location(agent);
 			x = loc.getX();
 			y = loc.getY();
 			// t3 += java.lang.System.currentTimeMillis() - t;
@@ -1047,9 +1098,8 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		final double vL = getVehiculeLength(driver);
 		final double secDistCoeff = getSecurityDistanceCoeff(driver);
 		final double probaBlock = getProbaBlockNode(driver);
-		final boolean testBlockNode = Random.opFlip(scope, probaBlock);
+		final boolean testBlockNode = flip(scope, probaBlock);
 		final Map<IAgent, List<IAgent>> block = (Map<IAgent, List<IAgent>>) node.getAttribute(RoadNodeSkill.BLOCK);
-		final Collection<IAgent> ba = new HashSet<IAgent>(block.keySet());
 		final List<IAgent> roadsIn = (List<IAgent>) node.getAttribute(RoadNodeSkill.ROADS_IN);
 
 		// final double probaUseLinkedRoad = getProbaUseLinkedRoad(driver);
@@ -1059,11 +1109,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		if (onLinkedRoad) {
 			currentLane = lanes - 1;
 		}
-		for (final IAgent dr : ba) {
-			if (!dr.getLocation().equals(node.getLocation())) {
-				block.remove(dr);
-			}
-		}
+		removeLeavingDrivers(node, block);
 
 		final boolean ready = isReadyNextRoad(scope, road, driver, secDistCoeff, vL, block);
 		if (!ready) { return -1; }
@@ -1101,8 +1147,8 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		}
 		final double probaLaneChangeDown = getProbaLaneChangeDown(driver);
 		final double probaLaneChangeUp = getProbaLaneChangeUp(driver);
-		final boolean changeDown = Random.opFlip(scope, probaLaneChangeDown);
-		final boolean changeUp = Random.opFlip(scope, probaLaneChangeUp);
+		final boolean changeDown = flip(scope, probaLaneChangeDown);
+		final boolean changeUp = flip(scope, probaLaneChangeUp);
 		if (changeDown || changeUp) {
 			for (int i = 0; i < lanes; i++) {
 				final int l1 = cvTmp - i;
@@ -1165,7 +1211,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		if (testBlockNode && roadsIn.size() > 1) {
 			final List<IAgent> rb = roadBlocked(currentRoad, road, node, roadsIn);
 			if (!rb.isEmpty()) {
-				block.put(driver, rb);
+				ParallelDriving.defer(() -> block.put(driver, rb));
 			}
 		}
 	}
@@ -1218,11 +1264,9 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		// RoadSkill.getLinkedRoad(currentRoad) : currentRoad;
 		final int segment =
 				onLinkedRoad ? currentRoad.getInnerGeometry().getNumPoints() - 2 - segmentIndex : segmentIndex;
-		final IList aglanes = (IList) ((GamaList) currentRoad.getAttribute(RoadSkill.AGENTS_ON)).get(lane);
-		final Collection<IAgent> agents = (IList<IAgent>) aglanes.get(segment);
-		final boolean moreSegment = !onLinkedRoad && segmentIndex <= aglanes.size() - 2;
+		final RoadOccupancy occupancy = RoadOccupancy.of(currentRoad);
+		final boolean moreSegment = !onLinkedRoad && segmentIndex <= occupancy.getNbSegments(lane) - 2;
 
-		final boolean contains = agents.contains(agent);
 		final GamaPoint targetLoc = new GamaPoint(currentRoad.getInnerGeometry().getCoordinates()[segment + 1]);
 		// java.lang.System.out.println("agent:" + agent + " theRoad: " +
 		// theRoad + " segment: " + segment + " targetLoc: " + targetLoc);
@@ -1230,7 +1274,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		// java.lang.System.out.println("agent:" + agent + " contains: " +
 		// contains + " distanceToGoal:" + distanceToGoal);
 		final double vL = getVehiculeLength(agent);
-		if (contains && agents.size() < 2 || !contains && agents.isEmpty()) {
+		if (occupancy.countOthers(agent, lane, segment) == 0) {
 			// if (changeLane && onLinkedRoad)
 			// java.lang.System.out.println("<2 agent:" + agent + " nextSegment:
 			// " + nextSegment + " moreSegment: " + moreSegment);
@@ -1238,11 +1282,10 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			if (changeLane && distance < vL) { return 0; }
 			if (onLinkedRoad && nextSegment) { return 0; }
 			if (nextSegment && moreSegment) {
-				final Collection<IAgent> ags = (Collection<IAgent>) aglanes.get(segment + 1);
+				final List<IAgent> ags = occupancy.getAgents(lane, segment + 1);
 				final double length = currentRoad.getInnerGeometry().getCoordinates()[segment + 2].distance(targetLoc);
 				for (final IAgent ag : ags) {
-					final double distTG = getOnLinkedRoad(ag) ? distance2D((GamaPoint) ag.getLocation(), targetLoc)
-							: getDistanceToGoal(ag);
+					final double distTG = observedPosition(ag, targetLoc);
 					final double vLa = 0.5 * vL + 0.5 * getVehiculeLength(ag);
 					if (length - distTG < vLa) { return distanceToGoal - (vLa - (length - distTG)); }
 				}
@@ -1256,61 +1299,26 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		// distance2D((GamaPoint) agent.getLocation(),
 		// target);//agent.euclidianDistanceTo(target);//
 		// getDistanceToGoal(agent);
-		IAgent nextAgent = null;
-		double minDiff = Double.MAX_VALUE;
-		// t343+= java.lang.System.currentTimeMillis() - t;
-		// t = java.lang.System.currentTimeMillis();
-
+		// The drivers of the segment are ordered by their distance to its end
+		final ToDoubleFunction<IAgent> position;
+		final int positionId;
 		if (onLinkedRoad) {
-			if (onLinkedRoad && nextSegment) { return 0; }
-
-			for (final IAgent ag : agents) {
-				// if (changeLane && onLinkedRoad)
-				// java.lang.System.out.println("ag: " + ag );
-
-				if (ag == agent || ag == null) {
-					continue;
-				}
-				final double dist = distance2D((GamaPoint) ag.getLocation(), targetLoc);
-
-				final double diff = distanceToGoal - dist;
-				// if (changeLane && onLinkedRoad)
-				// java.lang.System.out.println("dist:" + dist + " diff: " +
-				// diff);
-
-				if (changeLane && FastMath.abs(diff) < vL) { return 0; }
-				if (diff <= 0.0) {
-					continue;
-				}
-				if (diff < minDiff) {
-					minDiff = diff;
-					nextAgent = ag;
-				}
-			}
+			if (nextSegment) { return 0; }
+			position = ag -> distance2D(ParallelDriving.observedLocation(ag), targetLoc);
+			positionId = 1;
 		} else {
-
-			for (final IAgent ag : agents) {
-				// java.lang.System.out.println("ag: " + ag + " currentRoad:" +
-				// currentRoad);
-				if (ag == agent || ag == null) {
-					continue;
-				}
-
-				final double dist = getOnLinkedRoad(ag) ? distance2D((GamaPoint) ag.getLocation(), targetLoc)
-						: getDistanceToGoal(ag);// distance2D((GamaPoint)
-												// ag.getLocation(), target);
-				final double diff = distanceToGoal - dist;
-				// java.lang.System.out.println("ag: " + ag + " dist: " + dist);
-				if (changeLane && FastMath.abs(diff) < vL) { return 0; }
-				if (diff <= 0.0) {
-					continue;
-				}
-				if (diff < minDiff) {
-					minDiff = diff;
-					nextAgent = ag;
-				}
-			}
+			position = ag -> observedPosition(ag, targetLoc);
+			positionId = 0;
 		}
+		final int cycle = scope.getClock().getCycle();
+		if (changeLane
+				&& occupancy.hasNeighbour(lane, segment, agent, distanceToGoal, vL, position, positionId, cycle)) {
+			return 0;
+		}
+		final IAgent nextAgent =
+				occupancy.getLeader(lane, segment, agent, distanceToGoal, position, positionId, cycle);
+		final double minDiff =
+				nextAgent == null ? Double.MAX_VALUE : distanceToGoal - position.applyAsDouble(nextAgent);
 
 		// if (changeLane && onLinkedRoad)
 		// java.lang.System.out.println("agent : " + agent + " minDiff : " +
@@ -1328,14 +1336,13 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			// + nextSegment+ " moreSegment: " + moreSegment);
 
 			if (nextSegment && moreSegment) {
-				final Collection<IAgent> ags = (Collection<IAgent>) aglanes.get(segment + 1);
+				final List<IAgent> ags = occupancy.getAgents(lane, segment + 1);
 				final double length = currentRoad.getInnerGeometry().getCoordinates()[segment + 1]
 						.distance(currentRoad.getInnerGeometry().getCoordinates()[segment + 2]);
 				// java.lang.System.out.println("length: " + length);
 
 				for (final IAgent ag : ags) {
-					final double distTG = getOnLinkedRoad(ag) ? distance2D((GamaPoint) ag.getLocation(), targetLoc)
-							: getDistanceToGoal(ag);
+					final double distTG = observedPosition(ag, targetLoc);
 					final double vLa = 0.5 * vL + 0.5 * getVehiculeLength(ag);
 					// java.lang.System.out.println("distTG: " + distTG + " vLa:
 					// " + vLa );
@@ -1346,10 +1353,11 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			return distance;
 		}
 		double secDistance = 0.0;
-		if (getOnLinkedRoad(nextAgent) == getOnLinkedRoad(agent)) {
-			secDistance = FastMath.max(min_security_distance, security_distance * FastMath.min(getRealSpeed(agent), getRealSpeed(nextAgent)));
+		final double nextSpeed = ParallelDriving.observedRealSpeed(nextAgent);
+		if (ParallelDriving.observedOnLinkedRoad(nextAgent) == getOnLinkedRoad(agent)) {
+			secDistance = FastMath.max(min_security_distance, security_distance * FastMath.min(getRealSpeed(agent), nextSpeed));
 		} else {
-			secDistance = FastMath.max(min_security_distance, security_distance * FastMath.max(getRealSpeed(agent), getRealSpeed(nextAgent)));
+			secDistance = FastMath.max(min_security_distance, security_distance * FastMath.max(getRealSpeed(agent), nextSpeed));
 		}
 		double realDist = FastMath.min(distance, minDiff - secDistance - 0.5 * vL - 0.5 * getVehiculeLength(nextAgent));
 		// t345+= java.lang.System.currentTimeMillis() - t;
@@ -1363,48 +1371,39 @@ public class AdvancedDrivingSkill extends MovingSkill {
 	}
 
 	private void changeLanetoReverse(final IScope scope, final IAgent agent, final int previousLane, final int newLane,
-			final int segment, final List currentAgentOn, final List newAgentOn) {
-		final int oldIndex = getSegmentIndex(agent);
-		final List agPrevLane = (List) currentAgentOn.get(previousLane);
-		final int newIndexInv = agPrevLane.size() - segment - 1;
-		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) agPrevLane.get(oldIndex)).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(newIndexInv)).add(agent);
-		agent.setAttribute(SEGMENT_INDEX, segment);
+			final int segment, final RoadOccupancy currentAgentOn, final RoadOccupancy newAgentOn) {
+		final int newIndexInv = currentAgentOn.getNbSegments(previousLane) - segment - 1;
+		moveTo(agent, newLane, segment, newIndexInv, currentAgentOn, newAgentOn);
 	}
 
 	private void changeLanefromReverse(final IScope scope, final IAgent agent, final int previousLane,
-			final int newLane, final int segment, final List currentAgentOn, final List newAgentOn) {
-		final int oldIndex = getSegmentIndex(agent);
-		final List agPrevLane = (List) currentAgentOn.get(previousLane);
-		final int oldIndexInv = agPrevLane.size() - oldIndex - 1;
-		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) agPrevLane.get(oldIndexInv)).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(segment)).add(agent);
-		agent.setAttribute(SEGMENT_INDEX, segment);
+			final int newLane, final int segment, final RoadOccupancy currentAgentOn, final RoadOccupancy newAgentOn) {
+		moveTo(agent, newLane, segment, segment, currentAgentOn, newAgentOn);
 	}
 
 	private void changeLaneReverse(final IScope scope, final IAgent agent, final int previousLane, final int newLane,
-			final int segment, final List currentAgentOn, final List newAgentOn) {
-		final int oldIndex = getSegmentIndex(agent);
-		final List agPrevLane = (List) currentAgentOn.get(previousLane);
-		final int oldIndexInv = agPrevLane.size() - oldIndex - 1;
-		final int newIndexInv = agPrevLane.size() - segment - 1;
-		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) agPrevLane.get(oldIndexInv)).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(newIndexInv)).add(agent);
-		agent.setAttribute(SEGMENT_INDEX, segment);
+			final int segment, final RoadOccupancy currentAgentOn, final RoadOccupancy newAgentOn) {
+		final int newIndexInv = currentAgentOn.getNbSegments(previousLane) - segment - 1;
+		moveTo(agent, newLane, segment, newIndexInv, currentAgentOn, newAgentOn);
 	}
 
 	private void changeLane(final IScope scope, final IAgent agent, final int previousLane, final int newLane,
-			final int segment, final List currentAgentOn, final List newAgentOn) {
+			final int segment, final RoadOccupancy currentAgentOn, final RoadOccupancy newAgentOn) {
+		moveTo(agent, newLane, segment, segment, currentAgentOn, newAgentOn);
+	}
+
+	/**
+	 * Moves the driver to the segment of the lane of the new road (nothing is done if it is already there)
+	 */
+	private void moveTo(final IAgent agent, final int newLane, final int segment, final int index,
+			final RoadOccupancy currentAgentOn, final RoadOccupancy newAgentOn) {
 		agent.setAttribute(CURRENT_LANE, newLane);
-		((List) ((List) currentAgentOn.get(previousLane)).get(getSegmentIndex(agent))).remove(agent);
-		final List ags = (List) newAgentOn.get(newLane);
-		((List) ags.get(segment)).add(agent);
+		ParallelDriving.defer(() -> {
+			if (currentAgentOn != newAgentOn) {
+				currentAgentOn.remove(agent);
+			}
+			newAgentOn.add(agent, newLane, index);
+		});
 		agent.setAttribute(SEGMENT_INDEX, segment);
 	}
 
@@ -1416,12 +1415,12 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		int newLane = lane;
 		final int nbLinkedLanes = (Integer) linkedRoad.getAttribute(RoadSkill.LANES);
 		final int nbLanes = (Integer) currentRoad.getAttribute(RoadSkill.LANES);
-		final List agentOnCurrentRoad = (List) currentRoad.getAttribute(RoadSkill.AGENTS_ON);
-		final List agentOnLinkedRoad = (List) linkedRoad.getAttribute(RoadSkill.AGENTS_ON);
-		List newAgentOn = agentOnLinkedRoad;
+		final RoadOccupancy agentOnCurrentRoad = RoadOccupancy.of(currentRoad);
+		final RoadOccupancy agentOnLinkedRoad = RoadOccupancy.of(linkedRoad);
+		RoadOccupancy newAgentOn = agentOnLinkedRoad;
 		boolean onLinkedRoad = true;
 
-		if (scope.getRandom().next() < probaChangeLaneDown) {
+		if (ParallelDriving.random(scope).next() < probaChangeLaneDown) {
 			if (lane < nbLinkedLanes - 1) {
 
 				final double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target,
@@ -1465,7 +1464,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			newAgentOn = agentOnLinkedRoad;
 			onLinkedRoad = true;
 		}
-		if (lane > 0 && scope.getRandom().next() < probaChangeLaneUp) {
+		if (lane > 0 && ParallelDriving.random(scope).next() < probaChangeLaneUp) {
 			val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, lane - 1, segment,
 					true, currentRoad, true);
 			if (val > distMax && val > 0) {
@@ -1497,11 +1496,11 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		double distMax = 0;
 		int newLane = lane;
 		final double vl = getVehiculeLength(agent) / 2.0;
-		final List agentOn = (List) currentRoad.getAttribute(RoadSkill.AGENTS_ON);
-		List newAgentOn = agentOn;
+		final RoadOccupancy agentOn = RoadOccupancy.of(currentRoad);
+		RoadOccupancy newAgentOn = agentOn;
 		// boolean changeLane = false;
 
-		if (lane > 0 && scope.getRandom().next() < probaChangeLaneDown) {
+		if (lane > 0 && ParallelDriving.random(scope).next() < probaChangeLaneDown) {
 			final double val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target,
 					lane - 1, segment, false, currentRoad, true);
 			if (val == distance) {
@@ -1529,7 +1528,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			// changeLane = false;
 		}
 		if (lane < (Integer) currentRoad.getAttribute(RoadSkill.LANES) - 1
-				&& scope.getRandom().next() < probaChangeLaneUp) {
+				&& ParallelDriving.random(scope).next() < probaChangeLaneUp) {
 			val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, lane + 1, segment,
 					false, currentRoad, true);
 			if (val > distMax && val > vl) {
@@ -1539,7 +1538,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			}
 		}
 		boolean onLinkedRoad = false;
-		if (linkedRoad != null && scope.getRandom().next() < probaUseLinkedRoad) {
+		if (linkedRoad != null && ParallelDriving.random(scope).next() < probaUseLinkedRoad) {
 			final int nbLinkedLanes = (Integer) linkedRoad.getAttribute(RoadSkill.LANES);
 			val = avoidCollision(scope, agent, distance, security_distance, currentLocation, target, nbLinkedLanes - 1,
 					segment, true, currentRoad, true);
@@ -1547,7 +1546,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			if (val > distMax && val > vl) {
 				distMax = val;
 				newLane = nbLinkedLanes - 1;
-				newAgentOn = (List) linkedRoad.getAttribute(RoadSkill.AGENTS_ON);
+				newAgentOn = RoadOccupancy.of(linkedRoad);
 				setOnLinkedRoad(agent, true);
 				// changeLane = true;
 				onLinkedRoad = true;
@@ -1568,7 +1567,7 @@ public class AdvancedDrivingSkill extends MovingSkill {
 			final IAgent currentRoad, final IAgent linkedRoad, final Double probaChangeLaneUp,
 			final Double probaChangeLaneDown, final Double probaUseLinkedRoad, final Boolean rightSide) {
 		// long t = java.lang.System.currentTimeMillis();
-		GamaPoint currentLocation = (GamaPoint) agent.getLocation().copy(scope);
+		GamaPoint currentLocation = (GamaPoint) ParallelDriving.location(agent).copy(scope);
 		final GamaPoint falseTarget = target == null ? new GamaPoint(
 				currentRoad.getInnerGeometry().getCoordinates()[currentRoad.getInnerGeometry().getCoordinates().length])
 				: target;
@@ -1649,9 +1648,13 @@ public class AdvancedDrivingSkill extends MovingSkill {
 		if (pt != null) {
 			setDistanceToGoal(agent, pt.distance(currentLocation));
 		}
-		setLocation(agent, currentLocation);
-		if (path != null)
-			path.setSource(currentLocation.copy(scope));
+		if (!ParallelDriving.move(agent, currentLocation)) {
+			setLocation(agent, currentLocation);
+		}
+		if (path != null) {
+			final ILocation source = currentLocation.copy(scope);
+			ParallelDriving.defer(() -> path.setSource(source));
+		}
 
 		agent.setAttribute(IKeyword.REAL_SPEED, realDistance);
 		// t37 += java.lang.System.currentTimeMillis() - t;
@@ -0,0 +1,381 @@
+/*********************************************************************************************
+ *
+ * 'ParallelDriving.java, in plugin simtools.gaml.extensions.traffic, is part of the source code of the GAMA modeling
+ * and simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package simtools.gaml.extensions.traffic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.util.RandomUtils;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.path.IPath;
+
+/**
+ * Class ParallelDriving. The two-phase mode of the drive action of the advanced driving skill, which allows the
+ * drivers to be executed in parallel (with the parallel facet of their species).
+ *
+ * During the cycle, each driver decides its move without changing what the other drivers can see: the locations,
+ * speeds and distances to goal of the other drivers are read from a copy made at the beginning of the cycle, its own
+ * location is kept aside, and the changes to the roads and nodes (the lanes it leaves and enters, the nodes it blocks)
+ * are recorded. The random numbers used by the decision come from a generator of its own, seeded by the seed of the
+ * simulation, the cycle and the index of the driver. At the end of the cycle, the moves are committed in the order of
+ * the indexes of the drivers: a move that would put the vehicle over another one on the lane where it ends (because
+ * two drivers chose the same place) is cancelled and the driver stays where it was, on its roads and on its path. The
+ * results only depend on the seed, whatever the number of threads and the order in which the drivers are executed (as
+ * long as the actions redefined by the model do not use random numbers or modify the roads).
+ *
+ * The occupancies of the roads of the simulation (see RoadOccupancy) are built before the first driver decides its
+ * move, so that the drivers only read them (and the attributes of the roads) while they decide.
+ */
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public class ParallelDriving {
+
+	/** The drive of the current (or last) cycle of each simulation, removed when the simulation is disposed */
+	private static final Map<SimulationAgent, ParallelDriving> DRIVES = new IdentityHashMap<>();
+	private static final ThreadLocal<Decision> CURRENT = new ThreadLocal<>();
+	/** The attributes of a driver restored when its move is cancelled */
+	private static final String[] ATTRIBUTES = { IKeyword.SPEED, IKeyword.REAL_SPEED, AdvancedDrivingSkill.CURRENT_PATH,
+			AdvancedDrivingSkill.FINAL_TARGET, AdvancedDrivingSkill.CURRENT_TARGET, AdvancedDrivingSkill.CURRENT_INDEX,
+			AdvancedDrivingSkill.CURRENT_ROAD, AdvancedDrivingSkill.CURRENT_LANE, AdvancedDrivingSkill.SEGMENT_INDEX,
+			AdvancedDrivingSkill.DISTANCE_TO_GOAL, AdvancedDrivingSkill.ON_LINKED_ROAD, "index_on_path",
+			"index_on_path_segment" };
+
+	final int cycle;
+	/** What the drivers see of the other drivers during the cycle */
+	final Map<IAgent, State> states = new ConcurrentHashMap<>();
+	final Set<IPopulation<? extends IAgent>> copied = ConcurrentHashMap.newKeySet();
+	final List<Decision> decisions = Collections.synchronizedList(new ArrayList<>());
+	private volatile boolean prepared;
+	boolean committed;
+
+	/**
+	 * Returns the two-phase drive of the current cycle of the simulation, committed at the end of the cycle
+	 */
+	static synchronized ParallelDriving of(final IScope scope) {
+		final SimulationAgent simulation = scope.getSimulation();
+		final int cycle = scope.getClock().getCycle();
+		final ParallelDriving current = DRIVES.get(simulation);
+		if (current != null && current.cycle == cycle && !current.committed) { return current; }
+		if (current == null) {
+			// The dispose actions are not run if the simulation is interrupted, hence the removal of the dead ones
+			DRIVES.keySet().removeIf(s -> s.dead());
+			simulation.postDisposeAction(s -> {
+				synchronized (ParallelDriving.class) {
+					DRIVES.remove(simulation);
+				}
+				return null;
+			});
+		}
+		final ParallelDriving result = new ParallelDriving(cycle);
+		DRIVES.put(simulation, result);
+		simulation.postOneShotAction(s -> {
+			synchronized (ParallelDriving.class) {
+				result.committed = true;
+			}
+			result.commit(s);
+			return null;
+		});
+		return result;
+	}
+
+	ParallelDriving(final int cycle) {
+		this.cycle = cycle;
+	}
+
+	/**
+	 * Decides the move of the driver: the drive itself is run by the task, in the current thread
+	 */
+	void decide(final IScope scope, final AdvancedDrivingSkill skill, final IAgent driver, final Runnable task) {
+		prepare(scope);
+		copy(driver.getPopulation());
+		final Decision decision = new Decision(scope, skill, driver);
+		CURRENT.set(decision);
+		try {
+			task.run();
+		} finally {
+			CURRENT.remove();
+		}
+		decisions.add(decision);
+	}
+
+	/**
+	 * Builds the occupancies of the roads of the simulation, the first time a driver drives in the cycle
+	 */
+	private void prepare(final IScope scope) {
+		if (prepared) { return; }
+		synchronized (this) {
+			if (prepared) { return; }
+			for (final IPopulation<? extends IAgent> population : scope.getSimulation().getMicroPopulations()) {
+				if (!population.getSpecies().implementsSkill(RoadSkill.SKILL)) {
+					continue;
+				}
+				for (final IAgent road : population) {
+					if (road != null && !road.dead()) {
+						RoadOccupancy.of(road);
+					}
+				}
+			}
+			prepared = true;
+		}
+	}
+
+	/**
+	 * Copies the state of the drivers of the population, the first time one of them drives in the cycle
+	 */
+	private void copy(final IPopulation<? extends IAgent> population) {
+		if (copied.contains(population)) { return; }
+		synchronized (this) {
+			if (copied.contains(population)) { return; }
+			for (final IAgent agent : population) {
+				if (agent != null && !agent.dead()) {
+					states.put(agent, new State(agent));
+				}
+			}
+			copied.add(population);
+		}
+	}
+
+	/**
+	 * Commits the moves, in the order of the drivers
+	 */
+	void commit(final IScope scope) {
+		final Decision[] array = decisions.toArray(new Decision[0]);
+		decisions.clear();
+		states.clear();
+		Arrays.sort(array, (d1, d2) -> {
+			final int c = d1.driver.getPopulation().compareTo((IPopulation) d2.driver.getPopulation());
+			return c != 0 ? c : Integer.compare(d1.driver.getIndex(), d2.driver.getIndex());
+		});
+		for (final Decision decision : array) {
+			if (decision.driver.dead()) {
+				continue;
+			}
+			if (decision.overlaps()) {
+				decision.cancel();
+			} else {
+				decision.apply();
+			}
+		}
+	}
+
+	/**
+	 * Whether the move of a driver is being decided by the current thread
+	 */
+	public static boolean isDeciding() {
+		return CURRENT.get() != null;
+	}
+
+	/**
+	 * Runs the change to the roads or nodes now, or at the end of the cycle if a move is being decided
+	 */
+	public static void defer(final Runnable change) {
+		final Decision decision = CURRENT.get();
+		if (decision == null) {
+			change.run();
+		} else {
+			decision.changes.add(change);
+		}
+	}
+
+	/**
+	 * The location of the driver, as seen by itself
+	 */
+	public static GamaPoint location(final IAgent driver) {
+		final Decision decision = CURRENT.get();
+		if (decision != null && decision.driver == driver) { return decision.location; }
+		return (GamaPoint) driver.getLocation();
+	}
+
+	/**
+	 * Moves the driver whose move is being decided. Returns false if it is not the case
+	 */
+	public static boolean move(final IAgent driver, final GamaPoint location) {
+		final Decision decision = CURRENT.get();
+		if (decision == null || decision.driver != driver) { return false; }
+		decision.location = location;
+		return true;
+	}
+
+	/**
+	 * The random number generator of the driver whose move is being decided, or the one of the scope
+	 */
+	public static RandomUtils random(final IScope scope) {
+		final Decision decision = CURRENT.get();
+		return decision == null ? scope.getRandom() : decision.random();
+	}
+
+	/**
+	 * The seed of the generator of a driver. The seed of the simulation, the cycle and the index of the driver are mixed
+	 * (like in SplitMix64) and reduced to 53 bits, so that the double expected by RandomUtils represents them exactly
+	 */
+	static double seed(final Double seed, final int cycle, final int index) {
+		final long bits = seed == null ? 0 : Double.doubleToLongBits(seed);
+		return (mix(mix(mix(bits) + cycle) + index) >>> 11) * 0x1.0p-53;
+	}
+
+	private static long mix(final long l) {
+		long z = l + 0x9e3779b97f4a7c15L;
+		z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+		return z ^ z >>> 31;
+	}
+
+	private static State observed(final IAgent agent) {
+		final Decision decision = CURRENT.get();
+		return decision == null ? null : decision.drive.states.get(agent);
+	}
+
+	/**
+	 * The location of another driver, as seen by the driver whose move is being decided (its location at the beginning
+	 * of the cycle)
+	 */
+	public static GamaPoint observedLocation(final IAgent agent) {
+		final State state = observed(agent);
+		return state == null ? (GamaPoint) agent.getLocation() : state.location;
+	}
+
+	public static double observedRealSpeed(final IAgent agent) {
+		final State state = observed(agent);
+		return state == null ? (Double) agent.getAttribute(IKeyword.REAL_SPEED) : state.realSpeed;
+	}
+
+	public static double observedDistanceToGoal(final IAgent agent) {
+		final State state = observed(agent);
+		return state == null ? (Double) agent.getAttribute(AdvancedDrivingSkill.DISTANCE_TO_GOAL)
+				: state.distanceToGoal;
+	}
+
+	public static boolean observedOnLinkedRoad(final IAgent agent) {
+		final State state = observed(agent);
+		return state == null ? (Boolean) agent.getAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD) : state.onLinkedRoad;
+	}
+
+	/**
+	 * Class State. What the other drivers see of a driver during a cycle
+	 */
+	static class State {
+		final GamaPoint location;
+		final double realSpeed;
+		final double distanceToGoal;
+		final boolean onLinkedRoad;
+
+		State(final IAgent agent) {
+			location = new GamaPoint(agent.getLocation());
+			final Object rs = agent.getAttribute(IKeyword.REAL_SPEED);
+			realSpeed = rs == null ? 0.0 : (Double) rs;
+			final Object dg = agent.getAttribute(AdvancedDrivingSkill.DISTANCE_TO_GOAL);
+			distanceToGoal = dg == null ? 0.0 : (Double) dg;
+			onLinkedRoad = Boolean.TRUE.equals(agent.getAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD));
+		}
+	}
+
+	/**
+	 * Class Decision. The move decided by a driver during the cycle, not yet committed
+	 */
+	class Decision {
+		final ParallelDriving drive = ParallelDriving.this;
+		final AdvancedDrivingSkill skill;
+		final IAgent driver;
+		final GamaPoint start;
+		GamaPoint location;
+		final Double seed;
+		final String rng;
+		/** Created the first time the decision draws a number */
+		private RandomUtils random;
+		final Object[] saved = new Object[ATTRIBUTES.length];
+		/** The path followed by the driver, and its source, which goto and follow modify */
+		final IPath path;
+		final Object source;
+		final List<Runnable> changes = new ArrayList<>();
+
+		Decision(final IScope scope, final AdvancedDrivingSkill skill, final IAgent driver) {
+			this.skill = skill;
+			this.driver = driver;
+			start = new GamaPoint(driver.getLocation());
+			location = start;
+			for (int i = 0; i < ATTRIBUTES.length; i++) {
+				saved[i] = driver.getAttribute(ATTRIBUTES[i]);
+			}
+			final Object p = driver.getAttribute(AdvancedDrivingSkill.CURRENT_PATH);
+			path = p instanceof IPath ? (IPath) p : null;
+			source = path == null ? null : path.getStartVertex();
+			seed = scope.getRandom().getSeed();
+			rng = scope.getRandom().getRngName();
+		}
+
+		RandomUtils random() {
+			if (random == null) {
+				random = new RandomUtils(seed(seed, cycle, driver.getIndex()), rng);
+			}
+			return random;
+		}
+
+		/**
+		 * Whether the vehicle, at the end of its move, would be over a vehicle of the lane where it ends
+		 */
+		boolean overlaps() {
+			final IAgent road = (IAgent) driver.getAttribute(AdvancedDrivingSkill.CURRENT_ROAD);
+			final Integer lane = (Integer) driver.getAttribute(AdvancedDrivingSkill.CURRENT_LANE);
+			final Integer segment = (Integer) driver.getAttribute(AdvancedDrivingSkill.SEGMENT_INDEX);
+			if (road == null || lane == null || segment == null || location.equals(start)) { return false; }
+			final boolean onLinkedRoad = Boolean.TRUE.equals(driver.getAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD));
+			final IAgent lanesRoad = onLinkedRoad ? RoadSkill.getLinkedRoad(road) : road;
+			if (lanesRoad == null) { return false; }
+			final RoadOccupancy occupancy = RoadOccupancy.of(lanesRoad);
+			if (lane < 0 || lane >= occupancy.getNbLanes()) { return false; }
+			final int nbSegments = occupancy.getNbSegments(lane);
+			final int index = onLinkedRoad ? nbSegments - 1 - segment : segment;
+			if (index < 0 || index >= nbSegments) { return false; }
+			final double length = skill.getVehiculeLength(driver);
+			for (final IAgent other : occupancy.getAgents(lane, index)) {
+				if (other == null || other == driver) {
+					continue;
+				}
+				final double gap = 0.5 * (length + skill.getVehiculeLength(other));
+				if (location.distance((GamaPoint) other.getLocation()) < gap) { return true; }
+			}
+			return false;
+		}
+
+		void apply() throws GamaRuntimeException {
+			for (final Runnable change : changes) {
+				change.run();
+			}
+			if (!location.equals(start)) {
+				skill.setLocation(driver, location);
+			}
+		}
+
+		/**
+		 * The driver stays where it was at the beginning of the cycle, on its roads and on its path
+		 */
+		void cancel() {
+			for (int i = 0; i < ATTRIBUTES.length; i++) {
+				driver.setAttribute(ATTRIBUTES[i], saved[i]);
+			}
+			if (path != null) {
+				path.setSource(source);
+			}
+			driver.setAttribute(IKeyword.REAL_SPEED, 0.0);
+		}
+	}
+
+}
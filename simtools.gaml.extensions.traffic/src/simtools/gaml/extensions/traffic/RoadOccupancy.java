@@ -0,0 +1,371 @@
+/*********************************************************************************************
+ *
+ * 'RoadOccupancy.java, in plugin simtools.gaml.extensions.traffic, is part of the source code of the GAMA modeling
+ * and simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package simtools.gaml.extensions.traffic;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import msi.gama.metamodel.agent.IAgent;
+
+/**
+ * Class RoadOccupancy. The drivers on each lane and each segment of a road, kept alongside the lists of the agents_on
+ * and all_agents variables of the road (which remain the ones seen by the models). Each driver on the road has a slot
+ * that gives its position in these lists, so that removing it, moving it to another segment or lane or testing whether
+ * it is on a segment does not require to look for it in the lists. Removing a driver moves the last driver of the list
+ * to its place.
+ *
+ * The drivers of each segment are also ordered by their position along the segment, sorted again only when drivers
+ * have entered or left the segment or at a new cycle (as the drivers of a lane do not overtake each other, the order is
+ * almost always already right and the sort is linear), so that the driver ahead of another one is found by a binary
+ * search.
+ */
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public class RoadOccupancy {
+
+	public final static String OCCUPANCY = "road_occupancy";
+
+	/** The value of agents_on, whose lists are kept up to date */
+	final List agentsOn;
+	final Cell[][] lanes;
+	final Cell all;
+	final Map<IAgent, Slot> slots = new IdentityHashMap<>();
+	final Map<IAgent, Slot> slotsInAll = new IdentityHashMap<>();
+
+	/**
+	 * Returns the occupancy of the road, built from its lists of agents the first time or if the model has replaced
+	 * them. While the drivers decide their moves in parallel (see ParallelDriving), the occupancy built before is
+	 * returned as is, and a road that has none gets one that is not kept (the attributes of the road are not modified)
+	 */
+	public static RoadOccupancy of(final IAgent road) {
+		if (ParallelDriving.isDeciding()) {
+			final Object o = road.getAttribute(OCCUPANCY);
+			if (o instanceof RoadOccupancy) { return (RoadOccupancy) o; }
+			return new RoadOccupancy(RoadSkill.getAgentsOn(road), RoadSkill.getAgents(road));
+		}
+		final RoadOccupancy result = current(road);
+		if (result != null) { return result; }
+		final RoadOccupancy created = new RoadOccupancy(RoadSkill.getAgentsOn(road), RoadSkill.getAgents(road));
+		road.setAttribute(OCCUPANCY, created);
+		return created;
+	}
+
+	private static RoadOccupancy current(final IAgent road) {
+		final Object o = road.getAttribute(OCCUPANCY);
+		if (!(o instanceof RoadOccupancy)) { return null; }
+		final RoadOccupancy result = (RoadOccupancy) o;
+		final List all = RoadSkill.getAgents(road);
+		if (result.agentsOn == RoadSkill.getAgentsOn(road)
+				&& (result.all == null ? all == null : result.all.agents == all) && !result.hasNewLists()) {
+			return result;
+		}
+		return null;
+	}
+
+	RoadOccupancy(final List agentsOn, final List all) {
+		this.agentsOn = agentsOn;
+		final int nbLanes = agentsOn == null ? 0 : agentsOn.size();
+		lanes = new Cell[nbLanes][];
+		for (int i = 0; i < nbLanes; i++) {
+			final List segments = (List) agentsOn.get(i);
+			lanes[i] = new Cell[segments.size()];
+			for (int j = 0; j < lanes[i].length; j++) {
+				lanes[i][j] = new Cell((List<IAgent>) segments.get(j), slots);
+			}
+		}
+		this.all = all == null ? null : new Cell(all, slotsInAll);
+	}
+
+	/**
+	 * Whether lanes or segments have been added to agents_on since the occupancy was built
+	 */
+	private boolean hasNewLists() {
+		if (agentsOn == null) { return false; }
+		if (agentsOn.size() != lanes.length) { return true; }
+		for (int i = 0; i < lanes.length; i++) {
+			if (((List) agentsOn.get(i)).size() != lanes[i].length) { return true; }
+		}
+		return false;
+	}
+
+	public int getNbLanes() {
+		return lanes.length;
+	}
+
+	public int getNbSegments(final int lane) {
+		return lanes[lane].length;
+	}
+
+	/**
+	 * The drivers on the segment of the lane (the list of agents_on). It must not be modified
+	 */
+	public List<IAgent> getAgents(final int lane, final int segment) {
+		return lanes[lane][segment].agents;
+	}
+
+	/**
+	 * Puts the driver on the segment of the lane, removing it from where it was on the road
+	 */
+	public void add(final IAgent driver, final int lane, final int segment) {
+		final Cell cell = lanes[lane][segment];
+		final Slot slot = slots.get(driver);
+		if (slot != null) {
+			if (slot.cell == cell) { return; }
+			slot.cell.remove(slot);
+		}
+		cell.add(driver);
+	}
+
+	/**
+	 * Removes the driver from the lanes of the road. Returns false if it was not on them
+	 */
+	public boolean remove(final IAgent driver) {
+		final Slot slot = slots.get(driver);
+		if (slot == null) { return false; }
+		slot.cell.remove(slot);
+		return true;
+	}
+
+	/**
+	 * Whether the driver is on the segment of the lane
+	 */
+	public boolean contains(final IAgent driver, final int lane, final int segment) {
+		final Slot slot = slots.get(driver);
+		return slot != null && slot.cell == lanes[lane][segment];
+	}
+
+	/**
+	 * The number of drivers other than the given one on the segment of the lane
+	 */
+	public int countOthers(final IAgent driver, final int lane, final int segment) {
+		final Cell cell = lanes[lane][segment];
+		return cell.agents.size() - (contains(driver, lane, segment) ? 1 : 0);
+	}
+
+	/**
+	 * Adds the driver to the list of all the agents on the road, if it is not already in it
+	 */
+	public void addToAll(final IAgent driver) {
+		if (all != null && !slotsInAll.containsKey(driver)) {
+			all.add(driver);
+		}
+	}
+
+	public void removeFromAll(final IAgent driver) {
+		if (all == null) { return; }
+		final Slot slot = slotsInAll.get(driver);
+		if (slot != null) {
+			all.remove(slot);
+		}
+	}
+
+	/**
+	 * The driver of the segment of the lane, other than the given one, with the greatest position lower than the given
+	 * one, or null. The positions of the drivers are given by the key (an int identifies it, as the drivers are ordered
+	 * by one key at a time)
+	 */
+	public IAgent getLeader(final int lane, final int segment, final IAgent driver, final double position,
+			final ToDoubleFunction<IAgent> key, final int keyId, final int cycle) {
+		final Cell cell = lanes[lane][segment];
+		synchronized (cell) {
+			cell.sort(key, keyId, cycle);
+			for (int i = cell.search(key, position) - 1; i >= 0; i--) {
+				final IAgent ag = cell.order.get(i).driver;
+				if (ag != driver && ag != null) { return ag; }
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Whether a driver of the segment of the lane, other than the given one, has a position closer than the distance
+	 * to the given one
+	 */
+	public boolean hasNeighbour(final int lane, final int segment, final IAgent driver, final double position,
+			final double distance, final ToDoubleFunction<IAgent> key, final int keyId, final int cycle) {
+		final Cell cell = lanes[lane][segment];
+		synchronized (cell) {
+			cell.sort(key, keyId, cycle);
+			final int index = cell.search(key, position);
+			for (int i = index - 1; i >= 0; i--) {
+				final IAgent ag = cell.order.get(i).driver;
+				if (ag == null || position - key.applyAsDouble(ag) >= distance) {
+					break;
+				}
+				if (ag != driver) { return true; }
+			}
+			for (int i = index; i < cell.order.size(); i++) {
+				final IAgent ag = cell.order.get(i).driver;
+				if (key.applyAsDouble(ag) - position >= distance) {
+					break;
+				}
+				if (ag != driver) { return true; }
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Class Slot. The place of a driver in the list of a cell
+	 */
+	static class Slot {
+		final IAgent driver;
+		final Cell cell;
+		int index;
+		boolean removed;
+
+		Slot(final IAgent driver, final Cell cell, final int index) {
+			this.driver = driver;
+			this.cell = cell;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Class Cell. A list of drivers, with their slots by index and in the order of their positions
+	 */
+	static class Cell {
+		final List<IAgent> agents;
+		final Map<IAgent, Slot> owners;
+		final List<Slot> byIndex = new ArrayList<>();
+		/** Ordered by position when sorted, may contain removed slots otherwise */
+		final List<Slot> order = new ArrayList<>();
+		boolean sorted;
+		int sortedKey = -1;
+		int sortedCycle = -1;
+
+		Cell(final List<IAgent> agents, final Map<IAgent, Slot> owners) {
+			this.agents = agents;
+			this.owners = owners;
+			resync();
+		}
+
+		void add(final IAgent driver) {
+			if (byIndex.size() != agents.size()) {
+				resync();
+			}
+			final Slot slot = new Slot(driver, this, agents.size());
+			agents.add(driver);
+			byIndex.add(slot);
+			order.add(slot);
+			owners.put(driver, slot);
+			sorted = false;
+		}
+
+		void remove(final Slot slot) {
+			if (byIndex.size() != agents.size() || agents.get(slot.index) != slot.driver) {
+				// The list has been modified by the model
+				agents.remove(slot.driver);
+				forget(slot);
+				resync();
+				return;
+			}
+			final int last = agents.size() - 1;
+			if (slot.index < last) {
+				final Slot moved = byIndex.get(last);
+				moved.index = slot.index;
+				agents.set(slot.index, moved.driver);
+				byIndex.set(slot.index, moved);
+			}
+			agents.remove(last);
+			byIndex.remove(last);
+			forget(slot);
+		}
+
+		private void forget(final Slot slot) {
+			slot.removed = true;
+			owners.remove(slot.driver, slot);
+			sorted = false;
+		}
+
+		/**
+		 * Rebuilds the slots from the list
+		 */
+		private void resync() {
+			for (final Slot slot : byIndex) {
+				slot.removed = true;
+				owners.remove(slot.driver, slot);
+			}
+			byIndex.clear();
+			order.clear();
+			for (int i = 0; i < agents.size(); i++) {
+				final IAgent driver = agents.get(i);
+				final Slot slot = new Slot(driver, this, i);
+				byIndex.add(slot);
+				order.add(slot);
+				if (driver != null) {
+					owners.put(driver, slot);
+				}
+			}
+			sorted = false;
+		}
+
+		/**
+		 * Sorts the drivers by increasing key (then by index, so that the order does not depend on the previous
+		 * sorts), if needed
+		 */
+		void sort(final ToDoubleFunction<IAgent> key, final int keyId, final int cycle) {
+			// The slots are read without lock while the drivers decide their moves: they are only rebuilt after
+			if (byIndex.size() != agents.size() && !ParallelDriving.isDeciding()) {
+				resync();
+			}
+			if (sorted && sortedKey == keyId && sortedCycle == cycle) { return; }
+			order.removeIf(s -> s.removed);
+			final int n = order.size();
+			final double[] keys = new double[n];
+			final int[] indexes = new int[n];
+			for (int i = 0; i < n; i++) {
+				final IAgent ag = order.get(i).driver;
+				keys[i] = ag == null ? Double.NEGATIVE_INFINITY : key.applyAsDouble(ag);
+				indexes[i] = ag == null ? -1 : ag.getIndex();
+			}
+			// Insertion sort, linear on an almost sorted list
+			for (int i = 1; i < n; i++) {
+				final double k = keys[i];
+				final int index = indexes[i];
+				final Slot s = order.get(i);
+				int j = i - 1;
+				while (j >= 0 && (keys[j] > k || keys[j] == k && indexes[j] > index)) {
+					keys[j + 1] = keys[j];
+					indexes[j + 1] = indexes[j];
+					order.set(j + 1, order.get(j));
+					j--;
+				}
+				keys[j + 1] = k;
+				indexes[j + 1] = index;
+				order.set(j + 1, s);
+			}
+			sorted = true;
+			sortedKey = keyId;
+			sortedCycle = cycle;
+		}
+
+		/**
+		 * The index of the first driver whose key is not lower than the position
+		 */
+		int search(final ToDoubleFunction<IAgent> key, final double position) {
+			int low = 0;
+			int high = order.size();
+			while (low < high) {
+				final int mid = low + high >>> 1;
+				final IAgent ag = order.get(mid).driver;
+				if (ag == null || key.applyAsDouble(ag) < position) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+}
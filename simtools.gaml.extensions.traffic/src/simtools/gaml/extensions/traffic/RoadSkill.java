@@ -67,12 +67,14 @@ import msi.gaml.types.IType;
 				type = IType.FLOAT,
 				doc = @doc ("the maximal speed on the road")) })
 @skill (
-		name = "skill_road",
+		name = RoadSkill.SKILL,
 		concept = { IConcept.TRANSPORT, IConcept.SKILL },
 		doc = @doc ("A skill for agents representing roads in traffic simulations"))
 @SuppressWarnings ({ "unchecked", "rawtypes" })
 public class RoadSkill extends Skill {
 
+	public final static String SKILL = "skill_road";
+
 	public final static String AGENTS = "all_agents";
 
 	public final static String AGENTS_ON = "agents_on";
@@ -149,26 +151,7 @@ public class RoadSkill extends Skill {
 		final int nbLanes = (Integer) road.getAttribute(LANES);
 
 		if (driver != null) {
-			final IAgent cr = (IAgent) driver.getAttribute(AdvancedDrivingSkill.CURRENT_ROAD);
-			final Integer pl = (Integer) driver.getAttribute(AdvancedDrivingSkill.CURRENT_LANE);
-			if (cr != null && pl != null) {
-				Integer segmentIndex = (Integer) driver.getAttribute(AdvancedDrivingSkill.SEGMENT_INDEX);
-				if (agentOnLinkedRoad) {
-					final IAgent lr = getLinkedRoad(cr);
-					final List agsLane = (List) getAgentsOn(lr).get(pl);
-					if (segmentIndex == null) {
-						segmentIndex = getSegmentIndex(lr, driver);
-					}
-					((List) agsLane.get(agsLane.size() - 1 - segmentIndex)).remove(driver);
-					getAgents(cr).remove(driver);
-				} else {
-					if (segmentIndex == null) {
-						segmentIndex = getSegmentIndex(cr, driver);
-					}
-					((List) ((List) getAgentsOn(cr).get(pl)).get(segmentIndex)).remove(driver);
-					getAgents(cr).remove(driver);
-				}
-			}
+			unregister(driver, agentOnLinkedRoad);
 			int indexSegment = 0;
 			boolean onLinkedRoad = false;
 			if (lane >= nbLanes && linkedRoad != null) {
@@ -179,20 +162,27 @@ public class RoadSkill extends Skill {
 				lane = CmnFastMath.max(0, CmnFastMath.min(lane, nbLanesLinked - 1));
 				driver.setAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD, true);
 
-				final List agentsOn = (List) linkedRoad.getAttribute(AGENTS_ON);
-				final List ags = (List) agentsOn.get(lane);
-				((List) ags.get(ags.size() - 1)).add(driver);
-				getAgents(road).add(driver);
+				final RoadOccupancy occupancy = RoadOccupancy.of(linkedRoad);
+				final RoadOccupancy all = RoadOccupancy.of(road);
+				final int l = lane;
+				ParallelDriving.defer(() -> {
+					occupancy.add(driver, l, occupancy.getNbSegments(l) - 1);
+					all.addToAll(driver);
+				});
 			} else {
 				lane = CmnFastMath.min(lane, nbLanes - 1);
 				driver.setAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD, false);
 				indexSegment = getSegmentIndex(road, driver);
-				final List agentsOn = (List) road.getAttribute(AGENTS_ON);
-				((List) ((List) agentsOn.get(lane)).get(indexSegment)).add(driver);
-				getAgents(road).add(driver);
+				final RoadOccupancy occupancy = RoadOccupancy.of(road);
+				final int l = lane;
+				final int s = indexSegment;
+				ParallelDriving.defer(() -> {
+					occupancy.add(driver, l, s);
+					occupancy.addToAll(driver);
+				});
 			}
 			driver.setAttribute(AdvancedDrivingSkill.DISTANCE_TO_GOAL,
-					driver.getLocation().euclidianDistanceTo(road.getPoints().get(indexSegment + 1)));
+					ParallelDriving.location(driver).euclidianDistanceTo(road.getPoints().get(indexSegment + 1)));
 			driver.setAttribute(AdvancedDrivingSkill.CURRENT_ROAD, road);
 			driver.setAttribute(AdvancedDrivingSkill.CURRENT_LANE, lane);
 			driver.setAttribute(AdvancedDrivingSkill.SEGMENT_INDEX,
@@ -201,11 +191,28 @@ public class RoadSkill extends Skill {
 		}
 	}
 
+	/**
+	 * Removes the driver from the lanes of its current road (or of the linked road) and from the agents of its current
+	 * road
+	 */
+	static void unregister(final IAgent driver, final boolean agentOnLinkedRoad) {
+		final IAgent cr = (IAgent) driver.getAttribute(AdvancedDrivingSkill.CURRENT_ROAD);
+		final Integer pl = (Integer) driver.getAttribute(AdvancedDrivingSkill.CURRENT_LANE);
+		if (cr == null || pl == null) { return; }
+		final RoadOccupancy lanes = RoadOccupancy.of(agentOnLinkedRoad ? getLinkedRoad(cr) : cr);
+		final RoadOccupancy all = RoadOccupancy.of(cr);
+		// Only removed at the end of the cycle if the driver is deciding its move (see ParallelDriving)
+		ParallelDriving.defer(() -> {
+			lanes.remove(driver);
+			all.removeFromAll(driver);
+		});
+	}
+
 	public static int getSegmentIndex(final IAgent road, final IAgent driver) {
 		final Coordinate[] coords = road.getInnerGeometry().getCoordinates();
 		if (coords.length == 2) { return 0; }
 
-		final ILocation loc = driver.getLocation();
+		final ILocation loc = ParallelDriving.location(driver);
 		for (int i = 0; i < coords.length - 1; i++) {
 			if (coords[i].equals(loc)) { return i; }
 		}
@@ -253,26 +260,7 @@ public class RoadSkill extends Skill {
 		int lane = scope.getIntArg("lane");
 
 		if (driver != null) {
-			final IAgent cr = (IAgent) driver.getAttribute(AdvancedDrivingSkill.CURRENT_ROAD);
-			final Integer pl = (Integer) driver.getAttribute(AdvancedDrivingSkill.CURRENT_LANE);
-			if (cr != null && pl != null) {
-				Integer segmentIndex = (Integer) driver.getAttribute(AdvancedDrivingSkill.SEGMENT_INDEX);
-				if (agentOnLinkedRoad) {
-					final IAgent lr = getLinkedRoad(cr);
-					final List agsLane = (List) getAgentsOn(lr).get(pl);
-					if (segmentIndex == null) {
-						segmentIndex = getSegmentIndex(lr, driver);
-					}
-					((List) agsLane.get(agsLane.size() - 1 - segmentIndex)).remove(driver);
-					getAgents(cr).remove(driver);
-				} else {
-					if (segmentIndex == null) {
-						segmentIndex = getSegmentIndex(cr, driver);
-					}
-					((List) ((List) getAgentsOn(cr).get(pl)).get(segmentIndex)).remove(driver);
-					getAgents(cr).remove(driver);
-				}
-			}
+			unregister(driver, agentOnLinkedRoad);
 			int indexSegment = 0;
 			if (lane >= nbLanes && linkedRoad != null) {
 				final int nbLanesLinked = (Integer) linkedRoad.getAttribute(LANES);
@@ -281,21 +269,28 @@ public class RoadSkill extends Skill {
 				lane = CmnFastMath.max(0, CmnFastMath.min(lane, nbLanesLinked - 1));
 				driver.setAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD, true);
 
-				final List agentsOn = (List) linkedRoad.getAttribute(AGENTS_ON);
-				final List ags = (List) agentsOn.get(lane);
-				((List) ags.get(ags.size() - 1)).add(driver);
-				getAgents(road).add(driver);
+				final RoadOccupancy occupancy = RoadOccupancy.of(linkedRoad);
+				final RoadOccupancy all = RoadOccupancy.of(road);
+				final int l = lane;
+				ParallelDriving.defer(() -> {
+					occupancy.add(driver, l, occupancy.getNbSegments(l) - 1);
+					all.addToAll(driver);
+				});
 			} else {
 				lane = CmnFastMath.min(lane, nbLanes - 1);
 				driver.setAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD, false);
 				indexSegment = getSegmentIndex(road, driver);
-				final List agentsOn = (List) road.getAttribute(AGENTS_ON);
-				((List) ((List) agentsOn.get(lane)).get(indexSegment)).add(driver);
-				getAgents(road).add(driver);
+				final RoadOccupancy occupancy = RoadOccupancy.of(road);
+				final int l = lane;
+				final int s = indexSegment;
+				ParallelDriving.defer(() -> {
+					occupancy.add(driver, l, s);
+					occupancy.addToAll(driver);
+				});
 			}
 			// System.out.println("register " + driver + " lane : " + lane);
 			final Coordinate[] coords = road.getInnerGeometry().getCoordinates();
-			final Coordinate pt = (Coordinate) driver.getLocation();
+			final Coordinate pt = ParallelDriving.location(driver);
 			if (coords[0].equals(pt)) {
 				driver.setAttribute(AdvancedDrivingSkill.DISTANCE_TO_GOAL, coords[1].distance(pt));
 			} else {
@@ -333,28 +328,7 @@ public class RoadSkill extends Skill {
 		final IAgent driver = (IAgent) scope.getArg("agent", IType.AGENT);
 		// driver.setAttribute(AdvancedDrivingSkill.SEGMENT_INDEX, -1);
 		final boolean agentOnLinkedRoad = (Boolean) driver.getAttribute(AdvancedDrivingSkill.ON_LINKED_ROAD);
-		if (driver.hasAttribute("current_road") && driver.hasAttribute("current_lane")) {
-			final IAgent cr = (IAgent) driver.getAttribute("current_road");
-			final Integer pl = (Integer) driver.getAttribute("current_lane");
-			Integer segmentIndex = (Integer) driver.getAttribute(AdvancedDrivingSkill.SEGMENT_INDEX);
-			if (cr != null && pl != null) {
-				if (agentOnLinkedRoad) {
-					final IAgent lr = getLinkedRoad(cr);
-					final List agsLane = (List) getAgentsOn(lr).get(pl);
-					if (segmentIndex == null) {
-						segmentIndex = getSegmentIndex(lr, driver);
-					}
-					((List) agsLane.get(agsLane.size() - 1 - segmentIndex)).remove(driver);
-					getAgents(cr).remove(driver);
-				} else {
-					if (segmentIndex == null) {
-						segmentIndex = getSegmentIndex(cr, driver);
-					}
-					((List) ((List) getAgentsOn(cr).get(pl)).get(segmentIndex)).remove(driver);
-					getAgents(cr).remove(driver);
-				}
-			}
-		}
+		unregister(driver, agentOnLinkedRoad);
 	}
 
 }
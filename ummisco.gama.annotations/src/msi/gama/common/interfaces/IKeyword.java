@@ -83,6 +83,7 @@ public interface IKeyword {
 	public static final String COLOR_GREEN = "green";
 	public static final String COLOR_RED = "red";
 	public static final String COMMA = ",";
+	public static final String COMPILE = "compile";
 	public static final String CONDITION = "condition";
 	public static final String CONST = "const";
 	public static final String CONTENTS = "contents";
@@ -298,6 +299,7 @@ public interface IKeyword {
 	public static final String OPEN_EXP = "(";
 	public static final String OPEN_LIST = "[";
 	public static final String OPEN_POINT = "{";
+	public static final String OPTIMIZE = "optimize";
 	public static final String OPTIONAL = "optional";
 	public static final String ORTHOGRAPHIC_PROJECTION = "orthographic_projection";
 	public static final String OTHER_EVENTS = "other_events";
@@ -307,6 +309,7 @@ public interface IKeyword {
 	public static final String PARAMETER = "parameter";
 	public static final String PARAMS = "params";
 	public static final String PARENT = "parent";
+	public static final String PARQUET = "parquet";
 	public static final String PATH = "path";
 	public static final String PAUSE_SOUND = "pause_sound";
 	public static final String PEERS = "peers";
@@ -422,6 +425,9 @@ public interface IKeyword {
 	public static final String UNTIL = "until";
 	public static final String UPDATE = "update";
 	public static final String UP_VECTOR = "up_vector";
+	public static final String USE_COLUMNAR_ATTRIBUTES = "use_columnar_attributes";
+	public static final String USE_CONCURRENT_INDEX = "use_concurrent_index";
+	public static final String USE_DEFERRED_INDEX = "use_deferred_index";
 	public static final String USER_CONTROLLED = "user_controlled";
 	public static final String USER_COMMAND = "user_command";
 	public static final String USER_INPUT = "user_input";
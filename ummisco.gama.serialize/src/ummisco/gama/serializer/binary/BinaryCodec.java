@@ -0,0 +1,157 @@
+/*********************************************************************************************
+ *
+ * 'BinaryCodec.java, in plugin ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package ummisco.gama.serializer.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import com.thoughtworks.xstream.XStream;
+
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import ummisco.gama.serializer.factory.StreamConverter;
+import ummisco.gama.serializer.gamaType.converters.ConverterScope;
+
+/**
+ * Class BinaryCodec. A compact binary alternative to the XML produced by the converters of {@link StreamConverter}. The
+ * values are written as a tag followed by their content: numbers as variable length integers or raw doubles, points as
+ * 3 doubles, geometries in the WKB format (with their attributes), containers with their types and elements, agents as
+ * a reference to their host, species and index. The saved agents only write the ordered names of their variables
+ * (their schema) the first time it is met in a stream, and then refer to it by a number, just like the names of
+ * species, types and variables. The values without a binary form (files, graphs, dates, populations...) are written
+ * using the XML converters, so that everything that could be serialized before can still be.
+ *
+ * The large populations are cut in chunks of agents encoded independently (each one having its own tables of names),
+ * so that the chunks can be encoded and decoded in parallel, and written to (or read from) a stream without having to
+ * keep the whole simulation in memory. A codec can be used by several threads at the same time.
+ */
+public class BinaryCodec {
+
+	/** The first bytes of any stream written by a codec ("GAMB" followed by the version of the format) */
+	public static final byte[] MAGIC = { 'G', 'A', 'M', 'B', 1 };
+	/** The extension of the files saved in this format by the serialization operators */
+	public static final String EXTENSION = ".gamb";
+
+	static final byte NULL = 0;
+	static final byte TRUE = 1;
+	static final byte FALSE = 2;
+	static final byte INT = 3;
+	static final byte FLOAT = 4;
+	static final byte STRING = 5;
+	static final byte POINT = 6;
+	static final byte SHAPE = 7;
+	static final byte COLOR = 8;
+	static final byte LIST = 9;
+	static final byte MAP = 10;
+	static final byte PAIR = 11;
+	static final byte INT_MATRIX = 12;
+	static final byte FLOAT_MATRIX = 13;
+	static final byte OBJECT_MATRIX = 14;
+	static final byte AGENT = 15;
+	static final byte SIMULATION = 16;
+	static final byte SAVED_AGENT = 17;
+	static final byte OBJECT = 18;
+
+	/** The number of agents of a population encoded together */
+	static final int CHUNK = 1024;
+
+	private final IScope scope;
+	private volatile XStream xstream;
+
+	public BinaryCodec(final IScope scope) {
+		this.scope = scope;
+	}
+
+	IScope getScope() {
+		return scope;
+	}
+
+	/**
+	 * The XStream used for the values that have no binary form, built the first time it is needed
+	 */
+	XStream getXStream() {
+		XStream result = xstream;
+		if (result == null) {
+			synchronized (this) {
+				result = xstream;
+				if (result == null) {
+					result = StreamConverter.loadAndBuild(new ConverterScope(scope));
+					xstream = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	public byte[] encode(final Object o) {
+		final BinaryEncoder encoder = new BinaryEncoder(this, null, true);
+		encoder.writeBytes(MAGIC);
+		encoder.writeValue(o);
+		return encoder.toByteArray();
+	}
+
+	/**
+	 * Writes the value to the stream, which is neither buffered nor closed by this method
+	 */
+	public void encode(final Object o, final OutputStream out) {
+		final BinaryEncoder encoder = new BinaryEncoder(this, out, true);
+		encoder.writeBytes(MAGIC);
+		encoder.writeValue(o);
+		encoder.flush();
+	}
+
+	public Object decode(final byte[] bytes) {
+		return decode(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Reads a value from the stream, which is neither buffered nor closed by this method
+	 */
+	public Object decode(final InputStream in) {
+		final BinaryDecoder decoder = new BinaryDecoder(this, in, true);
+		for (final byte b : MAGIC) {
+			if (decoder.readByte() != b) { throw new IllegalArgumentException("Not a GAMA binary stream"); }
+		}
+		return decoder.readValue();
+	}
+
+	/**
+	 * Whether the bytes (at least the first ones of a file) begin like a stream written by a codec
+	 */
+	public static boolean isBinary(final byte[] bytes) {
+		if (bytes.length < MAGIC.length) { return false; }
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i]) { return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * The number of chunks processed (and kept in memory) at the same time
+	 */
+	static int getBatchSize() {
+		return GamaExecutorService.AGENT_PARALLEL_EXECUTOR == null ? 1
+				: 2 * GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism();
+	}
+
+	static void forEachChunk(final int first, final int last, final IntConsumer chunk) {
+		if (last - first <= 1 || GamaExecutorService.AGENT_PARALLEL_EXECUTOR == null) {
+			for (int c = first; c < last; c++) {
+				chunk.accept(c);
+			}
+		} else {
+			GamaExecutorService.executeThreaded(() -> IntStream.range(first, last).parallel().forEach(chunk));
+		}
+	}
+
+}
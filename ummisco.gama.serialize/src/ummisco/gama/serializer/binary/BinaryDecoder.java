@@ -0,0 +1,352 @@
+/*********************************************************************************************
+ *
+ * 'BinaryDecoder.java, in plugin ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package ummisco.gama.serializer.binary;
+
+import static ummisco.gama.serializer.binary.BinaryCodec.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+
+import gnu.trove.map.hash.THashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import msi.gama.common.geometry.GeometryUtils;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.agent.SavedAgent;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.GamaShape;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaColor;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMap;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.GamaPair;
+import msi.gama.util.IList;
+import msi.gama.util.matrix.GamaFloatMatrix;
+import msi.gama.util.matrix.GamaIntMatrix;
+import msi.gama.util.matrix.GamaObjectMatrix;
+import msi.gaml.types.GamaType;
+import msi.gaml.types.IType;
+
+/**
+ * Class BinaryDecoder. Reads the values written by a {@link BinaryEncoder}. The references to agents are resolved,
+ * when the values are decoded, among the agents present in the simulation of the scope of the codec.
+ */
+class BinaryDecoder {
+
+	private final BinaryCodec codec;
+	private final InputStream in;
+	/** Whether the chunks of the populations are decoded in parallel (only done at the top level) */
+	private final boolean parallel;
+	private final byte[] buffer = new byte[8192];
+	private int position, limit;
+	private final List<String> symbols = new ArrayList<>();
+	private final List<String[]> schemas = new ArrayList<>();
+	private final Map<String, IType<?>> types = new THashMap<>();
+	/** The agents of the populations already looked into, by index */
+	private final Map<IPopulation<?>, TIntObjectHashMap<IAgent>> agents = new THashMap<>();
+	private WKBReader wkb;
+
+	BinaryDecoder(final BinaryCodec codec, final InputStream in, final boolean parallel) {
+		this.codec = codec;
+		this.in = in;
+		this.parallel = parallel;
+	}
+
+	private GamaRuntimeException error(final Exception e) {
+		return GamaRuntimeException.create(e, codec.getScope());
+	}
+
+	private void fill() {
+		try {
+			limit = in.read(buffer);
+		} catch (final IOException e) {
+			throw error(e);
+		}
+		if (limit <= 0) { throw error(new EOFException()); }
+		position = 0;
+	}
+
+	byte readByte() {
+		if (position == limit) {
+			fill();
+		}
+		return buffer[position++];
+	}
+
+	byte[] readBytes(final int length) {
+		final byte[] result = new byte[length];
+		int n = Math.min(length, limit - position);
+		System.arraycopy(buffer, position, result, 0, n);
+		position += n;
+		try {
+			while (n < length) {
+				final int read = in.read(result, n, length - n);
+				if (read <= 0) { throw new EOFException(); }
+				n += read;
+			}
+		} catch (final IOException e) {
+			throw error(e);
+		}
+		return result;
+	}
+
+	int readVarint() {
+		int result = 0;
+		for (int shift = 0;; shift += 7) {
+			final byte b = readByte();
+			result |= (b & 0x7F) << shift;
+			if (b >= 0) { return result; }
+		}
+	}
+
+	int readInt() {
+		final int v = readVarint();
+		return v >>> 1 ^ -(v & 1);
+	}
+
+	double readDouble() {
+		long v = 0;
+		for (int i = 0; i < 8; i++) {
+			v = v << 8 | readByte() & 0xFF;
+		}
+		return Double.longBitsToDouble(v);
+	}
+
+	String readString() {
+		return new String(readBytes(readVarint()), StandardCharsets.UTF_8);
+	}
+
+	String readSymbol() {
+		final int id = readVarint();
+		if (id > 0) { return symbols.get(id - 1); }
+		final String s = readString();
+		symbols.add(s);
+		return s;
+	}
+
+	IType<?> readType() {
+		if (readByte() == 1) {
+			final IType<?> type = readType();
+			final IType<?> keyType = readType();
+			return GamaType.from(type, keyType, readType());
+		}
+		final String name = readSymbol();
+		IType<?> type = types.get(name);
+		if (type == null) {
+			type = codec.getScope().getType(name);
+			types.put(name, type);
+		}
+		return type;
+	}
+
+	@SuppressWarnings ({ "rawtypes", "unchecked" })
+	Object readValue() {
+		final byte tag = readByte();
+		switch (tag) {
+			case NULL:
+				return null;
+			case TRUE:
+				return true;
+			case FALSE:
+				return false;
+			case INT:
+				return readInt();
+			case FLOAT:
+				return readDouble();
+			case STRING:
+				return readString();
+			case POINT:
+				return new GamaPoint(readDouble(), readDouble(), readDouble());
+			case SHAPE:
+				return readShape();
+			case COLOR: {
+				final int rgb = readInt();
+				return new GamaColor(rgb >> 16 & 0xFF, rgb >> 8 & 0xFF, rgb & 0xFF, rgb >>> 24);
+			}
+			case LIST: {
+				final IType<?> contentType = readType();
+				final int n = readVarint();
+				final IList list = GamaListFactory.create(contentType, n);
+				for (int i = 0; i < n; i++) {
+					list.add(readValue());
+				}
+				return list;
+			}
+			case MAP:
+				return readMap();
+			case PAIR: {
+				final IType<?> keyType = readType();
+				final IType<?> contentType = readType();
+				final Object key = readValue();
+				return new GamaPair(key, readValue(), keyType, contentType);
+			}
+			case INT_MATRIX: {
+				final int cols = readVarint(), rows = readVarint();
+				final int[] values = new int[cols * rows];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = readInt();
+				}
+				return new GamaIntMatrix(cols, rows, values);
+			}
+			case FLOAT_MATRIX: {
+				final int cols = readVarint(), rows = readVarint();
+				final double[] values = new double[cols * rows];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = readDouble();
+				}
+				return new GamaFloatMatrix(cols, rows, values);
+			}
+			case OBJECT_MATRIX: {
+				final IType<?> contentType = readType();
+				final int cols = readVarint(), rows = readVarint();
+				final Object[] values = new Object[cols * rows];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = readValue();
+				}
+				return new GamaObjectMatrix(cols, rows, values, contentType);
+			}
+			case AGENT:
+				return readAgent();
+			case SIMULATION:
+				return codec.getScope().getSimulation();
+			case SAVED_AGENT:
+				return readSavedAgent();
+			case OBJECT:
+				return codec.getXStream().fromXML(readString());
+			default:
+				throw error(new IOException("Unknown tag " + tag + " in a GAMA binary stream"));
+		}
+	}
+
+	@SuppressWarnings ("rawtypes")
+	private GamaMap readMap() {
+		final IType<?> keyType = readType();
+		final IType<?> contentType = readType();
+		final int n = readVarint();
+		final GamaMap map = GamaMapFactory.create(keyType, contentType, n);
+		for (int i = 0; i < n; i++) {
+			final Object key = readValue();
+			map.put(key, readValue());
+		}
+		return map;
+	}
+
+	@SuppressWarnings ("unchecked")
+	private GamaShape readShape() {
+		if (wkb == null) {
+			wkb = new WKBReader(GeometryUtils.GEOMETRY_FACTORY);
+		}
+		final GamaShape shape;
+		try {
+			shape = new GamaShape(wkb.read(readBytes(readVarint())));
+		} catch (final ParseException e) {
+			throw error(e);
+		}
+		if (readByte() == MAP) {
+			final Map<String, Object> attributes = readMap();
+			for (final Map.Entry<String, Object> entry : attributes.entrySet()) {
+				shape.setAttribute(entry.getKey(), entry.getValue());
+			}
+		}
+		return shape;
+	}
+
+	private IAgent readAgent() {
+		final IAgent host = (IAgent) readValue();
+		final String species = readSymbol();
+		final int index = readVarint();
+		if (host == null) { return null; }
+		final IPopulation<?> population;
+		// Populations can be created when they are first asked for
+		synchronized (codec) {
+			population = host.getPopulationFor(species);
+		}
+		if (population == null) { return null; }
+		TIntObjectHashMap<IAgent> byIndex = agents.get(population);
+		if (byIndex == null) {
+			byIndex = new TIntObjectHashMap<>(population.size());
+			for (final IAgent agent : population) {
+				byIndex.put(agent.getIndex(), agent);
+			}
+			agents.put(population, byIndex);
+		}
+		return byIndex.get(index);
+	}
+
+	SavedAgent readSavedAgent() {
+		final int index = readInt();
+		final int id = readVarint();
+		final String[] schema;
+		if (id > 0) {
+			schema = schemas.get(id - 1);
+		} else {
+			schema = new String[readVarint()];
+			for (int i = 0; i < schema.length; i++) {
+				schema[i] = readSymbol();
+			}
+			schemas.add(schema);
+		}
+		final Map<String, Object> values = new THashMap<>(schema.length);
+		for (final String name : schema) {
+			values.put(name, readValue());
+		}
+		final int n = readVarint();
+		if (n == 0) { return new SavedAgent(index, values, null); }
+		final Map<String, List<SavedAgent>> populations = new THashMap<>(n - 1);
+		for (int i = 1; i < n; i++) {
+			final String name = readSymbol();
+			populations.put(name, readPopulation());
+		}
+		return new SavedAgent(index, values, populations);
+	}
+
+	private List<SavedAgent> readPopulation() {
+		final int n = readVarint();
+		final List<SavedAgent> result = new ArrayList<>(n);
+		final int chunks = (n + CHUNK - 1) / CHUNK;
+		if (chunks <= 1) {
+			for (int i = 0; i < n; i++) {
+				result.add(readSavedAgent());
+			}
+			return result;
+		}
+		final int batch = parallel ? getBatchSize() : 1;
+		for (int first = 0; first < chunks; first += batch) {
+			final int firstChunk = first;
+			final byte[][] encoded = new byte[Math.min(batch, chunks - first)][];
+			for (int c = 0; c < encoded.length; c++) {
+				encoded[c] = readBytes(readVarint());
+			}
+			final SavedAgent[] decoded = new SavedAgent[Math.min(n, (first + encoded.length) * CHUNK) - first * CHUNK];
+			forEachChunk(firstChunk, firstChunk + encoded.length, c -> {
+				final BinaryDecoder decoder =
+						new BinaryDecoder(codec, new ByteArrayInputStream(encoded[c - firstChunk]), false);
+				final int offset = (c - firstChunk) * CHUNK;
+				for (int i = 0, end = Math.min(CHUNK, n - c * CHUNK); i < end; i++) {
+					decoded[offset + i] = decoder.readSavedAgent();
+				}
+			});
+			result.addAll(Arrays.asList(decoded));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,369 @@
+/*********************************************************************************************
+ *
+ * 'BinaryEncoder.java, in plugin ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation
+ * platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package ummisco.gama.serializer.binary;
+
+import static ummisco.gama.serializer.binary.BinaryCodec.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import com.vividsolutions.jts.io.WKBWriter;
+
+import gnu.trove.map.hash.THashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.agent.SavedAgent;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.GamaShape;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaColor;
+import msi.gama.util.GamaList;
+import msi.gama.util.GamaMap;
+import msi.gama.util.GamaPair;
+import msi.gama.util.matrix.GamaFloatMatrix;
+import msi.gama.util.matrix.GamaIntMatrix;
+import msi.gama.util.matrix.GamaObjectMatrix;
+import msi.gaml.types.IType;
+import msi.gaml.types.ParametricType;
+
+/**
+ * Class BinaryEncoder. Writes values in the format of {@link BinaryCodec}, either in memory or, when an output stream is
+ * given, to this stream each time enough bytes have been produced. An encoder is used by only one thread: the chunks of
+ * populations are encoded by encoders of their own.
+ */
+class BinaryEncoder {
+
+	private static final int FLUSH = 1 << 16;
+
+	private final BinaryCodec codec;
+	private final OutputStream out;
+	/** Whether the chunks of the populations are encoded in parallel (only done at the top level) */
+	private final boolean parallel;
+	private byte[] buffer = new byte[1024];
+	private int size;
+	private final TObjectIntHashMap<String> symbols = new TObjectIntHashMap<>(16, 0.5f, -1);
+	private final Map<List<String>, Integer> schemas = new THashMap<>();
+	private WKBWriter wkb;
+
+	BinaryEncoder(final BinaryCodec codec, final OutputStream out, final boolean parallel) {
+		this.codec = codec;
+		this.out = out;
+		this.parallel = parallel;
+	}
+
+	byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	void flush() {
+		if (out == null || size == 0) { return; }
+		try {
+			out.write(buffer, 0, size);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, codec.getScope());
+		}
+		size = 0;
+	}
+
+	private void ensure(final int n) {
+		if (out != null && size + n > FLUSH) {
+			flush();
+		}
+		if (size + n > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + n));
+		}
+	}
+
+	void writeByte(final int b) {
+		ensure(1);
+		buffer[size++] = (byte) b;
+	}
+
+	void writeBytes(final byte[] bytes) {
+		if (out != null && bytes.length > FLUSH) {
+			flush();
+			try {
+				out.write(bytes);
+			} catch (final IOException e) {
+				throw GamaRuntimeException.create(e, codec.getScope());
+			}
+			return;
+		}
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	/**
+	 * Writes a positive integer on 1 to 5 bytes, 7 bits at a time
+	 */
+	void writeVarint(final int value) {
+		ensure(5);
+		int v = value;
+		while ((v & ~0x7F) != 0) {
+			buffer[size++] = (byte) (v & 0x7F | 0x80);
+			v >>>= 7;
+		}
+		buffer[size++] = (byte) v;
+	}
+
+	/**
+	 * Writes any integer as a varint, the small negative ones being kept short (zigzag encoding)
+	 */
+	void writeInt(final int value) {
+		writeVarint(value << 1 ^ value >> 31);
+	}
+
+	void writeDouble(final double value) {
+		ensure(8);
+		final long v = Double.doubleToRawLongBits(value);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			buffer[size++] = (byte) (v >>> shift);
+		}
+	}
+
+	void writeString(final String s) {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		writeBytes(bytes);
+	}
+
+	/**
+	 * Writes a name (of a variable, species, type...) the first time it is met, and its number afterwards
+	 */
+	void writeSymbol(final String s) {
+		final int id = symbols.get(s);
+		if (id >= 0) {
+			writeVarint(id + 1);
+		} else {
+			symbols.put(s, symbols.size());
+			writeVarint(0);
+			writeString(s);
+		}
+	}
+
+	void writeType(final IType<?> type) {
+		if (type instanceof ParametricType) {
+			writeByte(1);
+			writeType(((ParametricType) type).getType());
+			writeType(type.getKeyType());
+			writeType(type.getContentType());
+		} else {
+			writeByte(0);
+			writeSymbol(type.toString());
+		}
+	}
+
+	@SuppressWarnings ("rawtypes")
+	void writeValue(final Object o) {
+		if (o == null) {
+			writeByte(NULL);
+		} else if (o instanceof Boolean) {
+			writeByte((Boolean) o ? TRUE : FALSE);
+		} else if (o instanceof Integer) {
+			writeByte(INT);
+			writeInt((Integer) o);
+		} else if (o instanceof Double) {
+			writeByte(FLOAT);
+			writeDouble((Double) o);
+		} else if (o instanceof String) {
+			writeByte(STRING);
+			writeString((String) o);
+		} else if (o instanceof SavedAgent) {
+			writeByte(SAVED_AGENT);
+			writeSavedAgent((SavedAgent) o);
+		} else if (o instanceof IAgent) {
+			writeAgent((IAgent) o);
+		} else if (o.getClass() == GamaPoint.class) {
+			final GamaPoint p = (GamaPoint) o;
+			writeByte(POINT);
+			writeDouble(p.x);
+			writeDouble(p.y);
+			writeDouble(p.z);
+		} else if (o.getClass() == GamaShape.class) {
+			writeShape((GamaShape) o);
+		} else if (o.getClass() == GamaColor.class) {
+			writeByte(COLOR);
+			writeInt(((GamaColor) o).getRGB());
+		} else if (o instanceof GamaList && !(o instanceof IPopulation)) {
+			// The subclasses of lists (like the bases of mental states) are read back as plain lists
+			final GamaList list = (GamaList) o;
+			writeByte(LIST);
+			writeType(list.getType().getContentType());
+			writeVarint(list.size());
+			for (final Object element : list) {
+				writeValue(element);
+			}
+		} else if (o.getClass() == GamaMap.class) {
+			writeMap((GamaMap) o);
+		} else if (o.getClass() == GamaPair.class) {
+			final GamaPair pair = (GamaPair) o;
+			writeByte(PAIR);
+			writeType(pair.getType().getKeyType());
+			writeType(pair.getType().getContentType());
+			writeValue(pair.key);
+			writeValue(pair.value);
+		} else if (o.getClass() == GamaIntMatrix.class) {
+			final GamaIntMatrix m = (GamaIntMatrix) o;
+			writeByte(INT_MATRIX);
+			writeVarint(m.numCols);
+			writeVarint(m.numRows);
+			for (final int v : m.getMatrix()) {
+				writeInt(v);
+			}
+		} else if (o.getClass() == GamaFloatMatrix.class) {
+			final GamaFloatMatrix m = (GamaFloatMatrix) o;
+			writeByte(FLOAT_MATRIX);
+			writeVarint(m.numCols);
+			writeVarint(m.numRows);
+			for (final double v : m.getMatrix()) {
+				writeDouble(v);
+			}
+		} else if (o.getClass() == GamaObjectMatrix.class) {
+			final GamaObjectMatrix m = (GamaObjectMatrix) o;
+			writeByte(OBJECT_MATRIX);
+			writeType(m.getType().getContentType());
+			writeVarint(m.numCols);
+			writeVarint(m.numRows);
+			for (final Object v : m.getMatrix()) {
+				writeValue(v);
+			}
+		} else {
+			writeByte(OBJECT);
+			writeString(codec.getXStream().toXML(o));
+		}
+	}
+
+	/**
+	 * An agent is written as a reference to an agent of the simulation in which it is decoded: the simulation itself,
+	 * or the agent of the same index in the population of the same species of the same host. Dead agents and agents
+	 * outside of the simulation (experiments...) are written as null.
+	 */
+	private void writeAgent(final IAgent agent) {
+		if (agent instanceof SimulationAgent) {
+			writeByte(SIMULATION);
+		} else if (agent.dead() || agent.getHost() == null) {
+			writeByte(NULL);
+		} else {
+			writeByte(AGENT);
+			writeValue(agent.getHost());
+			writeSymbol(agent.getSpeciesName());
+			writeVarint(agent.getIndex());
+		}
+	}
+
+	@SuppressWarnings ("rawtypes")
+	private void writeMap(final GamaMap map) {
+		writeByte(MAP);
+		writeType(map.getType().getKeyType());
+		writeType(map.getType().getContentType());
+		writeVarint(map.size());
+		for (final Object e : map.entrySet()) {
+			final Map.Entry entry = (Map.Entry) e;
+			writeValue(entry.getKey());
+			writeValue(entry.getValue());
+		}
+	}
+
+	private void writeShape(final GamaShape shape) {
+		if (wkb == null) {
+			wkb = new WKBWriter(3);
+		}
+		writeByte(SHAPE);
+		final byte[] bytes = wkb.write(shape.getInnerGeometry());
+		writeVarint(bytes.length);
+		writeBytes(bytes);
+		if (shape.getAttributes() == null) {
+			writeByte(NULL);
+		} else {
+			writeMap(shape.getAttributes());
+		}
+	}
+
+	/**
+	 * Writes the index, the schema, the values and the inner populations of an agent (without its tag)
+	 */
+	void writeSavedAgent(final SavedAgent agent) {
+		writeInt(agent.getIndex());
+		final String[] names = agent.keySet().toArray(new String[agent.size()]);
+		final List<String> schema = Arrays.asList(names);
+		final Integer id = schemas.get(schema);
+		if (id != null) {
+			writeVarint(id + 1);
+		} else {
+			schemas.put(schema, schemas.size());
+			writeVarint(0);
+			writeVarint(names.length);
+			for (final String name : names) {
+				writeSymbol(name);
+			}
+		}
+		for (final String name : names) {
+			writeValue(agent.get(name));
+		}
+		final Map<String, List<SavedAgent>> populations = agent.getInnerPopulations();
+		if (populations == null) {
+			writeVarint(0);
+			return;
+		}
+		writeVarint(populations.size() + 1);
+		for (final Map.Entry<String, List<SavedAgent>> entry : populations.entrySet()) {
+			writeSymbol(entry.getKey());
+			writePopulation(entry.getValue());
+		}
+	}
+
+	/**
+	 * Writes the agents of a population. Beyond one chunk, each chunk is encoded separately and written after its size
+	 */
+	private void writePopulation(final List<SavedAgent> agents) {
+		final int n = agents.size();
+		writeVarint(n);
+		final int chunks = (n + CHUNK - 1) / CHUNK;
+		if (chunks <= 1) {
+			for (final SavedAgent agent : agents) {
+				writeSavedAgent(agent);
+			}
+			return;
+		}
+		final int batch = parallel ? getBatchSize() : 1;
+		for (int first = 0; first < chunks; first += batch) {
+			final int firstChunk = first;
+			final byte[][] encoded = new byte[Math.min(batch, chunks - first)][];
+			final int last = firstChunk + encoded.length;
+			final IntConsumer encode = c -> {
+				final BinaryEncoder encoder = new BinaryEncoder(codec, null, false);
+				for (int i = c * CHUNK, end = Math.min(n, i + CHUNK); i < end; i++) {
+					encoder.writeSavedAgent(agents.get(i));
+				}
+				encoded[c - firstChunk] = encoder.toByteArray();
+			};
+			if (parallel) {
+				forEachChunk(firstChunk, last, encode);
+			} else {
+				for (int c = firstChunk; c < last; c++) {
+					encode.accept(c);
+				}
+			}
+			for (final byte[] bytes : encoded) {
+				writeVarint(bytes.length);
+				writeBytes(bytes);
+			}
+		}
+	}
+
+}
@@ -10,8 +10,6 @@
  **********************************************************************************************/
 package ummisco.gama.serializer.experiment;
 
-import com.thoughtworks.xstream.XStream;
-
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.experiment.ExperimentAgent;
 import msi.gama.kernel.simulation.SimulationAgent;
@@ -22,21 +20,14 @@ import msi.gama.outputs.IOutputManager;
 import msi.gama.precompiler.GamlAnnotations.experiment;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
-import msi.gaml.types.TypeNode;
-import msi.gaml.types.TypeTree;
-import ummisco.gama.serializer.factory.StreamConverter;
-import ummisco.gama.serializer.gamaType.converters.ConverterScope;
-import ummisco.gama.serializer.gaml.ReverseOperators;
 
 @experiment(IKeyword.MEMORIZE)
 public class ExperimentBackwardAgent extends ExperimentAgent {
 
-	TypeTree<String> historyTree;
-	TypeNode<String> currentNode;
+	SimulationHistory history;
 
 	public ExperimentBackwardAgent(final IPopulation<? extends IAgent> s) throws GamaRuntimeException {
 		super(s);
-		historyTree = new TypeTree<String>();
 	}
 
 	/**
@@ -48,10 +39,11 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 	public Object _init_(final IScope scope) {
 		super._init_(scope);
 		// Save simulation state in the history
-		final String state = ReverseOperators.serializeAgent(scope, this.getSimulation());
-
-		historyTree.setRoot(state);
-		currentNode = historyTree.getRoot();
+		if (history != null) {
+			history.dispose();
+		}
+		history = new SimulationHistory(scope);
+		history.record(getSimulation());
 
 		return this;
 	}
@@ -62,9 +54,7 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 		final boolean result = super.step(scope);
 
 		// Save simulation state in the history
-		final String state = ReverseOperators.serializeAgent(scope, this.getSimulation());
-
-		currentNode = currentNode.addChild(state);
+		history.record(getSimulation());
 
 		return result;
 	}
@@ -81,16 +71,10 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 			// executer.executeBeginActions();
 
 			if (canStepBack()) {
-				currentNode = currentNode.getParent();
-				final String previousState = currentNode.getData();
-
-				if (previousState != null) {
-					final ConverterScope cScope = new ConverterScope(scope);
-					final XStream xstream = StreamConverter.loadAndBuild(cScope);
-
-					// get the previous state
-					final SavedAgent agt = (SavedAgent) xstream.fromXML(previousState);
+				// get the previous state
+				final SavedAgent agt = history.stepBack();
 
+				if (agt != null) {
 					// Update of the simulation
 					final SimulationAgent currentSimAgt = getSimulation();
 					currentSimAgt.updateWith(scope, agt);
@@ -121,6 +105,15 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 
 	@Override
 	public boolean canStepBack() {
-		return currentNode != null && currentNode.getParent() != null;
+		return history != null && history.canStepBack();
+	}
+
+	@Override
+	public void dispose() {
+		if (history != null) {
+			history.dispose();
+			history = null;
+		}
+		super.dispose();
 	}
 }
@@ -0,0 +1,319 @@
+/*********************************************************************************************
+ *
+ * 'SimulationHistory.java, in plugin ummisco.gama.serialize, is part of the source code of the GAMA modeling and
+ * simulation platform. (c) 2007-2016 UMI 209 UMMISCO IRD/UPMC & Partners
+ *
+ * Visit https://github.com/gama-platform/gama for license information and developers contact.
+ *
+ *
+ **********************************************************************************************/
+package ummisco.gama.serializer.experiment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import gnu.trove.map.hash.THashMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.SavedAgent;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.types.TypeNode;
+import msi.gaml.types.TypeTree;
+import ummisco.gama.serializer.binary.BinaryCodec;
+
+/**
+ * Class SimulationHistory. The states of a simulation memorized at each step by an {@link ExperimentBackwardAgent},
+ * organized as a tree (stepping forward after stepping back creates a new branch).
+ *
+ * The agents (including the simulation itself) are encoded separately, by a {@link BinaryCodec}. A state only stores
+ * the agents that have changed, appeared or disappeared since its parent, except every few steps where all the agents
+ * are stored (keyframes): a state is rebuilt by applying the states found between the closest keyframe above it and
+ * itself. The states can be compressed and, once the memory allowed is exceeded, the oldest ones are written to a
+ * temporary file.
+ *
+ * The agents that have changed are found by comparing the hash of their encoding with the one they had in the current
+ * state.
+ */
+public class SimulationHistory {
+
+	/**
+	 * The key of a population is the key of its host followed by POPULATION and its name, the key of an agent is the key
+	 * of its population followed by INDEX and its index. The key of the simulation is the empty string
+	 */
+	private static final char POPULATION = '/', INDEX = '#';
+	private static final byte[] NONE = new byte[0];
+
+	private final IScope scope;
+	private final BinaryCodec codec;
+	private final TypeTree<State> tree = new TypeTree<>();
+	private TypeNode<State> current;
+	private TObjectLongHashMap<String> hashes = new TObjectLongHashMap<>();
+	/** The states whose content is still in memory, from the oldest to the most recent */
+	private final LinkedList<State> inMemory = new LinkedList<>();
+	private long memory;
+	private File path;
+	private RandomAccessFile file;
+
+	private static class State {
+		/** The number of steps since the last keyframe (0 for a keyframe) */
+		final int distance;
+		final boolean compressed;
+		byte[] data;
+		long position;
+		int length;
+
+		State(final int distance, final boolean compressed, final byte[] data) {
+			this.distance = distance;
+			this.compressed = compressed;
+			this.data = data;
+			length = data.length;
+		}
+	}
+
+	public SimulationHistory(final IScope scope) {
+		this.scope = scope;
+		codec = new BinaryCodec(scope);
+	}
+
+	/**
+	 * Memorizes the current state of the simulation as a child of the current state
+	 */
+	public void record(final SimulationAgent sim) {
+		final Map<String, byte[]> agents = new LinkedHashMap<>();
+		flatten(new SavedAgent(scope, sim), "", agents);
+		final boolean keyframe = current == null
+				|| current.getData().distance + 1 >= GamaPreferences.Runtime.HISTORY_KEYFRAME.getValue();
+		final Map<String, byte[]> changed = keyframe ? agents : new LinkedHashMap<>();
+		final TObjectLongHashMap<String> newHashes = new TObjectLongHashMap<>(agents.size());
+		for (final Map.Entry<String, byte[]> entry : agents.entrySet()) {
+			final long hash = hash(entry.getValue());
+			newHashes.put(entry.getKey(), hash);
+			if (!keyframe && (!hashes.containsKey(entry.getKey()) || hashes.get(entry.getKey()) != hash)) {
+				changed.put(entry.getKey(), entry.getValue());
+			}
+		}
+		final List<String> removed = new ArrayList<>();
+		if (!keyframe) {
+			hashes.forEachKey(key -> {
+				if (!newHashes.containsKey(key)) {
+					removed.add(key);
+				}
+				return true;
+			});
+		}
+		final int distance = keyframe ? 0 : current.getData().distance + 1;
+		final boolean compressed = GamaPreferences.Runtime.HISTORY_COMPRESS.getValue();
+		final State state = new State(distance, compressed, write(removed, changed, compressed));
+		current = current == null ? tree.setRoot(state) : current.addChild(state);
+		hashes = newHashes;
+		keep(state);
+	}
+
+	public boolean canStepBack() {
+		return current != null && current.getParent() != null;
+	}
+
+	/**
+	 * Moves to the parent of the current state and returns it
+	 */
+	public SavedAgent stepBack() {
+		if (!canStepBack()) { return null; }
+		current = current.getParent();
+		final Map<String, byte[]> agents = rebuild(current);
+		hashes = new TObjectLongHashMap<>(agents.size());
+		for (final Map.Entry<String, byte[]> entry : agents.entrySet()) {
+			hashes.put(entry.getKey(), hash(entry.getValue()));
+		}
+		return unflatten(agents);
+	}
+
+	public void dispose() {
+		tree.setRoot((TypeNode<State>) null);
+		current = null;
+		inMemory.clear();
+		hashes.clear();
+		if (file != null) {
+			try {
+				file.close();
+			} catch (final IOException e) {}
+			path.delete();
+			file = null;
+		}
+	}
+
+	private void flatten(final SavedAgent agent, final String key, final Map<String, byte[]> agents) {
+		agents.put(key, encode(new SavedAgent(agent.getIndex(), agent.getVariables(), Collections.emptyMap())));
+		final Map<String, List<SavedAgent>> populations = agent.getInnerPopulations();
+		if (populations == null) { return; }
+		for (final Map.Entry<String, List<SavedAgent>> entry : populations.entrySet()) {
+			final String population = key + POPULATION + entry.getKey();
+			agents.put(population, NONE);
+			for (final SavedAgent micro : entry.getValue()) {
+				flatten(micro, population + INDEX + micro.getIndex(), agents);
+			}
+		}
+	}
+
+	private SavedAgent unflatten(final Map<String, byte[]> agents) {
+		final Map<String, SavedAgent> hosts = new THashMap<>();
+		final Map<String, List<SavedAgent>> populations = new THashMap<>();
+		for (final Map.Entry<String, byte[]> entry : agents.entrySet()) {
+			final String key = entry.getKey();
+			final int population = key.lastIndexOf(POPULATION);
+			final int index = key.lastIndexOf(INDEX);
+			if (key.isEmpty() || index > population) {
+				final SavedAgent decoded = decode(entry.getValue());
+				final SavedAgent agent =
+						new SavedAgent(decoded.getIndex(), decoded.getVariables(), new THashMap<>());
+				hosts.put(key, agent);
+				if (!key.isEmpty()) {
+					populations.get(key.substring(0, index)).add(agent);
+				}
+			} else {
+				final List<SavedAgent> micros = new ArrayList<>();
+				populations.put(key, micros);
+				hosts.get(key.substring(0, population)).getInnerPopulations().put(key.substring(population + 1),
+						micros);
+			}
+		}
+		return hosts.get("");
+	}
+
+	private byte[] encode(final Object o) {
+		return codec.encode(o);
+	}
+
+	private SavedAgent decode(final byte[] bytes) {
+		return (SavedAgent) codec.decode(bytes);
+	}
+
+	/**
+	 * Rebuilds the encoded agents of a state from the closest keyframe above it
+	 */
+	private Map<String, byte[]> rebuild(final TypeNode<State> node) {
+		final LinkedList<State> states = new LinkedList<>();
+		TypeNode<State> n = node;
+		states.addFirst(n.getData());
+		while (n.getData().distance > 0) {
+			n = n.getParent();
+			states.addFirst(n.getData());
+		}
+		final Map<String, byte[]> agents = new LinkedHashMap<>();
+		for (final State state : states) {
+			read(state, agents);
+		}
+		return agents;
+	}
+
+	private byte[] write(final List<String> removed, final Map<String, byte[]> changed, final boolean compressed) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final Deflater deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+		final OutputStream target = compressed ? new DeflaterOutputStream(bytes, deflater) : bytes;
+		try (DataOutputStream out = new DataOutputStream(target)) {
+			out.writeInt(removed.size());
+			for (final String key : removed) {
+				out.writeUTF(key);
+			}
+			out.writeInt(changed.size());
+			for (final Map.Entry<String, byte[]> entry : changed.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeInt(entry.getValue().length);
+				out.write(entry.getValue());
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		} finally {
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private void read(final State state, final Map<String, byte[]> agents) {
+		final InputStream source = new ByteArrayInputStream(load(state));
+		try (DataInputStream in = new DataInputStream(state.compressed ? new InflaterInputStream(source) : source)) {
+			for (int i = in.readInt(); i > 0; i--) {
+				agents.remove(in.readUTF());
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				final String key = in.readUTF();
+				final byte[] value = new byte[in.readInt()];
+				in.readFully(value);
+				agents.put(key, value);
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Keeps the content of the state in memory, and writes the oldest ones to the disk if the memory allowed is
+	 * exceeded
+	 */
+	private void keep(final State state) {
+		inMemory.add(state);
+		memory += state.length;
+		final long max = GamaPreferences.Runtime.HISTORY_MEMORY.getValue() * 1024L * 1024L;
+		try {
+			while (memory > max && !inMemory.isEmpty()) {
+				final State oldest = inMemory.removeFirst();
+				if (file == null) {
+					path = File.createTempFile("gama_history_", ".bin");
+					path.deleteOnExit();
+					file = new RandomAccessFile(path, "rw");
+				}
+				oldest.position = file.length();
+				file.seek(oldest.position);
+				file.write(oldest.data);
+				oldest.data = null;
+				memory -= oldest.length;
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	private byte[] load(final State state) {
+		if (state.data != null) { return state.data; }
+		final byte[] result = new byte[state.length];
+		try {
+			file.seek(state.position);
+			file.readFully(result);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+		return result;
+	}
+
+	/**
+	 * FNV-1a hash (64 bits) of the encoding of an agent
+	 */
+	private static long hash(final byte[] bytes) {
+		long result = 0xcbf29ce484222325L;
+		for (final byte b : bytes) {
+			result ^= b & 0xff;
+			result *= 0x100000001b3L;
+		}
+		return result;
+	}
+
+}
@@ -22,6 +22,7 @@ import msi.gama.runtime.IScope;
 import msi.gama.util.GamaMapFactory;
 import msi.gaml.compilation.kernel.GamaClassLoader;
 import msi.gaml.types.IType;
+import ummisco.gama.serializer.binary.BinaryCodec;
 import ummisco.gama.serializer.gamaType.converters.ConverterScope;
 
 public abstract class StreamConverter {
@@ -71,6 +72,20 @@ public abstract class StreamConverter {
 	{
 		return loadAndBuild(scope).fromXML(data);
 	}
+
+	/**
+	 * Binary counterparts of the methods above (see {@link BinaryCodec}), which need neither to be synchronized nor to
+	 * build the converters, unless some values have no binary form
+	 */
+	public static byte[] convertObjectToBytes(IScope scope, Object o)
+	{
+		return new BinaryCodec(scope).encode(o);
+	}
+
+	public static Object convertBytesToObject(IScope scope, byte[] data)
+	{
+		return new BinaryCodec(scope).decode(data);
+	}
 	
 	
 
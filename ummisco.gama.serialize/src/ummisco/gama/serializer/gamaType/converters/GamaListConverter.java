@@ -16,6 +16,7 @@ import com.thoughtworks.xstream.converters.UnmarshallingContext;
 import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.util.GamaList;
 import ummisco.gama.serializer.gamaType.reduced.GamaListReducer;
 
@@ -33,6 +34,10 @@ public class GamaListConverter implements Converter {
 		if (GamaList.class.equals(arg0)) {
 			return true;
 		}
+		// The subclasses of lists (like the bases of mental states) are read back as plain lists
+		if (GamaList.class.isAssignableFrom(arg0) && !IPopulation.class.isAssignableFrom(arg0)) {
+			return true;
+		}
 
 		final Class<?>[] allInterface = arg0.getInterfaces();
 		for (final Class<?> c : allInterface) {
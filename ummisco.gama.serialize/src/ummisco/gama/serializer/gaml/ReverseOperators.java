@@ -10,12 +10,17 @@
  **********************************************************************************************/
 package ummisco.gama.serializer.gaml;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import com.thoughtworks.xstream.XStream;
 
@@ -27,6 +32,7 @@ import msi.gama.metamodel.agent.SavedAgent;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.operator;
 import msi.gama.runtime.IScope;
+import ummisco.gama.serializer.binary.BinaryCodec;
 import ummisco.gama.serializer.factory.StreamConverter;
 import ummisco.gama.serializer.gamaType.converters.ConverterScope;
 
@@ -61,14 +67,25 @@ public class ReverseOperators {
 	@operator(value = "unSerializeSimulation")
 	@doc(value = "", deprecated = "Still in alpha version, do not use it.")
 	public static int unSerializeSimulationFromFile(final IScope scope, final String pathname) {
+		final String absolute_pathname = FileUtils.constructAbsoluteFilePath(scope, pathname, false);
+		if (isBinaryFile(absolute_pathname)) {
+			final SavedAgent saveAgt;
+			try (InputStream in = new FileInputStream(absolute_pathname)) {
+				saveAgt = (SavedAgent) new BinaryCodec(scope).decode(in);
+			} catch (final IOException e) {
+				e.printStackTrace();
+				return 0;
+			}
+			((ExperimentAgent) scope.getExperiment()).getSimulation().updateWith(scope, saveAgt);
+			return 1;
+		}
+
 		final ConverterScope cScope = new ConverterScope(scope);
 		final XStream xstream = StreamConverter.loadAndBuild(cScope);
 
 		BufferedReader br = null;
 		String stringFile;
 
-		final String absolute_pathname = FileUtils.constructAbsoluteFilePath(scope, pathname, false);
-
 		try {
 			br = new BufferedReader(new FileReader(absolute_pathname));
 		} catch (final FileNotFoundException e) {
@@ -143,11 +160,29 @@ public class ReverseOperators {
 		return 1;
 	}
 
+	private static boolean isBinaryFile(final String path) {
+		final byte[] header = new byte[BinaryCodec.MAGIC.length];
+		try (InputStream in = new FileInputStream(path)) {
+			return in.read(header) == header.length && BinaryCodec.isBinary(header);
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
 	@operator(value = "saveAgent")
 	@doc(value = "", deprecated = "Still in alpha version, do not use it.")
 	public static int saveAgent(final IScope scope, final IAgent agent, final String pathname) {
 		final String path = FileUtils.constructAbsoluteFilePath(scope, pathname, false);
 
+		if (path.endsWith(BinaryCodec.EXTENSION)) {
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path))) {
+				new BinaryCodec(scope).encode(new SavedAgent(scope, agent), out);
+			} catch (final IOException e) {
+				e.printStackTrace();
+			}
+			return 0;
+		}
+
 		final String simulation = serializeAgent(scope, agent);
 
 		FileWriter fw = null;